@@ -2,10 +2,6 @@ package org.opencb.opencga.analysis.variant.gwas;
 
 import org.apache.commons.lang.StringUtils;
 import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.models.variant.avro.ConsequenceType;
-import org.opencb.biodata.models.variant.avro.VariantAnnotation;
-import org.opencb.biodata.models.variant.stats.VariantStats;
-import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -20,10 +16,10 @@ import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.plain.StringDataWriter;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
-import org.opencb.oskar.analysis.stats.FisherExactTest;
-import org.opencb.oskar.analysis.stats.FisherTestResult;
+import org.opencb.oskar.analysis.variant.gwas.GwasConfiguration;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 @AnalysisExecutor(id = "opencga-local",
@@ -47,7 +43,12 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
 
             ProgressLogger progressLogger = new ProgressLogger("Processed variants:");
 
-            Task<Variant, String> task = Task.forEach(this::computeFisherTest)
+            GwasConfiguration configuration = getConfiguration();
+            GwasTask.Test test = GwasTask.getTest(configuration.getMethod());
+            if (StringUtils.isNotEmpty(getExecutorParams().getString("test"))) {
+                test = GwasTask.Test.valueOf(getExecutorParams().getString("test").toUpperCase());
+            }
+            Task<Variant, String> task = new GwasTask(sampleList1, sampleList2, test, configuration.getFisherMode())
                     .then((Task<String, String>) batch -> {
                 progressLogger.increment(batch.size());
                 return batch;
@@ -57,8 +58,8 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
             StringDataWriter writer = new StringDataWriter(getOutputFile(), true);
 
             ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
-                    .setNumTasks(4)
-                    .setBatchSize(100)
+                    .setNumTasks(getExecutorParams().getInt("numThreads", Runtime.getRuntime().availableProcessors()))
+                    .setBatchSize(getExecutorParams().getInt("batchSize", 100))
                     .setSorted(true)
                     .build();
             ParallelTaskRunner<Variant, String> ptr = new ParallelTaskRunner<>(reader, task, writer, config);
@@ -68,75 +69,4 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
             throw new AnalysisException(e);
         }
     }
-
-    private String computeFisherTest(Variant variant) {
-        VariantStats caseStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList1());
-        VariantStats controlStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList2());
-
-        int a = caseStats.getRefAlleleCount(); // case #REF
-        int b = controlStats.getRefAlleleCount(); // control #REF
-        int c = caseStats.getAltAlleleCount(); // case #ALT
-        int d = controlStats.getAltAlleleCount(); // control #ALT
-
-        if (a + b + c + d == 0) {
-            return null;
-        }
-        FisherTestResult fisherTestResult = new FisherExactTest().fisherTest(a, b, c, d);
-
-
-        VariantAnnotation variantAnnotation = variant.getAnnotation();
-        String id = null;
-        Set<String> genes = Collections.emptySet();
-        if (variantAnnotation != null) {
-            id = variantAnnotation.getId();
-            genes = new HashSet<>();
-            if (variantAnnotation.getConsequenceTypes() != null) {
-                for (ConsequenceType consequenceType : variantAnnotation.getConsequenceTypes()) {
-                    if (StringUtils.isNotEmpty(consequenceType.getGeneName())) {
-                        genes.add(consequenceType.getGeneName());
-                    }
-                }
-            }
-        }
-        if (StringUtils.isEmpty(id)) {
-            id = variant.getId();
-        }
-        if (genes.isEmpty()) {
-            genes = Collections.singleton(".");
-        }
-
-        return tsv(
-                id,
-                variant.toString(),
-                variant.getChromosome(), variant.getStart(),
-                variant.getReference().isEmpty() ? "-" : variant.getReference(),
-                variant.getAlternate().isEmpty() ? "-" : variant.getAlternate(),
-                String.join(",", genes),
-                a, b, c, d,
-                caseStats.getAlleleCount(),
-                controlStats.getAlleleCount(),
-                caseStats.getAltAlleleFreq(),
-                controlStats.getAltAlleleFreq(),
-                fisherTestResult.getpValue(),
-                fisherTestResult.getOddRatio()
-        );
-    }
-
-    private static String tsv(Object... objects) {
-        StringJoiner joiner = new StringJoiner("\t");
-        for (Object object : objects) {
-            final String toString;
-            if (object instanceof Double) {
-                if (((Double) object).isNaN() || ((Double) object).isInfinite()) {
-                    toString = "NA";
-                } else {
-                    toString = object.toString();
-                }
-            } else {
-                toString = object.toString();
-            }
-            joiner.add(toString);
-        }
-        return joiner.toString();
-    }
 }
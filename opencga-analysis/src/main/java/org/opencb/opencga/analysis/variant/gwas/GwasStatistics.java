@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.analysis.variant.gwas;
+
+import org.opencb.oskar.analysis.variant.gwas.GwasConfiguration;
+
+/**
+ * Association tests over allele and genotype counts, working only with primitives.
+ *
+ * Allele count tables follow the layout used by the GWAS analysis:
+ * <pre>
+ *           case   control
+ *    REF     a        b
+ *    ALT     c        d
+ * </pre>
+ *
+ * Log-factorials used by the Fisher exact test are precomputed up to the given maximum table size, and computed
+ * on demand above it. Instances are thread safe.
+ */
+public class GwasStatistics {
+
+    // Relative tolerance used to compare table probabilities in the two-sided Fisher test, as R does
+    private static final double RELATIVE_ERROR = 1 + 1e-7;
+
+    private final double[] logFactorials;
+
+    /**
+     * Create a new instance.
+     *
+     * @param maxTableSize  Expected maximum sum of the counts of a table
+     */
+    public GwasStatistics(int maxTableSize) {
+        logFactorials = new double[Math.max(maxTableSize, 1) + 1];
+        for (int i = 2; i < logFactorials.length; i++) {
+            logFactorials[i] = logFactorials[i - 1] + Math.log(i);
+        }
+    }
+
+    /**
+     * Fisher exact test of a 2x2 allele count table.
+     *
+     * @param a     Case REF alleles
+     * @param b     Control REF alleles
+     * @param c     Case ALT alleles
+     * @param d     Control ALT alleles
+     * @param mode  Alternative hypothesis
+     * @return p-value
+     */
+    public double fisherTest(int a, int b, int c, int d, GwasConfiguration.FisherMode mode) {
+        int n = a + b + c + d;
+        int refTotal = a + b;
+        int caseTotal = a + c;
+        int min = Math.max(0, refTotal + caseTotal - n);
+        int max = Math.min(refTotal, caseTotal);
+        // log(1 / C(n, refTotal))
+        double logDenominator = logFactorial(refTotal) + logFactorial(n - refTotal) - logFactorial(n);
+
+        switch (mode == null ? GwasConfiguration.FisherMode.TWO_SIDED : mode) {
+            case LESS:
+                return sumProbabilities(min, a, caseTotal, refTotal, n, logDenominator, Double.POSITIVE_INFINITY);
+            case GREATER:
+                return sumProbabilities(a, max, caseTotal, refTotal, n, logDenominator, Double.POSITIVE_INFINITY);
+            case TWO_SIDED:
+            default:
+                double observed = Math.exp(logProbability(a, caseTotal, refTotal, n, logDenominator)) * RELATIVE_ERROR;
+                return sumProbabilities(min, max, caseTotal, refTotal, n, logDenominator, observed);
+        }
+    }
+
+    private double sumProbabilities(int from, int to, int caseTotal, int refTotal, int n, double logDenominator,
+                                    double maxProbability) {
+        double pValue = 0;
+        for (int x = from; x <= to; x++) {
+            double p = Math.exp(logProbability(x, caseTotal, refTotal, n, logDenominator));
+            if (p <= maxProbability) {
+                pValue += p;
+            }
+        }
+        return Math.min(1, pValue);
+    }
+
+    // Hypergeometric probability of having x case REF alleles, given the margins
+    private double logProbability(int x, int caseTotal, int refTotal, int n, double logDenominator) {
+        return logFactorial(caseTotal) - logFactorial(x) - logFactorial(caseTotal - x)
+                + logFactorial(n - caseTotal) - logFactorial(refTotal - x) - logFactorial(n - caseTotal - refTotal + x)
+                + logDenominator;
+    }
+
+    private double logFactorial(int n) {
+        if (n < logFactorials.length) {
+            return logFactorials[n];
+        }
+        double value = logFactorials[logFactorials.length - 1];
+        for (int i = logFactorials.length; i <= n; i++) {
+            value += Math.log(i);
+        }
+        return value;
+    }
+
+    /**
+     * Pearson's chi-square test of a 2x2 allele count table, without continuity correction.
+     *
+     * @param a     Case REF alleles
+     * @param b     Control REF alleles
+     * @param c     Case ALT alleles
+     * @param d     Control ALT alleles
+     * @return chi-square statistic
+     */
+    public static double chiSquare(int a, int b, int c, int d) {
+        double n = (double) a + b + c + d;
+        double denominator = ((double) a + b) * ((double) c + d) * ((double) a + c) * ((double) b + d);
+        if (denominator == 0) {
+            return Double.NaN;
+        }
+        double diff = (double) a * d - (double) b * c;
+        return n * diff * diff / denominator;
+    }
+
+    /**
+     * Cochran-Armitage trend test over genotype counts, with additive weights (0, 1, 2).
+     *
+     * @param caseGenotypes     Number of case samples with 0, 1 and 2 ALT alleles
+     * @param controlGenotypes  Number of control samples with 0, 1 and 2 ALT alleles
+     * @return chi-square statistic, with one degree of freedom
+     */
+    public static double cochranArmitage(int[] caseGenotypes, int[] controlGenotypes) {
+        double cases = 0;
+        double controls = 0;
+        double t = 0;
+        double sumW2 = 0;
+        double sumW = 0;
+        double[] columns = new double[3];
+        for (int i = 0; i < 3; i++) {
+            cases += caseGenotypes[i];
+            controls += controlGenotypes[i];
+            columns[i] = caseGenotypes[i] + controlGenotypes[i];
+        }
+        double n = cases + controls;
+        if (n == 0) {
+            return Double.NaN;
+        }
+        for (int i = 0; i < 3; i++) {
+            t += i * (caseGenotypes[i] * controls - controlGenotypes[i] * cases);
+            sumW2 += i * i * columns[i];
+            sumW += i * columns[i];
+        }
+        double variance = cases * controls / n * (n * sumW2 - sumW * sumW);
+        if (variance <= 0) {
+            return Double.NaN;
+        }
+        return t * t / variance;
+    }
+
+    /**
+     * P-value of a chi-square statistic with one degree of freedom.
+     *
+     * @param chiSquare chi-square statistic
+     * @return p-value
+     */
+    public static double chiSquarePValue(double chiSquare) {
+        if (Double.isNaN(chiSquare)) {
+            return Double.NaN;
+        }
+        return erfc(Math.sqrt(chiSquare / 2));
+    }
+
+    /**
+     * Odds ratio of a 2x2 allele count table.
+     *
+     * @param a     Case REF alleles
+     * @param b     Control REF alleles
+     * @param c     Case ALT alleles
+     * @param d     Control ALT alleles
+     * @return odds ratio
+     */
+    public static double oddsRatio(int a, int b, int c, int d) {
+        return ((double) a * d) / ((double) b * c);
+    }
+
+    // Complementary error function, with fractional error below 1.2e-7. See Numerical Recipes, section 6.2
+    static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double ans = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? ans : 2 - ans;
+    }
+}
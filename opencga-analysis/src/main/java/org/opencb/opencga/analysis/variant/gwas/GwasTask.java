@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.analysis.variant.gwas;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.run.Task;
+import org.opencb.oskar.analysis.variant.gwas.GwasConfiguration;
+
+import java.util.*;
+
+/**
+ * Computes the association test of each variant between a case and a control cohort, producing one TSV line per variant.
+ *
+ * Sample positions of both cohorts are resolved once into index arrays, and reused while the variants share the same
+ * samples position map. Alleles are counted straight from the GT strings, without creating intermediate objects.
+ *
+ * Output columns: id, variant, chromosome, start, reference, alternate, genes, case REF, control REF, case ALT,
+ * control ALT, case allele count, control allele count, case ALT freq, control ALT freq, p-value, odds ratio.
+ * Variants without called alleles are skipped.
+ */
+public class GwasTask implements Task<Variant, String> {
+
+    public enum Test {
+        FISHER,
+        CHI_SQUARE,
+        COCHRAN_ARMITAGE
+    }
+
+    // Positions in the counts array
+    private static final int REF = 0;
+    private static final int ALT = 1;
+    private static final int ALLELES = 2;
+    // Number of samples with 0, 1 and 2 ALT alleles, for the trend test
+    private static final int GT_0 = 3;
+    private static final int NUM_COUNTS = 6;
+
+    private final List<String> caseSamples;
+    private final List<String> controlSamples;
+    private final Test test;
+    private final GwasConfiguration.FisherMode fisherMode;
+    private final GwasStatistics statistics;
+    private volatile SamplePositions samplePositions;
+
+    private static final class SamplePositions {
+        private final Map<String, Integer> samplesPosition;
+        private final int[] cases;
+        private final int[] controls;
+
+        private SamplePositions(Map<String, Integer> samplesPosition, int[] cases, int[] controls) {
+            this.samplesPosition = samplesPosition;
+            this.cases = cases;
+            this.controls = controls;
+        }
+    }
+
+    public GwasTask(List<String> caseSamples, List<String> controlSamples, Test test, GwasConfiguration.FisherMode fisherMode) {
+        this.caseSamples = caseSamples;
+        this.controlSamples = controlSamples;
+        this.test = test;
+        this.fisherMode = fisherMode;
+        // Assume diploid samples
+        this.statistics = new GwasStatistics(2 * (caseSamples.size() + controlSamples.size()));
+    }
+
+    public static Test getTest(GwasConfiguration.Method method) {
+        if (method == GwasConfiguration.Method.CHI_SQUARE_TEST) {
+            return Test.CHI_SQUARE;
+        } else {
+            return Test.FISHER;
+        }
+    }
+
+    @Override
+    public List<String> apply(List<Variant> batch) {
+        List<String> lines = new ArrayList<>(batch.size());
+        int[] caseCounts = new int[NUM_COUNTS];
+        int[] controlCounts = new int[NUM_COUNTS];
+        for (Variant variant : batch) {
+            String line = compute(variant, caseCounts, controlCounts);
+            if (line != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    String compute(Variant variant, int[] caseCounts, int[] controlCounts) {
+        StudyEntry study = variant.getStudies().get(0);
+        SamplePositions positions = getSamplePositions(study);
+        Integer gtIdx = study.getFormatPositions().get("GT");
+        Arrays.fill(caseCounts, 0);
+        Arrays.fill(controlCounts, 0);
+        if (gtIdx != null) {
+            count(study.getSamplesData(), positions.cases, gtIdx, caseCounts);
+            count(study.getSamplesData(), positions.controls, gtIdx, controlCounts);
+        }
+
+        int a = caseCounts[REF];
+        int b = controlCounts[REF];
+        int c = caseCounts[ALT];
+        int d = controlCounts[ALT];
+        if (a + b + c + d == 0) {
+            return null;
+        }
+
+        double pValue;
+        switch (test) {
+            case CHI_SQUARE:
+                pValue = GwasStatistics.chiSquarePValue(GwasStatistics.chiSquare(a, b, c, d));
+                break;
+            case COCHRAN_ARMITAGE:
+                pValue = GwasStatistics.chiSquarePValue(GwasStatistics.cochranArmitage(
+                        Arrays.copyOfRange(caseCounts, GT_0, GT_0 + 3), Arrays.copyOfRange(controlCounts, GT_0, GT_0 + 3)));
+                break;
+            case FISHER:
+            default:
+                pValue = statistics.fisherTest(a, b, c, d, fisherMode);
+                break;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(getId(variant)).append('\t')
+                .append(variant.toString()).append('\t')
+                .append(variant.getChromosome()).append('\t')
+                .append(variant.getStart()).append('\t')
+                .append(variant.getReference().isEmpty() ? "-" : variant.getReference()).append('\t')
+                .append(variant.getAlternate().isEmpty() ? "-" : variant.getAlternate()).append('\t')
+                .append(getGenes(variant)).append('\t')
+                .append(a).append('\t')
+                .append(b).append('\t')
+                .append(c).append('\t')
+                .append(d).append('\t')
+                .append(caseCounts[ALLELES]).append('\t')
+                .append(controlCounts[ALLELES]).append('\t');
+        appendNumber(sb, (float) c / caseCounts[ALLELES]).append('\t');
+        appendNumber(sb, (float) d / controlCounts[ALLELES]).append('\t');
+        appendNumber(sb, pValue).append('\t');
+        appendNumber(sb, GwasStatistics.oddsRatio(a, b, c, d));
+        return sb.toString();
+    }
+
+    private SamplePositions getSamplePositions(StudyEntry study) {
+        Map<String, Integer> samplesPosition = study.getSamplesPosition();
+        SamplePositions positions = samplePositions;
+        if (positions == null || positions.samplesPosition != samplesPosition) {
+            positions = new SamplePositions(samplesPosition,
+                    toIndexes(caseSamples, samplesPosition), toIndexes(controlSamples, samplesPosition));
+            samplePositions = positions;
+        }
+        return positions;
+    }
+
+    private static int[] toIndexes(List<String> samples, Map<String, Integer> samplesPosition) {
+        int[] indexes = new int[samples.size()];
+        int i = 0;
+        for (String sample : samples) {
+            Integer position = samplesPosition.get(sample);
+            if (position != null) {
+                indexes[i++] = position;
+            }
+        }
+        return i == indexes.length ? indexes : Arrays.copyOf(indexes, i);
+    }
+
+    /**
+     * Count the alleles of the given samples.
+     *
+     * @param samplesData   Samples data
+     * @param indexes       Positions of the samples to count
+     * @param gtIdx         Position of the GT in the samples data
+     * @param counts        Counts array to be incremented
+     */
+    static void count(List<List<String>> samplesData, int[] indexes, int gtIdx, int[] counts) {
+        for (int index : indexes) {
+            String gt = samplesData.get(index).get(gtIdx);
+            int altAlleles = 0;
+            boolean trend = true;
+            int allele = -1;
+            int ploidy = 0;
+            for (int i = 0, length = gt.length(); i <= length; i++) {
+                char ch = i == length ? '/' : gt.charAt(i);
+                if (ch >= '0' && ch <= '9') {
+                    allele = (allele < 0 ? 0 : allele * 10) + (ch - '0');
+                } else if (ch == '/' || ch == '|') {
+                    ploidy++;
+                    if (allele < 0) {
+                        // Missing allele
+                        trend = false;
+                    } else {
+                        counts[ALLELES]++;
+                        if (allele == 0) {
+                            counts[REF]++;
+                        } else if (allele == 1) {
+                            counts[ALT]++;
+                            altAlleles++;
+                        } else {
+                            trend = false;
+                        }
+                    }
+                    allele = -1;
+                } else if (ch != '.') {
+                    // Unknown genotype format. Ignore it
+                    trend = false;
+                    break;
+                }
+            }
+            if (trend && ploidy == 2) {
+                counts[GT_0 + altAlleles]++;
+            }
+        }
+    }
+
+    private static String getId(Variant variant) {
+        VariantAnnotation annotation = variant.getAnnotation();
+        if (annotation != null && StringUtils.isNotEmpty(annotation.getId())) {
+            return annotation.getId();
+        }
+        return variant.getId();
+    }
+
+    private static String getGenes(Variant variant) {
+        VariantAnnotation annotation = variant.getAnnotation();
+        if (annotation == null || annotation.getConsequenceTypes() == null) {
+            return ".";
+        }
+        Set<String> genes = new LinkedHashSet<>();
+        for (ConsequenceType consequenceType : annotation.getConsequenceTypes()) {
+            if (StringUtils.isNotEmpty(consequenceType.getGeneName())) {
+                genes.add(consequenceType.getGeneName());
+            }
+        }
+        return genes.isEmpty() ? "." : String.join(",", genes);
+    }
+
+    private static StringBuilder appendNumber(StringBuilder sb, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return sb.append("NA");
+        }
+        return sb.append(value);
+    }
+
+    private static StringBuilder appendNumber(StringBuilder sb, float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            return sb.append("NA");
+        }
+        return sb.append(value);
+    }
+}
@@ -6,8 +6,10 @@ import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.analysis.OpenCgaAnalysis;
+import org.opencb.opencga.catalog.db.api.FileDBAdaptor;
 import org.opencb.opencga.catalog.db.api.SampleDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
+import org.opencb.opencga.catalog.models.update.SampleUpdateParams;
 import org.opencb.opencga.catalog.utils.AvroToAnnotationConverter;
 import org.opencb.opencga.core.analysis.result.FileResult;
 import org.opencb.opencga.core.analysis.variant.SampleVariantStatsAnalysisExecutor;
@@ -15,6 +17,7 @@ import org.opencb.opencga.core.annotations.Analysis;
 import org.opencb.opencga.core.common.JacksonUtils;
 import org.opencb.opencga.core.exception.AnalysisException;
 import org.opencb.opencga.core.models.*;
+import org.opencb.opencga.core.models.FileIndex.IndexStatus;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 
@@ -28,13 +31,20 @@ public class SampleVariantStatsAnalysis extends OpenCgaAnalysis {
     public static final String ID = "sample-variant-stats";
     public static final String DESCRIPTION = "Compute sample variant stats for the selected list of samples.";
     public static final String VARIABLE_SET_ID = "SAMPLE_VARIANT_STATS";
+    /**
+     * Sample attribute with the list of indexed files used to calculate the stats of the AnnotationSet {@link #VARIABLE_SET_ID}.
+     */
+    public static final String STATS_FILES_ATTRIBUTE = "SAMPLE_VARIANT_STATS_FILES";
     private String study;
     private Query samplesQuery;
     private List<String> sampleNames;
     private String individual;
     private String family;
     private ArrayList<String> checkedSamplesList;
+    private Map<String, List<String>> sampleFiles;
+    private Set<String> samplesWithStats;
     private boolean indexResults = false;
+    private boolean incremental = false;
     private Path outputFile;
 
     /**
@@ -100,6 +110,19 @@ public class SampleVariantStatsAnalysis extends OpenCgaAnalysis {
         return this;
     }
 
+    /**
+     * Only calculate the stats of the samples without an AnnotationSet for the VariableSet {@link #VARIABLE_SET_ID}, or with
+     * new indexed files since the stats were calculated. See {@link #STATS_FILES_ATTRIBUTE}.
+     * The stats of a sample do not change when new samples are loaded, so they don't need to be calculated again.
+     *
+     * @param incremental incremental
+     * @return this
+     */
+    public SampleVariantStatsAnalysis setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
     @Override
     protected void check() throws Exception {
         super.check();
@@ -154,6 +177,29 @@ public class SampleVariantStatsAnalysis extends OpenCgaAnalysis {
             Set<String> indexedSamples = variantStorageManager.getIndexedSamples(study, sessionId);
             allSamples.removeIf(s -> !indexedSamples.contains(s));
 
+            // Read the indexed files before calculating the stats. Files indexed later are not included.
+            sampleFiles = getIndexedFiles(allSamples);
+            samplesWithStats = new HashSet<>();
+            if (!allSamples.isEmpty()) {
+                for (Sample sample : catalogManager.getSampleManager()
+                        .get(study, new ArrayList<>(allSamples), new QueryOptions(), sessionId).getResults()) {
+                    if (sample.getAnnotationSets() != null && sample.getAnnotationSets().stream()
+                            .anyMatch(annotationSet -> VARIABLE_SET_ID.equals(annotationSet.getVariableSetId()))) {
+                        samplesWithStats.add(sample.getId());
+                        if (incremental && isUpToDate(sample)) {
+                            // Skip samples with stats of the same indexed files
+                            allSamples.remove(sample.getId());
+                        }
+                    }
+                }
+            }
+
+            if (incremental && !samplesWithStats.isEmpty() && allSamples.isEmpty()) {
+                // Nothing to do. Finish without errors
+                addWarning("Variant stats already calculated for all the samples");
+                checkedSamplesList = new ArrayList<>();
+                return;
+            }
         } catch (CatalogException e) {
             throw new AnalysisException(e);
         }
@@ -180,6 +226,10 @@ public class SampleVariantStatsAnalysis extends OpenCgaAnalysis {
 
     @Override
     public List<String> getSteps() {
+        if (checkedSamplesList != null && checkedSamplesList.isEmpty()) {
+            // Nothing to run
+            return new ArrayList<>();
+        }
         List<String> steps = super.getSteps();
         if (indexResults) {
             steps.add("index");
@@ -189,6 +239,10 @@ public class SampleVariantStatsAnalysis extends OpenCgaAnalysis {
 
     @Override
     protected void run() throws AnalysisException {
+        if (checkedSamplesList.isEmpty()) {
+            // Incremental run with stats already calculated for all the samples
+            return;
+        }
         step(getId(), () -> {
             getAnalysisExecutor(SampleVariantStatsAnalysisExecutor.class)
                     .setOutputFile(outputFile)
@@ -223,13 +277,50 @@ public class SampleVariantStatsAnalysis extends OpenCgaAnalysis {
             }
 
             for (SampleVariantStats sampleStats : stats) {
+                if (samplesWithStats.contains(sampleStats.getId())) {
+                    // Replace outdated stats
+                    catalogManager.getSampleManager()
+                            .removeAnnotationSet(study, sampleStats.getId(), VARIABLE_SET_ID, new QueryOptions(), sessionId);
+                }
                 AnnotationSet annotationSet = AvroToAnnotationConverter.convertToAnnotationSet(sampleStats, VARIABLE_SET_ID);
                 catalogManager.getSampleManager()
                         .addAnnotationSet(study, sampleStats.getId(), annotationSet, new QueryOptions(), sessionId);
+                catalogManager.getSampleManager().update(study, sampleStats.getId(), new SampleUpdateParams()
+                        .setAttributes(Collections.singletonMap(STATS_FILES_ATTRIBUTE, sampleFiles.get(sampleStats.getId()))),
+                        new QueryOptions(), sessionId);
             }
         } catch (IOException | CatalogException e) {
             throw new AnalysisException(e);
         }
     }
 
+    private boolean isUpToDate(Sample sample) {
+        Object files = sample.getAttributes() == null ? null : sample.getAttributes().get(STATS_FILES_ATTRIBUTE);
+        if (!(files instanceof Collection)) {
+            // Stats calculated without recording the files. Can not tell if they are up to date
+            return false;
+        }
+        Set<String> statsFiles = new HashSet<>();
+        for (Object file : (Collection<?>) files) {
+            statsFiles.add(String.valueOf(file));
+        }
+        return statsFiles.equals(new HashSet<>(sampleFiles.get(sample.getId())));
+    }
+
+    private Map<String, List<String>> getIndexedFiles(Collection<String> samples) throws CatalogException {
+        Map<String, List<String>> indexedFiles = new HashMap<>();
+        QueryOptions options = new QueryOptions(QueryOptions.INCLUDE, FileDBAdaptor.QueryParams.ID.key());
+        for (String sample : samples) {
+            Query query = new Query(FileDBAdaptor.QueryParams.SAMPLES.key(), sample)
+                    .append(FileDBAdaptor.QueryParams.INDEX_STATUS_NAME.key(), IndexStatus.READY);
+            List<String> files = new ArrayList<>();
+            for (File file : catalogManager.getFileManager().search(study, query, options, sessionId).getResults()) {
+                files.add(file.getId());
+            }
+            files.sort(String::compareTo);
+            indexedFiles.put(sample, files);
+        }
+        return indexedFiles;
+    }
+
 }
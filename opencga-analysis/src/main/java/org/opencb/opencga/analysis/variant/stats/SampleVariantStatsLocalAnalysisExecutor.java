@@ -3,7 +3,7 @@ package org.opencb.opencga.analysis.variant.stats;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
-import org.opencb.biodata.tools.variant.stats.SampleVariantStatsCalculator;
+import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.Query;
@@ -16,6 +16,8 @@ import org.opencb.opencga.analysis.variant.VariantStorageManager;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
+import org.opencb.opencga.storage.core.variant.stats.MergeableSampleVariantStatsCalculator;
+import org.opencb.opencga.storage.core.variant.stats.PartialCalculators;
 import org.opencb.opencga.core.exception.AnalysisException;
 import org.opencb.opencga.core.exception.AnalysisExecutorException;
 
@@ -40,16 +42,22 @@ public class SampleVariantStatsLocalAnalysisExecutor extends SampleVariantStatsA
         List<SampleVariantStats> stats;
         try {
             DataResult<VariantMetadata> metadata = variantStorageManager.getMetadata(query, new QueryOptions(), getSessionId());
-            SampleVariantStatsCalculator calculator = new SampleVariantStatsCalculator(metadata.first().getStudies().get(0));
+            VariantStudyMetadata studyMetadata = metadata.first().getStudies().get(0);
+            // One partial calculator per task, merged at the end
+            PartialCalculators<MergeableSampleVariantStatsCalculator> calculators = new PartialCalculators<>(
+                    () -> new MergeableSampleVariantStatsCalculator(studyMetadata), MergeableSampleVariantStatsCalculator::merge);
 
             ProgressLogger progressLogger = new ProgressLogger("Variants processed:");
             VariantDBIterator iterator = variantStorageManager.iterator(query, new QueryOptions(), getSessionId());
 
-            ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder().setNumTasks(1).setBatchSize(10).build();
+            ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+                    .setNumTasks(getExecutorParams().getInt("numThreads", Runtime.getRuntime().availableProcessors()))
+                    .setBatchSize(getExecutorParams().getInt("batchSize", 100))
+                    .build();
 
             ParallelTaskRunner<Variant, Variant> ptr = new ParallelTaskRunner<>(
                     new VariantDBReader(iterator),
-                    calculator.then((List<Variant> b) -> {
+                    () -> calculators.get().then((List<Variant> b) -> {
                         progressLogger.increment(b.size());
                         return b;
                     }),
@@ -58,7 +66,7 @@ public class SampleVariantStatsLocalAnalysisExecutor extends SampleVariantStatsA
 
             ptr.run();
 
-            stats = calculator.getSampleVariantStats();
+            stats = calculators.merge().getSampleVariantStats();
         } catch (Exception e) {
             throw new AnalysisExecutorException(e);
         }
@@ -0,0 +1,89 @@
+package org.opencb.opencga.analysis.variant.gwas;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.oskar.analysis.variant.gwas.GwasConfiguration.FisherMode;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GwasStatisticsTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testFisher() {
+        // Expected values from R fisher.test
+        GwasStatistics statistics = new GwasStatistics(100);
+        assertEquals(0.4857142857142857, statistics.fisherTest(3, 1, 1, 3, FisherMode.TWO_SIDED), DELTA);
+        assertEquals(0.9857142857142857, statistics.fisherTest(3, 1, 1, 3, FisherMode.LESS), DELTA);
+        assertEquals(0.24285714285714285, statistics.fisherTest(3, 1, 1, 3, FisherMode.GREATER), DELTA);
+        assertEquals(0.007936507936507936, statistics.fisherTest(0, 5, 5, 0, FisherMode.TWO_SIDED), DELTA);
+
+        // Tables larger than the precomputed log-factorials
+        assertEquals(0.5044757698516281, statistics.fisherTest(10, 20, 30, 40, FisherMode.TWO_SIDED), DELTA);
+        assertEquals(0.016316864754202715, statistics.fisherTest(100, 150, 20, 60, FisherMode.TWO_SIDED), DELTA);
+        assertEquals(0.009910006692054898, statistics.fisherTest(100, 150, 20, 60, FisherMode.GREATER), DELTA);
+    }
+
+    @Test
+    public void testChiSquare() {
+        double chiSquare = GwasStatistics.chiSquare(10, 20, 30, 40);
+        assertEquals(0.7936507936507936, chiSquare, DELTA);
+        assertEquals(0.37299848361348714, GwasStatistics.chiSquarePValue(chiSquare), 1e-7);
+        assertTrue(Double.isNaN(GwasStatistics.chiSquare(0, 0, 5, 5)));
+    }
+
+    @Test
+    public void testCochranArmitage() {
+        double chiSquare = GwasStatistics.cochranArmitage(new int[]{10, 20, 30}, new int[]{30, 20, 10});
+        assertEquals(20, chiSquare, DELTA);
+        assertEquals(7.744216431044074e-06, GwasStatistics.chiSquarePValue(chiSquare), 1e-12);
+        assertTrue(Double.isNaN(GwasStatistics.cochranArmitage(new int[]{10, 0, 0}, new int[]{10, 0, 0})));
+    }
+
+    @Test
+    public void testGwasTask() {
+        List<String> cases = Arrays.asList("S1", "S2", "S3");
+        List<String> controls = Arrays.asList("S4", "S5", "S6");
+        Variant variant = Variant.newBuilder("1:100:A:C")
+                .setStudyId("study")
+                .setFormat("GT", "DP")
+                .addSample("S1", "0/1", "10")
+                .addSample("S4", "0/0", "10")
+                .addSample("S2", "1|1", "10")
+                .addSample("S5", "./.", "10")
+                .addSample("S3", "0/2", "10")
+                .addSample("S6", "0/1", "10")
+                .build();
+
+        GwasTask task = new GwasTask(cases, controls, GwasTask.Test.FISHER, FisherMode.TWO_SIDED);
+        String[] line = task.apply(Arrays.asList(variant, variant)).get(1).split("\t");
+        assertEquals("1:100:A:C", line[1]);
+        // case REF, control REF, case ALT, control ALT
+        assertEquals(Arrays.asList("2", "3", "3", "1"), Arrays.asList(line).subList(7, 11));
+        // Allele counts
+        assertEquals("6", line[11]);
+        assertEquals("4", line[12]);
+        assertEquals(String.valueOf(0.5f), line[13]);
+        assertEquals(String.valueOf(0.25f), line[14]);
+        assertEquals(new GwasStatistics(10).fisherTest(2, 3, 3, 1, FisherMode.TWO_SIDED), Double.parseDouble(line[15]), DELTA);
+
+        // Trend test, excluding missing and multi-allelic genotypes
+        int[] counts = new int[6];
+        GwasTask.count(Arrays.asList(Arrays.asList("0/1"), Arrays.asList("1|1"), Arrays.asList("./."), Arrays.asList("0/2"),
+                Arrays.asList("0/0"), Arrays.asList("1")), new int[]{0, 1, 2, 3, 4, 5}, 0, counts);
+        assertArrayEquals(new int[]{4, 4, 9, 1, 1, 1}, counts);
+
+        // Variants without called alleles are skipped
+        Variant missing = Variant.newBuilder("1:200:A:C")
+                .setStudyId("study")
+                .setFormat("GT")
+                .addSample("S1", "./.")
+                .addSample("S4", "./.")
+                .build();
+        assertEquals(0, task.apply(Arrays.asList(missing)).size());
+    }
+}
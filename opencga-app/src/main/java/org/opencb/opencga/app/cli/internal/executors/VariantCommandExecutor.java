@@ -724,6 +724,7 @@ public class VariantCommandExecutor extends InternalCommandExecutor {
         sampleVariantStatsAnalysis.setUp(appHome, catalogManager, storageEngineFactory, params, Paths.get(cliOptions.outdir), sessionId);
         sampleVariantStatsAnalysis.setStudy(cliOptions.study)
                 .setIndexResults(cliOptions.index)
+                .setIncremental(cliOptions.incremental)
                 .setFamily(cliOptions.family)
                 .setSamplesQuery(query)
                 .setSampleNames(cliOptions.samples)
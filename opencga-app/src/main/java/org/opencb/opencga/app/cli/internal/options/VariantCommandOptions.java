@@ -984,6 +984,12 @@ public class VariantCommandOptions {
                 + "Create an AnnotationSet for the VariableSet " + SampleVariantStatsAnalysis.VARIABLE_SET_ID)
         public boolean index;
 
+        @Parameter(names = {"--incremental"}, description = "Only calculate the stats of samples without the AnnotationSet "
+                + SampleVariantStatsAnalysis.VARIABLE_SET_ID + ", or with new indexed files since the stats were calculated. "
+                + "Stats indexed without the list of files in the sample attribute "
+                + SampleVariantStatsAnalysis.STATS_FILES_ATTRIBUTE + " are calculated again.")
+        public boolean incremental;
+
         @Parameter(names = {"-o", "--outdir"}, description = "Output directory.", arity = 1, required = false)
         public String outdir;
     }
@@ -52,22 +52,22 @@ public class AuditManager {
     private final CatalogManager catalogManager;
     private final AuthorizationManager authorizationManager;
     private final AuditDBAdaptor auditDBAdaptor;
+    private final AuditWriter auditWriter;
 
     public AuditManager(AuthorizationManager authorizationManager, CatalogManager catalogManager, DBAdaptorFactory catalogDBAdaptorFactory,
                         Configuration configuration) {
         this.catalogManager = catalogManager;
         this.authorizationManager = authorizationManager;
         this.auditDBAdaptor = catalogDBAdaptorFactory.getCatalogAuditDbAdaptor();
+        this.auditWriter = new AuditWriter(auditDBAdaptor, configuration == null ? null : configuration.getAudit());
     }
 
     public void audit(AuditRecord auditRecord) throws CatalogException {
-        auditDBAdaptor.insertAuditRecord(auditRecord);
+        auditWriter.write(auditRecord);
     }
 
     public void audit(List<AuditRecord> auditRecordList) throws CatalogException {
-        for (AuditRecord auditRecord : auditRecordList) {
-            auditDBAdaptor.insertAuditRecord(auditRecord);
-        }
+        auditWriter.write(auditRecordList);
     }
 
     public void auditCreate(String userId, Enums.Resource resource, String resourceId, String resourceUuid, String studyId,
@@ -159,12 +159,30 @@ public class AuditManager {
         AuditRecord auditRecord = new AuditRecord(auditId, operationId, userId, apiVersion, action, resource, resourceId, resourceUuid,
                 studyId, studyUuid, params, status, date, attributes);
         try {
-            auditDBAdaptor.insertAuditRecord(auditRecord);
+            auditWriter.write(auditRecord);
         } catch (CatalogDBException e) {
             logger.error("Could not audit '{}' -> Error: {}", auditRecord, e.getMessage(), e);
         }
     }
 
+    /**
+     * Statistics of the audit writer, including the current and maximum queue depth.
+     *
+     * @return ObjectMap with the audit writer statistics
+     */
+    public ObjectMap getWriterStats() {
+        return auditWriter.getStats();
+    }
+
+    /**
+     * Stops the audit writer. Depending on the write mode, pending records are written or discarded.
+     *
+     * @throws CatalogDBException if any audit record could not be written in background
+     */
+    public void close() throws CatalogDBException {
+        auditWriter.close();
+    }
+
     /**
      * Groups the matching entries by some fields.
      *
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.catalog.audit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.catalog.db.api.AuditDBAdaptor;
+import org.opencb.opencga.catalog.exceptions.CatalogDBException;
+import org.opencb.opencga.core.config.Audit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes the audit records into the {@link AuditDBAdaptor}.
+ *
+ * In the asynchronous modes, records are added to a bounded queue and written by a background thread with bulk inserts,
+ * so the request thread does not pay the database round trip. If the queue is full, the record is written synchronously.
+ * Records written once the writer is closed are also written synchronously. Errors writing the background batches are
+ * logged, and reported by the next call to {@link #flush()} or {@link #close()}.
+ */
+public class AuditWriter implements AutoCloseable {
+
+    public enum Mode {
+        /** Write each record from the caller thread. */
+        SYNC,
+        /** Write in background batches. Pending records are discarded on close. */
+        ASYNC,
+        /** Write in background batches. Pending records are written on close. */
+        ASYNC_FLUSH
+    }
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final AuditDBAdaptor auditDBAdaptor;
+    private final Mode mode;
+    private final int batchSize;
+    private final BlockingQueue<AuditRecord> queue;
+    private final Thread writerThread;
+    private volatile boolean running;
+    // Prevents enqueuing records while the writer is being closed
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final AtomicReference<CatalogDBException> asyncFailure = new AtomicReference<>();
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong maxQueueSize = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong queueFull = new AtomicLong();
+
+    private static Logger logger = LoggerFactory.getLogger(AuditWriter.class);
+
+    public AuditWriter(AuditDBAdaptor auditDBAdaptor, Audit audit) {
+        this(auditDBAdaptor, getMode(audit), audit == null ? 0 : audit.getQueueSize(), audit == null ? 0 : audit.getBatchSize());
+    }
+
+    public AuditWriter(AuditDBAdaptor auditDBAdaptor, Mode mode, int queueSize, int batchSize) {
+        this.auditDBAdaptor = auditDBAdaptor;
+        this.mode = mode;
+        this.batchSize = batchSize > 0 ? batchSize : 500;
+        if (mode == Mode.SYNC) {
+            queue = null;
+            writerThread = null;
+            running = false;
+        } else {
+            queue = new ArrayBlockingQueue<>(queueSize > 0 ? queueSize : 10000);
+            running = true;
+            writerThread = new Thread(this::run, "audit-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    private static Mode getMode(Audit audit) {
+        if (audit == null || StringUtils.isEmpty(audit.getWriteMode())) {
+            return Mode.SYNC;
+        }
+        return Mode.valueOf(audit.getWriteMode().toUpperCase());
+    }
+
+    public void write(AuditRecord auditRecord) throws CatalogDBException {
+        boolean enqueued;
+        closeLock.readLock().lock();
+        try {
+            enqueued = running && enqueue(auditRecord);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        if (!enqueued) {
+            writeSync(Collections.singletonList(auditRecord));
+        }
+    }
+
+    public void write(List<AuditRecord> auditRecords) throws CatalogDBException {
+        List<AuditRecord> overflow = null;
+        closeLock.readLock().lock();
+        try {
+            if (running) {
+                for (AuditRecord auditRecord : auditRecords) {
+                    if (!enqueue(auditRecord)) {
+                        if (overflow == null) {
+                            overflow = new ArrayList<>();
+                        }
+                        overflow.add(auditRecord);
+                    }
+                }
+            } else {
+                overflow = auditRecords;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        if (overflow != null) {
+            writeSync(overflow);
+        }
+    }
+
+    private boolean enqueue(AuditRecord auditRecord) {
+        pending.incrementAndGet();
+        if (queue.offer(auditRecord)) {
+            maxQueueSize.accumulateAndGet(queue.size(), Math::max);
+            return true;
+        } else {
+            pending.decrementAndGet();
+            queueFull.incrementAndGet();
+            return false;
+        }
+    }
+
+    private void writeSync(List<AuditRecord> auditRecords) throws CatalogDBException {
+        try {
+            auditDBAdaptor.insertAuditRecords(auditRecords);
+            written.addAndGet(auditRecords.size());
+        } catch (CatalogDBException | RuntimeException e) {
+            failed.addAndGet(auditRecords.size());
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        while (running || (mode == Mode.ASYNC_FLUSH && !queue.isEmpty())) {
+            AuditRecord first;
+            try {
+                first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                auditDBAdaptor.insertAuditRecords(batch);
+                written.addAndGet(batch.size());
+            } catch (Exception e) {
+                failed.addAndGet(batch.size());
+                logger.error("Could not write {} audit records -> Error: {}", batch.size(), e.getMessage(), e);
+                CatalogDBException failure = new CatalogDBException("Could not write " + batch.size() + " audit records", e);
+                CatalogDBException previousFailure = asyncFailure.getAndUpdate(previous -> previous == null ? failure : previous);
+                if (previousFailure != null) {
+                    previousFailure.addSuppressed(failure);
+                }
+            } finally {
+                batches.incrementAndGet();
+                pending.addAndGet(-batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Wait until all the queued records are written.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws CatalogDBException if any background batch failed since the last flush or close
+     */
+    public void flush() throws InterruptedException, CatalogDBException {
+        while (pending.get() > 0 && writerThread != null && writerThread.isAlive()) {
+            Thread.sleep(10);
+        }
+        checkAsyncFailures();
+    }
+
+    /**
+     * Stop the background writer. Depending on the mode, pending records are written or discarded. Any later record is
+     * written synchronously.
+     *
+     * @throws CatalogDBException if any background batch failed since the last flush or close
+     */
+    @Override
+    public void close() throws CatalogDBException {
+        closeLock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        if (mode == Mode.ASYNC) {
+            List<AuditRecord> discarded = new ArrayList<>();
+            queue.drainTo(discarded);
+            pending.addAndGet(-discarded.size());
+            if (!discarded.isEmpty()) {
+                logger.warn("Discarding {} pending audit records", discarded.size());
+            }
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for {} pending audit records", queue.size());
+        }
+        checkAsyncFailures();
+    }
+
+    private void checkAsyncFailures() throws CatalogDBException {
+        CatalogDBException failure = asyncFailure.getAndSet(null);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getQueueSize() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    public ObjectMap getStats() {
+        return new ObjectMap("mode", mode)
+                .append("queueSize", getQueueSize())
+                .append("maxQueueSize", maxQueueSize.get())
+                .append("queueFull", queueFull.get())
+                .append("batches", batches.get())
+                .append("written", written.get())
+                .append("failed", failed.get());
+    }
+}
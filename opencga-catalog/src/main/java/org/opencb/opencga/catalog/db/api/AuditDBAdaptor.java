@@ -89,6 +89,15 @@ public interface AuditDBAdaptor {
 
     OpenCGAResult<AuditRecord> insertAuditRecord(AuditRecord auditRecord) throws CatalogDBException;
 
+    /**
+     * Insert a batch of audit records with a single unordered bulk write.
+     *
+     * @param auditRecords Audit records to insert
+     * @return OpenCGAResult with the inserted records
+     * @throws CatalogDBException if there is any error writing the records
+     */
+    OpenCGAResult<AuditRecord> insertAuditRecords(List<AuditRecord> auditRecords) throws CatalogDBException;
+
     OpenCGAResult<AuditRecord> get(Query query, QueryOptions queryOptions) throws CatalogDBException;
 
     OpenCGAResult groupBy(Query query, List<String> fields, QueryOptions options) throws CatalogDBException;
@@ -45,6 +45,7 @@ public interface CohortDBAdaptor extends AnnotationSetDBAdaptor<Cohort> {
         TYPE("type", TEXT, ""),
         CREATION_DATE("creationDate", DATE, ""),
         MODIFICATION_DATE("modificationDate", DATE, ""),
+        LAST_ACL_UPDATE("lastAclUpdate", DATE, ""), // Internal date of the last change of the permissions
         STATUS("status", TEXT_ARRAY, ""),
         STATUS_NAME("status.name", TEXT, ""),
         STATUS_MSG("status.msg", TEXT, ""),
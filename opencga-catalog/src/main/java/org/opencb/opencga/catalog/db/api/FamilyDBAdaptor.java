@@ -49,6 +49,7 @@ public interface FamilyDBAdaptor extends AnnotationSetDBAdaptor<Family> {
         MEMBERS_PARENTAL_CONSANGUINITY("members.parentalConsanguinity", BOOLEAN, ""),
         CREATION_DATE("creationDate", DATE, ""),
         MODIFICATION_DATE("modificationDate", DATE, ""),
+        LAST_ACL_UPDATE("lastAclUpdate", DATE, ""), // Internal date of the last change of the permissions
         DESCRIPTION("description", TEXT, ""),
         EXPECTED_SIZE("expectedSize", INTEGER, ""),
         ATTRIBUTES("attributes", TEXT, ""), // "Format: <key><operation><stringValue> where <operation> is [<|<=|>|>=|==|!=|~|!~]"
@@ -53,7 +53,8 @@ public interface FileDBAdaptor extends AnnotationSetDBAdaptor<File> {
         PATH("path", TEXT_ARRAY, ""),
         OWNER_ID("ownerId", TEXT_ARRAY, ""),
         CREATION_DATE("creationDate", DATE, ""),
-        MODIFICATION_DATE("modificationDate", TEXT_ARRAY, ""),
+        MODIFICATION_DATE("modificationDate", DATE, ""),
+        LAST_ACL_UPDATE("lastAclUpdate", DATE, ""), // Internal date of the last change of the permissions
         DESCRIPTION("description", TEXT_ARRAY, ""),
         EXTERNAL("external", BOOLEAN, ""),
         RELEASE("release", INTEGER, ""),
@@ -63,6 +63,7 @@ public interface IndividualDBAdaptor extends AnnotationSetDBAdaptor<Individual>
         DATE_OF_BIRTH("dateOfBirth", TEXT, ""),
         CREATION_DATE("creationDate", DATE, ""),
         MODIFICATION_DATE("modificationDate", DATE, ""),
+        LAST_ACL_UPDATE("lastAclUpdate", DATE, ""), // Internal date of the last change of the permissions
         RELEASE("release", INTEGER, ""), //  Release where the individual was created
         SNAPSHOT("snapshot", INTEGER, ""), // Last version of individual at release = snapshot
         VERSION("version", INTEGER, ""), // Version of the individual
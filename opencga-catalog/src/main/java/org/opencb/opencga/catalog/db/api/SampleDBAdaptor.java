@@ -64,6 +64,7 @@ public interface SampleDBAdaptor extends AnnotationSetDBAdaptor<Sample> {
         VERSION("version", INTEGER, ""), // Version of the sample
         CREATION_DATE("creationDate", DATE, ""),
         MODIFICATION_DATE("modificationDate", DATE, ""),
+        LAST_ACL_UPDATE("lastAclUpdate", DATE, ""), // Internal date of the last change of the permissions
 
         DELETED("deleted", BOOLEAN, ""),
 
@@ -58,6 +58,23 @@ public class AuditMongoDBAdaptor extends MongoDBAdaptor implements AuditDBAdapto
         return endQuery(startQuery, Collections.singletonList(auditRecord));
     }
 
+    @Override
+    public OpenCGAResult<AuditRecord> insertAuditRecords(List<AuditRecord> auditRecords) throws CatalogDBException {
+        long startQuery = startQuery();
+        if (auditRecords.isEmpty()) {
+            return endQuery(startQuery, Collections.emptyList());
+        }
+
+        List<Document> documents = new ArrayList<>(auditRecords.size());
+        for (AuditRecord auditRecord : auditRecords) {
+            documents.add(MongoDBUtils.getMongoDBDocument(auditRecord, "AuditRecord"));
+        }
+        // Audit records are independent. Do not stop the bulk insert on the first failure.
+        auditCollection.insert(documents, new QueryOptions("ordered", false));
+
+        return endQuery(startQuery, auditRecords);
+    }
+
     @Override
     public OpenCGAResult<AuditRecord> get(Query query, QueryOptions queryOptions) throws CatalogDBException {
         long startTime = startQuery();
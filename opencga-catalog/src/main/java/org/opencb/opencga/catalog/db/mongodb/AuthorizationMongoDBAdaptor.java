@@ -306,13 +306,14 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
     public OpenCGAResult removeFromStudy(long studyId, String member, Enums.Resource resource) throws CatalogException {
         validateEntry(resource);
 
-        Document query = new Document()
-                .append(PRIVATE_STUDY_UID, studyId);
         List<String> removePermissions = createPermissionArray(Arrays.asList(member), getFullPermissions(resource));
-        Document update = new Document("$pullAll", new Document()
+        Document query = new Document()
+                .append(PRIVATE_STUDY_UID, studyId)
+                .append(QueryParams.ACL.key(), new Document("$in", removePermissions));
+        Document update = withLastAclUpdate(new Document("$pullAll", new Document()
                 .append(QueryParams.ACL.key(), removePermissions)
                 .append(QueryParams.USER_DEFINED_ACLS.key(), removePermissions)
-        );
+        ));
         logger.debug("Remove all acls for entity {} for member {} in study {}. Query: {}, pullAll: {}", resource, member, studyId,
                 query.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
                 update.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()));
@@ -390,7 +391,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
             update.put(QueryParams.USER_DEFINED_ACLS.key(), new Document("$each", permissions));
         }
 
-        update = new Document("$addToSet", update);
+        update = withLastAclUpdate(new Document("$addToSet", update));
         logger.debug("Add Acls (addToSet): Query {}, Push {}, entity: {}",
                 queryDocument.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
                 update.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()), resource);
@@ -439,6 +440,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
         } else {
             update = new Document("$addToSet", new Document(QueryParams.ACL.key(), new Document("$each", myPermissions)));
         }
+        withLastAclUpdate(update);
 
         logger.debug("Add Acls (addToSet): Query {}, Push {}",
                 queryDocument.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -517,6 +519,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
         } else {
             update = new Document("$pullAll", new Document(QueryParams.ACL.key(), removePermissions));
         }
+        withLastAclUpdate(update);
 
         logger.debug("Remove Acls (pullAll): Query {}, Pull {}",
                 queryDocument.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -581,6 +584,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
             } else {
                 update = new Document("$set", new Document(QueryParams.ACL.key(), permissionArray));
             }
+            withLastAclUpdate(update);
 
             logger.debug("Set Acls (set): Query {}, Push {}",
                     queryDocument.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -628,10 +632,10 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
         permissions.add("NONE");
         List<String> myPermissions = createPermissionArray(permissionRule.getMembers(), permissions);
 
-        Document update = new Document()
+        Document update = withLastAclUpdate(new Document()
                 .append("$addToSet", new Document()
                         .append(QueryParams.ACL.key(), new Document("$each", myPermissions))
-                        .append(PERMISSION_RULES_APPLIED, permissionRule.getId()));
+                        .append(PERMISSION_RULES_APPLIED, permissionRule.getId())));
 
         logger.debug("Apply permission rules: Query {}, Update {}",
                 bson.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -709,10 +713,10 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
                     .append(PRIVATE_UID, myDocument.get(PRIVATE_UID))
                     .append(PRIVATE_STUDY_UID, study.getUid());
 
-            Document update = new Document("$set", new Document()
+            Document update = withLastAclUpdate(new Document("$set", new Document()
                     .append(QueryParams.ACL.key(), effectivePermissions)
                     .append(QueryParams.USER_DEFINED_ACLS.key(), manualPermissions)
-                    .append(PERMISSION_RULES_APPLIED, permissionRulesApplied));
+                    .append(PERMISSION_RULES_APPLIED, permissionRulesApplied)));
 
             logger.debug("Remove permission rule id and permissions from {}: Query {}, Update {}", entry,
                     tmpQuery.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -794,9 +798,9 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
                     .append(PRIVATE_UID, myDocument.get(PRIVATE_UID))
                     .append(PRIVATE_STUDY_UID, study.getUid());
 
-            Document update = new Document("$set", new Document()
+            Document update = withLastAclUpdate(new Document("$set", new Document()
                     .append(QueryParams.ACL.key(), effectivePermissions)
-                    .append(PERMISSION_RULES_APPLIED, permissionRulesApplied));
+                    .append(PERMISSION_RULES_APPLIED, permissionRulesApplied)));
 
             logger.debug("Remove permission rule id and restoring permissions from {}: Query {}, Update {}", entry,
                     tmpQuery.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -896,14 +900,31 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
         Document queryDocument = new Document()
                 .append(PRIVATE_STUDY_UID, studyId)
                 .append(QueryParams.ACL.key(), new Document("$in", removePermissions));
-        Document update = new Document("$pullAll", new Document()
+        Document update = withLastAclUpdate(new Document("$pullAll", new Document()
                 .append(QueryParams.ACL.key(), removePermissions)
                 .append(QueryParams.USER_DEFINED_ACLS.key(), removePermissions)
-        );
+        ));
 
         collection.update(clientSession, queryDocument, update, new QueryOptions("multi", true));
     }
 
+    /**
+     * Update the internal date of the last permission change of the entries along with their permissions, so processes looking for
+     * changed entries, like the incremental indexation of catalog into Solr, also find the entries with new or revoked permissions.
+     *
+     * @param update Update document
+     * @return the same update document
+     */
+    private static Document withLastAclUpdate(Document update) {
+        Document set = (Document) update.get("$set");
+        if (set == null) {
+            set = new Document();
+            update.put("$set", set);
+        }
+        setLastAclUpdate(set);
+        return update;
+    }
+
     private List<String> createPermissionArray(Map<String, List<String>> memberPermissionsMap) {
         List<String> myPermissions = new ArrayList<>(memberPermissionsMap.size() * 2);
         for (Map.Entry<String, List<String>> stringListEntry : memberPermissionsMap.entrySet()) {
@@ -450,6 +450,7 @@ public class CohortMongoDBAdaptor extends AnnotationMongoDBAdaptor<Cohort> imple
 
         // Add status DELETED
         cohortDocument.put(QueryParams.STATUS.key(), getMongoDBDocument(new Cohort.CohortStatus(Status.DELETED), "status"));
+        setModificationDate(cohortDocument);
 
         // Upsert the document into the DELETED collection
         Bson query = new Document()
@@ -858,6 +859,9 @@ public class CohortMongoDBAdaptor extends AnnotationMongoDBAdaptor<Cohort> imple
                     case MODIFICATION_DATE:
                         addAutoOrQuery(PRIVATE_MODIFICATION_DATE, queryParam.key(), finalQuery, queryParam.type(), andBsonList);
                         break;
+                    case LAST_ACL_UPDATE:
+                        addAutoOrQuery(PRIVATE_LAST_ACL_UPDATE, queryParam.key(), finalQuery, queryParam.type(), andBsonList);
+                        break;
                     case STATUS_NAME:
                         // Convert the status to a positive status
                         finalQuery.put(queryParam.key(),
@@ -555,6 +555,7 @@ public class FamilyMongoDBAdaptor extends AnnotationMongoDBAdaptor<Family> imple
 
             // Set status to DELETED
             tmpFamily.put(QueryParams.STATUS.key(), getMongoDBDocument(new Status(Status.DELETED), "status"));
+            setModificationDate(tmpFamily);
 
             int sampleVersion = tmpFamily.getInteger(QueryParams.VERSION.key());
 
@@ -989,6 +990,9 @@ public class FamilyMongoDBAdaptor extends AnnotationMongoDBAdaptor<Family> imple
                     case MODIFICATION_DATE:
                         addAutoOrQuery(PRIVATE_MODIFICATION_DATE, queryParam.key(), query, queryParam.type(), andBsonList);
                         break;
+                    case LAST_ACL_UPDATE:
+                        addAutoOrQuery(PRIVATE_LAST_ACL_UPDATE, queryParam.key(), query, queryParam.type(), andBsonList);
+                        break;
                     case STATUS_NAME:
                         // Convert the status to a positive status
                         query.put(queryParam.key(),
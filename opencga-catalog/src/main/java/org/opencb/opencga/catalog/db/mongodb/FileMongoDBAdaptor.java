@@ -523,6 +523,7 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
         UpdateDocument document = new UpdateDocument();
         document.getSet().put(QueryParams.STATUS_NAME.key(), status);
         document.getSet().put(QueryParams.STATUS_DATE.key(), TimeUtils.getTime());
+        setModificationDate(document.getSet());
         document.getSet().put(QueryParams.ID.key(), file.getId() + deleteSuffix);
         if (file.getType() == File.Type.DIRECTORY && file.getPath().endsWith("/")) {
             // Remove the last /
@@ -990,6 +991,12 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
                     case CREATION_DATE:
                         addAutoOrQuery(PRIVATE_CREATION_DATE, queryParam.key(), myQuery, queryParam.type(), andBsonList);
                         break;
+                    case MODIFICATION_DATE:
+                        addAutoOrQuery(PRIVATE_MODIFICATION_DATE, queryParam.key(), myQuery, queryParam.type(), andBsonList);
+                        break;
+                    case LAST_ACL_UPDATE:
+                        addAutoOrQuery(PRIVATE_LAST_ACL_UPDATE, queryParam.key(), myQuery, queryParam.type(), andBsonList);
+                        break;
                     case STATUS_NAME:
                         // Convert the status to a positive status
                         myQuery.put(queryParam.key(),
@@ -1028,7 +1035,6 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
                     case CHECKSUM:
                     case URI:
                     case PATH:
-                    case MODIFICATION_DATE:
                     case DESCRIPTION:
                     case EXTERNAL:
                     case RELEASE:
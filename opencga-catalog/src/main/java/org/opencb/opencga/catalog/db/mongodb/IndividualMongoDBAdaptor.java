@@ -788,6 +788,7 @@ public class IndividualMongoDBAdaptor extends AnnotationMongoDBAdaptor<Individua
 
             // Set status to DELETED
             tmpIndividual.put(QueryParams.STATUS.key(), getMongoDBDocument(new Status(Status.DELETED), "status"));
+            setModificationDate(tmpIndividual);
 
             int individualVersion = tmpIndividual.getInteger(QueryParams.VERSION.key());
 
@@ -1182,6 +1183,9 @@ public class IndividualMongoDBAdaptor extends AnnotationMongoDBAdaptor<Individua
                     case MODIFICATION_DATE:
                         addAutoOrQuery(PRIVATE_MODIFICATION_DATE, queryParam.key(), query, queryParam.type(), andBsonList);
                         break;
+                    case LAST_ACL_UPDATE:
+                        addAutoOrQuery(PRIVATE_LAST_ACL_UPDATE, queryParam.key(), query, queryParam.type(), andBsonList);
+                        break;
                     case STATUS_NAME:
                         // Convert the status to a positive status
                         query.put(queryParam.key(),
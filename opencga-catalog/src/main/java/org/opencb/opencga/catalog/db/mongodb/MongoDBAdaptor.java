@@ -30,6 +30,7 @@ import org.opencb.opencga.catalog.exceptions.CatalogDBException;
 import org.opencb.opencga.catalog.exceptions.CatalogDBRuntimeException;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.catalog.utils.ParamUtils;
+import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.results.OpenCGAResult;
 import org.slf4j.Logger;
 
@@ -65,6 +66,8 @@ public class MongoDBAdaptor extends AbstractDBAdaptor {
     static final String LAST_OF_RELEASE = "_lastOfRelease";
     static final String PRIVATE_CREATION_DATE = "_creationDate";
     static final String PRIVATE_MODIFICATION_DATE = "_modificationDate";
+    private static final String MODIFICATION_DATE = "modificationDate";
+    static final String PRIVATE_LAST_ACL_UPDATE = "_lastAclUpdate";
     static final String PERMISSION_RULES_APPLIED = "_permissionRulesApplied";
 
     static final String INTERNAL_DELIMITER = "__";
@@ -111,6 +114,31 @@ public class MongoDBAdaptor extends AbstractDBAdaptor {
         }
     }
 
+    /**
+     * Set the modification date of a document, both as text and as date. The document can also be the "$set" of an update.
+     *
+     * @param document Document to modify
+     * @return the same document
+     */
+    static Document setModificationDate(Document document) {
+        String time = TimeUtils.getTime();
+        document.put(MODIFICATION_DATE, time);
+        document.put(PRIVATE_MODIFICATION_DATE, TimeUtils.toDate(time));
+        return document;
+    }
+
+    /**
+     * Set the date of the last change of the permissions of a document. This is an internal date, not visible to the users, so
+     * changing the permissions of an entry does not change its modification date. The document can also be the "$set" of an update.
+     *
+     * @param document Document to modify
+     * @return the same document
+     */
+    static Document setLastAclUpdate(Document document) {
+        document.put(PRIVATE_LAST_ACL_UPDATE, TimeUtils.toDate(TimeUtils.getTime()));
+        return document;
+    }
+
     protected long getNewUid() {
 //        return CatalogMongoDBUtils.getNewAutoIncrementId(metaCollection);
         return dbAdaptorFactory.getCatalogMetaDBAdaptor().getNewAutoIncrementId();
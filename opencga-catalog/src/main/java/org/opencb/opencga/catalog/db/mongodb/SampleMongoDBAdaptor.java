@@ -686,6 +686,7 @@ public class SampleMongoDBAdaptor extends AnnotationMongoDBAdaptor<Sample> imple
 
             // Set status to DELETED
             tmpSample.put(QueryParams.STATUS.key(), getMongoDBDocument(new Status(Status.DELETED), "status"));
+            setModificationDate(tmpSample);
 
             int sampleVersion = tmpSample.getInteger(QueryParams.VERSION.key());
 
@@ -1133,6 +1134,9 @@ public class SampleMongoDBAdaptor extends AnnotationMongoDBAdaptor<Sample> imple
                     case MODIFICATION_DATE:
                         addAutoOrQuery(PRIVATE_MODIFICATION_DATE, queryParam.key(), query, queryParam.type(), andBsonList);
                         break;
+                    case LAST_ACL_UPDATE:
+                        addAutoOrQuery(PRIVATE_LAST_ACL_UPDATE, queryParam.key(), query, queryParam.type(), andBsonList);
+                        break;
                     case STATUS_NAME:
                         // Convert the status to a positive status
                         query.put(queryParam.key(),
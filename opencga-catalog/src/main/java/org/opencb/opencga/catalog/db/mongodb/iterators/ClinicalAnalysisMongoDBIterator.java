@@ -29,12 +29,13 @@ public class ClinicalAnalysisMongoDBIterator<E> extends MongoDBIterator<E>  {
 
     private QueryOptions options;
 
+    private ReferenceResolver interpretationResolver;
+    private final int bufferSize;
+
     private Queue<Document> clinicalAnalysisListBuffer;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
-
     private static final String UID = ClinicalAnalysisDBAdaptor.QueryParams.UID.key();
     private static final String VERSION = FamilyDBAdaptor.QueryParams.VERSION.key();
 
@@ -55,6 +56,10 @@ public class ClinicalAnalysisMongoDBIterator<E> extends MongoDBIterator<E>  {
         this.interpretationDBAdaptor = dbAdaptorFactory.getInterpretationDBAdaptor();
         this.interpretationQueryOptions = createInnerQueryOptions(ClinicalAnalysisDBAdaptor.QueryParams.INTERPRETATIONS.key(), false);
 
+        this.bufferSize = ReferenceResolver.getBatchSize(options);
+        this.interpretationResolver = new ReferenceResolver(false, this::fetchInterpretations,
+                ReferenceResolver.getCacheSize(options));
+
         this.clinicalAnalysisListBuffer= new LinkedList<>();
         this.logger = LoggerFactory.getLogger(ClinicalAnalysisMongoDBIterator.class);
     }
@@ -86,11 +91,12 @@ public class ClinicalAnalysisMongoDBIterator<E> extends MongoDBIterator<E>  {
     }
 
     private void fetchNextBatch() {
-        Set<String> interpretationSet = new HashSet<>();
+        boolean resolveInterpretations = !options.getBoolean(NATIVE_QUERY)
+                && !options.getBoolean(NATIVE_QUERY + "_" + ClinicalAnalysisDBAdaptor.QueryParams.INTERPRETATIONS.key());
 
-        // Get next BUFFER_SIZE documents
+        // Get next bufferSize documents
         int counter = 0;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < bufferSize) {
             Document clinicalDocument = (Document) mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
@@ -103,54 +109,47 @@ public class ClinicalAnalysisMongoDBIterator<E> extends MongoDBIterator<E>  {
             // Extract the interpretations
             List<Document> interpretations =
                     (List<Document>) clinicalDocument.get(ClinicalAnalysisDBAdaptor.QueryParams.INTERPRETATIONS.key());
-            if (ListUtils.isNotEmpty(interpretations) && !options.getBoolean(NATIVE_QUERY)
-                    && !options.getBoolean(NATIVE_QUERY + "_" + ClinicalAnalysisDBAdaptor.QueryParams.INTERPRETATIONS.key())) {
-                for (Document interpretation : interpretations) {
-                    interpretationSet.add(String.valueOf(interpretation.get(UID)));
-                }
+            if (ListUtils.isNotEmpty(interpretations) && resolveInterpretations) {
+                interpretationResolver.addAll(interpretations);
             }
         }
 
-        Map<String, Document> interpretationMap = new HashMap<>();
-        if (!interpretationSet.isEmpty()) {
+        if (resolveInterpretations) {
             // Obtain all those interpretations
-            Query query = new Query(InterpretationDBAdaptor.QueryParams.UID.key(), interpretationSet);
-            List<Document> interpretationList;
             try {
-                if (user != null) {
-                    interpretationList = interpretationDBAdaptor.nativeGet(studyUid, query, interpretationQueryOptions, user).getResults();
-                } else {
-                    interpretationList = interpretationDBAdaptor.nativeGet(query, interpretationQueryOptions).getResults();
-                }
+                interpretationResolver.resolve();
             } catch (CatalogDBException | CatalogAuthorizationException e) {
                 logger.warn("Could not obtain the interpretations associated to the clinical analyses: {}", e.getMessage(), e);
                 return;
             }
-
-            // Map each interpretation uid to the interpretation entry
-            interpretationList.forEach(intepretation -> interpretationMap.put(String.valueOf(intepretation.get(UID)), intepretation));
-        }
-
-        if (!interpretationMap.isEmpty()) {
+            if (!interpretationResolver.hasResolved()) {
+                return;
+            }
 
             // Add the interpretations obtained to the corresponding clinical analyses
+            // Interpretations not returned might have not been fetched due to permissions issues
             clinicalAnalysisListBuffer.forEach(clinicalAnalysis -> {
-                List<Document> interpretations = new ArrayList<>();
                 List<Document> origInterpretations =
                         (List<Document>) clinicalAnalysis.get(ClinicalAnalysisDBAdaptor.QueryParams.INTERPRETATIONS.key());
-
-                // If the interpretations have been returned... (it might have not been fetched due to permissions issues)
-                for (Document origInterpretation : origInterpretations) {
-                    if (interpretationMap.containsKey(String.valueOf(origInterpretation.get(UID)))) {
-                        interpretations.add(new Document(interpretationMap.get(String.valueOf(origInterpretation.get(UID)))));
-                    }
+                if (ListUtils.isEmpty(origInterpretations)) {
+                    return;
                 }
-
-                clinicalAnalysis.put(ClinicalAnalysisDBAdaptor.QueryParams.INTERPRETATIONS.key(), interpretations);
+                clinicalAnalysis.put(ClinicalAnalysisDBAdaptor.QueryParams.INTERPRETATIONS.key(),
+                        interpretationResolver.replace(origInterpretations));
             });
         }
     }
 
+    private List<Document> fetchInterpretations(List<Long> uids, List<Integer> versions)
+            throws CatalogDBException, CatalogAuthorizationException {
+        Query query = new Query(InterpretationDBAdaptor.QueryParams.UID.key(), uids);
+        if (user != null) {
+            return interpretationDBAdaptor.nativeGet(studyUid, query, interpretationQueryOptions, user).getResults();
+        } else {
+            return interpretationDBAdaptor.nativeGet(query, interpretationQueryOptions).getResults();
+        }
+    }
+
     private QueryOptions createInnerQueryOptions(String fieldProjectionKey, boolean nativeQuery) {
         QueryOptions queryOptions = new QueryOptions(NATIVE_QUERY, nativeQuery);
 
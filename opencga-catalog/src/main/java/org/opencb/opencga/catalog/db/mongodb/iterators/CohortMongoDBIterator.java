@@ -29,12 +29,13 @@ public class CohortMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
     private SampleMongoDBAdaptor sampleDBAdaptor;
     private QueryOptions sampleQueryOptions;
 
+    private ReferenceResolver sampleResolver;
+    private final int bufferSize;
+
     private Queue<Document> cohortListBuffer;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
-
     public CohortMongoDBIterator(MongoCursor mongoCursor, ClientSession clientSession, AnnotableConverter<? extends Annotable> converter,
                                  Function<Document, Document> filter, SampleMongoDBAdaptor sampleMongoDBAdaptor,  QueryOptions options) {
         this(mongoCursor, clientSession, converter, filter, sampleMongoDBAdaptor, 0, null, options);
@@ -51,6 +52,9 @@ public class CohortMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
         this.sampleDBAdaptor = sampleMongoDBAdaptor;
         this.sampleQueryOptions = createSampleQueryOptions();
 
+        this.bufferSize = ReferenceResolver.getBatchSize(options);
+        this.sampleResolver = new ReferenceResolver(false, this::fetchSamples, ReferenceResolver.getCacheSize(options));
+
         this.cohortListBuffer = new LinkedList<>();
         this.logger = LoggerFactory.getLogger(CohortMongoDBIterator.class);
     }
@@ -97,11 +101,9 @@ public class CohortMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
     }
 
     private void fetchNextBatch() {
-        Set<Long> sampleSet = new HashSet<>();
-
-        // Get next BUFFER_SIZE documents
+        // Get next bufferSize documents
         int counter = 0;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < bufferSize) {
             Document cohortDocument = (Document) mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
@@ -112,55 +114,40 @@ public class CohortMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
             counter++;
 
             // Extract all the samples
-            Object samples = cohortDocument.get(CohortDBAdaptor.QueryParams.SAMPLES.key());
-            if (samples != null && !options.getBoolean(NATIVE_QUERY)) {
-                List<Document> sampleList = (List<Document>) samples;
-                if (!sampleList.isEmpty()) {
-                    sampleList.forEach(sample -> sampleSet.add(sample.getLong(SampleDBAdaptor.QueryParams.UID.key())));
-                }
+            if (!options.getBoolean(NATIVE_QUERY)) {
+                sampleResolver.addAll((List<Document>) cohortDocument.get(CohortDBAdaptor.QueryParams.SAMPLES.key()));
             }
         }
 
-        if (!sampleSet.isEmpty()) {
+        if (!options.getBoolean(NATIVE_QUERY)) {
             // Obtain all those samples
-            Query query = new Query(SampleDBAdaptor.QueryParams.UID.key(), new ArrayList<>(sampleSet));
-            List<Document> sampleList;
             try {
-                if (user != null) {
-                    sampleList = sampleDBAdaptor.nativeGet(clientSession, studyUid, query, sampleQueryOptions, user).getResults();
-                } else {
-                    sampleList = sampleDBAdaptor.nativeGet(clientSession, query, sampleQueryOptions).getResults();
-                }
+                sampleResolver.resolve();
             } catch (CatalogDBException | CatalogAuthorizationException e) {
                 logger.warn("Could not obtain the samples associated to the cohorts: {}", e.getMessage(), e);
                 return;
             }
 
-            // Map each sample uid - version to the sample entry
-            Map<Long, Document> sampleMap = new HashMap<>(sampleList.size());
-            sampleList.forEach(sample ->
-                    sampleMap.put(sample.getLong(SampleDBAdaptor.QueryParams.UID.key()), sample)
-            );
-
             // Add the samples obtained to the corresponding cohorts
+            // Samples not returned might have not been fetched due to permissions issues
             cohortListBuffer.forEach(cohortDocument -> {
-                List<Document> tmpSampleList = new ArrayList<>();
-                List<Document> samples = (List<Document>) cohortDocument.get(CohortDBAdaptor.QueryParams.SAMPLES.key());
-
-                samples.forEach(sample -> {
-                    long uid = sample.getLong(SampleDBAdaptor.QueryParams.UID.key());
-
-                    // If the samples has been returned... (it might have not been fetched due to permissions issues)
-                    if (sampleMap.containsKey(uid)) {
-                        tmpSampleList.add(sampleMap.get(uid));
-                    }
-                });
-
-                cohortDocument.put(CohortDBAdaptor.QueryParams.SAMPLES.key(), tmpSampleList);
+                Object samples = cohortDocument.get(CohortDBAdaptor.QueryParams.SAMPLES.key());
+                if (samples != null) {
+                    cohortDocument.put(CohortDBAdaptor.QueryParams.SAMPLES.key(), sampleResolver.replace((List<Document>) samples));
+                }
             });
         }
     }
 
+    private List<Document> fetchSamples(List<Long> uids, List<Integer> versions)
+            throws CatalogDBException, CatalogAuthorizationException {
+        Query query = new Query(SampleDBAdaptor.QueryParams.UID.key(), uids);
+        if (user != null) {
+            return sampleDBAdaptor.nativeGet(clientSession, studyUid, query, sampleQueryOptions, user).getResults();
+        } else {
+            return sampleDBAdaptor.nativeGet(clientSession, query, sampleQueryOptions).getResults();
+        }
+    }
 
     private QueryOptions createSampleQueryOptions() {
         QueryOptions queryOptions = new QueryOptions(NATIVE_QUERY, true);
@@ -2,7 +2,6 @@ package org.opencb.opencga.catalog.db.mongodb.iterators;
 
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoCursor;
-import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -31,12 +30,13 @@ public class FamilyMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
     private IndividualMongoDBAdaptor individualDBAdaptor;
     private QueryOptions individualQueryOptions;
 
+    private ReferenceResolver memberResolver;
+    private final int bufferSize;
+
     private Queue<Document> familyListBuffer;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
-
     public FamilyMongoDBIterator(MongoCursor mongoCursor, ClientSession clientSession, AnnotableConverter<? extends Annotable> converter,
                                  Function<Document, Document> filter, IndividualMongoDBAdaptor individualDBAdaptor, QueryOptions options) {
         this(mongoCursor, clientSession, converter, filter, individualDBAdaptor, 0, null, options);
@@ -54,6 +54,9 @@ public class FamilyMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
         this.individualDBAdaptor = individualDBAdaptor;
         this.individualQueryOptions = createFamilyQueryOptions();
 
+        this.bufferSize = ReferenceResolver.getBatchSize(options);
+        this.memberResolver = new ReferenceResolver(true, this::fetchMembers, ReferenceResolver.getCacheSize(options));
+
         this.familyListBuffer = new LinkedList<>();
         this.logger = LoggerFactory.getLogger(FamilyMongoDBIterator.class);
     }
@@ -85,11 +88,9 @@ public class FamilyMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
     }
 
     private void fetchNextBatch() {
-        Set<String> memberVersions = new HashSet<>();
-
-        // Get next BUFFER_SIZE documents
+        // Get next bufferSize documents
         int counter = 0;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < bufferSize) {
             Document familyDocument = (Document) mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
@@ -100,82 +101,56 @@ public class FamilyMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
             counter++;
 
             // Extract all the members
-            Object members = familyDocument.get(FamilyMongoDBAdaptor.QueryParams.MEMBERS.key());
-            if (members != null && !options.getBoolean(NATIVE_QUERY)) {
-                List<Document> memberList = (List<Document>) members;
-                if (!memberList.isEmpty()) {
-                    memberList.forEach(s -> {
-                        String uid = String.valueOf(s.get(FamilyDBAdaptor.QueryParams.UID.key()));
-                        String version = String.valueOf(s.get(FamilyDBAdaptor.QueryParams.VERSION.key()));
-
-                        memberVersions.add(uid + "__" + version);
-                    });
-                }
+            if (!options.getBoolean(NATIVE_QUERY)) {
+                memberResolver.addAll((List<Document>) familyDocument.get(FamilyMongoDBAdaptor.QueryParams.MEMBERS.key()));
             }
         }
 
-        if (!memberVersions.isEmpty()) {
+        if (!options.getBoolean(NATIVE_QUERY)) {
             // Obtain all those members
-
-            List<Long> uidList = new ArrayList<>(memberVersions.size());
-            List<Integer> versionList = new ArrayList<>(memberVersions.size());
-            memberVersions.forEach(s -> {
-                String[] split = StringUtils.splitByWholeSeparatorPreserveAllTokens(s, "__");
-                uidList.add(Long.valueOf(split[0]));
-                versionList.add(Integer.valueOf(split[1]));
-            });
-
-            Query query = new Query()
-                    .append(IndividualDBAdaptor.QueryParams.UID.key(), uidList)
-                    .append(IndividualDBAdaptor.QueryParams.VERSION.key(), versionList);
-            List<Document> memberList;
             try {
-                if (user != null) {
-                    memberList = individualDBAdaptor.nativeGet(clientSession, studyUid, query, individualQueryOptions, user).getResults();
-                } else {
-                    memberList = individualDBAdaptor.nativeGet(clientSession, query, individualQueryOptions).getResults();
-                }
+                memberResolver.resolve();
             } catch (CatalogDBException | CatalogAuthorizationException e) {
                 logger.warn("Could not obtain the members associated to the families: {}", e.getMessage(), e);
                 return;
             }
 
-            // Map each member uid - version to the member entry
-            Map<String, Document> memberUidVersionMap = new HashMap<>(memberList.size());
             // Map each member uid to the member entry
-            Map<String, Document> memberUidMap = new HashMap<>(memberList.size());
-            memberList.forEach(member -> {
-                        memberUidVersionMap.put(member.get(FamilyDBAdaptor.QueryParams.UID.key()) + "__"
-                                + member.get(FamilyDBAdaptor.QueryParams.VERSION.key()), member);
-                        memberUidMap.put(String.valueOf(member.get(FamilyDBAdaptor.QueryParams.UID.key())), member);
-                    }
-            );
+            Map<String, Document> memberUidMap = new HashMap<>();
+            memberResolver.getResolved().forEach(member ->
+                    memberUidMap.put(String.valueOf(member.get(FamilyDBAdaptor.QueryParams.UID.key())), member));
 
             // Add the members obtained to the corresponding families
+            // Members not returned might have not been fetched due to permissions issues
             familyListBuffer.forEach(family -> {
-                List<Document> tmpMemberList = new ArrayList<>();
-                List<Document> members = (List<Document>) family.get(FamilyMongoDBAdaptor.QueryParams.MEMBERS.key());
-
-                members.forEach(s -> {
-                    String uid = String.valueOf(s.get(FamilyDBAdaptor.QueryParams.UID.key()));
-                    String version = String.valueOf(s.get(FamilyDBAdaptor.QueryParams.VERSION.key()));
-                    String key = uid + "__" + version;
-
-                    // If the members has been returned... (it might have not been fetched due to permissions issues)
-                    if (memberUidVersionMap.containsKey(key)) {
-                        tmpMemberList.add(memberUidVersionMap.get(key));
-
-                        // We try to fill the parent id with the information we have
-                        fillParentInformation(memberUidVersionMap.get(key), IndividualDBAdaptor.QueryParams.FATHER.key(), memberUidMap);
-                        fillParentInformation(memberUidVersionMap.get(key), IndividualDBAdaptor.QueryParams.MOTHER.key(), memberUidMap);
-                    }
-                });
+                Object members = family.get(FamilyMongoDBAdaptor.QueryParams.MEMBERS.key());
+                if (members == null) {
+                    return;
+                }
+                List<Document> tmpMemberList = memberResolver.replace((List<Document>) members);
+                for (Document member : tmpMemberList) {
+                    // We try to fill the parent id with the information we have
+                    fillParentInformation(member, IndividualDBAdaptor.QueryParams.FATHER.key(), memberUidMap);
+                    fillParentInformation(member, IndividualDBAdaptor.QueryParams.MOTHER.key(), memberUidMap);
+                }
 
                 family.put(FamilyMongoDBAdaptor.QueryParams.MEMBERS.key(), tmpMemberList);
             });
         }
     }
 
+    private List<Document> fetchMembers(List<Long> uids, List<Integer> versions)
+            throws CatalogDBException, CatalogAuthorizationException {
+        Query query = new Query()
+                .append(IndividualDBAdaptor.QueryParams.UID.key(), uids)
+                .append(IndividualDBAdaptor.QueryParams.VERSION.key(), versions);
+        if (user != null) {
+            return individualDBAdaptor.nativeGet(clientSession, studyUid, query, individualQueryOptions, user).getResults();
+        } else {
+            return individualDBAdaptor.nativeGet(clientSession, query, individualQueryOptions).getResults();
+        }
+    }
+
     private void fillParentInformation(Document member, String key, Map<String, Document> memberUidMap) {
         Document parent = (Document) member.get(key);
         if (parent != null && !parent.isEmpty()) {
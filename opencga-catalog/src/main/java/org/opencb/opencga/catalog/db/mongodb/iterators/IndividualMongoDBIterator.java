@@ -1,9 +1,7 @@
 package org.opencb.opencga.catalog.db.mongodb.iterators;
 
 import com.mongodb.client.MongoCursor;
-import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
-import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.catalog.db.api.IndividualDBAdaptor;
@@ -33,12 +31,14 @@ public class IndividualMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
 
     private IndividualDBAdaptor individualDBAdaptor;
 
+    private ReferenceResolver sampleResolver;
+    private ReferenceResolver parentResolver;
+    private final int bufferSize;
+
     private Queue<Document> individualListBuffer;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
-
     public IndividualMongoDBIterator(MongoCursor mongoCursor, AnnotableConverter<? extends Annotable> converter,
                                      Function<Document, Document> filter, MongoDBAdaptorFactory dbAdaptorFactory, QueryOptions options) {
         this(mongoCursor, converter, filter, dbAdaptorFactory, 0, null, options);
@@ -57,6 +57,10 @@ public class IndividualMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
 
         this.individualDBAdaptor = dbAdaptorFactory.getCatalogIndividualDBAdaptor();
 
+        this.bufferSize = ReferenceResolver.getBatchSize(options);
+        this.sampleResolver = new ReferenceResolver(true, this::fetchSamples, ReferenceResolver.getCacheSize(options));
+        this.parentResolver = new ReferenceResolver(false, this::fetchParents, ReferenceResolver.getCacheSize(options));
+
         this.individualListBuffer = new LinkedList<>();
         this.logger = LoggerFactory.getLogger(IndividualMongoDBIterator.class);
     }
@@ -87,12 +91,11 @@ public class IndividualMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
     }
 
     private void fetchNextBatch() {
-        Set<String> sampleVersions = new HashSet<>();
-        Map<Long, List<Document>> individualMap = new HashMap<>();
+        List<Document> parents = new ArrayList<>();
 
-        // Get next BUFFER_SIZE documents
+        // Get next bufferSize documents
         int counter = 0;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < bufferSize) {
             Document individualDocument = (Document) mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
@@ -102,126 +105,87 @@ public class IndividualMongoDBIterator<E> extends AnnotableMongoDBIterator<E> {
             individualListBuffer.add(individualDocument);
             counter++;
 
-            // Extract all the samples
-            Object samples = individualDocument.get(IndividualDBAdaptor.QueryParams.SAMPLES.key());
-            if (samples != null && !options.getBoolean(NATIVE_QUERY)) {
-                List<Document> sampleList = (List<Document>) samples;
-                if (!sampleList.isEmpty()) {
-                    sampleList.forEach(s -> {
-                        String uid = String.valueOf(s.get(IndividualDBAdaptor.QueryParams.UID.key()));
-                        String version = String.valueOf(s.get(IndividualDBAdaptor.QueryParams.VERSION.key()));
-
-                        // TODO we store in a Set to try to reduce the number of keys to be queried, maybe this is not needed?
-                        sampleVersions.add(uid + "__" + version);
-                    });
-                }
-            }
-
             if (!options.getBoolean(NATIVE_QUERY)) {
+                // Extract all the samples
+                sampleResolver.addAll((List<Document>) individualDocument.get(IndividualDBAdaptor.QueryParams.SAMPLES.key()));
+
                 // Extract father and mother uids
-                Document father = (Document) individualDocument.get(IndividualDBAdaptor.QueryParams.FATHER.key());
-                addParentToMap(individualMap, father);
-                Document mother = (Document) individualDocument.get(IndividualDBAdaptor.QueryParams.MOTHER.key());
-                addParentToMap(individualMap, mother);
+                addParent(parents, (Document) individualDocument.get(IndividualDBAdaptor.QueryParams.FATHER.key()));
+                addParent(parents, (Document) individualDocument.get(IndividualDBAdaptor.QueryParams.MOTHER.key()));
             }
         }
 
-        if (!individualMap.isEmpty()) {
+        if (!parents.isEmpty()) {
             // Obtain the parents
-
-            Query query = new Query(SampleDBAdaptor.QueryParams.UID.key(), individualMap.keySet());
-            QueryOptions queryOptions = new QueryOptions()
-                    .append(NATIVE_QUERY, true)
-                    .append(QueryOptions.INCLUDE, Arrays.asList(
-                            IndividualDBAdaptor.QueryParams.ID.key(), IndividualDBAdaptor.QueryParams.VERSION.key(),
-                            IndividualDBAdaptor.QueryParams.UID.key()));
-
             try {
-                DataResult<Document> individualDataResult;
-                if (user != null) {
-                    individualDataResult = individualDBAdaptor.nativeGet(studyUid, query, queryOptions, user);
-                } else {
-                    individualDataResult = individualDBAdaptor.nativeGet(query, queryOptions);
-                }
-
-                for (Document individual : individualDataResult.getResults()) {
-                    List<Document> parentList = individualMap.get(individual.getLong(IndividualDBAdaptor.QueryParams.UID.key()));
-                    for (Document parentDocument : parentList) {
+                parentResolver.resolve();
+                for (Document parentDocument : parents) {
+                    Document individual = parentResolver.get(parentDocument);
+                    if (individual != null) {
                         parentDocument.put(IndividualDBAdaptor.QueryParams.ID.key(),
                                 individual.getString(IndividualDBAdaptor.QueryParams.ID.key()));
                         parentDocument.put(IndividualDBAdaptor.QueryParams.VERSION.key(),
                                 individual.getInteger(IndividualDBAdaptor.QueryParams.VERSION.key()));
                     }
                 }
-
             } catch (CatalogDBException | CatalogAuthorizationException e) {
                 logger.warn("Could not obtain the parents associated to the individuals: {}", e.getMessage(), e);
             }
-
         }
 
-        if (!sampleVersions.isEmpty()) {
+        if (!options.getBoolean(NATIVE_QUERY)) {
             // Obtain all those samples
-
-            List<Long> uidList = new ArrayList<>(sampleVersions.size());
-            List<Integer> versionList = new ArrayList<>(sampleVersions.size());
-            sampleVersions.forEach(s -> {
-                String[] split = StringUtils.splitByWholeSeparatorPreserveAllTokens(s, "__");
-                uidList.add(Long.valueOf(split[0]));
-                versionList.add(Integer.valueOf(split[1]));
-            });
-
-            Query query = new Query()
-                    .append(SampleDBAdaptor.QueryParams.UID.key(), uidList)
-                    .append(SampleDBAdaptor.QueryParams.VERSION.key(), versionList);
-            List<Document> sampleList;
             try {
-                if (user != null) {
-                    sampleList = sampleDBAdaptor.nativeGet(studyUid, query, sampleQueryOptions, user).getResults();
-                } else {
-                    sampleList = sampleDBAdaptor.nativeGet(query, sampleQueryOptions).getResults();
-                }
+                sampleResolver.resolve();
             } catch (CatalogDBException | CatalogAuthorizationException e) {
                 logger.warn("Could not obtain the samples associated to the individuals: {}", e.getMessage(), e);
                 return;
             }
 
-            // Map each sample uid - version to the sample entry
-            Map<String, Document> sampleMap = new HashMap<>(sampleList.size());
-            sampleList.forEach(sample ->
-                    sampleMap.put(String.valueOf(sample.get(IndividualDBAdaptor.QueryParams.UID.key())) + "__"
-                            + String.valueOf(sample.get(IndividualDBAdaptor.QueryParams.VERSION.key())), sample)
-            );
-
-            // Add the samples obtained to the corresponding individuals
+            // Add the samples obtained to the corresponding individuals.
+            // Samples not returned might have not been fetched due to permissions issues
             individualListBuffer.forEach(individual -> {
-                List<Document> tmpSampleList = new ArrayList<>();
-                List<Document> samples = (List<Document>) individual.get(IndividualMongoDBAdaptor.QueryParams.SAMPLES.key());
-
-                samples.forEach(s -> {
-                        String uid = String.valueOf(s.get(IndividualDBAdaptor.QueryParams.UID.key()));
-                        String version = String.valueOf(s.get(IndividualDBAdaptor.QueryParams.VERSION.key()));
-                        String key = uid + "__" + version;
+                Object samples = individual.get(IndividualMongoDBAdaptor.QueryParams.SAMPLES.key());
+                if (samples != null) {
+                    individual.put(IndividualMongoDBAdaptor.QueryParams.SAMPLES.key(), sampleResolver.replace((List<Document>) samples));
+                }
+            });
+        }
+    }
 
-                        // If the samples has been returned... (it might have not been fetched due to permissions issues)
-                        if (sampleMap.containsKey(key)) {
-                            tmpSampleList.add(sampleMap.get(key));
-                        }
-                });
+    private List<Document> fetchSamples(List<Long> uids, List<Integer> versions)
+            throws CatalogDBException, CatalogAuthorizationException {
+        Query query = new Query()
+                .append(SampleDBAdaptor.QueryParams.UID.key(), uids)
+                .append(SampleDBAdaptor.QueryParams.VERSION.key(), versions);
+        if (user != null) {
+            return sampleDBAdaptor.nativeGet(studyUid, query, sampleQueryOptions, user).getResults();
+        } else {
+            return sampleDBAdaptor.nativeGet(query, sampleQueryOptions).getResults();
+        }
+    }
 
-                individual.put(IndividualMongoDBAdaptor.QueryParams.SAMPLES.key(), tmpSampleList);
-            });
+    private List<Document> fetchParents(List<Long> uids, List<Integer> versions)
+            throws CatalogDBException, CatalogAuthorizationException {
+        Query query = new Query(IndividualDBAdaptor.QueryParams.UID.key(), uids);
+        QueryOptions queryOptions = new QueryOptions()
+                .append(NATIVE_QUERY, true)
+                .append(QueryOptions.INCLUDE, Arrays.asList(
+                        IndividualDBAdaptor.QueryParams.ID.key(), IndividualDBAdaptor.QueryParams.VERSION.key(),
+                        IndividualDBAdaptor.QueryParams.UID.key()));
+        if (user != null) {
+            return individualDBAdaptor.nativeGet(studyUid, query, queryOptions, user).getResults();
+        } else {
+            return individualDBAdaptor.nativeGet(query, queryOptions).getResults();
         }
     }
 
-    private void addParentToMap(Map<Long, List<Document>> individualMap, Document parent) {
+    private void addParent(List<Document> parents, Document parent) {
         if (parent != null && parent.size() > 0) {
             Long uid = parent.getLong("uid");
             if (uid != null && uid > 0) {
-                if (!individualMap.containsKey(uid)) {
-                    individualMap.put(uid, new ArrayList<>());
-                }
-                individualMap.get(uid).add(parent);
+                parents.add(parent);
+                parentResolver.add(parent);
             }
         }
     }
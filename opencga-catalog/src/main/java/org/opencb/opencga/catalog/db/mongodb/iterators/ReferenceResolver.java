@@ -0,0 +1,261 @@
+package org.opencb.opencga.catalog.db.mongodb.iterators;
+
+import org.bson.Document;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.catalog.exceptions.CatalogAuthorizationException;
+import org.opencb.opencga.catalog.exceptions.CatalogDBException;
+import org.opencb.opencga.catalog.utils.Constants;
+
+import java.util.*;
+
+/**
+ * Resolves the nested entities referenced from the documents of a catalog iterator.
+ *
+ * References are collected across the whole batch of documents and de-duplicated, so each batch fetches the missing entities
+ * with a single query. Fetched entities are memoized for the lifetime of the iterator. References to entities not returned
+ * by the database (e.g. because of the user permissions) are memoized as missing, so they are not queried again.
+ *
+ * Memoized entities are shared by all the documents referencing them, so the resolver always returns deep copies that
+ * callers can modify.
+ */
+public class ReferenceResolver {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private static final String UID = "uid";
+    private static final String VERSION = "version";
+
+    @FunctionalInterface
+    public interface Fetcher {
+        /**
+         * Fetch the given entities.
+         *
+         * @param uids      Uids of the entities
+         * @param versions  Versions of the entities, in the same order as the uids. Null if the references are not versioned.
+         * @return          Entities found
+         * @throws CatalogDBException               if there is any database error
+         * @throws CatalogAuthorizationException    if the user can not access the entities
+         */
+        List<Document> fetch(List<Long> uids, List<Integer> versions) throws CatalogDBException, CatalogAuthorizationException;
+    }
+
+    private final boolean versioned;
+    private final Fetcher fetcher;
+    private final Map<String, Document> cache;
+    private final Set<String> pending = new LinkedHashSet<>();
+    // Entities of the current batch. Not affected by the cache evictions
+    private final Map<String, Document> current = new HashMap<>();
+    private boolean newBatch = true;
+
+    private int numQueries = 0;
+    private int numCacheHits = 0;
+
+    /**
+     * @param versioned Use the uid and version of the references. Otherwise, only the uid is used.
+     * @param fetcher   Function to fetch the entities
+     * @param cacheSize Maximum number of entities to memoize
+     */
+    public ReferenceResolver(boolean versioned, Fetcher fetcher, int cacheSize) {
+        this.versioned = versioned;
+        this.fetcher = fetcher;
+        int maxSize = Math.max(cacheSize, 0);
+        this.cache = new LinkedHashMap<String, Document>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public static int getBatchSize(QueryOptions options) {
+        return options.getInt(Constants.NESTED_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    public static int getCacheSize(QueryOptions options) {
+        return options.getInt(Constants.NESTED_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Register a reference to be resolved in the next call to {@link #resolve()}. The first reference added after a
+     * {@link #resolve()} starts a new batch.
+     *
+     * @param reference Document with the uid, and the version if versioned, of the referenced entity
+     */
+    public void add(Document reference) {
+        String key = key(reference);
+        if (key == null) {
+            return;
+        }
+        if (newBatch) {
+            current.clear();
+            newBatch = false;
+        }
+        if (current.containsKey(key)) {
+            return;
+        }
+        if (cache.containsKey(key)) {
+            current.put(key, cache.get(key));
+            numCacheHits++;
+        } else {
+            pending.add(key);
+        }
+    }
+
+    public void addAll(List<Document> references) {
+        if (references != null) {
+            for (Document reference : references) {
+                add(reference);
+            }
+        }
+    }
+
+    /**
+     * Fetch all the pending references that were not already memoized.
+     *
+     * @throws CatalogDBException               if there is any database error
+     * @throws CatalogAuthorizationException    if the user can not access the entities
+     */
+    public void resolve() throws CatalogDBException, CatalogAuthorizationException {
+        newBatch = true;
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> uids = new ArrayList<>(pending.size());
+        List<Integer> versions = versioned ? new ArrayList<>(pending.size()) : null;
+        for (String key : pending) {
+            if (versioned) {
+                int idx = key.indexOf("__");
+                uids.add(Long.valueOf(key.substring(0, idx)));
+                versions.add(Integer.valueOf(key.substring(idx + 2)));
+            } else {
+                uids.add(Long.valueOf(key));
+            }
+        }
+        try {
+            numQueries++;
+            List<Document> documents = fetcher.fetch(uids, versions);
+            for (Document document : documents) {
+                String key = key(document);
+                if (key != null) {
+                    current.put(key, document);
+                    cache.put(key, document);
+                }
+            }
+            // Not returned. Either missing or not visible for the user.
+            for (String key : pending) {
+                if (!current.containsKey(key)) {
+                    current.put(key, null);
+                    cache.put(key, null);
+                }
+            }
+        } finally {
+            pending.clear();
+        }
+    }
+
+    /**
+     * @return Copy of the entities resolved in the last batch
+     */
+    public Collection<Document> getResolved() {
+        List<Document> resolved = new ArrayList<>(current.size());
+        for (Document document : current.values()) {
+            if (document != null) {
+                resolved.add(copy(document));
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Check if any entity was resolved in the last batch, without copying them as {@link #getResolved()}.
+     *
+     * @return true if at least one entity was resolved
+     */
+    public boolean hasResolved() {
+        for (Document document : current.values()) {
+            if (document != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the resolved entity of a reference.
+     *
+     * @param reference Reference document
+     * @return Copy of the resolved entity, or null if it could not be fetched.
+     */
+    public Document get(Document reference) {
+        String key = key(reference);
+        Document document = key == null ? null : current.get(key);
+        return document == null ? null : copy(document);
+    }
+
+    /**
+     * Replace a list of references with the resolved entities. References that could not be resolved are removed.
+     *
+     * @param references Reference documents
+     * @return List of copies of the resolved entities
+     */
+    public List<Document> replace(List<Document> references) {
+        if (references == null) {
+            return new ArrayList<>();
+        }
+        List<Document> resolved = new ArrayList<>(references.size());
+        for (Document reference : references) {
+            Document document = get(reference);
+            if (document != null) {
+                resolved.add(document);
+            }
+        }
+        return resolved;
+    }
+
+    public int getNumQueries() {
+        return numQueries;
+    }
+
+    public int getNumCacheHits() {
+        return numCacheHits;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(T value) {
+        if (value instanceof Document) {
+            Document document = new Document();
+            for (Map.Entry<String, Object> entry : ((Document) value).entrySet()) {
+                document.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return (T) document;
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>(((List<?>) value).size());
+            for (Object item : (List<?>) value) {
+                list.add(copy(item));
+            }
+            return (T) list;
+        } else {
+            return value;
+        }
+    }
+
+    private String key(Document document) {
+        if (document == null) {
+            return null;
+        }
+        Object uid = document.get(UID);
+        if (!(uid instanceof Number) || ((Number) uid).longValue() <= 0) {
+            return null;
+        }
+        if (versioned) {
+            Object version = document.get(VERSION);
+            if (!(version instanceof Number)) {
+                return null;
+            }
+            return ((Number) uid).longValue() + "__" + ((Number) version).intValue();
+        } else {
+            return String.valueOf(((Number) uid).longValue());
+        }
+    }
+}
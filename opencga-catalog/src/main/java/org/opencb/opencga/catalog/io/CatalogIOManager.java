@@ -50,6 +50,11 @@ public abstract class CatalogIOManager {
     protected static final String USER_BIN_FOLDER = "bin/";
     protected static final String SHARED_DATA_FOLDER = "shared_data/";
     protected static final String DEFAULT_OPENCGA_JOBS_FOLDER = "jobs/";
+    /**
+     * OPENCGA_LINE_INDEX_FOLDER contains the line indexes of the text files, used to read a range of lines without scanning
+     * the whole file.
+     */
+    protected static final String OPENCGA_LINE_INDEX_FOLDER = "line_index/";
     protected static Logger logger;
     protected URI rootDir;
     protected URI tmp;
@@ -345,6 +350,27 @@ public abstract class CatalogIOManager {
     public abstract DataInputStream getFileObject(URI fileUri, int start, int limit)
             throws CatalogIOException;
 
+    /**
+     * Build in background the line index of a text file, so {@link #getFileObject(URI, int, int)} can seek to the requested lines.
+     * Implementations not supporting line indexes do nothing.
+     *
+     * @param fileUri File to index
+     * @return true if the index is going to be built
+     * @throws CatalogIOException if the index can not be scheduled
+     */
+    public boolean indexLines(URI fileUri) throws CatalogIOException {
+        return false;
+    }
+
+    /**
+     * Delete the line index of a file, if any. Called when the file is deleted or unlinked.
+     *
+     * @param fileUri Indexed file
+     * @throws CatalogIOException if the index can not be deleted
+     */
+    public void deleteLineIndex(URI fileUri) throws CatalogIOException {
+    }
+
     public DataInputStream getGrepFileObject(URI studyUri, String objectId, String pattern,
                                              boolean ignoreCase, boolean multi)
             throws CatalogIOException {
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import org.opencb.opencga.catalog.exceptions.CatalogIOException;
 import org.opencb.opencga.core.common.IOUtils;
+import org.opencb.opencga.core.common.LineIndex;
 import org.opencb.opencga.core.common.UriUtils;
 import org.opencb.opencga.core.config.Configuration;
 import org.slf4j.Logger;
@@ -28,9 +29,15 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 public class PosixCatalogIOManager extends CatalogIOManager {
@@ -39,6 +46,15 @@ public class PosixCatalogIOManager extends CatalogIOManager {
     protected static ObjectMapper jsonObjectMapper;
     protected static ObjectWriter jsonObjectWriter;
 
+    // Smaller files are read from the beginning
+    private static final long LINE_INDEX_MIN_FILE_SIZE = 1024 * 1024;
+    // Line indexes are built in background, out of the request thread
+    private static final ExecutorService LINE_INDEX_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "line-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<Path> PENDING_LINE_INDEXES = ConcurrentHashMap.newKeySet();
 
     public PosixCatalogIOManager(String propertiesFile) throws CatalogIOException {
         super(propertiesFile);
@@ -149,6 +165,14 @@ public class PosixCatalogIOManager extends CatalogIOManager {
     @Override
     public void deleteDirectory(URI uri) throws CatalogIOException {
         try {
+            Path lineIndexFolder = getLineIndexFolder();
+            if (lineIndexFolder != null && Files.isDirectory(lineIndexFolder)) {
+                try (Stream<Path> stream = Files.walk(Paths.get(uri))) {
+                    for (Path path : (Iterable<Path>) stream.filter(Files::isRegularFile)::iterator) {
+                        deleteLineIndex(path);
+                    }
+                }
+            }
             IOUtils.deleteDirectory(Paths.get(uri));
         } catch (IOException e) {
             throw new CatalogIOException("Could not delete directory " + uri, e);
@@ -159,6 +183,7 @@ public class PosixCatalogIOManager extends CatalogIOManager {
     public void deleteFile(URI fileUri) throws CatalogIOException {
         try {
             Files.delete(Paths.get(fileUri));
+            deleteLineIndex(Paths.get(fileUri));
         } catch (IOException e) {
             throw new CatalogIOException("Could not delete file " + fileUri, e);
         }
@@ -540,7 +565,7 @@ public class PosixCatalogIOManager extends CatalogIOManager {
                 if (start == -1 && limit == -1) {
                     return new DataInputStream(Files.newInputStream(objectPath));
                 } else {
-                    return new DataInputStream(IOUtils.headOffset(objectPath, start, limit));
+                    return new DataInputStream(IOUtils.headOffset(objectPath, getLineIndex(objectPath, start), start, limit));
                 }
             } catch (IOException e) {
                 throw new CatalogIOException("Unable to read file", e);
@@ -550,6 +575,134 @@ public class PosixCatalogIOManager extends CatalogIOManager {
         }
     }
 
+    @Override
+    public boolean indexLines(URI fileUri) throws CatalogIOException {
+        if (getLineIndexFolder() == null) {
+            return false;
+        }
+        submitLineIndex(Paths.get(fileUri));
+        return true;
+    }
+
+    @Override
+    public void deleteLineIndex(URI fileUri) throws CatalogIOException {
+        try {
+            deleteLineIndex(Paths.get(fileUri));
+        } catch (IOException e) {
+            throw new CatalogIOException("Could not delete line index of file " + fileUri, e);
+        }
+    }
+
+    private void deleteLineIndex(Path path) throws IOException {
+        Path indexPath = getLineIndexPath(path);
+        if (indexPath != null) {
+            Files.deleteIfExists(indexPath);
+        }
+    }
+
+    /**
+     * Get a valid line index of the file. If missing, and the requested offset is beyond the first checkpoint, the index is
+     * built in background for the next reads. The current read scans the file up to the requested lines.
+     *
+     * @param path       File
+     * @param offsetLine First line to read
+     * @return           LineIndex, or null if not available
+     */
+    private LineIndex getLineIndex(Path path, int offsetLine) {
+        Path indexPath = getLineIndexPath(path);
+        if (indexPath == null) {
+            return null;
+        }
+        LineIndex lineIndex = LineIndex.read(indexPath, path);
+        if (lineIndex == null && offsetLine >= LineIndex.DEFAULT_STRIDE) {
+            submitLineIndex(path);
+        }
+        return lineIndex;
+    }
+
+    /**
+     * Build the line index of the file in background, out of the request thread. Files already waiting to be indexed are skipped.
+     *
+     * @param path File
+     */
+    private void submitLineIndex(Path path) {
+        if (!PENDING_LINE_INDEXES.add(path)) {
+            return;
+        }
+        LINE_INDEX_EXECUTOR.submit(() -> {
+            try {
+                if (isLineIndexable(path)) {
+                    buildLineIndex(path);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Unable to index lines of file {}: {}", path, e.getMessage());
+            } finally {
+                PENDING_LINE_INDEXES.remove(path);
+            }
+        });
+    }
+
+    private LineIndex buildLineIndex(Path path) throws IOException {
+        LineIndex lineIndex = LineIndex.build(path, LineIndex.DEFAULT_STRIDE);
+        Path indexPath = getLineIndexPath(path);
+        if (indexPath != null) {
+            lineIndex.write(indexPath);
+            if (!lineIndex.isValid(path)) {
+                // The file was modified or deleted while indexing
+                Files.deleteIfExists(indexPath);
+            }
+        }
+        return lineIndex;
+    }
+
+    private boolean isLineIndexable(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try {
+            if (Files.size(path) < LINE_INDEX_MIN_FILE_SIZE) {
+                return false;
+            }
+            // Skip gzip compressed files
+            try (InputStream is = Files.newInputStream(path)) {
+                return !(is.read() == 0x1f && is.read() == 0x8b);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Line indexes are stored in the workspace, out of the study folders, so they are never scanned as user files.
+     *
+     * @param path Indexed file
+     * @return     Path of the index, or null if the workspace is not a local folder
+     */
+    private Path getLineIndexPath(Path path) {
+        Path lineIndexFolder = getLineIndexFolder();
+        if (lineIndexFolder == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(path.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return lineIndexFolder.resolve(sb + ".lidx");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private Path getLineIndexFolder() {
+        if (rootDir == null || !"file".equals(rootDir.getScheme())) {
+            return null;
+        }
+        return Paths.get(rootDir).resolve(OPENCGA_LINE_INDEX_FOLDER);
+    }
+
 
     @Override
     public DataInputStream getGrepFileObject(URI fileUri, String pattern,
@@ -237,7 +237,13 @@ public class CatalogManager implements AutoCloseable {
 
     @Override
     public void close() throws CatalogException {
-        catalogDBAdaptorFactory.close();
+        try {
+            if (auditManager != null) {
+                auditManager.close();
+            }
+        } finally {
+            catalogDBAdaptorFactory.close();
+        }
     }
 
     public UserManager getUserManager() {
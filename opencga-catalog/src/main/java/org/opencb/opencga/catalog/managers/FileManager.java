@@ -994,6 +994,7 @@ public class FileManager extends AnnotationSetManager<File> {
                 // Improve metadata information and extract samples if any
                 new FileMetadataReader(catalogManager).addMetadataInformation(study, file, token);
                 validateNewSamples(study, file, token);
+                indexLines(ioManager, file.getUri());
             } catch (CatalogException e) {
                 ioManager.deleteDirectory(tempDirectory);
                 logger.error("Upload file: {}", e.getMessage(), e);
@@ -1457,17 +1458,20 @@ public class FileManager extends AnnotationSetManager<File> {
 //                    throw new CatalogException("Could not remove relation references: " + e.getMessage(), e);
 //                }
 
+        OpenCGAResult result;
         if (file.isExternal()) {
             // unlink
-            return unlink(study.getUid(), file);
+            result = unlink(study.getUid(), file);
         } else {
             // local
             if (physicalDelete) {
-                return physicalDelete(study.getUid(), file, params.getBoolean(FORCE_DELETE, false));
+                result = physicalDelete(study.getUid(), file, params.getBoolean(FORCE_DELETE, false));
             } else {
-                return sendToTrash(study.getUid(), file);
+                result = sendToTrash(study.getUid(), file);
             }
         }
+        deleteLineIndexes(fileList);
+        return result;
     }
 
     /**
@@ -1589,6 +1593,7 @@ public class FileManager extends AnnotationSetManager<File> {
             }
 
             unlink(study.getUid(), file);
+            deleteLineIndexes(fileList);
 
             Query query = new Query()
                     .append(FileDBAdaptor.QueryParams.UID.key(), file.getUid())
@@ -3324,6 +3329,38 @@ public class FileManager extends AnnotationSetManager<File> {
         }
     }
 
+    /**
+     * Build in background the line index of a text file, so paginated reads do not need to scan the file from the beginning.
+     * Failures are not propagated, as the index is only an optimization.
+     *
+     * @param ioManager CatalogIOManager of the file
+     * @param fileUri   File uri
+     */
+    private void indexLines(CatalogIOManager ioManager, URI fileUri) {
+        try {
+            ioManager.indexLines(fileUri);
+        } catch (CatalogIOException | RuntimeException e) {
+            logger.warn("Unable to index lines of file {}: {}", fileUri, e.getMessage());
+        }
+    }
+
+    /**
+     * Delete the line indexes of the deleted or unlinked files. Failures are not propagated, as the indexes are only an optimization.
+     *
+     * @param fileList Deleted or unlinked files and folders
+     */
+    private void deleteLineIndexes(List<File> fileList) {
+        for (File file : fileList) {
+            if (file.getType() == File.Type.FILE && file.getUri() != null) {
+                try {
+                    catalogIOManagerFactory.get(file.getUri()).deleteLineIndex(file.getUri());
+                } catch (CatalogIOException | RuntimeException e) {
+                    logger.warn("Unable to delete line index of file {}: {}", file.getUri(), e.getMessage());
+                }
+            }
+        }
+    }
+
     private OpenCGAResult<File> privateLink(Study study, URI uriOrigin, String pathDestiny, ObjectMap params, String sessionId)
             throws CatalogException, IOException {
         params = ParamUtils.defaultObject(params, ObjectMap::new);
@@ -3460,7 +3497,9 @@ public class FileManager extends AnnotationSetManager<File> {
 
             // Create the file
             if (fileDBAdaptor.count(query).getNumMatches() == 0) {
-                return registerFile(study, externalPathDestinyStr, normalizedUri, sessionId);
+                OpenCGAResult<File> result = registerFile(study, externalPathDestinyStr, normalizedUri, sessionId);
+                indexLines(ioManager, normalizedUri);
+                return result;
             } else {
                 throw new CatalogException("Cannot link " + externalPathDestiny.getFileName().toString() + ". A file with the same name "
                         + "was found in the same path.");
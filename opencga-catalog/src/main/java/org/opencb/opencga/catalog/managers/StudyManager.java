@@ -1553,6 +1553,18 @@ public class StudyManager extends AbstractManager {
     }
 
     public boolean indexCatalogIntoSolr(String token) throws CatalogException {
+        return indexCatalogIntoSolr(false, token);
+    }
+
+    /**
+     * Index the catalog entries of all the studies into Solr.
+     *
+     * @param incremental Only index the entries created, modified or deleted since the last indexation of each study.
+     * @param token       Token of the administrator
+     * @return true if the indexation was launched
+     * @throws CatalogException if the user is not the administrator or there are no studies
+     */
+    public boolean indexCatalogIntoSolr(boolean incremental, String token) throws CatalogException {
         String userId = catalogManager.getUserManager().getUserId(token);
 
         if (authorizationManager.checkIsAdmin(userId)) {
@@ -1579,11 +1591,11 @@ public class StudyManager extends AbstractManager {
                 // We replace the current studyAcls for the parsed one
                 study.getAttributes().put("OPENCGA_ACL", studyAcls);
 
-                threadPool.submit(() -> indexCohort(catalogSolrManager, study));
-                threadPool.submit(() -> indexFile(catalogSolrManager, study));
-                threadPool.submit(() -> indexFamily(catalogSolrManager, study));
-                threadPool.submit(() -> indexIndividual(catalogSolrManager, study));
-                threadPool.submit(() -> indexSample(catalogSolrManager, study));
+                threadPool.submit(() -> indexCohort(catalogSolrManager, study, incremental));
+                threadPool.submit(() -> indexFile(catalogSolrManager, study, incremental));
+                threadPool.submit(() -> indexFamily(catalogSolrManager, study, incremental));
+                threadPool.submit(() -> indexIndividual(catalogSolrManager, study, incremental));
+                threadPool.submit(() -> indexSample(catalogSolrManager, study, incremental));
             }
 
             threadPool.shutdown();
@@ -1617,7 +1629,7 @@ public class StudyManager extends AbstractManager {
 
     // **************************   Private methods  ******************************** //
 
-    private Boolean indexCohort(CatalogSolrManager catalogSolrManager, Study study) throws CatalogException {
+    private Boolean indexCohort(CatalogSolrManager catalogSolrManager, Study study, boolean incremental) throws CatalogException {
         ObjectMap auditParams = new ObjectMap("study", study.getFqn());
         try {
             Query query = new Query()
@@ -1631,8 +1643,9 @@ public class StudyManager extends AbstractManager {
                     .append(DBAdaptor.INCLUDE_ACLS, true)
                     .append(Constants.FLATTENED_ANNOTATIONS, true);
 
-            catalogSolrManager.insertCatalogCollection(this.cohortDBAdaptor.iterator(query,
-                    cohortQueryOptions), new CatalogCohortToSolrCohortConverter(study), CatalogSolrManager.COHORT_SOLR_COLLECTION);
+            catalogSolrManager.indexCatalogCollection(study, this.cohortDBAdaptor, query, cohortQueryOptions,
+                    new CatalogCohortToSolrCohortConverter(study),
+                    CatalogSolrManager.COHORT_SOLR_COLLECTION, incremental);
             auditManager.audit(ROOT, Enums.Action.INDEX, Enums.Resource.COHORT, "", "", study.getId(), study.getUuid(), auditParams,
                     new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
             return true;
@@ -1643,7 +1656,7 @@ public class StudyManager extends AbstractManager {
         }
     }
 
-    private Boolean indexFile(CatalogSolrManager catalogSolrManager, Study study) throws CatalogException {
+    private Boolean indexFile(CatalogSolrManager catalogSolrManager, Study study, boolean incremental) throws CatalogException {
         ObjectMap auditParams = new ObjectMap("study", study.getFqn());
 
         try {
@@ -1662,8 +1675,9 @@ public class StudyManager extends AbstractManager {
                     .append(DBAdaptor.INCLUDE_ACLS, true)
                     .append(Constants.FLATTENED_ANNOTATIONS, true);
 
-            catalogSolrManager.insertCatalogCollection(this.fileDBAdaptor.iterator(query,
-                    fileQueryOptions), new CatalogFileToSolrFileConverter(study), CatalogSolrManager.FILE_SOLR_COLLECTION);
+            catalogSolrManager.indexCatalogCollection(study, this.fileDBAdaptor, query, fileQueryOptions,
+                    new CatalogFileToSolrFileConverter(study),
+                    CatalogSolrManager.FILE_SOLR_COLLECTION, incremental);
             auditManager.audit(ROOT, Enums.Action.INDEX, Enums.Resource.FILE, "", "", study.getId(), study.getUuid(), auditParams,
                     new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
             return true;
@@ -1675,7 +1689,7 @@ public class StudyManager extends AbstractManager {
     }
 
 
-    private Boolean indexFamily(CatalogSolrManager catalogSolrManager, Study study) throws CatalogException {
+    private Boolean indexFamily(CatalogSolrManager catalogSolrManager, Study study, boolean incremental) throws CatalogException {
         ObjectMap auditParams = new ObjectMap("study", study.getFqn());
 
         try {
@@ -1690,8 +1704,9 @@ public class StudyManager extends AbstractManager {
                     .append(DBAdaptor.INCLUDE_ACLS, true)
                     .append(Constants.FLATTENED_ANNOTATIONS, true);
 
-            catalogSolrManager.insertCatalogCollection(this.familyDBAdaptor.iterator(query,
-                    familyQueryOptions), new CatalogFamilyToSolrFamilyConverter(study), CatalogSolrManager.FAMILY_SOLR_COLLECTION);
+            catalogSolrManager.indexCatalogCollection(study, this.familyDBAdaptor, query, familyQueryOptions,
+                    new CatalogFamilyToSolrFamilyConverter(study),
+                    CatalogSolrManager.FAMILY_SOLR_COLLECTION, incremental);
             auditManager.audit(ROOT, Enums.Action.INDEX, Enums.Resource.FAMILY, "", "", study.getId(), study.getUuid(), auditParams,
                     new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
 
@@ -1704,7 +1719,7 @@ public class StudyManager extends AbstractManager {
     }
 
 
-    private Boolean indexIndividual(CatalogSolrManager catalogSolrManager, Study study) throws CatalogException {
+    private Boolean indexIndividual(CatalogSolrManager catalogSolrManager, Study study, boolean incremental) throws CatalogException {
         ObjectMap auditParams = new ObjectMap("study", study.getFqn());
 
         try {
@@ -1724,9 +1739,9 @@ public class StudyManager extends AbstractManager {
                     .append(DBAdaptor.INCLUDE_ACLS, true)
                     .append(Constants.FLATTENED_ANNOTATIONS, true);
 
-            catalogSolrManager.insertCatalogCollection(this.individualDBAdaptor.iterator(query,
-                    individualQueryOptions), new CatalogIndividualToSolrIndividualConverter(study),
-                    CatalogSolrManager.INDIVIDUAL_SOLR_COLLECTION);
+            catalogSolrManager.indexCatalogCollection(study, this.individualDBAdaptor, query, individualQueryOptions,
+                    new CatalogIndividualToSolrIndividualConverter(study),
+                    CatalogSolrManager.INDIVIDUAL_SOLR_COLLECTION, incremental);
             auditManager.audit(ROOT, Enums.Action.INDEX, Enums.Resource.INDIVIDUAL, "", "", study.getId(), study.getUuid(), auditParams,
                     new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
             return true;
@@ -1737,7 +1752,7 @@ public class StudyManager extends AbstractManager {
         }
     }
 
-    private Boolean indexSample(CatalogSolrManager catalogSolrManager, Study study) throws CatalogException {
+    private Boolean indexSample(CatalogSolrManager catalogSolrManager, Study study, boolean incremental) throws CatalogException {
         ObjectMap auditParams = new ObjectMap("study", study.getFqn());
 
         try {
@@ -1755,8 +1770,9 @@ public class StudyManager extends AbstractManager {
                     .append(DBAdaptor.INCLUDE_ACLS, true)
                     .append(Constants.FLATTENED_ANNOTATIONS, true);
 
-            catalogSolrManager.insertCatalogCollection(this.sampleDBAdaptor.iterator(query,
-                    sampleQueryOptions), new CatalogSampleToSolrSampleConverter(study), CatalogSolrManager.SAMPLE_SOLR_COLLECTION);
+            catalogSolrManager.indexCatalogCollection(study, this.sampleDBAdaptor, query, sampleQueryOptions,
+                    new CatalogSampleToSolrSampleConverter(study),
+                    CatalogSolrManager.SAMPLE_SOLR_COLLECTION, incremental);
             auditManager.audit(ROOT, Enums.Action.INDEX, Enums.Resource.SAMPLE, "", "", study.getId(), study.getUuid(), auditParams,
                     new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
             return true;
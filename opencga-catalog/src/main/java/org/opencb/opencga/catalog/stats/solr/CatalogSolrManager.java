@@ -16,29 +16,48 @@
 
 package org.opencb.opencga.catalog.stats.solr;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.bson.Document;
 import org.opencb.commons.datastore.core.*;
 import org.opencb.commons.datastore.solr.SolrCollection;
 import org.opencb.commons.datastore.solr.SolrManager;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.run.ParallelTaskRunner;
 import org.opencb.commons.utils.CollectionUtils;
+import org.opencb.opencga.catalog.db.api.DBAdaptor;
 import org.opencb.opencga.catalog.db.api.DBIterator;
+import org.opencb.opencga.catalog.db.api.FileDBAdaptor;
+import org.opencb.opencga.catalog.db.api.SampleDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.managers.CatalogManager;
+import org.opencb.opencga.core.common.TimeUtils;
+import org.opencb.opencga.core.common.UriUtils;
 import org.opencb.opencga.core.config.DatabaseCredentials;
+import org.opencb.opencga.core.models.File;
+import org.opencb.opencga.core.models.PrivateFields;
 import org.opencb.opencga.core.models.Study;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * Created by wasim on 27/06/18.
@@ -48,9 +67,16 @@ public class CatalogSolrManager {
     private CatalogManager catalogManager;
     private SolrManager solrManager;
     private int insertBatchSize;
+    private int insertNumThreads;
+    private int commitWithin;
+    private Path indexMarksFile;
     private String DATABASE_PREFIX = "opencga";
 
     public static final int DEFAULT_INSERT_BATCH_SIZE = 10000;
+    public static final int DEFAULT_INSERT_NUM_THREADS = 4;
+    public static final int DEFAULT_COMMIT_WITHIN = 10000;
+    public static final String INDEX_MARKS_FILE = "catalog_solr_index_marks.json";
+    private static final String STUDY_ACL_MARK_SUFFIX = ":studyAcl";
     public static final String COHORT_SOLR_COLLECTION = "Catalog_Cohort";
     public static final String FILE_SOLR_COLLECTION = "Catalog_File";
     public static final String FAMILY_SOLR_COLLECTION = "Catalog_Family";
@@ -74,6 +100,19 @@ public class CatalogSolrManager {
         int tmpInsertBatchSize = Integer.parseInt(searchConfiguration.getOptions().getOrDefault("insertBatchSize",
                 String.valueOf(DEFAULT_INSERT_BATCH_SIZE)));
         insertBatchSize = tmpInsertBatchSize > 0 ? tmpInsertBatchSize : DEFAULT_INSERT_BATCH_SIZE;
+        int tmpInsertNumThreads = Integer.parseInt(searchConfiguration.getOptions().getOrDefault("insertNumThreads",
+                String.valueOf(DEFAULT_INSERT_NUM_THREADS)));
+        insertNumThreads = tmpInsertNumThreads > 0 ? tmpInsertNumThreads : DEFAULT_INSERT_NUM_THREADS;
+        commitWithin = Integer.parseInt(searchConfiguration.getOptions().getOrDefault("commitWithin",
+                String.valueOf(DEFAULT_COMMIT_WITHIN)));
+        String workspace = catalogManager.getConfiguration().getWorkspace();
+        if (StringUtils.isNotEmpty(workspace)) {
+            try {
+                indexMarksFile = Paths.get(UriUtils.createDirectoryUri(workspace)).resolve(INDEX_MARKS_FILE);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                indexMarksFile = null;
+            }
+        }
         this.solrManager = new SolrManager(searchConfiguration.getHosts(), mode, timeout);
 
         DATABASE_PREFIX = catalogManager.getConfiguration().getDatabasePrefix() + "_";
@@ -135,45 +174,274 @@ public class CatalogSolrManager {
         }
     }
 
-    public <T> void insertCatalogCollection(DBIterator<T> iterator, ComplexTypeConverter converter,
-                                            String collectionName) throws CatalogException {
-
-        int count = 0;
-        List<T> records = new ArrayList<>(insertBatchSize);
-        while (iterator.hasNext()) {
-            T record = iterator.next();
-            records.add(record);
-            count++;
-            if (count % insertBatchSize == 0) {
-                insertCatalogCollection(records, converter, collectionName);
-                records.clear();
+    /**
+     * Index all the records of the iterator. Records are converted and sent to Solr in parallel using commitWithin, with a
+     * single hard commit at the end.
+     *
+     * @param iterator       Iterator of catalog records
+     * @param converter      Catalog to Solr model converter
+     * @param collectionName Collection name, without the database prefix
+     * @param <T>            Catalog model type
+     * @throws CatalogException if there is any error indexing the records
+     */
+    public <T> int insertCatalogCollection(DBIterator<T> iterator, ComplexTypeConverter converter,
+                                           String collectionName) throws CatalogException {
+        return insertCatalogCollection(iterator, converter, collectionName, record -> true);
+    }
+
+    private <T> int insertCatalogCollection(DBIterator<T> iterator, ComplexTypeConverter converter, String collectionName,
+                                            Predicate<T> filter) throws CatalogException {
+        String collection = DATABASE_PREFIX + collectionName;
+        AtomicInteger count = new AtomicInteger();
+        DataReader<T> reader = batchSize -> {
+            List<T> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                T record = iterator.next();
+                if (filter.test(record)) {
+                    batch.add(record);
+                }
+            }
+            return batch;
+        };
+        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+                .setNumTasks(insertNumThreads)
+                .setBatchSize(insertBatchSize)
+                .setAbortOnFail(true)
+                .setSorted(false)
+                .build();
+        ParallelTaskRunner<T, Object> ptr = new ParallelTaskRunner<>(reader, records -> {
+            addBeans(records, converter, collection);
+            count.addAndGet(records.size());
+            return Collections.emptyList();
+        }, null, config);
+
+        try {
+            ptr.run();
+            solrManager.getSolrClient().commit(collection);
+        } catch (ExecutionException | IOException | SolrServerException e) {
+            throw new CatalogException(e.getMessage(), e);
+        } finally {
+            iterator.close();
+        }
+        return count.get();
+    }
+
+    /**
+     * Index the entries of a study into a collection.
+     *
+     * In incremental mode, only the entries created or modified since the last indexation of the collection for the study are indexed,
+     * and the entries deleted since then are removed. Entries with new or revoked permissions are found by their internal date of the
+     * last permission change. Changes on the permissions of the study affect all the entries of the study, so they trigger a full
+     * indexation.
+     *
+     * @param study          Study, with the parsed permissions in the attribute OPENCGA_ACL
+     * @param dbAdaptor      DBAdaptor of the catalog entries
+     * @param query          Query selecting all the entries of the study
+     * @param options        Query options
+     * @param converter      Catalog to Solr model converter
+     * @param collectionName Collection name, without the database prefix
+     * @param incremental    Only index the entries created, modified or deleted since the last indexation
+     * @param <T>            Catalog model type
+     * @return Number of entries indexed
+     * @throws CatalogException if there is any error indexing the entries
+     */
+    public <T extends PrivateFields> int indexCatalogCollection(Study study, DBAdaptor<T> dbAdaptor, Query query, QueryOptions options,
+                                                                ComplexTypeConverter<T, ?> converter, String collectionName,
+                                                                boolean incremental)
+            throws CatalogException {
+        // Taken before reading any entry, so changes made during the indexation are processed again by the next one
+        String time = TimeUtils.getTime();
+        String studyAcls = getStudyAclsMark(study);
+        String since = null;
+        if (incremental) {
+            since = getIndexMark(study.getFqn(), collectionName);
+            if (since != null && !studyAcls.equals(getIndexMark(study.getFqn(), collectionName + STUDY_ACL_MARK_SUFFIX))) {
+                logger.info("Permissions of study {} changed since the last indexation. Indexing all the {} entries",
+                        study.getFqn(), collectionName);
+                since = null;
+            }
+        }
+
+        int numIndexed;
+        if (since == null) {
+            numIndexed = insertCatalogCollection(dbAdaptor.iterator(query, options), converter, collectionName);
+        } else {
+            logger.info("Indexing {} entries of study {} created, modified or deleted since {}", collectionName, study.getFqn(), since);
+            String creationDate = SampleDBAdaptor.QueryParams.CREATION_DATE.key();
+            String modificationDate = SampleDBAdaptor.QueryParams.MODIFICATION_DATE.key();
+            String lastAclUpdate = SampleDBAdaptor.QueryParams.LAST_ACL_UPDATE.key();
+            // The query can not combine the dates with an OR. Use one query per date, so each entry is indexed once
+            numIndexed = insertCatalogCollection(dbAdaptor.iterator(new Query(query)
+                    .append(creationDate, ">=" + since), options), converter, collectionName);
+            Set<Long> modifiedUids = new HashSet<>();
+            numIndexed += insertCatalogCollection(dbAdaptor.iterator(new Query(query)
+                    .append(creationDate, "<" + since)
+                    .append(modificationDate, ">=" + since), options), converter, collectionName,
+                    record -> modifiedUids.add(record.getUid()));
+            // Entries never modified have no modification date to exclude them by query, so skip the ones already indexed
+            numIndexed += insertCatalogCollection(dbAdaptor.iterator(new Query(query)
+                    .append(creationDate, "<" + since)
+                    .append(lastAclUpdate, ">=" + since), options), converter, collectionName,
+                    record -> !modifiedUids.contains(record.getUid()));
+
+            deleteCatalogCollection(getDeletedUids(dbAdaptor, query, collectionName, since), collectionName);
+        }
+        setIndexMark(study.getFqn(), collectionName, time);
+        setIndexMark(study.getFqn(), collectionName + STUDY_ACL_MARK_SUFFIX, studyAcls);
+        return numIndexed;
+    }
+
+    private <T> List<Long> getDeletedUids(DBAdaptor<T> dbAdaptor, Query query, String collectionName, String since)
+            throws CatalogException {
+        // Deleting an entry updates its modification date
+        Query deletedQuery = new Query(query)
+                .append(SampleDBAdaptor.QueryParams.MODIFICATION_DATE.key(), ">=" + since);
+        if (FILE_SOLR_COLLECTION.equals(collectionName)) {
+            // Deleted files remain in the main collection, with a different status
+            deletedQuery.append(FileDBAdaptor.QueryParams.STATUS_NAME.key(), String.join(",", File.FileStatus.TRASHED,
+                    File.FileStatus.DELETED, File.FileStatus.PENDING_DELETE, File.FileStatus.DELETING, File.FileStatus.REMOVED));
+        } else {
+            // Other deleted entries are moved to a different collection
+            deletedQuery.append(SampleDBAdaptor.QueryParams.DELETED.key(), true);
+        }
+        QueryOptions deletedOptions = new QueryOptions(QueryOptions.INCLUDE, SampleDBAdaptor.QueryParams.UID.key());
+
+        List<Long> deletedUids = new ArrayList<>();
+        try (DBIterator<Document> iterator = dbAdaptor.nativeIterator(deletedQuery, deletedOptions)) {
+            while (iterator.hasNext()) {
+                deletedUids.add(iterator.next().get(SampleDBAdaptor.QueryParams.UID.key(), Number.class).longValue());
             }
         }
+        return deletedUids;
+    }
 
-        if (CollectionUtils.isNotEmpty(records)) {
-            insertCatalogCollection(records, converter, collectionName);
+    private static String getStudyAclsMark(Study study) {
+        // Sorted, to compare the permissions of different indexations
+        Map<String, Set<String>> studyAcls = new TreeMap<>();
+        Object acls = study.getAttributes() == null ? null : study.getAttributes().get("OPENCGA_ACL");
+        if (acls instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) acls).entrySet()) {
+                Set<String> permissions = new TreeSet<>();
+                if (entry.getValue() instanceof Collection) {
+                    for (Object permission : (Collection<?>) entry.getValue()) {
+                        permissions.add(String.valueOf(permission));
+                    }
+                }
+                studyAcls.put(String.valueOf(entry.getKey()), permissions);
+            }
         }
+        return studyAcls.toString();
     }
 
     public <T, M> void insertCatalogCollection(List<T> records, ComplexTypeConverter converter,
                                                String collectionName) throws CatalogException {
-        List<M> solrModels = new ArrayList<>();
+        String collection = DATABASE_PREFIX + collectionName;
+        try {
+            UpdateResponse updateResponse = addBeans(records, converter, collection);
+            if (updateResponse != null && updateResponse.getStatus() == 0) {
+                solrManager.getSolrClient().commit(collection);
+            }
+        } catch (IOException | SolrServerException e) {
+            throw new CatalogException(e.getMessage(), e);
+        }
+    }
 
+    private <T, M> UpdateResponse addBeans(List<T> records, ComplexTypeConverter converter, String collection)
+            throws IOException, SolrServerException {
+        if (CollectionUtils.isEmpty(records)) {
+            return null;
+        }
+        List<M> solrModels = new ArrayList<>(records.size());
         for (T record : records) {
             solrModels.add((M) converter.convertToStorageType(record));
         }
+        return solrManager.getSolrClient().addBeans(collection, solrModels, commitWithin);
+    }
 
-        UpdateResponse updateResponse;
+    /**
+     * Remove from a collection the documents of the given uids.
+     *
+     * @param uids           Uids of the catalog entries deleted
+     * @param collectionName Collection name, without the database prefix
+     * @throws CatalogException if there is any error removing the documents
+     */
+    public void deleteCatalogCollection(List<Long> uids, String collectionName) throws CatalogException {
+        if (CollectionUtils.isEmpty(uids)) {
+            return;
+        }
+        String collection = DATABASE_PREFIX + collectionName;
+        List<String> ids = new ArrayList<>(uids.size());
+        for (Long uid : uids) {
+            ids.add(String.valueOf(uid));
+        }
         try {
-            updateResponse = solrManager.getSolrClient().addBeans(DATABASE_PREFIX + collectionName, solrModels);
-            if (updateResponse.getStatus() == 0) {
-                solrManager.getSolrClient().commit(DATABASE_PREFIX + collectionName);
-            }
+            solrManager.getSolrClient().deleteById(collection, ids, commitWithin);
+            solrManager.getSolrClient().commit(collection);
         } catch (IOException | SolrServerException e) {
             throw new CatalogException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Get the high-water mark of the last successful indexation of a collection for a study.
+     *
+     * @param study          Study fqn
+     * @param collectionName Collection name
+     * @return Time (see {@link org.opencb.opencga.core.common.TimeUtils#getTime()}) of the last indexation, or null if never indexed.
+     * @throws CatalogException if the marks file could not be read
+     */
+    public synchronized String getIndexMark(String study, String collectionName) throws CatalogException {
+        if (indexMarksFile == null || !Files.exists(indexMarksFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexMarksFile, StandardOpenOption.READ);
+             FileLock ignored = channel.lock(0, Long.MAX_VALUE, true)) {
+            return readIndexMarks(channel).get(study + ":" + collectionName);
+        } catch (IOException e) {
+            throw new CatalogException("Could not read catalog solr index marks " + indexMarksFile, e);
+        }
+    }
+
+    /**
+     * Store the high-water mark of a successful indexation of a collection for a study. The marks file is locked while updated, as
+     * other processes may be indexing other studies at the same time.
+     *
+     * @param study          Study fqn
+     * @param collectionName Collection name
+     * @param time           Time taken before starting to read the catalog entries
+     * @throws CatalogException if the marks file could not be written
+     */
+    public synchronized void setIndexMark(String study, String collectionName, String time) throws CatalogException {
+        if (indexMarksFile == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(indexMarksFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            Map<String, String> marks = readIndexMarks(channel);
+            marks.put(study + ":" + collectionName, time);
+            byte[] bytes = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsBytes(marks);
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(bytes), 0);
+        } catch (IOException e) {
+            throw new CatalogException("Could not write catalog solr index marks " + indexMarksFile, e);
+        }
+    }
+
+    private static Map<String, String> readIndexMarks(FileChannel channel) throws IOException {
+        if (channel.size() == 0) {
+            return new TreeMap<>();
+        }
+        // Read from the locked channel. Closing a stream over the channel would close the channel and release the lock
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        return new TreeMap<>(new ObjectMapper().readValue(buffer.array(), 0, buffer.position(), Map.class));
+    }
+
     /**
      * Return faceted data from a Solr core/collection
      * according a given query.
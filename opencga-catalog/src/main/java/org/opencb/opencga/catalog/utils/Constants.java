@@ -101,6 +101,18 @@ public class Constants {
      */
     public static final String FLATTENED_ANNOTATIONS = "flattenAnnotations";
 
+    /**
+     * Number of entries read from the database before resolving the nested entities they reference (samples, members...).
+     * Default: 100
+     */
+    public static final String NESTED_BATCH_SIZE = "nestedBatchSize";
+
+    /**
+     * Maximum number of nested entities memoized by an iterator, so entities referenced from several entries are only fetched once.
+     * Default: 10000
+     */
+    public static final String NESTED_CACHE_SIZE = "nestedCacheSize";
+
     /* ****************************************    Private attributes       ********************************************/
     /**
      * Reserved key in attributes for OpenCGA attributes.
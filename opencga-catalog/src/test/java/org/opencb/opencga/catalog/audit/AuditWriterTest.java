@@ -0,0 +1,161 @@
+package org.opencb.opencga.catalog.audit;
+
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.catalog.db.api.AuditDBAdaptor;
+import org.opencb.opencga.catalog.exceptions.CatalogDBException;
+import org.opencb.opencga.catalog.utils.UUIDUtils;
+import org.opencb.opencga.core.common.TimeUtils;
+import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.results.OpenCGAResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AuditWriterTest {
+
+    @Test
+    public void testSync() throws Exception {
+        InMemoryAuditDBAdaptor dbAdaptor = new InMemoryAuditDBAdaptor();
+        AuditWriter writer = new AuditWriter(dbAdaptor, AuditWriter.Mode.SYNC, 10, 10);
+        writer.write(newRecord("s1"));
+        writer.write(newRecord("s2"));
+        assertEquals(2, dbAdaptor.records.size());
+        assertEquals(2, dbAdaptor.numInserts);
+        writer.close();
+    }
+
+    @Test
+    public void testAsyncFlush() throws Exception {
+        InMemoryAuditDBAdaptor dbAdaptor = new InMemoryAuditDBAdaptor();
+        AuditWriter writer = new AuditWriter(dbAdaptor, AuditWriter.Mode.ASYNC_FLUSH, 10000, 100);
+        List<AuditRecord> records = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            records.add(newRecord("s" + i));
+        }
+        writer.write(records);
+        writer.close();
+
+        assertEquals(1000, dbAdaptor.records.size());
+        assertEquals(1000L, writer.getStats().get("written"));
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+        InMemoryAuditDBAdaptor dbAdaptor = new InMemoryAuditDBAdaptor();
+        AuditWriter writer = new AuditWriter(dbAdaptor, AuditWriter.Mode.ASYNC_FLUSH, 1, 1);
+        for (int i = 0; i < 100; i++) {
+            writer.write(newRecord("s" + i));
+        }
+        writer.flush();
+        writer.close();
+
+        // No record is lost when the queue is full
+        assertEquals(100, dbAdaptor.records.size());
+    }
+
+    @Test
+    public void testWriteAfterClose() throws Exception {
+        InMemoryAuditDBAdaptor dbAdaptor = new InMemoryAuditDBAdaptor();
+        AuditWriter writer = new AuditWriter(dbAdaptor, AuditWriter.Mode.ASYNC, 10000, 100);
+        writer.close();
+        writer.write(newRecord("s1"));
+        writer.write(Collections.singletonList(newRecord("s2")));
+
+        // Written synchronously
+        assertEquals(2, dbAdaptor.records.size());
+    }
+
+    @Test
+    public void testWriteWhileClosing() throws Exception {
+        InMemoryAuditDBAdaptor dbAdaptor = new InMemoryAuditDBAdaptor();
+        AuditWriter writer = new AuditWriter(dbAdaptor, AuditWriter.Mode.ASYNC_FLUSH, 100, 10);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    try {
+                        writer.write(newRecord("s" + i));
+                    } catch (CatalogDBException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        Thread.sleep(5);
+        writer.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // No record is lost, either written before or after closing the writer
+        assertEquals(4000, dbAdaptor.records.size());
+    }
+
+    @Test
+    public void testAsyncFailure() throws Exception {
+        InMemoryAuditDBAdaptor dbAdaptor = new InMemoryAuditDBAdaptor();
+        AuditWriter writer = new AuditWriter(dbAdaptor, AuditWriter.Mode.ASYNC_FLUSH, 10000, 100);
+        dbAdaptor.failures.set(1);
+        writer.write(newRecord("s1"));
+        try {
+            writer.flush();
+            fail("Expected CatalogDBException");
+        } catch (CatalogDBException e) {
+            assertEquals(1L, writer.getStats().get("failed"));
+        }
+
+        // Reported once
+        writer.write(newRecord("s2"));
+        writer.flush();
+        writer.close();
+        assertEquals(1, dbAdaptor.records.size());
+    }
+
+    private static AuditRecord newRecord(String sampleId) {
+        return new AuditRecord(UUIDUtils.generateOpenCGAUUID(UUIDUtils.Entity.AUDIT),
+                UUIDUtils.generateOpenCGAUUID(UUIDUtils.Entity.AUDIT), "user", "api", Enums.Action.CREATE,
+                Enums.Resource.SAMPLE, sampleId, "", "studyId", "studyUuid", new ObjectMap(),
+                new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS), TimeUtils.getDate(), new ObjectMap());
+    }
+
+    private static class InMemoryAuditDBAdaptor implements AuditDBAdaptor {
+        private final List<AuditRecord> records = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger failures = new AtomicInteger();
+        private int numInserts = 0;
+
+        @Override
+        public OpenCGAResult<AuditRecord> insertAuditRecord(AuditRecord auditRecord) throws CatalogDBException {
+            return insertAuditRecords(Collections.singletonList(auditRecord));
+        }
+
+        @Override
+        public synchronized OpenCGAResult<AuditRecord> insertAuditRecords(List<AuditRecord> auditRecords) throws CatalogDBException {
+            if (failures.getAndDecrement() > 0) {
+                throw new CatalogDBException("Failed insert");
+            }
+            numInserts++;
+            records.addAll(auditRecords);
+            return new OpenCGAResult<>();
+        }
+
+        @Override
+        public OpenCGAResult<AuditRecord> get(Query query, QueryOptions queryOptions) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OpenCGAResult groupBy(Query query, List<String> fields, QueryOptions options) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.opencb.opencga.catalog.db.mongodb.iterators;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReferenceResolverTest {
+
+    @Test
+    public void testResolveVersioned() throws Exception {
+        List<List<Long>> queries = new ArrayList<>();
+        ReferenceResolver resolver = new ReferenceResolver(true, (uids, versions) -> {
+            queries.add(uids);
+            List<Document> documents = new ArrayList<>();
+            for (int i = 0; i < uids.size(); i++) {
+                // Entity 3 is not visible
+                if (uids.get(i) != 3) {
+                    documents.add(entity(uids.get(i), versions.get(i)).append("id", "e" + uids.get(i)));
+                }
+            }
+            return documents;
+        }, 100);
+
+        // First batch. Duplicated references are fetched once
+        resolver.addAll(Arrays.asList(entity(1, 1), entity(2, 1), entity(1, 1), entity(3, 1)));
+        resolver.resolve();
+        assertEquals(1, queries.size());
+        assertEquals(Arrays.asList(1L, 2L, 3L), queries.get(0));
+
+        List<Document> resolved = resolver.replace(Arrays.asList(entity(1, 1), entity(3, 1), entity(2, 1)));
+        assertEquals(2, resolved.size());
+        assertEquals("e1", resolved.get(0).getString("id"));
+        assertEquals("e2", resolved.get(1).getString("id"));
+
+        // Second batch. Only the new references are fetched
+        resolver.addAll(Arrays.asList(entity(1, 1), entity(3, 1), entity(1, 2)));
+        resolver.resolve();
+        assertEquals(2, queries.size());
+        assertEquals(Arrays.asList(1L), queries.get(1));
+        assertNotNull(resolver.get(entity(1, 1)));
+        assertNotNull(resolver.get(entity(1, 2)));
+        assertNull(resolver.get(entity(3, 1)));
+
+        // Third batch. Everything memoized
+        resolver.addAll(Arrays.asList(entity(2, 1), entity(3, 1)));
+        resolver.resolve();
+        assertEquals(2, queries.size());
+        assertEquals(2, resolver.getNumQueries());
+        assertEquals(1, resolver.getResolved().size());
+        assertTrue(resolver.hasResolved());
+
+        // Fourth batch. Only entities not visible
+        resolver.add(entity(3, 1));
+        resolver.resolve();
+        assertFalse(resolver.hasResolved());
+    }
+
+    @Test
+    public void testSmallCache() throws Exception {
+        ReferenceResolver resolver = new ReferenceResolver(false, (uids, versions) -> {
+            List<Document> documents = new ArrayList<>();
+            for (Long uid : uids) {
+                documents.add(new Document("uid", uid));
+            }
+            return documents;
+        }, 0);
+
+        resolver.addAll(Arrays.asList(new Document("uid", 1L), new Document("uid", 2L)));
+        resolver.resolve();
+        // Entities of the current batch are kept even if they do not fit in the cache
+        assertEquals(2, resolver.replace(Arrays.asList(new Document("uid", 1L), new Document("uid", 2L))).size());
+    }
+
+    @Test
+    public void testResolvedCopies() throws Exception {
+        ReferenceResolver resolver = new ReferenceResolver(false, (uids, versions) -> {
+            List<Document> documents = new ArrayList<>();
+            for (Long uid : uids) {
+                documents.add(new Document("uid", uid).append("father", new Document("uid", 10L))
+                        .append("samples", new ArrayList<>(Arrays.asList(new Document("uid", 20L)))));
+            }
+            return documents;
+        }, 100);
+
+        resolver.add(new Document("uid", 1L));
+        resolver.resolve();
+        Document member = resolver.get(new Document("uid", 1L));
+        ((Document) member.get("father")).put("id", "father");
+        ((List<Document>) member.get("samples")).add(new Document("uid", 21L));
+
+        // Modifying the returned entities does not modify the memoized ones
+        resolver.add(new Document("uid", 1L));
+        resolver.resolve();
+        for (Document document : Arrays.asList(resolver.get(new Document("uid", 1L)),
+                resolver.replace(Arrays.asList(new Document("uid", 1L))).get(0), resolver.getResolved().iterator().next())) {
+            assertFalse(((Document) document.get("father")).containsKey("id"));
+            assertEquals(1, ((List<Document>) document.get("samples")).size());
+        }
+        assertEquals(1, resolver.getNumQueries());
+    }
+
+    private static Document entity(long uid, int version) {
+        return new Document("uid", uid).append("version", version);
+    }
+}
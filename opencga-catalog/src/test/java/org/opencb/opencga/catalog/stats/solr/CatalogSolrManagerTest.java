@@ -2,27 +2,36 @@ package org.opencb.opencga.catalog.stats.solr;
 
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.bson.Document;
 import org.junit.Test;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.FacetField;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.opencga.catalog.db.api.*;
 import org.opencb.opencga.catalog.db.mongodb.CohortMongoDBAdaptor;
 import org.opencb.opencga.catalog.db.mongodb.FileMongoDBAdaptor;
 import org.opencb.opencga.catalog.db.mongodb.MongoDBAdaptorFactory;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
+import org.opencb.opencga.catalog.models.update.SampleUpdateParams;
 import org.opencb.opencga.catalog.stats.solr.converters.CatalogCohortToSolrCohortConverter;
 import org.opencb.opencga.catalog.stats.solr.converters.CatalogSampleToSolrSampleConverter;
 import org.opencb.opencga.catalog.stats.solr.converters.SolrConverterUtil;
 import org.opencb.opencga.catalog.utils.Constants;
+import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.models.Cohort;
 import org.opencb.opencga.core.models.File;
 import org.opencb.opencga.core.models.Individual;
 import org.opencb.opencga.core.models.Sample;
+import org.opencb.opencga.core.models.Study;
+import org.opencb.opencga.core.models.acls.AclParams;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -282,5 +291,96 @@ public class CatalogSolrManagerTest extends AbstractSolrManagerTest {
         assertEquals(3, facet.getResults().get(0).getBuckets().get(0).getCount());
     }
 
+    @Test
+    public void testIncrementalIndexSamples() throws Exception {
+        assertEquals(3, indexSamples(true));
+        moveSamplesToThePast();
+        assertEquals(0, indexSamples(true));
+        assertEquals(3, countSamples("owner"));
+
+        catalogManager.getSampleManager().create(studyFqn, new Sample().setId("sample4"), QueryOptions.empty(), sessionIdAdmin);
+        catalogManager.getSampleManager().update(studyFqn, "sample3", new SampleUpdateParams().setDescription("new description"),
+                QueryOptions.empty(), sessionIdAdmin);
+        // New and modified entries are indexed only once
+        assertEquals(2, indexSamples(true));
+        assertEquals(4, countSamples("owner"));
+        moveSamplesToThePast();
+        assertEquals(0, indexSamples(true));
+
+        catalogManager.getSampleManager().delete(studyFqn, Collections.singletonList("sample4"), new ObjectMap(), sessionIdAdmin);
+        assertEquals(0, indexSamples(true));
+        assertEquals(3, countSamples("owner"));
+    }
+
+    @Test
+    public void testIncrementalIndexSamplesAcls() throws Exception {
+        assertEquals(3, indexSamples(true));
+        assertEquals(1, countSamples("user3"));
+        assertEquals(2, countSamples("user1"));
+        moveSamplesToThePast();
+
+        String modificationDate = getSample("sample1").getModificationDate();
+        catalogManager.getSampleManager().updateAcl(studyFqn, Collections.singletonList("sample1"), "user3",
+                new Sample.SampleAclParams("VIEW,VIEW_ANNOTATIONS", AclParams.Action.REMOVE, null, null, null), sessionIdAdmin);
+        // Changing the permissions of an entry is tracked without changing its modification date
+        assertEquals(modificationDate, getSample("sample1").getModificationDate());
+        assertEquals(1, indexSamples(true));
+        assertEquals(0, countSamples("user3"));
+
+        catalogManager.getStudyManager().updateAcl(Collections.singletonList(studyFqn), "@study_allow",
+                new Study.StudyAclParams(null, AclParams.Action.REMOVE, "view_only"), sessionIdAdmin);
+        // Changing the permissions of the study affects all the entries
+        assertEquals(3, indexSamples(true));
+        assertEquals(0, countSamples("user1"));
+    }
+
+    /**
+     * Move the dates of the samples and the sample index mark one minute back. Dates have a resolution of seconds, so any change made
+     * after this is later than the index mark, with no need to wait.
+     */
+    private void moveSamplesToThePast() throws CatalogException {
+        Date past = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+        new MongoDBAdaptorFactory(catalogManager.getConfiguration()).getCatalogSampleDBAdaptor().getSampleCollection()
+                .update(new Document(), new Document("$set", new Document("_creationDate", past)
+                        .append("_modificationDate", past)
+                        .append("_lastAclUpdate", past)), new QueryOptions(MongoDBCollection.MULTI, true));
+        catalogSolrManager.setIndexMark(studyFqn, CatalogSolrManager.SAMPLE_SOLR_COLLECTION,
+                TimeUtils.getTime(new Date(past.getTime() + TimeUnit.SECONDS.toMillis(1))));
+    }
+
+    private Sample getSample(String sampleId) throws CatalogException {
+        return catalogManager.getSampleManager().get(studyFqn, sampleId, QueryOptions.empty(), sessionIdAdmin).first();
+    }
 
-}
\ No newline at end of file
+    private int indexSamples(boolean incremental) throws CatalogException {
+        Study study = catalogManager.getStudyManager().get(studyFqn, new QueryOptions(DBAdaptor.INCLUDE_ACLS, true), sessionIdOwner)
+                .first();
+        study.getAttributes().put("OPENCGA_ACL",
+                SolrConverterUtil.parseInternalOpenCGAAcls((List<Map<String, Object>>) study.getAttributes().get("OPENCGA_ACL")));
+
+        QueryOptions queryOptions = new QueryOptions()
+                .append(QueryOptions.INCLUDE, Arrays.asList(SampleDBAdaptor.QueryParams.ID.key(),
+                        SampleDBAdaptor.QueryParams.RELEASE.key(), SampleDBAdaptor.QueryParams.VERSION.key(),
+                        SampleDBAdaptor.QueryParams.CREATION_DATE.key(), SampleDBAdaptor.QueryParams.STATUS.key(),
+                        SampleDBAdaptor.QueryParams.UID.key()))
+                .append(DBAdaptor.INCLUDE_ACLS, true)
+                .append(Constants.FLATTENED_ANNOTATIONS, true);
+        SampleDBAdaptor sampleDBAdaptor = new MongoDBAdaptorFactory(catalogManager.getConfiguration()).getCatalogSampleDBAdaptor();
+        return catalogSolrManager.indexCatalogCollection(study, sampleDBAdaptor,
+                new Query(SampleDBAdaptor.QueryParams.STUDY_UID.key(), study.getUid()), queryOptions,
+                new CatalogSampleToSolrSampleConverter(study), CatalogSolrManager.SAMPLE_SOLR_COLLECTION, incremental);
+    }
+
+    private long countSamples(String user) throws CatalogException {
+        Study study = catalogManager.getStudyManager().get(studyFqn, new QueryOptions(DBAdaptor.INCLUDE_ACLS, true), sessionIdOwner)
+                .first();
+        study.getAttributes().put("OPENCGA_ACL",
+                SolrConverterUtil.parseInternalOpenCGAAcls((List<Map<String, Object>>) study.getAttributes().get("OPENCGA_ACL")));
+        DataResult<FacetField> facet = catalogSolrManager.facetedQuery(study, CatalogSolrManager.SAMPLE_SOLR_COLLECTION,
+                new Query(), new QueryOptions(QueryOptions.FACET, SampleDBAdaptor.QueryParams.RELEASE.key()), user);
+        if (facet.getResults().isEmpty() || facet.getResults().get(0).getBuckets().isEmpty()) {
+            return 0;
+        }
+        return facet.getResults().get(0).getBuckets().get(0).getCount();
+    }
+}
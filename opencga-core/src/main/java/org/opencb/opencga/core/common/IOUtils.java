@@ -17,17 +17,26 @@
 package org.opencb.opencga.core.common;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.*;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 public class IOUtils {
 
+    private static final long PARALLEL_GREP_MIN_SIZE = 64L * 1024 * 1024;
+    private static final long PARALLEL_GREP_CHUNK_SIZE = 256L * 1024 * 1024;
+
     public static void deleteDirectory(Path path) throws IOException {
 
         Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
@@ -92,7 +101,46 @@ public class IOUtils {
         return inputStream;
     }
 
+    /**
+     * Same as {@link #headOffset(Path, int, int)}, but using a {@link LineIndex} to seek to the closest checkpoint instead of
+     * reading the file from the beginning.
+     *
+     * @param path       File to read
+     * @param lineIndex  Line index of the file. If null, the whole file is scanned.
+     * @param offsetLine First line to read
+     * @param numLines   Exclusive end line
+     * @return           InputStream with the selected lines
+     * @throws IOException if the file can not be read
+     */
+    public static InputStream headOffset(Path path, LineIndex lineIndex, int offsetLine, int numLines) throws IOException {
+        if (lineIndex == null) {
+            return headOffset(path, offsetLine, numLines);
+        }
+        StringBuilder sb = new StringBuilder();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(lineIndex.getCheckpointOffset(offsetLine));
+            BufferedReader br = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), Charset.defaultCharset()));
+            long toSkip = lineIndex.getLinesToSkip(offsetLine);
+            int cont = offsetLine;
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (toSkip > 0) {
+                    toSkip--;
+                } else if (cont < numLines) {
+                    sb.append(line).append("\n");
+                    cont++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return new ByteArrayInputStream(sb.toString().getBytes());
+    }
+
     public static InputStream grepFile(Path path, String pattern, boolean ignoreCase, boolean multi) throws IOException {
+        if (multi && Files.size(path) >= PARALLEL_GREP_MIN_SIZE) {
+            return grepFileParallel(path, pattern, ignoreCase, PARALLEL_GREP_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+        }
         StringBuilder sb = new StringBuilder();
         try (BufferedReader br = Files.newBufferedReader(path, Charset.defaultCharset())) {
             Pattern pat;
@@ -116,6 +164,126 @@ public class IOUtils {
     }
 
 
+    /**
+     * Grep a file splitting it into line aligned chunks that are memory mapped and scanned in parallel.
+     * Matching lines are returned in the same order as in the file.
+     *
+     * @param path       File to read
+     * @param pattern    Regular expression to match whole lines
+     * @param ignoreCase Case insensitive match
+     * @param chunkSize  Approximated size of each chunk, in bytes
+     * @param numThreads Number of threads
+     * @return           InputStream with the matching lines
+     * @throws IOException if the file can not be read
+     */
+    public static InputStream grepFileParallel(Path path, String pattern, boolean ignoreCase, long chunkSize, int numThreads)
+            throws IOException {
+        Pattern pat = ignoreCase ? Pattern.compile(pattern, Pattern.CASE_INSENSITIVE) : Pattern.compile(pattern);
+        chunkSize = Math.max(1, Math.min(chunkSize, Integer.MAX_VALUE));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Long> boundaries = new ArrayList<>();
+            boundaries.add(0L);
+            long start = 0;
+            while (start < size) {
+                long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+                boundaries.add(end);
+                start = end;
+            }
+
+            int numChunks = boundaries.size() - 1;
+            if (numChunks == 0) {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(numThreads, numChunks)));
+            try {
+                List<Future<StringBuilder>> futures = new ArrayList<>(numChunks);
+                for (int i = 0; i < numChunks; i++) {
+                    long chunkStart = boundaries.get(i);
+                    long chunkLength = boundaries.get(i + 1) - chunkStart;
+                    futures.add(executor.submit(() -> grepChunk(channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkLength), pat)));
+                }
+                StringBuilder sb = new StringBuilder();
+                for (Future<StringBuilder> future : futures) {
+                    sb.append(future.get());
+                }
+                return new ByteArrayInputStream(sb.toString().getBytes());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading " + path);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Error reading " + path, e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    return position + i + 1;
+                } else if (b == '\r') {
+                    // Same line breaks as grepChunk. The '\n' of a "\r\n" line break belongs to the previous line
+                    long next = position + i + 1;
+                    return next < size && readByte(channel, next) == '\n' ? next + 1 : next;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static byte readByte(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0);
+    }
+
+    private static StringBuilder grepChunk(MappedByteBuffer buffer, Pattern pattern) {
+        StringBuilder sb = new StringBuilder();
+        byte[] line = new byte[1024];
+        int length = 0;
+        int limit = buffer.limit();
+        boolean afterCarriageReturn = false;
+        for (int i = 0; i <= limit; i++) {
+            byte b = i < limit ? buffer.get(i) : (byte) '\n';
+            if (b == '\n' && afterCarriageReturn) {
+                // Second byte of a "\r\n" line break
+                afterCarriageReturn = false;
+            } else if (b == '\n' || b == '\r') {
+                // Same line breaks as BufferedReader.readLine
+                if (i < limit || length > 0) {
+                    String str = new String(line, 0, length, Charset.defaultCharset());
+                    if (pattern.matcher(str).matches()) {
+                        sb.append(str).append("\n");
+                    }
+                }
+                length = 0;
+                afterCarriageReturn = b == '\r';
+            } else {
+                afterCarriageReturn = false;
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[length++] = b;
+            }
+        }
+        return sb;
+    }
+
+
     public static void prependString(Path filePath, String text) throws IOException {
         Path tempPath = Paths.get(filePath + ".prepend.tmp");
         text = text.concat(System.lineSeparator());
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.core.common;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Sparse index of line offsets of a text file.
+ *
+ * Stores the byte offset of every {@link #getStride()} lines, so any line can be reached by seeking to the closest previous
+ * checkpoint and skipping at most stride - 1 lines. Lines are terminated by '\n', '\r' or "\r\n", the same as
+ * {@link BufferedReader#readLine()}. The index records the size and modification time of the indexed file, and
+ * is discarded if the file changes.
+ */
+public final class LineIndex {
+
+    public static final int DEFAULT_STRIDE = 1000;
+
+    private static final int MAGIC = 0x4C494458; // LIDX
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final long fileSize;
+    private final long lastModified;
+    private final int stride;
+    private final long numLines;
+    private final long[] offsets;
+
+    private LineIndex(long fileSize, long lastModified, int stride, long numLines, long[] offsets) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.stride = stride;
+        this.numLines = numLines;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Scan a file to build its line index.
+     *
+     * @param file   Text file to index
+     * @param stride Number of lines between checkpoints
+     * @return       LineIndex
+     * @throws IOException if the file can not be read
+     */
+    public static LineIndex build(Path file, int stride) throws IOException {
+        if (stride <= 0) {
+            throw new IllegalArgumentException("Stride must be positive. Got " + stride);
+        }
+        long fileSize = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        long[] offsets = new long[16];
+        int numOffsets = 1;
+        long numLines = 0;
+        long position = 0;
+        boolean pendingLine = false;
+        boolean afterCarriageReturn = false;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream is = Files.newInputStream(file)) {
+            int read;
+            while ((read = is.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n' && afterCarriageReturn) {
+                        // Second byte of a "\r\n" line break. Move the checkpoint, if any, after it
+                        if (numLines % stride == 0) {
+                            offsets[numOffsets - 1] = position + i + 1;
+                        }
+                        afterCarriageReturn = false;
+                    } else if (b == '\n' || b == '\r') {
+                        numLines++;
+                        pendingLine = false;
+                        afterCarriageReturn = b == '\r';
+                        if (numLines % stride == 0) {
+                            if (numOffsets == offsets.length) {
+                                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                            }
+                            offsets[numOffsets++] = position + i + 1;
+                        }
+                    } else {
+                        pendingLine = true;
+                        afterCarriageReturn = false;
+                    }
+                }
+                position += read;
+            }
+        }
+        if (pendingLine) {
+            // Last line without line break
+            numLines++;
+        }
+        return new LineIndex(fileSize, lastModified, stride, numLines, Arrays.copyOf(offsets, numOffsets));
+    }
+
+    /**
+     * Read a line index. Returns null if the index does not exist, is corrupted, or the indexed file has changed.
+     *
+     * @param indexFile Index file
+     * @param file      Indexed file
+     * @return          LineIndex, or null if not valid
+     */
+    public static LineIndex read(Path indexFile, Path file) {
+        if (indexFile == null || !Files.exists(indexFile)) {
+            return null;
+        }
+        try (DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (is.readInt() != MAGIC || is.readInt() != VERSION) {
+                return null;
+            }
+            long fileSize = is.readLong();
+            long lastModified = is.readLong();
+            int stride = is.readInt();
+            long numLines = is.readLong();
+            int numOffsets = is.readInt();
+            long[] offsets = new long[numOffsets];
+            for (int i = 0; i < numOffsets; i++) {
+                offsets[i] = is.readLong();
+            }
+            LineIndex lineIndex = new LineIndex(fileSize, lastModified, stride, numLines, offsets);
+            return lineIndex.isValid(file) ? lineIndex : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void write(Path indexFile) throws IOException {
+        Files.createDirectories(indexFile.getParent());
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            os.writeInt(MAGIC);
+            os.writeInt(VERSION);
+            os.writeLong(fileSize);
+            os.writeLong(lastModified);
+            os.writeInt(stride);
+            os.writeLong(numLines);
+            os.writeInt(offsets.length);
+            for (long offset : offsets) {
+                os.writeLong(offset);
+            }
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Check if the index still matches the file.
+     *
+     * @param file Indexed file
+     * @return     true if the file size and modification time did not change
+     */
+    public boolean isValid(Path file) {
+        try {
+            return Files.size(file) == fileSize && Files.getLastModifiedTime(file).toMillis() == lastModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param line Line number, starting at 0
+     * @return     Byte offset of the closest checkpoint before the line
+     */
+    public long getCheckpointOffset(long line) {
+        int idx = (int) Math.min(line / stride, offsets.length - 1);
+        return offsets[Math.max(idx, 0)];
+    }
+
+    /**
+     * @param line Line number, starting at 0
+     * @return     Number of lines to skip after the checkpoint to reach the line
+     */
+    public long getLinesToSkip(long line) {
+        int idx = (int) Math.min(line / stride, offsets.length - 1);
+        return line - (long) Math.max(idx, 0) * stride;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public long getNumLines() {
+        return numLines;
+    }
+}
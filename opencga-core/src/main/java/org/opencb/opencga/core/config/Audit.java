@@ -24,6 +24,9 @@ public class Audit {
     private String manager;
     private long maxDocuments;
     private long maxSize;
+    private String writeMode = "SYNC";
+    private int queueSize = 10000;
+    private int batchSize = 500;
 
     public Audit() {
     }
@@ -40,6 +43,9 @@ public class Audit {
         sb.append("manager='").append(manager).append('\'');
         sb.append(", maxDocuments=").append(maxDocuments);
         sb.append(", maxSize=").append(maxSize);
+        sb.append(", writeMode='").append(writeMode).append('\'');
+        sb.append(", queueSize=").append(queueSize);
+        sb.append(", batchSize=").append(batchSize);
         sb.append('}');
         return sb.toString();
     }
@@ -70,4 +76,31 @@ public class Audit {
         this.maxSize = maxSize;
         return this;
     }
+
+    public String getWriteMode() {
+        return writeMode;
+    }
+
+    public Audit setWriteMode(String writeMode) {
+        this.writeMode = writeMode;
+        return this;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public Audit setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Audit setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
 }
@@ -16,17 +16,29 @@
 
 package org.opencb.opencga.core.common;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
 
 public class IOUtilsTest {
 
     private static String inputFile = IOUtilsTest.class.getResource("/file.txt").getFile();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testHeadOffset() throws Exception {
 
@@ -65,4 +77,82 @@ public class IOUtilsTest {
         in.close();
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testHeadOffsetLineIndex() throws Exception {
+        Path file = createFile(2503);
+        LineIndex lineIndex = LineIndex.build(file, 100);
+        assertEquals(2503, lineIndex.getNumLines());
+
+        Path indexFile = temporaryFolder.getRoot().toPath().resolve("index").resolve("file.lidx");
+        lineIndex.write(indexFile);
+        lineIndex = LineIndex.read(indexFile, file);
+        assertNotNull(lineIndex);
+
+        for (int[] range : new int[][]{{0, 10}, {99, 101}, {100, 100}, {1234, 1300}, {2450, 3000}}) {
+            assertEquals(toString(IOUtils.headOffset(file, range[0], range[1])),
+                    toString(IOUtils.headOffset(file, lineIndex, range[0], range[1])));
+        }
+
+        // Index is discarded if the file changes
+        Files.write(file, "new line\n".getBytes(), StandardOpenOption.APPEND);
+        assertNull(LineIndex.read(indexFile, file));
+    }
+
+    @Test
+    public void testGrepFileParallel() throws Exception {
+        Path file = createFile(5000);
+        String expected = toString(IOUtils.grepFile(file, ".*line 1.*", false, true));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, toString(IOUtils.grepFileParallel(file, ".*line 1.*", false, 1000, 4)));
+        assertEquals(expected, toString(IOUtils.grepFileParallel(file, ".*LINE 1.*", true, 333, 3)));
+    }
+
+    @Test
+    public void testLineBreaks() throws Exception {
+        // Mix "\n", "\r" and "\r\n" line breaks, as BufferedReader.readLine
+        String[] lineBreaks = {"\n", "\r", "\r\n"};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("line ").append(i).append(lineBreaks[i % lineBreaks.length]);
+        }
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, sb.toString().getBytes());
+
+        LineIndex lineIndex = LineIndex.build(file, 10);
+        assertEquals(1000, lineIndex.getNumLines());
+        for (int[] range : new int[][]{{0, 10}, {10, 12}, {11, 20}, {512, 530}, {990, 1100}}) {
+            assertEquals(toString(IOUtils.headOffset(file, range[0], range[1])),
+                    toString(IOUtils.headOffset(file, lineIndex, range[0], range[1])));
+        }
+
+        String expected = toString(IOUtils.grepFile(file, "line 1.*", false, true));
+        assertEquals(111, expected.split("\n").length);
+        assertEquals(expected, toString(IOUtils.grepFileParallel(file, "line 1.*", false, 100, 4)));
+        // Chunks ending in the middle of a "\r\n" line break
+        for (int chunkSize = 5; chunkSize < 15; chunkSize++) {
+            assertEquals(expected, toString(IOUtils.grepFileParallel(file, "line 1.*", false, chunkSize, 4)));
+        }
+    }
+
+    private Path createFile(int numLines) throws Exception {
+        List<String> lines = new ArrayList<>(numLines);
+        for (int i = 0; i < numLines; i++) {
+            lines.add("line " + i + "\tsome content" + (i % 7 == 0 ? "\r" : ""));
+        }
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, lines);
+        return file;
+    }
+
+    private static String toString(InputStream is) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(is))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                sb.append(line).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+}
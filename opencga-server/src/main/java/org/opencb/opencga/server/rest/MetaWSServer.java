@@ -22,6 +22,7 @@ import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.Event;
 import org.opencb.opencga.core.common.GitRepositoryState;
 import org.opencb.opencga.core.exception.VersionException;
+import org.opencb.opencga.storage.core.metrics.StorageMetrics;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
@@ -88,6 +89,17 @@ public class MetaWSServer extends OpenCGAWSServer {
         return createOkResponse(queryResult);
     }
 
+    @GET
+    @Path("/metrics")
+    @ApiOperation(httpMethod = "GET", value = "Storage metrics collected since the server started.")
+    public Response metrics() {
+        DataResult queryResult = new DataResult();
+        queryResult.setTime(0);
+        queryResult.setResults(Collections.singletonList(StorageMetrics.global().snapshot()));
+
+        return createOkResponse(queryResult);
+    }
+
     @GET
     @Path("/status")
     @ApiOperation(httpMethod = "GET", value = "Database status.")
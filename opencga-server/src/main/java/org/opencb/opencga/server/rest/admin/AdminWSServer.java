@@ -161,9 +161,11 @@ public class AdminWSServer extends OpenCGAWSServer {
     @POST
     @Path("/catalog/indexStats")
     @ApiOperation(value = "Sync Catalog into the Solr")
-    public Response syncSolr() {
+    public Response syncSolr(
+            @ApiParam(value = "Only index the entries created, modified or deleted since the last indexation")
+            @DefaultValue("false") @QueryParam("incremental") boolean incremental) {
         try {
-            return createOkResponse(catalogManager.getStudyManager().indexCatalogIntoSolr(token));
+            return createOkResponse(catalogManager.getStudyManager().indexCatalogIntoSolr(incremental, token));
         } catch (Exception e) {
             return createErrorResponse(e);
         }
@@ -9,7 +9,6 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.apache.log4j.Level;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.core.common.TimeUtils;
-import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,19 +16,15 @@ import java.io.*;
 import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -39,8 +34,26 @@ import java.util.stream.Collectors;
  */
 public class AzureBlobStorageIOConnector implements IOConnector {
 
+    public static final String READ_THREADS = "readThreads";
+    public static final int READ_THREADS_DEFAULT = 4;
+    public static final String READ_CHUNK_SIZE = "readChunkSize";
+    public static final int READ_CHUNK_SIZE_DEFAULT = 8 * 1024 * 1024;
+    public static final String UPLOAD_THREADS = "uploadThreads";
+    public static final int UPLOAD_THREADS_DEFAULT = 4;
+    public static final String UPLOAD_BLOCK_SIZE = "uploadBlockSize";
+    public static final int UPLOAD_BLOCK_SIZE_DEFAULT = 8 * 1024 * 1024;
+    public static final String CACHE_DIR = "cacheDir";
+    public static final String CACHE_MAX_SIZE = "cacheMaxSize";
+    public static final String ENDPOINT = "endpoint";
+
     private final String accountName;
     private final String accountKey;
+    private final URI endpoint;
+    private final int readThreads;
+    private final int readChunkSize;
+    private final int uploadThreads;
+    private final int uploadBlockSize;
+    private final LocalFileCache cache;
     private ServiceURL serviceURL;
     protected static Logger logger = LoggerFactory.getLogger(AzureBlobStorageIOConnector.class);
 
@@ -51,11 +64,33 @@ public class AzureBlobStorageIOConnector implements IOConnector {
     public AzureBlobStorageIOConnector(ObjectMap options) {
         accountName = options.getString("accountName");
         accountKey = options.getString("accountKey");
+        endpoint = createEndpoint(accountName, options.getString(ENDPOINT));
+        readThreads = options.getInt(READ_THREADS, READ_THREADS_DEFAULT);
+        readChunkSize = options.getInt(READ_CHUNK_SIZE, READ_CHUNK_SIZE_DEFAULT);
+        uploadThreads = options.getInt(UPLOAD_THREADS, UPLOAD_THREADS_DEFAULT);
+        uploadBlockSize = options.getInt(UPLOAD_BLOCK_SIZE, UPLOAD_BLOCK_SIZE_DEFAULT);
+        String cacheDir = options.getString(CACHE_DIR);
+        cache = StringUtils.isEmpty(cacheDir)
+                ? null
+                : new LocalFileCache(Paths.get(cacheDir), options.getLong(CACHE_MAX_SIZE, LocalFileCache.MAX_SIZE_DEFAULT));
     }
 
     public AzureBlobStorageIOConnector(String azureStorageAccount, String azureStorageAccessKey) {
         accountName = azureStorageAccount;
         accountKey = azureStorageAccessKey;
+        endpoint = createEndpoint(accountName, null);
+        readThreads = READ_THREADS_DEFAULT;
+        readChunkSize = READ_CHUNK_SIZE_DEFAULT;
+        uploadThreads = UPLOAD_THREADS_DEFAULT;
+        uploadBlockSize = UPLOAD_BLOCK_SIZE_DEFAULT;
+        cache = null;
+    }
+
+    private static URI createEndpoint(String accountName, String endpoint) {
+        if (StringUtils.isEmpty(endpoint)) {
+            endpoint = "https://" + accountName + ".blob.core.windows.net";
+        }
+        return URI.create(StringUtils.removeEnd(endpoint, "/"));
     }
 
     @Override
@@ -65,6 +100,9 @@ public class AzureBlobStorageIOConnector implements IOConnector {
                 if (uri.getHost().endsWith(accountName + ".blob.core.windows.net")) {
                     return true;
                 }
+                // Custom endpoint, e.g. a storage emulator
+                return uri.getHost().equals(endpoint.getHost()) && uri.getPort() == endpoint.getPort()
+                        && uri.getPath().startsWith(endpoint.getPath() + "/");
             }
         }
         return false;
@@ -94,7 +132,7 @@ public class AzureBlobStorageIOConnector implements IOConnector {
         // We are using a default pipeline here, you can learn more about it at
         // https://github.com/Azure/azure-storage-java/wiki/Azure-Storage-Java-V10-Overview
         try {
-            serviceURL = new ServiceURL(new URL("https://" + accountName + ".blob.core.windows.net"),
+            serviceURL = new ServiceURL(endpoint.toURL(),
                     StorageURL.createPipeline(creds, new PipelineOptions()
                             .withLoggingOptions(new LoggingOptions(3000))
                     ));
@@ -105,18 +143,23 @@ public class AzureBlobStorageIOConnector implements IOConnector {
 
     protected BlobURL createBlobURL(URI uri) throws IOException {
         ensureOpen();
-        String path = uri.getPath();
+        String path = getPath(uri);
         String blobName = path.substring(path.indexOf('/', 1) + 1);
         return createContainerURL(uri).createBlobURL(blobName);
     }
 
     protected ContainerURL createContainerURL(URI uri) throws IOException {
         ensureOpen();
-        String path = uri.getPath();
+        String path = getPath(uri);
         String containerName = path.substring(1, path.indexOf('/', 1));
         return serviceURL.createContainerURL(containerName);
     }
 
+    private String getPath(URI uri) {
+        // Remove the path of the endpoint, if any
+        return StringUtils.removeStart(uri.getPath(), endpoint.getPath());
+    }
+
     public List<String> listContainers() throws IOException {
         ensureOpen();
         return serviceURL.listContainersSegment(null, null)
@@ -130,18 +173,91 @@ public class AzureBlobStorageIOConnector implements IOConnector {
 
     @Override
     public InputStream newInputStreamRaw(URI uri) throws IOException {
-        BlobURL blobURL = createBlobURL(uri);
+        if (cache != null) {
+            // The ETag is required to validate the local copy
+            String etag = etag(uri);
+            Path localFile = cache.get(uri, etag, target -> {
+                try (InputStream is = newParallelInputStream(uri, etag)) {
+                    Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            });
+            return Files.newInputStream(localFile);
+        }
+        return newParallelInputStream(uri, null);
+    }
 
-        Single<DownloadResponse> download = blobURL.download();
-        Flowable<ByteBuffer> body = download.blockingGet().body(null);
-        Iterator<ByteBuffer> byteBuffers = body.blockingIterable().iterator();
+    /**
+     * Read a blob downloading ranges in parallel. The first range is downloaded before starting the parallel download, as
+     * its response contains the size and the ETag of the blob. All the ranges are read from the same version of the blob.
+     *
+     * @param uri   Blob to read
+     * @param etag  Expected ETag of the blob. Can be null
+     * @return InputStream
+     * @throws IOException on error reading the blob
+     */
+    private InputStream newParallelInputStream(URI uri, String etag) throws IOException {
+        DownloadResponse firstRange;
+        try {
+            firstRange = download(uri, 0, readChunkSize, etag);
+        } catch (StorageException e) {
+            if (StorageErrorCode.INVALID_RANGE.equals(e.errorCode())) {
+                // Empty blob
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            throw toIOException(uri, e);
+        }
+        BlobDownloadHeaders headers = firstRange.headers();
+        long size = headers.contentRange() == null
+                ? headers.contentLength()
+                : Long.parseLong(headers.contentRange().substring(headers.contentRange().lastIndexOf('/') + 1));
+        InputStream firstRangeInputStream = new AzureBlobInputStream(firstRange.body(null).blockingIterable().iterator());
+        if (size <= readChunkSize) {
+            return firstRangeInputStream;
+        }
+        String blobEtag = headers.eTag();
+        ParallelRangeInputStream.RangeReader rangeReader = (offset, length) -> newInputStreamRaw(uri, offset, length, blobEtag);
+        return new SequenceInputStream(firstRangeInputStream,
+                new ParallelRangeInputStream(uri, rangeReader, readChunkSize, size, readChunkSize, readThreads));
+    }
+
+    @Override
+    public InputStream newInputStreamRaw(URI uri, long offset, long length) throws IOException {
+        return newInputStreamRaw(uri, offset, length, null);
+    }
 
-        return new AzureBlobInputStream(byteBuffers);
+    private InputStream newInputStreamRaw(URI uri, long offset, long length, String etag) throws IOException {
+        DownloadResponse response;
+        try {
+            response = download(uri, offset, length, etag);
+        } catch (StorageException e) {
+            throw toIOException(uri, e);
+        }
+        return new AzureBlobInputStream(response.body(null).blockingIterable().iterator());
+    }
+
+    private DownloadResponse download(URI uri, long offset, long length, String etag) throws IOException {
+        BlobRange range = new BlobRange().withOffset(offset).withCount(length < 0 ? null : length);
+        BlobAccessConditions accessConditions = null;
+        if (etag != null) {
+            // Fail if the blob is modified while reading
+            accessConditions = new BlobAccessConditions()
+                    .withModifiedAccessConditions(new ModifiedAccessConditions().withIfMatch(etag));
+        }
+        Single<DownloadResponse> download = createBlobURL(uri).download(range, accessConditions, false, null);
+        return download.blockingGet();
+    }
+
+    private static IOException toIOException(URI uri, StorageException e) {
+        if (StorageErrorCode.BLOB_NOT_FOUND.equals(e.errorCode())) {
+            return new FileNotFoundException(uri.toString());
+        } else {
+            return new IOException("Problem reading blob " + uri + ". ErrorCode: " + e.errorCode(), e);
+        }
     }
 
     @Override
     public OutputStream newOutputStreamRaw(URI uri) throws IOException {
-        return new AzureBlobOutputStream(createBlobURL(uri).toBlockBlobURL());
+        return new AzureBlobOutputStream(createBlobURL(uri).toBlockBlobURL(), uploadBlockSize, uploadThreads);
     }
 
     public OutputStream newOutputStreamLocalScratch(Path localScratch, URI uri) throws IOException {
@@ -196,6 +312,11 @@ public class AzureBlobStorageIOConnector implements IOConnector {
         }
     }
 
+    @Override
+    public String etag(URI uri) throws IOException {
+        return getBlobGetPropertiesHeaders(uri).eTag();
+    }
+
     private BlobGetPropertiesHeaders getBlobGetPropertiesHeaders(URI uri) throws IOException {
         BlobGetPropertiesHeaders blobProperties;
         try {
@@ -266,16 +387,12 @@ public class AzureBlobStorageIOConnector implements IOConnector {
 
         @Override
         public int read() throws IOException {
-            if (current.hasRemaining()) {
-                return 0xFF & current.get();
-            } else {
-                if (byteBuffers.hasNext()) {
-                    current = byteBuffers.next();
-                    return read();
-                } else {
+            while (!current.hasRemaining()) {
+                if (!nextBuffer()) {
                     return -1;
                 }
             }
+            return 0xFF & current.get();
         }
 
         @Override
@@ -290,9 +407,7 @@ public class AzureBlobStorageIOConnector implements IOConnector {
             int i = 0;
             while (len > 0) {
                 while (!current.hasRemaining()) {
-                    if (byteBuffers.hasNext()) {
-                        current = byteBuffers.next();
-                    } else {
+                    if (!nextBuffer()) {
                         if (i == 0) {
                             return -1;
                         } else {
@@ -319,108 +434,65 @@ public class AzureBlobStorageIOConnector implements IOConnector {
         @Override
         public int available() throws IOException {
             while (!current.hasRemaining()) {
+                if (!nextBuffer()) {
+                    return -1;
+                }
+            }
+            return 1;
+        }
+
+        private boolean nextBuffer() throws IOException {
+            try {
                 if (byteBuffers.hasNext()) {
                     current = byteBuffers.next();
+                    return true;
                 } else {
-                    return -1;
+                    return false;
                 }
+            } catch (RuntimeException e) {
+                // Errors from the download are rethrown by the iterator. Rethrow as IOException so ranged reads can be retried
+                throw new IOException("Error reading blob", e);
             }
-            return 1;
         }
     }
 
     /**
-     * OutputStream that generates a Flowable of ByteBuffer.
+     * OutputStream that stages blocks in parallel, and commits the block list on close.
      */
-    private static class AzureBlobOutputStream extends OutputStream {
-        private static final int BLOCK_SIZE = 8 * 1024 * 1024;
-        private final ArrayBlockingQueue<CompletableFuture<ByteBuffer>> queue;
-        private final Thread thread;
-        private CompletableFuture<ByteBuffer> currentFuture;
-        private ByteBuffer byteBuffer;
-
-        AzureBlobOutputStream(BlockBlobURL blockBlobURL) {
-            queue = new ArrayBlockingQueue<>(10);
-            byteBuffer = ByteBuffer.allocate(BLOCK_SIZE);
-            currentFuture = new CompletableFuture<>();
-            queue.add(currentFuture);
-
-            Flowable<ByteBuffer> flowable = Flowable.concat(() ->
-                    new Iterator<Publisher<? extends ByteBuffer>>() {
-                        @Override
-                        public boolean hasNext() {
-                            return !queue.isEmpty();
-                        }
-
-                        @Override
-                        public Flowable<ByteBuffer> next() {
-                            CompletableFuture<ByteBuffer> future = queue.poll();
-                            if (future == null) {
-                                throw new NoSuchElementException();
-                            }
-                            return Flowable.fromFuture(future);
-                        }
-                    });
-            Single<BlockBlobCommitBlockListResponse> single =
-                    TransferManager.uploadFromNonReplayableFlowable(flowable, blockBlobURL, BLOCK_SIZE, 5, null);
-
-            // Use blockingGet in a Thread so we can join the thread at OutputStream.close()
-            thread = new Thread(single::blockingGet);
-            thread.start();
+    private static class AzureBlobOutputStream extends ParallelBlockOutputStream {
+        private final BlockBlobURL blockBlobURL;
 
-//            single.subscribeOn(Schedulers.newThread())
-//                    .observeOn(Schedulers.single())
-//                    .subscribe(System.out::println, Throwable::printStackTrace);
+        AzureBlobOutputStream(BlockBlobURL blockBlobURL, int blockSize, int threads) {
+            super(blockSize, threads);
+            this.blockBlobURL = blockBlobURL;
         }
 
         @Override
-        public void write(int b) throws IOException {
-            if (byteBuffer.capacity() == 0) {
-                flush();
-            }
-            byteBuffer.put((byte) b);
-        }
-
-        @Override
-        public synchronized void write(byte[] b, int off, int len) throws IOException {
-            while (len > byteBuffer.remaining()) {
-                int remaining = byteBuffer.remaining();
-                byteBuffer.put(b, off, remaining);
-                off += remaining;
-                len -= remaining;
-                flush();
-            }
-            byteBuffer.put(b, off, len);
-        }
-
-        @Override
-        public void close() throws IOException {
-            super.close();
-            completeCurrentFuture();
+        protected void uploadBlock(int blockIndex, byte[] data, int length) throws IOException {
             try {
-                thread.join();
-            } catch (InterruptedException e) {
-                throw new IOException(e);
+                blockBlobURL.stageBlock(getBlockId(blockIndex), Flowable.just(ByteBuffer.wrap(data, 0, length)), length)
+                        .blockingGet();
+            } catch (RuntimeException e) {
+                throw new IOException("Error uploading block " + blockIndex, e);
             }
         }
 
         @Override
-        public synchronized void flush() throws IOException {
-            CompletableFuture<ByteBuffer> nextFuture = new CompletableFuture<>();
+        protected void commit(int numBlocks) throws IOException {
+            List<String> blockIds = new ArrayList<>(numBlocks);
+            for (int i = 0; i < numBlocks; i++) {
+                blockIds.add(getBlockId(i));
+            }
             try {
-                queue.offer(nextFuture, 30, TimeUnit.MINUTES);
-            } catch (InterruptedException e) {
-                throw new IOException(e);
+                blockBlobURL.commitBlockList(blockIds).blockingGet();
+            } catch (RuntimeException e) {
+                throw new IOException("Error committing block list", e);
             }
-            completeCurrentFuture();
-            currentFuture = nextFuture;
-            byteBuffer = ByteBuffer.allocate(BLOCK_SIZE);
         }
 
-        protected void completeCurrentFuture() {
-            byteBuffer.limit(byteBuffer.position());
-            byteBuffer.position(0);
-            currentFuture.complete(byteBuffer);
+        private static String getBlockId(int blockIndex) {
+            // All block ids from the same blob must have the same length
+            return Base64.getEncoder().encodeToString(String.format("%010d", blockIndex).getBytes(StandardCharsets.UTF_8));
         }
     }
 }
@@ -24,6 +24,28 @@ public interface IOConnector {
 
     InputStream newInputStreamRaw(URI uri) throws IOException;
 
+    /**
+     * Open a raw input stream to read a range of the file, without decompressing it.
+     * Connectors with random access should override this method. By default, the file is read from the beginning
+     * and the first bytes are skipped.
+     *
+     * @param uri       File to read
+     * @param offset    First byte to read
+     * @param length    Number of bytes to read. Negative to read until the end of the file
+     * @return the input stream
+     * @throws IOException on error opening the file
+     */
+    default InputStream newInputStreamRaw(URI uri, long offset, long length) throws IOException {
+        InputStream inputStream = newInputStreamRaw(uri);
+        try {
+            LimitedInputStream.skipFully(inputStream, offset);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+        return new LimitedInputStream(inputStream, length);
+    }
+
     default InputStream newInputStream(URI uri) throws IOException {
         Logger logger = LoggerFactory.getLogger(IOConnector.class);
         InputStream inputStream = newInputStreamRaw(uri);
@@ -88,4 +110,15 @@ public interface IOConnector {
     long size(URI uri) throws IOException;
 
     String md5(URI uri) throws IOException;
+
+    /**
+     * Get an identifier of the current version of the file, that changes every time the file is modified.
+     *
+     * @param uri   File
+     * @return the ETag of the file, or null if not supported by this connector
+     * @throws IOException on error reading the file properties
+     */
+    default String etag(URI uri) throws IOException {
+        return null;
+    }
 }
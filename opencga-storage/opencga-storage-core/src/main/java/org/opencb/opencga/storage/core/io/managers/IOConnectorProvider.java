@@ -130,6 +130,11 @@ public class IOConnectorProvider implements IOConnector {
         return get(uri).newInputStreamRaw(uri);
     }
 
+    @Override
+    public InputStream newInputStreamRaw(URI uri, long offset, long length) throws IOException {
+        return get(uri).newInputStreamRaw(uri, offset, length);
+    }
+
     @Override
     public InputStream newInputStream(URI uri) throws IOException {
         return get(uri).newInputStream(uri);
@@ -189,4 +194,9 @@ public class IOConnectorProvider implements IOConnector {
     public String md5(URI uri) throws IOException {
         return get(uri).md5(uri);
     }
+
+    @Override
+    public String etag(URI uri) throws IOException {
+        return get(uri).etag(uri);
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.managers;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that reads up to a maximum number of bytes from the underlying stream.
+ */
+public class LimitedInputStream extends FilterInputStream {
+
+    private long remaining;
+
+    /**
+     * Limit the number of bytes to read from the given stream.
+     *
+     * @param in        Underlying input stream
+     * @param length    Maximum number of bytes to read. Negative for no limit
+     */
+    public LimitedInputStream(InputStream in, long length) {
+        super(in);
+        this.remaining = length < 0 ? Long.MAX_VALUE : length;
+    }
+
+    /**
+     * Skip exactly the given number of bytes.
+     *
+     * @param in    Input stream
+     * @param n     Number of bytes to skip
+     * @throws IOException if the stream ends before skipping all the bytes
+     */
+    public static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                // skip may return 0 before the end of the stream. Check with read
+                if (in.read() < 0) {
+                    throw new EOFException("Unexpected end of stream while skipping " + n + " bytes");
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int b = in.read();
+        if (b >= 0) {
+            remaining--;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n > 0) {
+            remaining -= n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(Math.min(n, remaining));
+        remaining -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
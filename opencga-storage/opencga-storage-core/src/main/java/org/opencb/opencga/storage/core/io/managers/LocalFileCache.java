@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.managers;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+/**
+ * Read-through cache of remote files in a local directory.
+ *
+ * Entries are keyed by URI and ETag, so a modified file is downloaded again. When a new version of a file is cached,
+ * the previous versions are removed. Files are downloaded to a temporary file and moved atomically, so concurrent
+ * readers never see partial entries.
+ *
+ * The total size of the cache is bounded. Once exceeded, the least recently used entries are removed. Readers with an
+ * open stream over a removed entry can still read it.
+ */
+public class LocalFileCache {
+
+    private static Logger logger = LoggerFactory.getLogger(LocalFileCache.class);
+
+    public static final long MAX_SIZE_DEFAULT = 10L * 1024 * 1024 * 1024;
+
+    private final Path cacheDir;
+    private final long maxSize;
+
+    @FunctionalInterface
+    public interface Downloader {
+        void download(Path target) throws IOException;
+    }
+
+    public LocalFileCache(Path cacheDir) {
+        this(cacheDir, MAX_SIZE_DEFAULT);
+    }
+
+    public LocalFileCache(Path cacheDir, long maxSize) {
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the local copy of a remote file, downloading it if missing.
+     *
+     * @param uri           Remote file
+     * @param etag          ETag of the remote file
+     * @param downloader    Download the remote file into the given local file
+     * @return the local copy of the file
+     * @throws IOException on error downloading the file
+     */
+    public Path get(URI uri, String etag, Downloader downloader) throws IOException {
+        String uriKey = DigestUtils.sha1Hex(uri.toString());
+        Path file = cacheDir.resolve(uriKey + "_" + DigestUtils.sha1Hex(etag));
+        if (Files.exists(file)) {
+            logger.debug("Read {} from local cache", uri);
+            try {
+                // The modification time tracks the last access
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                return file;
+            } catch (NoSuchFileException e) {
+                // Evicted concurrently. Download again
+                logger.debug("{} was evicted from local cache", uri);
+            }
+        }
+        Files.createDirectories(cacheDir);
+        Path tmpFile = Files.createTempFile(cacheDir, uriKey, ".tmp");
+        try {
+            downloader.download(tmpFile);
+            Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+
+        // Remove previous versions of the file
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, uriKey + "_*")) {
+            for (Path oldFile : stream) {
+                if (!oldFile.equals(file)) {
+                    logger.debug("Remove old version of {} from local cache", uri);
+                    Files.deleteIfExists(oldFile);
+                }
+            }
+        }
+        evict(file);
+        return file;
+    }
+
+    /**
+     * Remove the least recently used entries until the cache fits in the maximum size. The given entry is never removed.
+     *
+     * @param keep  Entry to keep
+     * @throws IOException on error listing the cache
+     */
+    private synchronized void evict(Path keep) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        long size = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, "*_*")) {
+            for (Path entry : stream) {
+                try {
+                    BasicFileAttributes entryAttributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    entries.add(entry);
+                    attributes.put(entry, entryAttributes);
+                    size += entryAttributes.size();
+                } catch (NoSuchFileException e) {
+                    // Removed concurrently
+                    logger.debug("{} was removed from local cache", entry);
+                }
+            }
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        entries.sort(Comparator.comparing(entry -> attributes.get(entry).lastModifiedTime()));
+        for (Path entry : entries) {
+            if (size <= maxSize) {
+                break;
+            }
+            if (!entry.equals(keep)) {
+                logger.debug("Evict {} from local cache", entry);
+                Files.deleteIfExists(entry);
+                size -= attributes.get(entry).size();
+            }
+        }
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+}
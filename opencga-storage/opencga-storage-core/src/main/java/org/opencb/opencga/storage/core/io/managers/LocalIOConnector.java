@@ -6,6 +6,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -28,6 +30,18 @@ public class LocalIOConnector implements IOConnector {
         return Files.newInputStream(getPath(uri));
     }
 
+    @Override
+    public InputStream newInputStreamRaw(URI uri, long offset, long length) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(getPath(uri));
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new LimitedInputStream(Channels.newInputStream(channel), length);
+    }
+
     @Override
     public OutputStream newOutputStreamRaw(URI uri) throws IOException {
         return Files.newOutputStream(getPath(uri));
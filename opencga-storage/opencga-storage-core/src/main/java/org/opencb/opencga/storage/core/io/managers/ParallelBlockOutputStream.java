@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.managers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Output stream that splits the data in blocks of fixed size, uploading them in parallel.
+ *
+ * The number of blocks in memory, either being filled or being uploaded, is bounded by {@code threads + 1}. Writers
+ * block until there is room for a new block. Once all the blocks are uploaded, the file is committed at {@link #close()}.
+ */
+public abstract class ParallelBlockOutputStream extends OutputStream {
+
+    private final int blockSize;
+    private final ExecutorService executor;
+    private final Semaphore semaphore;
+    private final List<Future<?>> uploads = new ArrayList<>();
+    private byte[] block;
+    private int position;
+    private boolean closed;
+    private volatile Exception failure;
+
+    /**
+     * Create a new output stream.
+     *
+     * @param blockSize Size of each block
+     * @param threads   Number of blocks to upload in parallel
+     */
+    protected ParallelBlockOutputStream(int blockSize, int threads) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size " + blockSize);
+        }
+        int numThreads = Math.max(1, threads);
+        this.blockSize = blockSize;
+        // One block per upload thread, plus the block being filled
+        this.semaphore = new Semaphore(numThreads + 1);
+        this.executor = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread thread = new Thread(r, "block-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Upload one block. Might be called concurrently from multiple threads.
+     *
+     * @param blockIndex    Position of the block in the file, starting from 0
+     * @param data          Block data
+     * @param length        Number of valid bytes in data
+     * @throws IOException on error uploading the block
+     */
+    protected abstract void uploadBlock(int blockIndex, byte[] data, int length) throws IOException;
+
+    /**
+     * Commit the file, once all the blocks are uploaded.
+     *
+     * @param numBlocks     Number of uploaded blocks
+     * @throws IOException on error committing the file
+     */
+    protected abstract void commit(int numBlocks) throws IOException;
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureBlock();
+        block[position++] = (byte) b;
+        if (position == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            ensureBlock();
+            int n = Math.min(len, blockSize - position);
+            System.arraycopy(b, off, block, position, n);
+            position += n;
+            off += n;
+            len -= n;
+            if (position == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (position > 0) {
+                submitBlock();
+            }
+            for (Future<?> upload : uploads) {
+                upload.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        commit(uploads.size());
+    }
+
+    private void ensureBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (block == null) {
+            checkFailedUploads();
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            block = new byte[blockSize];
+            position = 0;
+        }
+    }
+
+    private void submitBlock() {
+        byte[] data = block;
+        int length = position;
+        int blockIndex = uploads.size();
+        block = null;
+        position = 0;
+        uploads.add(executor.submit(() -> {
+            try {
+                uploadBlock(blockIndex, data, length);
+            } catch (Exception e) {
+                failure = e;
+                throw e;
+            } finally {
+                semaphore.release();
+            }
+            return null;
+        }));
+    }
+
+    private void checkFailedUploads() throws IOException {
+        Exception e = failure;
+        if (e != null) {
+            throw new IOException("Error uploading block", e);
+        }
+    }
+}
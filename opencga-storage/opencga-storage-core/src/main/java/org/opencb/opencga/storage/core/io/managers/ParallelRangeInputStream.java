@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.managers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a remote file downloading consecutive ranges in parallel, by default using
+ * {@link IOConnector#newInputStreamRaw(URI, long, long)}.
+ *
+ * Ranges are returned in order. Up to two ranges per thread are downloaded ahead of the consumer, so the memory
+ * used is bounded by {@code 2 * threads * chunkSize}. Failed ranges are retried before failing the stream.
+ */
+public class ParallelRangeInputStream extends InputStream {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static Logger logger = LoggerFactory.getLogger(ParallelRangeInputStream.class);
+
+    private final RangeReader rangeReader;
+    private final URI uri;
+    private final long end;
+    private final int chunkSize;
+    private final ExecutorService executor;
+    private final Deque<Future<byte[]>> pendingChunks = new ArrayDeque<>();
+    private final int maxPendingChunks;
+    private long nextOffset;
+    private boolean closed;
+
+    private byte[] buffer = new byte[0];
+    private int position;
+
+    @FunctionalInterface
+    public interface RangeReader {
+        InputStream read(long offset, long length) throws IOException;
+    }
+
+    /**
+     * Create a new input stream.
+     *
+     * @param ioConnector   IOConnector to read the ranges
+     * @param uri           File to read
+     * @param size          Size of the file
+     * @param chunkSize     Size of each range
+     * @param threads       Number of ranges to download in parallel
+     */
+    public ParallelRangeInputStream(IOConnector ioConnector, URI uri, long size, int chunkSize, int threads) {
+        this(uri, (offset, length) -> ioConnector.newInputStreamRaw(uri, offset, length), 0, size, chunkSize, threads);
+    }
+
+    /**
+     * Create a new input stream over a part of the file.
+     *
+     * @param uri           File to read
+     * @param rangeReader   Reads one range of the file
+     * @param start         First byte to read
+     * @param end           End of the part to read, exclusive. Usually, the size of the file
+     * @param chunkSize     Size of each range
+     * @param threads       Number of ranges to download in parallel
+     */
+    public ParallelRangeInputStream(URI uri, RangeReader rangeReader, long start, long end, int chunkSize, int threads) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+        }
+        this.rangeReader = rangeReader;
+        this.uri = uri;
+        this.nextOffset = start;
+        this.end = end;
+        this.chunkSize = chunkSize;
+        int numThreads = Math.max(1, threads);
+        this.maxPendingChunks = numThreads * 2;
+        this.executor = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread thread = new Thread(r, "range-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == buffer.length && !nextChunk()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == buffer.length) {
+            if (!nextChunk()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, buffer.length - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return buffer.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            for (Future<byte[]> future : pendingChunks) {
+                future.cancel(true);
+            }
+            pendingChunks.clear();
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        submitChunks();
+        if (pendingChunks.isEmpty()) {
+            return false;
+        }
+        try {
+            buffer = pendingChunks.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        position = 0;
+        submitChunks();
+        return true;
+    }
+
+    private void submitChunks() {
+        while (nextOffset < end && pendingChunks.size() < maxPendingChunks) {
+            long offset = nextOffset;
+            int length = (int) Math.min(chunkSize, end - offset);
+            pendingChunks.add(executor.submit(() -> readChunk(offset, length)));
+            nextOffset += length;
+        }
+    }
+
+    private byte[] readChunk(long offset, int length) throws IOException {
+        IOException exception = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try (InputStream is = rangeReader.read(offset, length)) {
+                byte[] chunk = new byte[length];
+                int read = 0;
+                while (read < length) {
+                    int n = is.read(chunk, read, length - read);
+                    if (n < 0) {
+                        throw new EOFException("Unexpected end of range " + offset + "-" + (offset + length) + " of " + uri);
+                    }
+                    read += n;
+                }
+                return chunk;
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+                if (attempt < MAX_ATTEMPTS) {
+                    logger.warn("Error reading range " + offset + "-" + (offset + length) + " of " + uri + ". Retry", e);
+                }
+            }
+        }
+        throw exception;
+    }
+}
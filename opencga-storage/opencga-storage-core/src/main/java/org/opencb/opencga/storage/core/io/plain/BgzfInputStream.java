@@ -0,0 +1,306 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.plain;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a BGZF stream (blocked gzip, as produced by bgzip) inflating the blocks in parallel.
+ *
+ * Compressed blocks are read from the input stream by the consumer thread, and inflated by a pool of worker threads.
+ * Blocks are returned in order, keeping up to two blocks per thread in flight.
+ *
+ * See the SAM/BAM specification, section 4.1, for the description of the BGZF format.
+ */
+public class BgzfInputStream extends InputStream {
+
+    private static final int BLOCK_HEADER_LENGTH = 18;
+    private static final int BLOCK_FOOTER_LENGTH = 8;
+    private static final int XLEN = 6;
+
+    private final InputStream in;
+    private final ExecutorService executor;
+    private final Deque<Future<Block>> pendingBlocks = new ArrayDeque<>();
+    // Idle inflaters, reused by the workers. Released with Inflater.end on close, as each one holds native memory
+    private final Deque<Inflater> inflaters = new ArrayDeque<>();
+    private final int maxPendingBlocks;
+    private boolean inputFinished;
+    private boolean closed;
+
+    private byte[] buffer = new byte[0];
+    private int position;
+    private int limit;
+    // Compressed offset of the end of the current block
+    private long compressedOffset;
+
+    private static final class Block {
+        private final byte[] data;
+        private final int compressedSize;
+
+        private Block(byte[] data, int compressedSize) {
+            this.data = data;
+            this.compressedSize = compressedSize;
+        }
+    }
+
+    public BgzfInputStream(InputStream in, int threads) {
+        this.in = in;
+        int numThreads = Math.max(1, threads);
+        this.maxPendingBlocks = numThreads * 2;
+        this.executor = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread thread = new Thread(r, "bgzf-inflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Check if the stream starts with a BGZF block, without consuming it.
+     *
+     * @param in Input stream. Must support {@link InputStream#mark}
+     * @return If the stream is BGZF compressed
+     * @throws IOException on error reading the stream
+     */
+    public static boolean isBgzf(InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            throw new IllegalArgumentException("Mark not supported by " + in.getClass());
+        }
+        byte[] header = new byte[BLOCK_HEADER_LENGTH];
+        in.mark(BLOCK_HEADER_LENGTH);
+        int read;
+        try {
+            read = readFully(in, header, 0, BLOCK_HEADER_LENGTH);
+        } finally {
+            in.reset();
+        }
+        return read == BLOCK_HEADER_LENGTH && isBlockHeader(header);
+    }
+
+    private static boolean isBlockHeader(byte[] header) {
+        return (header[0] & 0xFF) == 31 && (header[1] & 0xFF) == 139  // gzip magic
+                && header[2] == 8                                   // deflate
+                && (header[3] & 4) != 0                             // FEXTRA
+                && readShort(header, 10) == XLEN
+                && header[12] == 'B' && header[13] == 'C'
+                && readShort(header, 14) == 2;
+    }
+
+    /**
+     * Get the number of compressed bytes consumed, up to the end of the block being read.
+     * Blocks read ahead, still waiting to be consumed, are not included.
+     *
+     * @return Compressed offset
+     */
+    public long getCompressedOffset() {
+        return compressedOffset;
+    }
+
+    @Override
+    public int read() throws IOException {
+        // Skip empty blocks, like the EOF marker block
+        while (position == limit) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == limit) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            synchronized (inflaters) {
+                // Inflaters still in use are released by the workers
+                closed = true;
+                for (Inflater inflater : inflaters) {
+                    inflater.end();
+                }
+                inflaters.clear();
+            }
+            for (Future<Block> future : pendingBlocks) {
+                future.cancel(true);
+            }
+            pendingBlocks.clear();
+            executor.shutdownNow();
+            in.close();
+        }
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        submitBlocks();
+        if (pendingBlocks.isEmpty()) {
+            return false;
+        }
+        Block block;
+        try {
+            block = pendingBlocks.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        buffer = block.data;
+        position = 0;
+        limit = block.data.length;
+        compressedOffset += block.compressedSize;
+        // Keep the workers busy while this block is consumed
+        submitBlocks();
+        return true;
+    }
+
+    private void submitBlocks() throws IOException {
+        while (!inputFinished && pendingBlocks.size() < maxPendingBlocks) {
+            byte[] block = readBlock();
+            if (block == null) {
+                inputFinished = true;
+            } else {
+                pendingBlocks.add(executor.submit(() -> inflate(block)));
+            }
+        }
+    }
+
+    private byte[] readBlock() throws IOException {
+        byte[] header = new byte[BLOCK_HEADER_LENGTH];
+        int read = readFully(in, header, 0, BLOCK_HEADER_LENGTH);
+        if (read == 0) {
+            return null;
+        } else if (read < BLOCK_HEADER_LENGTH) {
+            throw new EOFException("Unexpected end of BGZF stream");
+        } else if (!isBlockHeader(header)) {
+            throw new IOException("Invalid BGZF block at offset " + compressedOffset);
+        }
+        int blockSize = readShort(header, 16) + 1;
+        if (blockSize < BLOCK_HEADER_LENGTH + BLOCK_FOOTER_LENGTH) {
+            throw new IOException("Invalid BGZF block size " + blockSize);
+        }
+        byte[] block = new byte[blockSize];
+        System.arraycopy(header, 0, block, 0, BLOCK_HEADER_LENGTH);
+        if (readFully(in, block, BLOCK_HEADER_LENGTH, blockSize - BLOCK_HEADER_LENGTH) != blockSize - BLOCK_HEADER_LENGTH) {
+            throw new EOFException("Unexpected end of BGZF stream");
+        }
+        return block;
+    }
+
+    private Block inflate(byte[] block) throws IOException {
+        int uncompressedSize = readInt(block, block.length - 4);
+        int expectedCrc = readInt(block, block.length - BLOCK_FOOTER_LENGTH);
+        byte[] data = new byte[uncompressedSize];
+        Inflater inflater = borrowInflater();
+        int read = 0;
+        try {
+            inflater.setInput(block, BLOCK_HEADER_LENGTH, block.length - BLOCK_HEADER_LENGTH - BLOCK_FOOTER_LENGTH);
+            while (read < uncompressedSize) {
+                int n = inflater.inflate(data, read, uncompressedSize - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted BGZF block", e);
+        } finally {
+            releaseInflater(inflater);
+        }
+        if (read != uncompressedSize) {
+            throw new IOException("Corrupted BGZF block. Expected " + uncompressedSize + " bytes, got " + read);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, uncompressedSize);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Corrupted BGZF block. CRC mismatch");
+        }
+        return new Block(data, block.length);
+    }
+
+    private Inflater borrowInflater() {
+        synchronized (inflaters) {
+            Inflater inflater = inflaters.poll();
+            return inflater == null ? new Inflater(true) : inflater;
+        }
+    }
+
+    private void releaseInflater(Inflater inflater) {
+        synchronized (inflaters) {
+            if (closed) {
+                inflater.end();
+            } else {
+                inflater.reset();
+                inflaters.push(inflater);
+            }
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] b, int off, int len) throws IOException {
+        int read = 0;
+        while (read < len) {
+            int n = in.read(b, off + read, len - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+
+    private static int readShort(byte[] b, int off) {
+        return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8);
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16) | ((b[off + 3] & 0xFF) << 24);
+    }
+}
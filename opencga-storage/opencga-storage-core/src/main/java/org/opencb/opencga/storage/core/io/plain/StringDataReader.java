@@ -47,6 +47,8 @@ public class StringDataReader implements DataReader<String> {
     protected long readLines = 0L;
     protected long lastAvailable = 0;
     private SizeInputStream sizeInputStream;
+    private BgzfInputStream bgzfInputStream;
+    private int decompressionThreads = 1;
     private BiConsumer<Long, Long> readBytesListener;
     private BiConsumer<Long, Long> readLinesListener;
     private final InputStream is;
@@ -98,8 +100,15 @@ public class StringDataReader implements DataReader<String> {
                     sizeInputStream = new SizeInputStream(new FileInputStream(path.toFile()), lastAvailable);
                 }
                 if (fileName.endsWith(".gz")) {
-                    logger.debug("Gzip input compress");
-                    this.reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(sizeInputStream)));
+                    InputStream in = new BufferedInputStream(sizeInputStream);
+                    if (decompressionThreads > 1 && BgzfInputStream.isBgzf(in)) {
+                        logger.debug("BGZF input compress. Decompress using {} threads", decompressionThreads);
+                        bgzfInputStream = new BgzfInputStream(in, decompressionThreads);
+                        this.reader = new BufferedReader(new InputStreamReader(bgzfInputStream));
+                    } else {
+                        logger.debug("Gzip input compress");
+                        this.reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(in)));
+                    }
                 } else if (fileName.endsWith(".snappy") || fileName.endsWith(".snz")) {
                     logger.debug("Snappy input compress");
                     this.reader = new BufferedReader(new InputStreamReader(new SnappyInputStream(sizeInputStream)));
@@ -172,7 +181,13 @@ public class StringDataReader implements DataReader<String> {
     }
 
     private void onReadBytes() throws IOException {
-        long newAvailable = sizeInputStream.availableLong();
+        long newAvailable;
+        if (bgzfInputStream != null) {
+            // Do not count the blocks read ahead
+            newAvailable = sizeInputStream.size() - bgzfInputStream.getCompressedOffset();
+        } else {
+            newAvailable = sizeInputStream.availableLong();
+        }
         if (readBytesListener != null) {
             readBytesListener.accept(sizeInputStream.size() - newAvailable, lastAvailable - newAvailable);
         }
@@ -186,6 +201,17 @@ public class StringDataReader implements DataReader<String> {
         return this;
     }
 
+    /**
+     * Number of threads to decompress BGZF files. Other gzip files are always decompressed with one thread.
+     *
+     * @param decompressionThreads Number of threads. 1 to disable the parallel decompression
+     * @return this
+     */
+    public StringDataReader setDecompressionThreads(int decompressionThreads) {
+        this.decompressionThreads = decompressionThreads;
+        return this;
+    }
+
     public StringDataReader setReadLinesListener(BiConsumer<Long, Long> readLinesListener) {
         this.readLinesListener = readLinesListener;
         return this;
@@ -65,6 +65,17 @@ public class MetadataCache<ID, R> {
         }
     }
 
+    /**
+     * Get a cached value, without computing it if missing.
+     *
+     * @param studyId Study id
+     * @param id      Resource id
+     * @return        Value, or null if not cached
+     */
+    public R getIfPresent(int studyId, ID id) {
+        return cache.get(getKey(studyId, id));
+    }
+
     public void put(int studyId, ID id, R value) {
         cache.put(getKey(studyId, id), value);
     }
@@ -559,6 +559,21 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Get the metadata of multiple files, reading them in bulk. Missing files are skipped.
+     *
+     * @param studyId Study id
+     * @param fileIds Files to read
+     * @return the files found, in the same order as requested
+     */
+    public List<FileMetadata> getFileMetadatas(int studyId, Collection<Integer> fileIds) {
+        List<FileMetadata> files = fileDBAdaptor.getFileMetadatas(studyId, fileIds, null);
+        for (FileMetadata file : files) {
+            fileNameCache.put(studyId, file.getId(), file.getName());
+        }
+        return files;
+    }
+
     public void unsecureUpdateFileMetadata(int studyId, FileMetadata file) {
         file.setStudyId(studyId);
         fileDBAdaptor.updateFileMetadata(studyId, file, null);
@@ -718,6 +733,21 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         return sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
     }
 
+    /**
+     * Get the metadata of multiple samples, reading them in bulk. Missing samples are skipped.
+     *
+     * @param studyId   Study id
+     * @param sampleIds Samples to read
+     * @return the samples found, in the same order as requested
+     */
+    public List<SampleMetadata> getSampleMetadatas(int studyId, Collection<Integer> sampleIds) {
+        List<SampleMetadata> samples = sampleDBAdaptor.getSampleMetadatas(studyId, sampleIds, null);
+        for (SampleMetadata sample : samples) {
+            sampleNameCache.put(studyId, sample.getId(), sample.getName());
+        }
+        return samples;
+    }
+
     public void unsecureUpdateSampleMetadata(int studyId, SampleMetadata sample) {
         sample.setStudyId(studyId);
         sampleDBAdaptor.updateSampleMetadata(studyId, sample, null);
@@ -822,6 +852,16 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         // If null, return ALL samples
         if (includeSamples == null) {
             List<Integer> orderedSamplesPosition = getIndexedSamples(sm.getId());
+            // Read in bulk the names not in the cache
+            List<Integer> missingNames = new ArrayList<>();
+            for (Integer sampleId : orderedSamplesPosition) {
+                if (sampleNameCache.getIfPresent(sm.getId(), sampleId) == null) {
+                    missingNames.add(sampleId);
+                }
+            }
+            if (!missingNames.isEmpty()) {
+                getSampleMetadatas(sm.getId(), missingNames);
+            }
             samplesPosition = new LinkedHashMap<>(orderedSamplesPosition.size());
             for (Integer sampleId : orderedSamplesPosition) {
                 samplesPosition.put(getSampleName(sm.getId(), sampleId), samplesPosition.size());
@@ -854,6 +894,21 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Get the metadata of multiple cohorts, reading them in bulk. Missing cohorts are skipped.
+     *
+     * @param studyId   Study id
+     * @param cohortIds Cohorts to read
+     * @return the cohorts found, in the same order as requested
+     */
+    public List<CohortMetadata> getCohortMetadatas(int studyId, Collection<Integer> cohortIds) {
+        List<CohortMetadata> cohorts = cohortDBAdaptor.getCohortMetadatas(studyId, cohortIds, null);
+        for (CohortMetadata cohort : cohorts) {
+            cohortNameCache.put(studyId, cohort.getId(), cohort.getName());
+        }
+        return cohorts;
+    }
+
     public void unsecureUpdateCohortMetadata(int studyId, CohortMetadata cohort) {
         cohort.setStudyId(studyId);
         cohortDBAdaptor.updateCohortMetadata(studyId, cohort, null);
@@ -4,7 +4,10 @@ import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
 import org.opencb.opencga.storage.core.metadata.models.Locked;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Created by jacobo on 20/01/19.
@@ -13,6 +16,25 @@ public interface CohortMetadataDBAdaptor {
 
     CohortMetadata getCohortMetadata(int studyId, int cohortId, Long timeStamp);
 
+    /**
+     * Get the metadata of multiple cohorts. Implementations may read them in bulk.
+     *
+     * @param studyId   Study id
+     * @param cohortIds Cohorts to read
+     * @param timeStamp Optional timestamp
+     * @return the cohorts found, in the same order as requested. Missing cohorts are skipped
+     */
+    default List<CohortMetadata> getCohortMetadatas(int studyId, Collection<Integer> cohortIds, Long timeStamp) {
+        List<CohortMetadata> cohorts = new ArrayList<>(cohortIds.size());
+        for (Integer cohortId : cohortIds) {
+            CohortMetadata cohort = getCohortMetadata(studyId, cohortId, timeStamp);
+            if (cohort != null) {
+                cohorts.add(cohort);
+            }
+        }
+        return cohorts;
+    }
+
     void updateCohortMetadata(int studyId, CohortMetadata cohort, Long timeStamp);
 
     Integer getCohortId(int studyId, String cohortName);
@@ -67,6 +67,25 @@ public interface FileMetadataDBAdaptor extends AutoCloseable {
 
     FileMetadata getFileMetadata(int studyId, int fileId, Long timeStamp);
 
+    /**
+     * Get the metadata of multiple files. Implementations may read them in bulk.
+     *
+     * @param studyId   Study id
+     * @param fileIds   Files to read
+     * @param timeStamp Optional timestamp
+     * @return the files found, in the same order as requested. Missing files are skipped
+     */
+    default List<FileMetadata> getFileMetadatas(int studyId, Collection<Integer> fileIds, Long timeStamp) {
+        List<FileMetadata> files = new ArrayList<>(fileIds.size());
+        for (Integer fileId : fileIds) {
+            FileMetadata file = getFileMetadata(studyId, fileId, timeStamp);
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
     Iterator<FileMetadata> fileIterator(int studyId);
 
     void updateFileMetadata(int studyId, FileMetadata file, Long timeStamp);
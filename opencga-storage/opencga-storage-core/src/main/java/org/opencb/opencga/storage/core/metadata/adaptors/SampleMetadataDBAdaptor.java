@@ -16,6 +16,25 @@ public interface SampleMetadataDBAdaptor {
 
     SampleMetadata getSampleMetadata(int studyId, int sampleId, Long timeStamp);
 
+    /**
+     * Get the metadata of multiple samples. Implementations may read them in bulk.
+     *
+     * @param studyId   Study id
+     * @param sampleIds Samples to read
+     * @param timeStamp Optional timestamp
+     * @return the samples found, in the same order as requested. Missing samples are skipped
+     */
+    default List<SampleMetadata> getSampleMetadatas(int studyId, Collection<Integer> sampleIds, Long timeStamp) {
+        List<SampleMetadata> samples = new ArrayList<>(sampleIds.size());
+        for (Integer sampleId : sampleIds) {
+            SampleMetadata sample = getSampleMetadata(studyId, sampleId, timeStamp);
+            if (sample != null) {
+                samples.add(sample);
+            }
+        }
+        return samples;
+    }
+
     void updateSampleMetadata(int studyId, SampleMetadata sample, Long timeStamp);
 
     Iterator<SampleMetadata> sampleMetadataIterator(int studyId);
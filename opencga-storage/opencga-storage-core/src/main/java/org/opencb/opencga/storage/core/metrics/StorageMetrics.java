@@ -0,0 +1,111 @@
+package org.opencb.opencga.storage.core.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opencb.commons.run.Task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the metrics collected by the storage engines, query executors and pipelines.
+ *
+ * Metric names are dot separated, starting with the component. e.g. "query.SampleIndexVariantQueryExecutor.get".
+ */
+public final class StorageMetrics {
+
+    private static final StorageMetrics GLOBAL = new StorageMetrics();
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public static StorageMetrics global() {
+        return GLOBAL;
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, k -> new Timer());
+    }
+
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * Wraps a task to measure the time spent processing each batch, and the number of input and output elements.
+     *
+     * @param name  Metric name
+     * @param task  Task to measure
+     * @param <T>   Input type
+     * @param <R>   Output type
+     * @return      Wrapped task
+     */
+    public <T, R> Task<T, R> timed(String name, Task<T, R> task) {
+        Timer timer = timer(name + ".batch");
+        return new Task<T, R>() {
+            @Override
+            public void pre() throws Exception {
+                task.pre();
+            }
+
+            @Override
+            public List<R> apply(List<T> batch) throws Exception {
+                List<R> result;
+                try (Timer.Context ignored = timer.start()) {
+                    result = task.apply(batch);
+                }
+                increment(name + ".in", batch.size());
+                increment(name + ".out", result == null ? 0 : result.size());
+                return result;
+            }
+
+            @Override
+            public List<R> drain() throws Exception {
+                return task.drain();
+            }
+
+            @Override
+            public void post() throws Exception {
+                task.post();
+            }
+        };
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        timers.forEach((name, timer) -> snapshot.put(name, timer.snapshot()));
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+        return snapshot;
+    }
+
+    public void dump(Path file) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), snapshot());
+    }
+
+    public void clear() {
+        timers.clear();
+        counters.clear();
+        gauges.clear();
+    }
+}
@@ -0,0 +1,102 @@
+package org.opencb.opencga.storage.core.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with exponential buckets.
+ *
+ * Bucket i contains the events that took less than 2^i microseconds, so percentiles are approximated
+ * by the upper bound of the bucket.
+ */
+public class Timer {
+
+    private static final int NUM_BUCKETS = 40;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+    }
+
+    public Context start() {
+        return new Context();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Approximated percentile, in milliseconds.
+     *
+     * @param percentile Percentile, between 0 and 1
+     * @return Upper bound of the bucket containing the percentile
+     */
+    public double getPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * percentile);
+        long accumulated = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            accumulated += buckets.get(i);
+            if (accumulated >= threshold) {
+                return Math.min((1L << i) / 1000.0, maxNanos.get() / 1000000.0);
+            }
+        }
+        return maxNanos.get() / 1000000.0;
+    }
+
+    public Map<String, Object> snapshot() {
+        long count = getCount();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", count);
+        map.put("totalMs", getTotalNanos() / 1000000.0);
+        map.put("meanMs", count == 0 ? 0 : getTotalNanos() / 1000000.0 / count);
+        map.put("maxMs", maxNanos.get() / 1000000.0);
+        map.put("p50Ms", getPercentile(0.5));
+        map.put("p95Ms", getPercentile(0.95));
+        map.put("p99Ms", getPercentile(0.99));
+        return map;
+    }
+
+    /**
+     * Measures the time until it is closed.
+     */
+    public final class Context implements AutoCloseable {
+        private final long start = System.nanoTime();
+        private boolean closed = false;
+
+        private Context() {
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                record(System.nanoTime() - start);
+            }
+        }
+    }
+}
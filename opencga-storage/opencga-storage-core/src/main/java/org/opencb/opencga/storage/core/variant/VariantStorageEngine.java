@@ -39,6 +39,8 @@ import org.opencb.opencga.storage.core.metadata.StudyConfiguration;
 import org.opencb.opencga.storage.core.metadata.VariantMetadataFactory;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.*;
+import org.opencb.opencga.storage.core.metrics.StorageMetrics;
+import org.opencb.opencga.storage.core.metrics.Timer;
 import org.opencb.opencga.storage.core.utils.CellBaseUtils;
 import org.opencb.opencga.storage.core.variant.adaptors.*;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.MultiVariantDBIterator;
@@ -56,8 +58,10 @@ import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
 import org.opencb.opencga.storage.core.variant.io.VariantWriterFactory.VariantOutputFormat;
 import org.opencb.opencga.storage.core.variant.query.*;
 import org.opencb.opencga.storage.core.variant.score.VariantScoreFormatDescriptor;
+import org.opencb.opencga.storage.core.variant.search.LocalVariantSearchChangeLog;
 import org.opencb.opencga.storage.core.variant.search.SamplesSearchIndexVariantQueryExecutor;
 import org.opencb.opencga.storage.core.variant.search.SearchIndexVariantQueryExecutor;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchLoadListener;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchLoadResult;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchManager;
@@ -68,6 +72,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -272,8 +277,12 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
     public long annotate(Query query, ObjectMap params) throws VariantAnnotatorException, StorageEngineException, IOException {
         // Merge with configuration
         ObjectMap options = getMergedOptions(params);
-        VariantAnnotationManager annotationManager = newVariantAnnotationManager(options);
-        return annotationManager.annotate(query, options);
+        try (VariantSearchChangeLog searchChangeLog = getVariantSearchChangeLog();
+             Timer.Context ignored = StorageMetrics.global().timer("engine.annotate").start()) {
+            VariantAnnotationManager annotationManager = newVariantAnnotationManager(options);
+            annotationManager.setSearchChangeLog(searchChangeLog);
+            return annotationManager.annotate(query, options);
+        }
     }
 
     /**
@@ -402,18 +411,20 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
      * @throws IOException                  If there is any IO problem
      */
     public void calculateStats(String study, List<String> cohorts, QueryOptions options) throws StorageEngineException, IOException {
-        VariantStatisticsManager statisticsManager = newVariantStatisticsManager();
-        statisticsManager.calculateStatistics(study, cohorts, options);
+        try (VariantSearchChangeLog searchChangeLog = getVariantSearchChangeLog();
+             Timer.Context ignored = StorageMetrics.global().timer("engine.stats").start()) {
+            VariantStatisticsManager statisticsManager = newVariantStatisticsManager();
+            statisticsManager.setSearchChangeLog(searchChangeLog);
+            statisticsManager.calculateStatistics(study, cohorts, options);
+        }
     }
 
     public void calculateStats(String study, Map<String, ? extends Collection<String>> cohorts, QueryOptions options)
             throws StorageEngineException, IOException {
-        VariantStatisticsManager statisticsManager = newVariantStatisticsManager();
-
         VariantStorageMetadataManager metadataManager = getMetadataManager();
         metadataManager.registerCohorts(study, cohorts);
 
-        statisticsManager.calculateStatistics(study, new ArrayList<>(cohorts.keySet()), options);
+        calculateStats(study, new ArrayList<>(cohorts.keySet()), options);
     }
 
     /**
@@ -557,9 +568,15 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
 
         // then, load variants
         queryOptions.put(QueryOptions.EXCLUDE, Arrays.asList(VariantField.STUDIES_SAMPLES_DATA, VariantField.STUDIES_FILES));
+        if (!overwrite && query.isEmpty() && isSearchChangeLogActive()) {
+            return searchIndexFromChangeLog(variantSearchManager, queryOptions);
+        }
         try (VariantDBIterator iterator = getVariantsToIndex(overwrite, query, queryOptions, dbAdaptor)) {
             ProgressLogger progressLogger = new ProgressLogger("Variants loaded in Solr:", () -> dbAdaptor.count(query).first(), 200);
-            VariantSearchLoadResult load = variantSearchManager.load(dbName, iterator, progressLogger, newVariantSearchLoadListener());
+            ObjectMap loadOptions = new ObjectMap(getOptions());
+            loadOptions.putAll(queryOptions);
+            VariantSearchLoadResult load = variantSearchManager.load(dbName, iterator, progressLogger, newVariantSearchLoadListener(),
+                    loadOptions);
 
             long value = System.currentTimeMillis();
             getMetadataManager().updateProjectMetadata(projectMetadata -> {
@@ -575,6 +592,99 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         }
     }
 
+    /**
+     * Synchronize the VariantSearchEngine reading only the variants recorded in the {@link VariantSearchChangeLog}.
+     *
+     * The changes are read in sorted batches of {@link VariantStorageOptions#SEARCH_CHANGE_LOG_BATCH_SIZE} distinct variants.
+     * The log is committed only if all the batches are successfully loaded.
+     *
+     * @param variantSearchManager  VariantSearchManager
+     * @param queryOptions          QueryOptions for fetching the variants to index
+     * @return                      VariantSearchLoadResult
+     * @throws StorageEngineException   if there is an error reading the change log
+     * @throws IOException              if there is an IO error
+     * @throws VariantSearchException   if there is an error loading the variants
+     */
+    protected VariantSearchLoadResult searchIndexFromChangeLog(VariantSearchManager variantSearchManager, QueryOptions queryOptions)
+            throws StorageEngineException, IOException, VariantSearchException {
+        VariantDBAdaptor dbAdaptor = getDBAdaptor();
+        int batchSize = getOptions().getInt(SEARCH_CHANGE_LOG_BATCH_SIZE.key(), SEARCH_CHANGE_LOG_BATCH_SIZE.defaultValue());
+        ObjectMap loadOptions = new ObjectMap(getOptions());
+        loadOptions.putAll(queryOptions);
+
+        long numProcessedVariants = 0;
+        long numLoadedVariants = 0;
+        ProgressLogger progressLogger = new ProgressLogger("Variants loaded in Solr:");
+        try (VariantSearchChangeLog searchChangeLog = getVariantSearchChangeLog()) {
+            Iterator<String> changes = searchChangeLog.freeze();
+            while (changes.hasNext()) {
+                SortedSet<Variant> batch = new TreeSet<>(VariantSearchChangeLog.VARIANT_COMPARATOR);
+                while (changes.hasNext() && batch.size() < batchSize) {
+                    batch.add(new Variant(changes.next()));
+                }
+                logger.info("Synchronize {} modified variants from {} to {}", batch.size(), batch.first(), batch.last());
+                try (VariantDBIterator iterator = dbAdaptor.iterator(batch.iterator(), new Query(), queryOptions)) {
+                    VariantSearchLoadResult load = variantSearchManager.load(dbName, iterator, progressLogger,
+                            newVariantSearchLoadListener(), loadOptions);
+                    numProcessedVariants += load.getNumProcessedVariants();
+                    numLoadedVariants += load.getNumLoadedVariants();
+                } catch (StorageEngineException | IOException | VariantSearchException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new StorageEngineException("Exception closing VariantDBIterator", e);
+                }
+            }
+            searchChangeLog.commit();
+        }
+
+        long value = System.currentTimeMillis();
+        getMetadataManager().updateProjectMetadata(projectMetadata -> {
+            projectMetadata.getAttributes().put(SEARCH_INDEX_LAST_TIMESTAMP.key(), value);
+            return projectMetadata;
+        });
+
+        return new VariantSearchLoadResult(numProcessedVariants, numLoadedVariants, 0);
+    }
+
+    public boolean isSearchChangeLogActive() {
+        return getOptions().getBoolean(SEARCH_CHANGE_LOG.key(), SEARCH_CHANGE_LOG.defaultValue());
+    }
+
+    /**
+     * Get the log of variants modified since the last secondary index synchronization.
+     * If the change log is not active, returns an empty change log that discards all the changes.
+     *
+     * @return VariantSearchChangeLog
+     * @throws StorageEngineException if there is an error creating the change log
+     */
+    public VariantSearchChangeLog getVariantSearchChangeLog() throws StorageEngineException {
+        if (isSearchChangeLogActive()) {
+            return newVariantSearchChangeLog();
+        } else {
+            return VariantSearchChangeLog.empty();
+        }
+    }
+
+    /**
+     * Creates a new {@link VariantSearchChangeLog} for the current backend.
+     *
+     * By default, uses a {@link LocalVariantSearchChangeLog} in the directory {@link VariantStorageOptions#SEARCH_CHANGE_LOG_DIR}.
+     *
+     * @return new VariantSearchChangeLog
+     * @throws StorageEngineException if there is an error creating the change log
+     */
+    protected VariantSearchChangeLog newVariantSearchChangeLog() throws StorageEngineException {
+        String dir = getOptions().getString(SEARCH_CHANGE_LOG_DIR.key());
+        if (StringUtils.isEmpty(dir)) {
+            throw new StorageEngineException("Missing " + SEARCH_CHANGE_LOG_DIR.key() + " to store the search change log");
+        }
+        try {
+            return new LocalVariantSearchChangeLog(Paths.get(dir).resolve(dbName));
+        } catch (IOException e) {
+            throw new StorageEngineException("Error creating search change log at " + dir, e);
+        }
+    }
+
     protected VariantDBIterator getVariantsToIndex(boolean overwrite, Query query, QueryOptions queryOptions, VariantDBAdaptor dbAdaptor)
             throws StorageEngineException {
         if (!overwrite) {
@@ -796,8 +906,9 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
                     }
                 }
                 for (Integer cohortId : cohortsToInvalidate) {
+                    // Stats can not be updated incrementally after removing samples
                     metadataManager.updateCohortMetadata(studyMetadata.getId(), cohortId,
-                            cohort -> cohort.setStatsStatus(TaskMetadata.Status.ERROR));
+                            cohort -> cohort.setStatsStatus(TaskMetadata.Status.ERROR).setStatsSamples(null));
                 }
 
                 // Restore default cohort with indexed samples
@@ -910,12 +1021,22 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
 
     public VariantQueryResult<Variant> get(Query query, QueryOptions options) {
         query = preProcessQuery(query, options);
-        return getVariantQueryExecutor(query, options).get(query, options);
+        VariantQueryPlanner.VariantQueryPlan plan = planVariantQuery(query, options);
+        VariantQueryResult<Variant> result = plan.getExecutor().get(query, options);
+        if (options != null && options.getBoolean(QUERY_EXPLAIN.key(), QUERY_EXPLAIN.defaultValue())) {
+            result.getAttributes().put(QUERY_EXPLAIN.key(), plan.explain(result));
+        }
+        return result;
     }
 
     @Override
     public MultiVariantDBIterator iterator(Iterator<?> variants, Query query, QueryOptions options, int batchSize) {
         query = preProcessQuery(query, options);
+        if (options == null || !options.containsKey(QUERY_MULTI_ITERATOR_PREFETCH.key())) {
+            options = options == null ? new QueryOptions() : new QueryOptions(options);
+            options.put(QUERY_MULTI_ITERATOR_PREFETCH.key(),
+                    getOptions().getInt(QUERY_MULTI_ITERATOR_PREFETCH.key(), QUERY_MULTI_ITERATOR_PREFETCH.defaultValue()));
+        }
         try {
             return getDBAdaptor().iterator(variants, query, options, batchSize);
         } catch (StorageEngineException e) {
@@ -926,7 +1047,11 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
     @Override
     public VariantDBIterator iterator(Query query, QueryOptions options) {
         query = preProcessQuery(query, options);
-        return getVariantQueryExecutor(query, options).iterator(query, options);
+        VariantQueryPlanner.VariantQueryPlan plan = planVariantQuery(query, options);
+        if (options != null && options.getBoolean(QUERY_EXPLAIN.key(), QUERY_EXPLAIN.defaultValue())) {
+            logger.info("Query plan: {}", plan.explain().toJson());
+        }
+        return plan.getExecutor().iterator(query, options);
     }
 
     protected final List<VariantQueryExecutor> getVariantQueryExecutors() throws StorageEngineException {
@@ -962,17 +1087,30 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
      * @return VariantQueryExecutor to use
      */
     public VariantQueryExecutor getVariantQueryExecutor(Query query, QueryOptions options) {
+        return planVariantQuery(query, options).getExecutor();
+    }
+
+    /**
+     * Build the execution plan for the given query.
+     *
+     * If {@link VariantStorageOptions#QUERY_PLANNER_COST_BASED} is enabled, selects the eligible {@link VariantQueryExecutor}
+     * with lowest estimated cost. Otherwise, selects the first eligible executor.
+     *
+     * @param query   Query to execute
+     * @param options Options for the query
+     * @return VariantQueryPlan
+     */
+    public VariantQueryPlanner.VariantQueryPlan planVariantQuery(Query query, QueryOptions options) {
+        if (options == null) {
+            options = QueryOptions.empty();
+        }
+        boolean costBased = options.getBoolean(QUERY_PLANNER_COST_BASED.key(),
+                getOptions().getBoolean(QUERY_PLANNER_COST_BASED.key(), QUERY_PLANNER_COST_BASED.defaultValue()));
         try {
-            for (VariantQueryExecutor executor : getVariantQueryExecutors()) {
-                if (executor.canUseThisExecutor(query, options)) {
-                    return executor;
-                }
-            }
+            return new VariantQueryPlanner(getVariantQueryExecutors()).plan(query, options, costBased);
         } catch (StorageEngineException e) {
             throw VariantQueryException.internalException(e);
         }
-        // This should never happen, as the DBAdaptorVariantQueryExecutor can always run the query
-        throw new IllegalStateException("No VariantQueryExecutor found to run the query!");
     }
 
     public Query preProcessQuery(Query originalQuery, QueryOptions options) {
@@ -1031,6 +1169,10 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
 
     @Override
     public void close() throws IOException {
+        String metricsDump = getOptions().getString(METRICS_DUMP_FILE.key());
+        if (StringUtils.isNotEmpty(metricsDump)) {
+            StorageMetrics.global().dump(Paths.get(metricsDump));
+        }
         cellBaseUtils = null;
         if (variantSearchManager.get() != null) {
             try {
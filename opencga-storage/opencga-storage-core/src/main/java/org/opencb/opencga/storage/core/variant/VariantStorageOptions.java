@@ -18,6 +18,7 @@ public enum VariantStorageOptions implements ConfigurationOption {
 
     TRANSFORM_BATCH_SIZE("transform.batchSize", 200),
     TRANSFORM_THREADS("transform.numThreads", 4),
+    TRANSFORM_DECOMPRESSION_THREADS("transform.decompression.numThreads", 2), // Threads to decompress BGZF input files. 1 to disable
     TRANSFORM_FORMAT("transform.format", "avro"),
     TRANSFORM_FAIL_ON_MALFORMED_VARIANT("transform.failOnMalformed", false),
     TRANSFORM_COMPRESSION("transform.compression", "gzip"),
@@ -37,6 +38,7 @@ public enum VariantStorageOptions implements ConfigurationOption {
     STATS_LOAD_BATCH_SIZE("stats.load.batchSize", 100),
     STATS_OVERWRITE("stats.overwrite", false),          //Overwrite stats already present
     STATS_UPDATE("stats.update", false),                //Calculate missing stats
+    STATS_INCREMENTAL("stats.incremental", false),      //Update stats with the samples added since the last calculation
     STATS_AGGREGATION("stats.aggregation.type", Aggregation.NONE),
     STATS_AGGREGATION_MAPPING_FILE("stats.aggregation.mappingFile"),
 
@@ -54,13 +56,26 @@ public enum VariantStorageOptions implements ConfigurationOption {
     ANNOTATOR_CELLBASE_IMPRECISE_VARIANTS("annotator.cellbase.impreciseVariants"),
 
     INDEX_SEARCH("indexSearch", false), // Build secondary indexes using search engine.
-
+    SEARCH_LOAD_BULK("search.load.bulk", false),                 // Use commitWithin and concurrent updates, with one hard commit at the end
+    SEARCH_LOAD_THREADS("search.load.numThreads", 4),            // Number of concurrent conversion and update tasks in bulk mode
+    SEARCH_LOAD_COMMIT_WITHIN("search.load.commitWithin", 60000), // Milliseconds for Solr to make the updates visible in bulk mode
+    SEARCH_LOAD_COMMIT_INTERVAL("search.load.commitInterval", 0L), // Milliseconds between extra hard commits in bulk mode. 0 to disable
+    SEARCH_ITERATOR_PREFETCH("search.iterator.prefetch", 0),    // Number of Solr pages to fetch and convert in background. 0 to disable
+    SEARCH_CHANGE_LOG("search.changeLog", false),                // Record modified variants, and synchronize only those variants
+    SEARCH_CHANGE_LOG_DIR("search.changeLog.dir"),               // Directory for the local change log, if the engine does not provide one
+    SEARCH_CHANGE_LOG_BATCH_SIZE("search.changeLog.batchSize", 1000000), // Max number of modified variants to sort in memory
+
+    METRICS_DUMP_FILE("metrics.dump.file"),                    // Write the collected metrics as JSON when closing the engine
+
+    QUERY_PLANNER_COST_BASED("query.planner.costBased", false), // Select the VariantQueryExecutor with lowest estimated cost
+    QUERY_EXPLAIN("explain", false),                           // Add to the result the selected VariantQueryExecutor and alternatives
     QUERY_DEFAULT_TIMEOUT("query.timeout.default", 10000), // Default timeout for DBAdaptor operations. Only used if none is provided.
     QUERY_MAX_TIMEOUT("query.timeout.max", 30000),         // Max allowed timeout for DBAdaptor operations
     QUERY_LIMIT_DEFAULT("query.limit.default", 1000),
     QUERY_LIMIT_MAX("query.limit.max", 5000),
     QUERY_SAMPLE_LIMIT_DEFAULT("query.sample.limit.default", 100),
     QUERY_SAMPLE_LIMIT_MAX("query.sample.limit.max", 1000),
+    QUERY_MULTI_ITERATOR_PREFETCH("query.multiIterator.prefetch", 0), // Batch queries prefetched by two-phase iterators. 0 to disable
 
     // Search intersect options
     INTERSECT_ACTIVE("search.intersect.active", true),                       // Allow intersect queries with the SearchEngine (Solr)
@@ -34,7 +34,6 @@ import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.VariantAvro;
 import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
 import org.opencb.biodata.tools.variant.merge.VariantMerger;
-import org.opencb.biodata.tools.variant.stats.VariantSetStatsCalculator;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.io.DataReader;
@@ -57,6 +56,8 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
 import org.opencb.opencga.storage.core.variant.io.json.mixin.GenericRecordAvroJsonMixin;
+import org.opencb.opencga.storage.core.variant.stats.MergeableVariantSetStatsCalculator;
+import org.opencb.opencga.storage.core.variant.stats.PartialCalculators;
 import org.opencb.opencga.storage.core.variant.transform.MalformedVariantHandler;
 import org.opencb.opencga.storage.core.variant.transform.VariantTransformTask;
 import org.slf4j.Logger;
@@ -82,6 +83,7 @@ import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.*;
 public abstract class VariantStoragePipeline implements StoragePipeline {
 
     private static final String HTSJDK_PARSER = "htsjdk";
+    private static final String NATIVE_PARSER = "native";
     protected final StorageConfiguration configuration;
     protected final String storageEngineId;
     protected final ObjectMap options;
@@ -265,6 +267,9 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         StringDataReader stringReader;
         try {
             stringReader = stdin ? new StringDataReader(System.in) : new StringDataReader(input, ioConnectorProvider);
+            stringReader.setDecompressionThreads(options.getInt(
+                    VariantStorageOptions.TRANSFORM_DECOMPRESSION_THREADS.key(),
+                    VariantStorageOptions.TRANSFORM_DECOMPRESSION_THREADS.defaultValue()));
             fileSize = stdin ? -1 : ioConnectorProvider.size(input);
         } catch (IOException e) {
             throw StorageEngineException.ioException(e);
@@ -272,12 +277,21 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         ProgressLogger progressLogger = new ProgressLogger("Transforming file:", fileSize, 200);
         stringReader.setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
 
-        VariantSetStatsCalculator statsCalculator = new VariantSetStatsCalculator(studyId, metadata);
+        // One stats calculator per task, merged into the file metadata once the transform finishes
+        PartialCalculators<MergeableVariantSetStatsCalculator> statsCalculators = new PartialCalculators<>(
+                () -> new MergeableVariantSetStatsCalculator(studyId, metadata), MergeableVariantSetStatsCalculator::merge);
 
-        logger.info("Using HTSJDK to read variants.");
+        boolean nativeParser = NATIVE_PARSER.equalsIgnoreCase(parser);
+        if (nativeParser) {
+            logger.info("Using native parser to read variants. Fallback to HTSJDK for unsupported lines.");
+        } else {
+            logger.info("Using HTSJDK to read variants.");
+        }
         Pair<VCFHeader, VCFHeaderVersion> header = variantReaderUtils.readHtsHeader(input, stdin);
         Supplier<Task<String, Variant>> task = () ->
-                new VariantTransformTask(header.getKey(), header.getValue(), studyId, metadata, statsCalculator, generateReferenceBlocks)
+                new VariantTransformTask(header.getKey(), header.getValue(), studyId, metadata, statsCalculators.get(),
+                        generateReferenceBlocks)
+                .setNativeParser(nativeParser)
                 .setFailOnError(failOnError)
                 .addMalformedErrorHandler(malformedHandler)
                 .setIncludeSrc(false);
@@ -331,6 +345,9 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
             throw new StorageEngineException("Error while executing TransformVariants in ParallelTaskRunner", e);
         }
         stopWatch.stop();
+        MergeableVariantSetStatsCalculator statsCalculator = statsCalculators.merge();
+        getTransformStats().put("alleleFrequencyHistogram", statsCalculator.getAlleleFrequencyHistogram());
+        getTransformStats().put("depthHistogram", statsCalculator.getDepthHistogram());
 
         logger.info("Variants transformed in " + TimeUtils.durationToString(stopWatch));
 
@@ -31,6 +31,8 @@ import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_MULTI_ITERATOR_PREFETCH;
+
 /**
  * Created on 13/03/17.
  *
@@ -48,7 +50,10 @@ public interface VariantIterable extends Iterable<Variant> {
     }
 
     default MultiVariantDBIterator iterator(Iterator<?> variants, Query query, QueryOptions options, int batchSize) {
-        return new MultiVariantDBIterator(variants, batchSize, query, options, this::iterator);
+        int prefetch = options == null
+                ? QUERY_MULTI_ITERATOR_PREFETCH.defaultValue()
+                : options.getInt(QUERY_MULTI_ITERATOR_PREFETCH.key(), QUERY_MULTI_ITERATOR_PREFETCH.defaultValue());
+        return new MultiVariantDBIterator(variants, batchSize, query, options, this::iterator, prefetch);
     }
 
     VariantDBIterator iterator(Query query, QueryOptions options);
@@ -22,17 +22,22 @@ import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 
 /**
  * Iterates multiple variant iterators. Every time that voids one iterator, creates a new one using the iteratorFactory.
  *
+ * In prefetch mode, up to N batch queries are executed in background while the current one is consumed.
+ * Results are returned in the same order, and the limit and skip are applied on the client side.
+ *
  * Created on 04/07/17.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
@@ -56,6 +61,46 @@ public class MultiVariantDBIterator extends VariantDBIterator {
     private int numQueries;
     private Variant lastVariant = null;
 
+    // Prefetch mode
+    private final int prefetch;
+    private ExecutorService threadPool;
+    private final Deque<Batch> pendingBatches = new ArrayDeque<>();
+    // Variants from primary used to build the batch being consumed
+    private List<Object> currentBatch = Collections.emptyList();
+    // Results and variants from primary of the batches already fetched, to estimate the match ratio of the next batches
+    private int prefetchedResults;
+    private int prefetchedVariants;
+    private final AtomicLong backgroundTimeFetching = new AtomicLong();
+    private final AtomicLong backgroundTimeConverting = new AtomicLong();
+
+    private static final class Batch {
+        private final Query query;
+        private final List<Object> variants;
+        private final Future<List<Variant>> future;
+        // Estimated from the match ratio when submitted
+        private final long expectedResults;
+
+        private Batch(Query query, List<Object> variants, Future<List<Variant>> future, long expectedResults) {
+            this.query = query;
+            this.variants = variants;
+            this.future = future;
+            this.expectedResults = expectedResults;
+        }
+
+        private long getResults() {
+            if (future.isDone() && !future.isCancelled()) {
+                try {
+                    return future.get().size();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // Reported when the batch is consumed
+                }
+            }
+            return expectedResults;
+        }
+    }
+
     /**
      * Creates a multi iterator given a iterator of variants. It will apply the query (if any) to all the variants in the iterator.
      * The iterator will group the variants in batches to split the query.
@@ -69,7 +114,25 @@ public class MultiVariantDBIterator extends VariantDBIterator {
     public MultiVariantDBIterator(Iterator<?> variantsIterator, int batchSize,
                                   Query query, QueryOptions options,
                                   BiFunction<Query, QueryOptions, VariantDBIterator> iteratorFactory) {
+        this(variantsIterator, batchSize, query, options, iteratorFactory, 0);
+    }
+
+    /**
+     * Creates a multi iterator given a iterator of variants. It will apply the query (if any) to all the variants in the iterator.
+     * The iterator will group the variants in batches to split the query.
+     *
+     * @param variantsIterator  Iterator with all the variants to filter.
+     * @param batchSize         Number of variants to use in each query
+     * @param query             Base query.
+     * @param options           Query options to be used with the iterator factory
+     * @param iteratorFactory   Iterator factory. See {@link VariantDBAdaptor#iterator()}
+     * @param prefetch          Number of batch queries to execute in background. 0 to execute them on demand.
+     */
+    public MultiVariantDBIterator(Iterator<?> variantsIterator, int batchSize,
+                                  Query query, QueryOptions options,
+                                  BiFunction<Query, QueryOptions, VariantDBIterator> iteratorFactory, int prefetch) {
         this.variantsIterator = variantsIterator;
+        this.prefetch = Math.max(0, prefetch);
         this.queryIterator = new VariantQueryIterator(this.variantsIterator, query, batchSize);
         this.options = options == null ? new QueryOptions() : new QueryOptions(options);
         this.iteratorFactory = Objects.requireNonNull(iteratorFactory);
@@ -100,6 +163,7 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         init();
         if (numResults >= maxResults) {
             terminateIterator();
+            cancelPendingBatches();
             return false;
         } else if (!fetch(variantDBIterator::hasNext)) {
             nextVariantIterator();
@@ -118,21 +182,17 @@ public class MultiVariantDBIterator extends VariantDBIterator {
      * Get the next non-empty valid {@link #variantDBIterator}. If none, use {@link #emptyIterator()}
      */
     private void nextVariantIterator() {
+        if (prefetch > 0) {
+            nextPrefetchedIterator();
+            return;
+        }
         while (!fetch(variantDBIterator::hasNext) && fetch(queryIterator::hasNext)) {
             terminateIterator();
             numQueries++;
-            QueryOptions options;
-            int limit;
-            if (maxResults != Integer.MAX_VALUE) {
-                // We are expecting no more than maxResults - numResults
-                // Modify the limit in the query
-                limit = maxResults - numResults;
-                options = new QueryOptions(this.options).append(QueryOptions.LIMIT, limit);
-            } else {
-                limit = Integer.MAX_VALUE;
-                options = this.options;
-            }
+            QueryOptions options = getBatchOptions();
+            int limit = options.getInt(QueryOptions.LIMIT, Integer.MAX_VALUE);
             query = fetch(() -> queryIterator.next(numResults, limit));
+            currentBatch = queryIterator.lastBatch;
 
             variantDBIterator = fetch(() -> iteratorFactory.apply(query, options));
         }
@@ -141,6 +201,122 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         }
     }
 
+    private QueryOptions getBatchOptions() {
+        if (maxResults != Integer.MAX_VALUE) {
+            // We are expecting no more than maxResults - numResults
+            // Modify the limit in the query
+            return new QueryOptions(this.options).append(QueryOptions.LIMIT, maxResults - numResults);
+        } else {
+            return this.options;
+        }
+    }
+
+    private void nextPrefetchedIterator() {
+        while (!fetch(variantDBIterator::hasNext) && (!pendingBatches.isEmpty() || fetch(queryIterator::hasNext))) {
+            terminateIterator();
+            submitBatches();
+            Batch batch = pendingBatches.poll();
+            if (batch == null) {
+                // The rows already fetched reach the limit
+                break;
+            }
+            List<Variant> variants;
+            try {
+                variants = batch.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw VariantQueryException.internalException(e);
+            } catch (ExecutionException e) {
+                Throwables.propagateIfPossible(e.getCause());
+                throw VariantQueryException.internalException((Exception) e.getCause());
+            }
+            prefetchedResults += variants.size();
+            prefetchedVariants += batch.variants.size();
+            query = batch.query;
+            currentBatch = batch.variants;
+            variantDBIterator = VariantDBIterator.wrapper(variants.iterator());
+            if (pendingBatches.isEmpty() && !fetch(queryIterator::hasNext)) {
+                // Last batch. Release the background threads
+                shutdownThreadPool();
+            } else {
+                // Keep the pipeline full
+                submitBatches();
+            }
+        }
+        if (!fetch(variantDBIterator::hasNext)) {
+            terminateIterator();
+            // No more batches. Release the background threads
+            cancelPendingBatches();
+        }
+    }
+
+    /**
+     * Build the next batch queries, and execute them in background, until there are {@link #prefetch} batches in flight.
+     *
+     * The size of each batch is estimated from the match ratio of the batches already fetched, so only the first batch
+     * is executed until its results are known. The limit of each query is an upper bound, as the results of the batches
+     * in flight are not known yet. No more batches are submitted once the rows already fetched and the rows expected from
+     * the batches in flight reach the limit.
+     */
+    private void submitBatches() {
+        if (threadPool == null) {
+            threadPool = Executors.newFixedThreadPool(prefetch, r -> {
+                Thread thread = new Thread(r, "multi-variant-iterator-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        while (pendingBatches.size() < prefetch && (prefetchedVariants > 0 || pendingBatches.isEmpty())
+                && prefetchedResults + getInFlightResults() < maxResults && fetch(queryIterator::hasNext)) {
+            numQueries++;
+            QueryOptions options = getBatchOptions();
+            int limit = options.getInt(QueryOptions.LIMIT, Integer.MAX_VALUE);
+            Query batchQuery = fetch(() -> queryIterator.next(prefetchedResults, prefetchedVariants, limit));
+            Future<List<Variant>> future = threadPool.submit(() -> {
+                try (VariantDBIterator iterator = iteratorFactory.apply(batchQuery, options)) {
+                    List<Variant> variants = new ArrayList<>();
+                    while (iterator.hasNext() && !Thread.currentThread().isInterrupted()) {
+                        variants.add(iterator.next());
+                    }
+                    backgroundTimeFetching.addAndGet(iterator.getTimeFetching());
+                    backgroundTimeConverting.addAndGet(iterator.getTimeConverting());
+                    return variants;
+                }
+            });
+            List<Object> batchVariants = queryIterator.lastBatch;
+            long expectedResults = prefetchedVariants > 0
+                    ? (long) Math.ceil(((double) batchVariants.size()) * prefetchedResults / prefetchedVariants)
+                    : batchVariants.size();
+            pendingBatches.add(new Batch(batchQuery, batchVariants, future, expectedResults));
+        }
+    }
+
+    private long getInFlightResults() {
+        long results = 0;
+        for (Batch batch : pendingBatches) {
+            results += batch.getResults();
+        }
+        return results;
+    }
+
+    private void cancelPendingBatches() {
+        for (Batch batch : pendingBatches) {
+            batch.future.cancel(true);
+        }
+        pendingBatches.clear();
+        if (threadPool != null) {
+            threadPool.shutdownNow();
+            threadPool = null;
+        }
+    }
+
+    private void shutdownThreadPool() {
+        if (threadPool != null) {
+            threadPool.shutdown();
+            threadPool = null;
+        }
+    }
+
     private void terminateIterator() {
         // Accumulate statistics from previous iterator.
         timeFetching += variantDBIterator.getTimeFetching();
@@ -165,14 +341,24 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         }
     }
 
+    /**
+     * In prefetch mode, this includes the time spent by the background threads converting the results.
+     *
+     * @return Time converting in nanoseconds
+     */
     @Override
     public long getTimeConverting() {
-        return timeConverting + variantDBIterator.getTimeConverting();
+        return timeConverting + variantDBIterator.getTimeConverting() + backgroundTimeConverting.get();
     }
 
+    /**
+     * In prefetch mode, this includes the time spent by the background threads fetching the results.
+     *
+     * @return Time fetching in nanoseconds
+     */
     @Override
     public long getTimeFetching() {
-        return timeFetching + variantDBIterator.getTimeFetching();
+        return timeFetching + variantDBIterator.getTimeFetching() + backgroundTimeFetching.get();
     }
 
     /**
@@ -197,7 +383,11 @@ public class MultiVariantDBIterator extends VariantDBIterator {
 
     @Override
     public void close() throws Exception {
-        terminateIterator();
+        try {
+            terminateIterator();
+        } finally {
+            cancelPendingBatches();
+        }
         super.close();
     }
 
@@ -214,13 +404,17 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         if (lastVariant != null) {
             int usedVariantsFromLastBatch = 0;
             String lastVariantStr = lastVariant.toString();
-            for (Object variant : queryIterator.lastBatch) {
+            for (Object variant : currentBatch) {
                 usedVariantsFromLastBatch++;
                 if (lastVariantStr.equals(variant.toString())) {
                     break;
                 }
             }
-            unusedVariantsFromLastBatch = queryIterator.lastBatch.size() - usedVariantsFromLastBatch;
+            unusedVariantsFromLastBatch = currentBatch.size() - usedVariantsFromLastBatch;
+        }
+        // Variants in prefetched batches are not used yet
+        for (Batch batch : pendingBatches) {
+            unusedVariantsFromLastBatch += batch.variants.size();
         }
         return queryIterator.totalBatchSizeCount - unusedVariantsFromLastBatch;
     }
@@ -262,6 +456,18 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         }
 
         public Query next(final int numResults, final int limit) {
+            return next(numResults, totalBatchSizeCount, limit);
+        }
+
+        /**
+         * Build the next query, with a batch size estimated from the ratio of variants from the iterator that matched the query.
+         *
+         * @param numResults    Number of results returned by the previous batches
+         * @param numVariants   Number of variants from the iterator used by those batches
+         * @param limit         Max number of results expected from the next batch
+         * @return Next query
+         */
+        public Query next(final int numResults, final int numVariants, final int limit) {
             int batchSize;
 
             // Do not update `matchProbability` for the first batch
@@ -277,8 +483,8 @@ public class MultiVariantDBIterator extends VariantDBIterator {
 //            }
 //            firstBatch = false;
 //            lastQueryNumResults = numResults;
-            if (totalBatchSizeCount > 0) {
-                matchProbability = numResults / (float) totalBatchSizeCount;
+            if (numVariants > 0) {
+                matchProbability = numResults / (float) numVariants;
                 matchProbability *= 0.8;
             }
 
@@ -294,6 +500,7 @@ public class MultiVariantDBIterator extends VariantDBIterator {
                 }
             }
             logger.debug("numResults = " + numResults
+                    + " numVariants = " + numVariants
                     + " totalBatchSizeCount = " + totalBatchSizeCount
                     + " limit = " + limit
                     + " lastBatchSize = " + lastBatchSize
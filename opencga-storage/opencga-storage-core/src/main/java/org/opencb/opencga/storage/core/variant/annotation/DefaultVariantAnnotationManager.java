@@ -45,6 +45,7 @@ import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.metrics.StorageMetrics;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
@@ -238,7 +239,8 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
                     .setAbortOnFail(true)
                     .setSorted(false).build();
             ParallelTaskRunner<Variant, VariantAnnotation> parallelTaskRunner =
-                    new ParallelTaskRunner<>(variantDataReader, annotationTask, variantAnnotationDataWriter, config);
+                    new ParallelTaskRunner<>(variantDataReader, StorageMetrics.global().timed("annotation.annotate", annotationTask),
+                            variantAnnotationDataWriter, config);
             parallelTaskRunner.run();
         } catch (ExecutionException e) {
             throw new VariantAnnotatorException("Error creating annotations", e);
@@ -320,7 +322,8 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
             DataReader<VariantAnnotation> reader, ParallelTaskRunner.Config config, ProgressLogger progressLogger, ObjectMap params) {
         return new ParallelTaskRunner<>(reader,
                         () -> newVariantAnnotationDBWriter(dbAdaptor, new QueryOptions(params))
-                                .setProgressLogger(progressLogger), null, config);
+                                .setProgressLogger(progressLogger)
+                                .setSearchChangeLog(searchChangeLog), null, config);
     }
 
     protected DataReader<VariantAnnotation> newVariantAnnotationDataReader(URI uri) throws IOException {
@@ -24,6 +24,7 @@ import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
 import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata.VariantAnnotationMetadata;
 import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata.VariantAnnotatorProgram;
 import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotator;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,12 +53,19 @@ public abstract class VariantAnnotationManager {
 
     private static Logger logger = LoggerFactory.getLogger(VariantAnnotationManager.class);
 
+    protected VariantSearchChangeLog searchChangeLog = VariantSearchChangeLog.empty();
+
     public abstract long annotate(Query query, ObjectMap options) throws VariantAnnotatorException, IOException, StorageEngineException;
 
     public abstract void saveAnnotation(String name, ObjectMap options) throws StorageEngineException, VariantAnnotatorException;
 
     public abstract void deleteAnnotation(String name, ObjectMap options) throws StorageEngineException, VariantAnnotatorException;
 
+    public VariantAnnotationManager setSearchChangeLog(VariantSearchChangeLog searchChangeLog) {
+        this.searchChangeLog = searchChangeLog;
+        return this;
+    }
+
     protected final VariantAnnotationMetadata checkCurrentAnnotation(VariantAnnotator annotator, ProjectMetadata projectMetadata,
                                                                      boolean overwrite)
             throws VariantAnnotatorException {
@@ -41,8 +41,11 @@ import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -65,6 +68,9 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
 
     private static final DecimalFormat DECIMAL_FORMAT_7 = new DecimalFormat("#.#######");
     private static final DecimalFormat DECIMAL_FORMAT_3 = new DecimalFormat("#.###");
+    private static final String NO_CALL_ALLELE = String.valueOf(VCFConstants.NO_CALL_ALLELE);
+    private static final Set<String> INT_FORMAT_KEYS = new HashSet<>(Arrays.asList(VCFConstants.GENOTYPE_ALLELE_DEPTHS,
+            VCFConstants.DEPTH_KEY, VCFConstants.GENOTYPE_QUALITY_KEY, VCFConstants.GENOTYPE_PL_KEY));
     private final Logger logger = LoggerFactory.getLogger(VariantVcfDataWriter.class);
 
 
@@ -80,12 +86,16 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
     private final AtomicReference<Function<String, String>> sampleNameConverter = new AtomicReference<>(s -> s);
     private final int studyId;
     private VariantContextWriter writer;
+    private VCFHeader header;
+    private boolean writeGenotypes;
+    private final LineBuffer lineBuffer = new LineBuffer();
     private List<String> annotations;
     private int failedVariants;
     private final List<String> sampleNames = new ArrayList<>();
     private final Map<String, String> sampleNameMapping = new ConcurrentHashMap<>();
     private final AtomicReference<BiConsumer<Variant, RuntimeException>> converterErrorListener = new AtomicReference<>((v, r) -> { });
     private final AtomicBoolean exportGenotype = new AtomicBoolean(true);
+    private final AtomicBoolean directEncoder = new AtomicBoolean(true);
 
     public VariantVcfDataWriter(StudyConfiguration studyConfiguration,
                                 OutputStream outputStream, Query query, QueryOptions queryOptions) {
@@ -108,6 +118,16 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
         this.exportGenotype.set(exportGenotype);
     }
 
+    /**
+     * Write the VCF lines directly from the variants, without converting them to htsjdk VariantContext. Enabled by default.
+     * The header is always written by htsjdk.
+     *
+     * @param directEncoder Use the direct encoder
+     */
+    public void setDirectEncoder(boolean directEncoder) {
+        this.directEncoder.set(directEncoder);
+    }
+
     /**
      * Uses a reader and a writer to dump a vcf.
      * TODO jmmut: use studyConfiguration to know the order of
@@ -213,7 +233,7 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
         meta.add(new VCFFormatHeaderLine("PF", 1, VCFHeaderLineType.Integer,
                 "Variant was PASS (1) filter in original vcf"));
 
-        final VCFHeader header = new VCFHeader(meta, names);
+        header = new VCFHeader(meta, names);
         final SAMSequenceDictionary sequenceDictionary = header.getSequenceDictionary();
 
         // setup writer
@@ -221,7 +241,8 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
                 .setOutputStream(outputStream)
                 .setReferenceDictionary(sequenceDictionary)
                 .unsetOption(Options.INDEX_ON_THE_FLY);
-        if (sampleNames.isEmpty() || !this.exportGenotype.get()) {
+        writeGenotypes = !sampleNames.isEmpty() && this.exportGenotype.get();
+        if (!writeGenotypes) {
             builder.setOption(Options.DO_NOT_WRITE_GENOTYPES);
         }
         studyConfiguration.getVariantHeaderLines("FORMAT").forEach((id, line) -> {
@@ -285,6 +306,9 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
 
     @Override
     public boolean write(List<Variant> batch) {
+        if (directEncoder.get()) {
+            return writeDirect(batch);
+        }
         for (Variant variant : batch) {
             try {
                 VariantContext variantContext = convertVariantToVariantContext(variant, annotations);
@@ -300,6 +324,28 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
         return true;
     }
 
+    private boolean writeDirect(List<Variant> batch) {
+        for (Variant variant : batch) {
+            int lineStart = lineBuffer.size();
+            try {
+                encodeVariant(variant, annotations, lineBuffer);
+            } catch (RuntimeException e) {
+                // Discard the partially encoded line
+                lineBuffer.truncate(lineStart);
+                logger.error("Error exporting variant " + variant, e);
+                failedVariants++;
+                converterErrorListener.get().accept(variant, e);
+            }
+        }
+        try {
+            lineBuffer.writeTo(outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lineBuffer.truncate(0);
+        }
+        return true;
+    }
 
     @Override
     public boolean post() {
@@ -433,117 +479,37 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
     }
 
     public VariantContext convertVariantToVariantContext(Variant variant, List<String> annotations) { //, StudyConfiguration
-        final String noCallAllele = String.valueOf(VCFConstants.NO_CALL_ALLELE);
         VariantContextBuilder variantContextBuilder = new VariantContextBuilder();
-        VariantType type = variant.getType();
         StudyEntry studyEntry = variant.getStudy(this.studyConfiguration.getName());
         if (studyEntry == null) {
             return null;
         }
 
         Pair<Integer, Integer> adjustedRange = adjustedVariantStart(variant);
-
-        String[] ori = getOri(studyEntry);
-        List<String> originalAlleles = getOriginalAlleles(ori);
-        List<String> allelesArray;
-        if (originalAlleles != null) {
-            allelesArray = originalAlleles;
-        } else {
-            allelesArray = buildAlleles(variant, adjustedRange);
+        List<String> allelesArray = getAlleles(variant, studyEntry, adjustedRange);
+        if (allelesArray == null) {
+            return null;
         }
         Set<Integer> nocallAlleles = IntStream.range(0,  allelesArray.size()).boxed()
-                .filter(i -> noCallAllele.equals(allelesArray.get(i)))
+                .filter(i -> NO_CALL_ALLELE.equals(allelesArray.get(i)))
                 .collect(Collectors.toSet());
-        String filter = "PASS";
-        String prk = "PR";
-        String crk = "CR";
-        String oprk = "OPR";
 
-        //Attributes for INFO column
-        ObjectMap attributes = new ObjectMap();
         ArrayList<Genotype> genotypes = new ArrayList<>();
-
-//        Integer originalPosition = null;
-//        List<String> originalAlleles = null;
-        // TODO work out properly how to deal with multi allelic sites.
-//        Integer auxOriginalPosition = getOriginalPosition(ori);
-//        if (originalPosition != null && auxOriginalPosition != null && !originalPosition.equals(auxOriginalPosition)) {
-//            throw new IllegalStateException("Two or more VariantSourceEntries have different origin. Unable to merge");
-//        }
-//        originalPosition = auxOriginalPosition;
-//        if (originalAlleles == null) {
-//            originalAlleles = allelesArray;
-//        }
-//
-        //Only print those variants in which the alternate is the first alternate from the multiallelic alternatives
-        if (originalAlleles != null && originalAlleles.size() > 2 && !"0".equals(getOriginalAlleleIndex(ori))) {
-            logger.debug("Skip multi allelic variant! {}", variant);
-            return null;
-        }
-
-        String sourceFilter = studyEntry.getAttribute("FILTER");
-        if (sourceFilter != null && !filter.equals(sourceFilter)) {
-            filter = ".";   // write PASS iff all sources agree that the filter is "PASS" or assumed if not present, otherwise write "."
-        }
-
-        if (studyEntry.getFiles() != null && studyEntry.getFiles().size() == 1) {
-            Map<String, String> fileAttributes = studyEntry.getFiles().get(0).getAttributes();
-            if (fileAttributes.containsKey("PR")) {
-                attributes.putIfNotNull(prk, DECIMAL_FORMAT_7.format(Double.valueOf(fileAttributes.get("PR"))));
-            }
-            if (fileAttributes.containsKey("CR")) {
-                attributes.putIfNotNull(crk, DECIMAL_FORMAT_7.format(Double.valueOf(fileAttributes.get("CR"))));
-            }
-            if (fileAttributes.containsKey("OPR")) {
-                attributes.putIfNotNull(oprk, DECIMAL_FORMAT_7.format(Double.valueOf(fileAttributes.get("OPR"))));
-            }
-        }
-
         String refAllele = allelesArray.get(0);
         for (String sampleName : this.sampleNames) {
-            String gtStr = studyEntry.getSampleData(sampleName, "GT");
-            String genotypeFilter = studyEntry.getSampleData(sampleName, "FT");
-
-            if (Objects.isNull(gtStr)) {
-                gtStr = noCallAllele;
-                genotypeFilter = noCallAllele;
-            }
-
-            List<String> gtSplit = new ArrayList<>(Arrays.asList(gtStr.split(",")));
-            List<String> ftSplit = new ArrayList<>(Arrays.asList(
-                    (StringUtils.isBlank(genotypeFilter) ? "" : genotypeFilter).split(",")));
-            while (gtSplit.size() > 1) {
-                int idx = gtSplit.indexOf(noCallAllele);
-                if (idx < 0) {
-                    idx = gtSplit.indexOf("0/0");
-                }
-                if (idx < 0) {
-                    break;
-                }
-                gtSplit.remove(idx);
-                ftSplit.remove(idx);
-            }
-            String gt = gtSplit.get(0);
-            String ft = ftSplit.get(0);
-
-            org.opencb.biodata.models.feature.Genotype genotype =
-                    new org.opencb.biodata.models.feature.Genotype(gt, refAllele, allelesArray.subList(1, allelesArray.size()));
+            Pair<String, String> genotypeAndFilter = getGenotypeAndFilter(studyEntry, sampleName);
+            org.opencb.biodata.models.feature.Genotype genotype = new org.opencb.biodata.models.feature.Genotype(
+                    genotypeAndFilter.getLeft(), refAllele, allelesArray.subList(1, allelesArray.size()));
             List<Allele> alleles = new ArrayList<>();
             for (int gtIdx : genotype.getAllelesIdx()) {
                 if (gtIdx < allelesArray.size() && gtIdx >= 0 && !nocallAlleles.contains(gtIdx)) { // .. AND NOT a nocall allele
                     alleles.add(Allele.create(allelesArray.get(gtIdx), gtIdx == 0)); // allele is ref. if the alleleIndex is 0
                 } else {
-                    alleles.add(Allele.create(noCallAllele, false)); // genotype of a secondary alternate, or an actual missing
+                    alleles.add(Allele.create(NO_CALL_ALLELE, false)); // genotype of a secondary alternate, or an actual missing
                 }
             }
 
-            if (StringUtils.isBlank(ft)) {
-                genotypeFilter = null;
-            } else if (StringUtils.equals("PASS", ft)) {
-                genotypeFilter = "1";
-            } else {
-                genotypeFilter = "0";
-            }
+            String genotypeFilter = genotypeAndFilter.getRight();
             GenotypeBuilder builder = new GenotypeBuilder()
                     .name(this.sampleNameMapping.get(sampleName));
             if (studyEntry.getFormatPositions().containsKey("GT")) {
@@ -564,12 +530,10 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
             genotypes.add(builder.make());
         }
 
-        addStats(studyEntry, attributes);
-
         variantContextBuilder.start(adjustedRange.getLeft())
                 .stop(adjustedRange.getLeft() + refAllele.length() - 1L) //TODO mh719: check what happens for Insertions
                 .chr(variant.getChromosome())
-                .filter(filter); // TODO jmmut: join attributes from different source entries? what to do on a collision?
+                .filter(getFilter(studyEntry)); // TODO jmmut: join attributes from different source entries? what to do on a collision?
 
         if (genotypes.isEmpty()) {
             variantContextBuilder.noGenotypes();
@@ -577,20 +541,334 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
             variantContextBuilder.genotypes(genotypes);
         }
 
-        if (type.equals(VariantType.NO_VARIATION) && allelesArray.get(1).isEmpty()) {
-            variantContextBuilder.alleles(refAllele);
+        variantContextBuilder.alleles(getVcfAlleles(variant, allelesArray));
+        variantContextBuilder.attributes(getInfo(variant, studyEntry, annotations));
+        variantContextBuilder.id(getId(variant));
+
+        return variantContextBuilder.make();
+    }
+
+    /**
+     * Encode the variant as a VCF line, without building the intermediate htsjdk VariantContext.
+     *
+     * The output is the same as writing the result of {@link #convertVariantToVariantContext(Variant, List)} with the htsjdk
+     * VCF encoder: INFO keys are sorted, FORMAT keys are sorted with GT first, and missing trailing sample values are removed.
+     *
+     * @param variant     Variant to encode
+     * @param annotations Annotations to write in the CSQ INFO field
+     * @param line        Buffer where the line is appended
+     * @return false if the variant was skipped
+     */
+    private boolean encodeVariant(Variant variant, List<String> annotations, LineBuffer line) {
+        StudyEntry studyEntry = variant.getStudy(this.studyConfiguration.getName());
+        if (studyEntry == null) {
+            return false;
+        }
+
+        Pair<Integer, Integer> adjustedRange = adjustedVariantStart(variant);
+        List<String> allelesArray = getAlleles(variant, studyEntry, adjustedRange);
+        if (allelesArray == null) {
+            return false;
+        }
+        List<String> alleles = getVcfAlleles(variant, allelesArray);
+        Map<String, Object> info = new TreeMap<>(getInfo(variant, studyEntry, annotations));
+        for (String key : info.keySet()) {
+            if (!header.hasInfoLine(key)) {
+                throw missingHeaderLine(variant, key, "INFO");
+            }
+        }
+
+        line.append(variant.getChromosome()).append('\t')
+                .append(adjustedRange.getLeft()).append('\t')
+                .append(getId(variant)).append('\t')
+                .append(alleles.get(0)).append('\t');
+        if (alleles.size() > 1) {
+            for (int i = 1; i < alleles.size(); i++) {
+                if (i > 1) {
+                    line.append(',');
+                }
+                line.append(alleles.get(i));
+            }
+        } else {
+            line.append(VCFConstants.EMPTY_ALTERNATE_ALLELE_FIELD);
+        }
+        // QUAL is never written
+        line.append('\t').append(VCFConstants.MISSING_VALUE_v4)
+                .append('\t').append(getFilter(studyEntry))
+                .append('\t');
+        if (info.isEmpty()) {
+            line.append(VCFConstants.EMPTY_INFO_FIELD);
+        } else {
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : info.entrySet()) {
+                if (!first) {
+                    line.append(VCFConstants.INFO_FIELD_SEPARATOR);
+                }
+                first = false;
+                line.append(entry.getKey());
+                String value = String.valueOf(entry.getValue());
+                if (!value.isEmpty()) {
+                    line.append('=').append(value);
+                }
+            }
+        }
+
+        if (writeGenotypes) {
+            encodeGenotypes(variant, studyEntry, allelesArray, alleles, line);
+        }
+        line.append('\n');
+        return true;
+    }
+
+    private void encodeGenotypes(Variant variant, StudyEntry studyEntry, List<String> allelesArray, List<String> alleles,
+                                 LineBuffer line) {
+        boolean hasGt = studyEntry.getFormatPositions().containsKey("GT");
+        // Genotype filters are only written if present in any sample
+        boolean hasPf = false;
+        List<Pair<String, String>> genotypesAndFilters = new ArrayList<>(sampleNames.size());
+        for (String sampleName : sampleNames) {
+            Pair<String, String> genotypeAndFilter = getGenotypeAndFilter(studyEntry, sampleName);
+            hasPf |= genotypeAndFilter.getRight() != null;
+            genotypesAndFilters.add(genotypeAndFilter);
+        }
+
+        TreeSet<String> sortedKeys = new TreeSet<>();
+        if (hasPf) {
+            sortedKeys.add("PF");
+        }
+        for (String id : studyEntry.getFormat()) {
+            if (!id.equals("GT") && !id.equals("FT")) {
+                sortedKeys.add(id);
+            }
+        }
+        if (!hasGt && sortedKeys.isEmpty()) {
+            throw new IllegalStateException("GTs cannot be missing for some samples if they are available for others in the record");
+        }
+        List<String> keys = new ArrayList<>(sortedKeys);
+        for (String key : keys) {
+            if (!header.hasFormatLine(key)) {
+                throw missingHeaderLine(variant, key, "FORMAT");
+            }
+        }
+
+        line.append('\t');
+        if (hasGt) {
+            line.append("GT");
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0 || hasGt) {
+                line.append(VCFConstants.GENOTYPE_FIELD_SEPARATOR);
+            }
+            line.append(keys.get(i));
+        }
+
+        String refAllele = allelesArray.get(0);
+        List<String> alternates = allelesArray.subList(1, allelesArray.size());
+        String[] values = new String[keys.size()];
+        for (int s = 0; s < sampleNames.size(); s++) {
+            String sampleName = sampleNames.get(s);
+            Pair<String, String> genotypeAndFilter = genotypesAndFilters.get(s);
+            line.append('\t');
+            if (hasGt) {
+                org.opencb.biodata.models.feature.Genotype genotype =
+                        new org.opencb.biodata.models.feature.Genotype(genotypeAndFilter.getLeft(), refAllele, alternates);
+                int[] allelesIdx = genotype.getAllelesIdx();
+                for (int i = 0; i < allelesIdx.length; i++) {
+                    if (i > 0) {
+                        line.append(genotype.isPhased() ? VCFConstants.PHASED : VCFConstants.UNPHASED);
+                    }
+                    encodeAllele(variant, allelesArray, alleles, allelesIdx[i], line);
+                }
+            }
+
+            int numValues = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                String value;
+                if (INT_FORMAT_KEYS.contains(key)) {
+                    // htsjdk reads these keys from the typed genotype fields, never set by this writer
+                    value = VCFConstants.MISSING_VALUE_v4;
+                } else if (key.equals("PF") && !studyEntry.getFormatPositions().containsKey("PF")) {
+                    value = genotypeAndFilter.getRight();
+                } else {
+                    value = studyEntry.getSampleData(sampleName, key);
+                }
+                if (value == null) {
+                    value = VCFConstants.MISSING_VALUE_v4;
+                }
+                values[i] = value;
+                if (!isMissingValue(value)) {
+                    numValues = i + 1;
+                }
+            }
+            // Missing trailing values are not written
+            for (int i = 0; i < numValues; i++) {
+                if (i > 0 || hasGt) {
+                    line.append(VCFConstants.GENOTYPE_FIELD_SEPARATOR);
+                }
+                line.append(values[i]);
+            }
+        }
+    }
+
+    private static void encodeAllele(Variant variant, List<String> allelesArray, List<String> alleles, int gtIdx, LineBuffer line) {
+        if (gtIdx < 0 || gtIdx >= allelesArray.size() || NO_CALL_ALLELE.equals(allelesArray.get(gtIdx))) {
+            // genotype of a secondary alternate, or an actual missing
+            line.append(VCFConstants.EMPTY_ALLELE);
+        } else if (gtIdx == 0) {
+            line.append('0');
+        } else {
+            int idx = alleles.subList(1, alleles.size()).indexOf(allelesArray.get(gtIdx));
+            if (idx < 0) {
+                throw new IllegalStateException("Allele " + allelesArray.get(gtIdx) + " not found in the alleles " + alleles
+                        + " of the variant " + variant);
+            }
+            line.append(idx + 1);
+        }
+    }
+
+    private static boolean isMissingValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != VCFConstants.NO_CALL_ALLELE && c != ',') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IllegalStateException missingHeaderLine(Variant variant, String key, String field) {
+        return new IllegalStateException("Key " + key + " found in " + field + " of variant " + variant
+                + " but this key isn't defined in the VCFHeader.");
+    }
+
+    /**
+     * Get the alleles of the variant, using the original alleles if available. Reference allele goes first.
+     *
+     * @param variant       Variant
+     * @param studyEntry    Study of the variant to export
+     * @param adjustedRange Adjusted start/end
+     * @return the alleles, or null if the variant should not be written
+     */
+    private List<String> getAlleles(Variant variant, StudyEntry studyEntry, Pair<Integer, Integer> adjustedRange) {
+        String[] ori = getOri(studyEntry);
+        List<String> originalAlleles = getOriginalAlleles(ori);
+
+//        Integer originalPosition = null;
+//        List<String> originalAlleles = null;
+        // TODO work out properly how to deal with multi allelic sites.
+//        Integer auxOriginalPosition = getOriginalPosition(ori);
+//        if (originalPosition != null && auxOriginalPosition != null && !originalPosition.equals(auxOriginalPosition)) {
+//            throw new IllegalStateException("Two or more VariantSourceEntries have different origin. Unable to merge");
+//        }
+//        originalPosition = auxOriginalPosition;
+//        if (originalAlleles == null) {
+//            originalAlleles = allelesArray;
+//        }
+//
+        //Only print those variants in which the alternate is the first alternate from the multiallelic alternatives
+        if (originalAlleles != null && originalAlleles.size() > 2 && !"0".equals(getOriginalAlleleIndex(ori))) {
+            logger.debug("Skip multi allelic variant! {}", variant);
+            return null;
+        }
+
+        if (originalAlleles != null) {
+            return originalAlleles;
+        } else {
+            return buildAlleles(variant, adjustedRange);
+        }
+    }
+
+    /**
+     * Get the alleles to write in the REF and ALT columns. No-call alleles are discarded.
+     */
+    private static List<String> getVcfAlleles(Variant variant, List<String> allelesArray) {
+        if (variant.getType().equals(VariantType.NO_VARIATION) && allelesArray.get(1).isEmpty()) {
+            return Collections.singletonList(allelesArray.get(0));
+        } else {
+            return allelesArray.stream().filter(a -> !a.equals(NO_CALL_ALLELE)).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Get the genotype and the genotype filter of a sample. Multiple genotypes are merged, discarding missing and
+     * homozygous reference genotypes.
+     *
+     * @param studyEntry Study of the variant to export
+     * @param sampleName Sample
+     * @return the genotype, and the PF value : "1" if the filter was PASS, "0" if not, or null if missing
+     */
+    private Pair<String, String> getGenotypeAndFilter(StudyEntry studyEntry, String sampleName) {
+        String gtStr = studyEntry.getSampleData(sampleName, "GT");
+        String genotypeFilter = studyEntry.getSampleData(sampleName, "FT");
+
+        if (Objects.isNull(gtStr)) {
+            gtStr = NO_CALL_ALLELE;
+            genotypeFilter = NO_CALL_ALLELE;
+        }
+
+        List<String> gtSplit = new ArrayList<>(Arrays.asList(gtStr.split(",")));
+        List<String> ftSplit = new ArrayList<>(Arrays.asList(
+                (StringUtils.isBlank(genotypeFilter) ? "" : genotypeFilter).split(",")));
+        while (gtSplit.size() > 1) {
+            int idx = gtSplit.indexOf(NO_CALL_ALLELE);
+            if (idx < 0) {
+                idx = gtSplit.indexOf("0/0");
+            }
+            if (idx < 0) {
+                break;
+            }
+            gtSplit.remove(idx);
+            ftSplit.remove(idx);
+        }
+        String gt = gtSplit.get(0);
+        String ft = ftSplit.get(0);
+
+        if (StringUtils.isBlank(ft)) {
+            genotypeFilter = null;
+        } else if (StringUtils.equals("PASS", ft)) {
+            genotypeFilter = "1";
         } else {
-            variantContextBuilder.alleles(allelesArray.stream().filter(a -> !a.equals(noCallAllele)).collect(Collectors.toList()));
+            genotypeFilter = "0";
+        }
+        return ImmutablePair.of(gt, genotypeFilter);
+    }
+
+    private static String getFilter(StudyEntry studyEntry) {
+        String filter = "PASS";
+        String sourceFilter = studyEntry.getAttribute("FILTER");
+        if (sourceFilter != null && !filter.equals(sourceFilter)) {
+            filter = ".";   // write PASS iff all sources agree that the filter is "PASS" or assumed if not present, otherwise write "."
+        }
+        return filter;
+    }
+
+    private ObjectMap getInfo(Variant variant, StudyEntry studyEntry, List<String> annotations) {
+        //Attributes for INFO column
+        ObjectMap attributes = new ObjectMap();
+        if (studyEntry.getFiles() != null && studyEntry.getFiles().size() == 1) {
+            Map<String, String> fileAttributes = studyEntry.getFiles().get(0).getAttributes();
+            if (fileAttributes.containsKey("PR")) {
+                attributes.putIfNotNull("PR", DECIMAL_FORMAT_7.format(Double.valueOf(fileAttributes.get("PR"))));
+            }
+            if (fileAttributes.containsKey("CR")) {
+                attributes.putIfNotNull("CR", DECIMAL_FORMAT_7.format(Double.valueOf(fileAttributes.get("CR"))));
+            }
+            if (fileAttributes.containsKey("OPR")) {
+                attributes.putIfNotNull("OPR", DECIMAL_FORMAT_7.format(Double.valueOf(fileAttributes.get("OPR"))));
+            }
         }
 
+        addStats(studyEntry, attributes);
+
         // if asked variant annotations are exported
         if (annotations != null) {
             addAnnotations(variant, annotations, attributes);
         }
+        return attributes;
+    }
 
-        variantContextBuilder.attributes(attributes);
-
-
+    private static String getId(Variant variant) {
         if (StringUtils.isNotEmpty(variant.getId()) && !variant.toString().equals(variant.getId())) {
             StringBuilder ids = new StringBuilder();
             ids.append(variant.getId());
@@ -599,12 +877,10 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
                     ids.append(VCFConstants.ID_FIELD_SEPARATOR).append(name);
                 }
             }
-            variantContextBuilder.id(ids.toString());
+            return ids.toString();
         } else {
-            variantContextBuilder.id(VCFConstants.EMPTY_ID_FIELD);
+            return VCFConstants.EMPTY_ID_FIELD;
         }
-
-        return variantContextBuilder.make();
     }
 
     /**
@@ -865,6 +1141,61 @@ public class VariantVcfDataWriter implements DataWriter<Variant> {
         return null;
     }
 
+    /**
+     * Growable byte buffer where the VCF lines of a batch are encoded before being written to the output stream.
+     * Reused across batches.
+     */
+    private static final class LineBuffer {
+        private byte[] bytes = new byte[64 * 1024];
+        private int size;
 
-}
+        int size() {
+            return size;
+        }
 
+        void truncate(int size) {
+            this.size = size;
+        }
+
+        LineBuffer append(char c) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) c;
+            return this;
+        }
+
+        LineBuffer append(int i) {
+            return append(Integer.toString(i));
+        }
+
+        LineBuffer append(String s) {
+            int length = s.length();
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    // Not ASCII. Encode the whole string
+                    size -= i;
+                    byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                    ensureCapacity(utf8.length);
+                    System.arraycopy(utf8, 0, bytes, size, utf8.length);
+                    size += utf8.length;
+                    return this;
+                }
+                bytes[size++] = (byte) c;
+            }
+            return this;
+        }
+
+        void writeTo(OutputStream outputStream) throws IOException {
+            if (size > 0) {
+                outputStream.write(bytes, 0, size);
+            }
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+}
@@ -21,9 +21,12 @@ import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.run.Task;
+import org.opencb.biodata.models.variant.Variant;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -37,6 +40,7 @@ public class VariantAnnotationDBWriter implements Task<VariantAnnotation, Object
     protected final VariantDBAdaptor dbAdaptor;
     protected final QueryOptions options;
     private ProgressLogger progressLogger;
+    private VariantSearchChangeLog searchChangeLog = VariantSearchChangeLog.empty();
     private final long timestamp;
 
     public VariantAnnotationDBWriter(VariantDBAdaptor dbAdaptor, QueryOptions options, ProgressLogger progressLogger) {
@@ -50,9 +54,19 @@ public class VariantAnnotationDBWriter implements Task<VariantAnnotation, Object
     public List<Object> apply(List<VariantAnnotation> list) throws IOException {
         DataResult writeResult = dbAdaptor.updateAnnotations(list, timestamp, options);
         logUpdate(list);
+        logChanges(list);
         return Collections.singletonList(writeResult);
     }
 
+    protected void logChanges(List<VariantAnnotation> list) throws IOException {
+        List<String> variants = new ArrayList<>(list.size());
+        for (VariantAnnotation annotation : list) {
+            variants.add(new Variant(annotation.getChromosome(), annotation.getStart(), annotation.getEnd(),
+                    annotation.getReference(), annotation.getAlternate()).toString());
+        }
+        searchChangeLog.append(VariantSearchChangeLog.ALL_STUDIES, variants);
+    }
+
     protected void logUpdate(List<VariantAnnotation> list) {
         if (progressLogger != null) {
             progressLogger.increment(list.size(), () -> {
@@ -70,4 +84,9 @@ public class VariantAnnotationDBWriter implements Task<VariantAnnotation, Object
         this.progressLogger = progressLogger;
         return this;
     }
+
+    public VariantAnnotationDBWriter setSearchChangeLog(VariantSearchChangeLog searchChangeLog) {
+        this.searchChangeLog = searchChangeLog;
+        return this;
+    }
 }
@@ -16,13 +16,18 @@
 
 package org.opencb.opencga.storage.core.variant.io.db;
 
+import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.io.DataWriter;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -37,6 +42,7 @@ public class VariantStatsDBWriter implements DataWriter<VariantStatsWrapper> {
     private final QueryOptions options;
     private final StudyMetadata studyMetadata;
     private ProgressLogger progressLogger;
+    private VariantSearchChangeLog searchChangeLog = VariantSearchChangeLog.empty();
     private final AtomicLong numWrites = new AtomicLong();
     private final AtomicLong numStats = new AtomicLong();
     private final long timestamp;
@@ -59,6 +65,7 @@ public class VariantStatsDBWriter implements DataWriter<VariantStatsWrapper> {
     public boolean write(List<VariantStatsWrapper> batch) {
         numWrites.addAndGet(writeStats(batch));
         numStats.addAndGet(batch.size());
+        logChanges(batch);
 
         if (progressLogger != null) {
             progressLogger.increment(batch.size(), () -> ", up to position "
@@ -73,11 +80,29 @@ public class VariantStatsDBWriter implements DataWriter<VariantStatsWrapper> {
         return dbAdaptor.updateStats(batch, studyMetadata.getName(), timestamp, options).getNumResults();
     }
 
+    protected void logChanges(List<VariantStatsWrapper> batch) {
+        List<String> variants = new ArrayList<>(batch.size());
+        for (VariantStatsWrapper wrapper : batch) {
+            variants.add(new Variant(wrapper.getChromosome(), wrapper.getStart(), wrapper.getEnd(),
+                    wrapper.getReference(), wrapper.getAlternate()).toString());
+        }
+        try {
+            searchChangeLog.append(studyMetadata.getId(), variants);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public VariantStatsDBWriter setProgressLogger(ProgressLogger progressLogger) {
         this.progressLogger = progressLogger;
         return this;
     }
 
+    public VariantStatsDBWriter setSearchChangeLog(VariantSearchChangeLog searchChangeLog) {
+        this.searchChangeLog = searchChangeLog;
+        return this;
+    }
+
 
     public long getNumWrites() {
         return numWrites.longValue();
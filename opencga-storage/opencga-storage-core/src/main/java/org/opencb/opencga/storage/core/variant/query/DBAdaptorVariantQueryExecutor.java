@@ -48,4 +48,23 @@ public class DBAdaptorVariantQueryExecutor extends VariantQueryExecutor {
         // Always can use this executor
         return true;
     }
+
+    /**
+     * Estimate the cost of scanning the variants storage within the query regions.
+     * Other filters are evaluated while scanning, so they do not reduce the number of variants read.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         Estimated cost, or {@link #UNKNOWN_COST}
+     */
+    @Override
+    public double estimateCost(Query query, QueryOptions options) {
+        double scannedVariants = estimateScannedVariants(query);
+        if (scannedVariants < 0) {
+            return UNKNOWN_COST;
+        }
+        double selectivity = filterSelectivity(query);
+        // Stop scanning once the limit is reached
+        return Math.min(scannedVariants, returnedRows(scannedVariants * selectivity, options) / selectivity) * SCAN_ROW_COST;
+    }
 }
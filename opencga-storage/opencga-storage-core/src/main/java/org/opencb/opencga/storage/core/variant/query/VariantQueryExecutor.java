@@ -1,5 +1,6 @@
 package org.opencb.opencga.storage.core.variant.query;
 
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.ObjectMap;
@@ -7,15 +8,25 @@ import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.core.results.VariantQueryResult;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metrics.StorageMetrics;
+import org.opencb.opencga.storage.core.metrics.Timer;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantIterable;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_DEFAULT_TIMEOUT;
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_MAX_TIMEOUT;
-import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.addDefaultLimit;
-import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.addDefaultSampleLimit;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_MULTI_ITERATOR_PREFETCH;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.*;
 
 /**
  * Created on 01/04/19.
@@ -24,9 +35,27 @@ import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils
  */
 public abstract class VariantQueryExecutor implements VariantIterable {
 
+    public static final double UNKNOWN_COST = Double.NaN;
+
+    // Relative costs used by the estimateCost implementations, so the estimations from different executors are comparable.
+    // The unit is the cost of reading one variant from a sequential scan of the variants storage.
+    public static final double SCAN_ROW_COST = 1;
+    // Get one variant by id from the variants storage. Requires a random read.
+    public static final double FETCH_ROW_COST = 10;
+    // Read one entry from a secondary index, like the sample index or the search engine. Much smaller than a variant.
+    public static final double INDEX_ROW_COST = 0.1;
+    // Fraction of variants kept by each filter that can not be estimated from the metadata
+    public static final double DEFAULT_FILTER_SELECTIVITY = 0.5;
+    public static final long GENOME_LENGTH = (long) (AbstractTwoPhasedVariantQueryExecutor.CHR1_LENGTH
+            * AbstractTwoPhasedVariantQueryExecutor.MAGIC_NUMBER);
+    public static final int AVERAGE_GENE_LENGTH = 60000;
+    private static final long STUDY_VARIANTS_CACHE_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
     protected final VariantStorageMetadataManager metadataManager;
     protected final String storageEngineId;
     private final ObjectMap options;
+    // Estimated number of variants per study, with the time it was estimated
+    private final Map<Integer, long[]> studyVariants = new ConcurrentHashMap<>();
 
     public VariantQueryExecutor(VariantStorageMetadataManager metadataManager, String storageEngineId, ObjectMap options) {
         this.metadataManager = metadataManager;
@@ -35,11 +64,13 @@ public abstract class VariantQueryExecutor implements VariantIterable {
     }
 
     public final VariantQueryResult<Variant> get(Query query, QueryOptions options) {
-        try {
+        try (Timer.Context ignored = StorageMetrics.global().timer(getMetricName("get")).start()) {
             addDefaultLimit(options, getOptions());
             addDefaultSampleLimit(query, getOptions());
 
-            return (VariantQueryResult<Variant>) getOrIterator(query, options, false);
+            VariantQueryResult<Variant> result = (VariantQueryResult<Variant>) getOrIterator(query, options, false);
+            StorageMetrics.global().increment(getMetricName("returned"), result.getNumResults());
+            return result;
         } catch (StorageEngineException e) {
             throw VariantQueryException.internalException(e);
         }
@@ -49,12 +80,32 @@ public abstract class VariantQueryExecutor implements VariantIterable {
     public final VariantDBIterator iterator(Query query, QueryOptions options) {
         try {
 //            query = parser.preProcessQuery(query, options);
-            return (VariantDBIterator) getOrIterator(query, options, true);
+            Timer.Context timer = StorageMetrics.global().timer(getMetricName("iterator")).start();
+            VariantDBIterator iterator = (VariantDBIterator) getOrIterator(query, options, true);
+            if (iterator == VariantDBIterator.emptyIterator()) {
+                // Shared instance. Do not register closeables
+                timer.close();
+                return iterator;
+            }
+            AtomicBoolean closed = new AtomicBoolean(false);
+            return iterator.addCloseable(() -> {
+                if (closed.compareAndSet(false, true)) {
+                    timer.close();
+                    StorageMetrics metrics = StorageMetrics.global();
+                    metrics.timer(getMetricName("iterator.fetch")).record(iterator.getTimeFetching());
+                    metrics.timer(getMetricName("iterator.convert")).record(iterator.getTimeConverting());
+                    metrics.increment(getMetricName("returned"), iterator.getCount());
+                }
+            });
         } catch (StorageEngineException e) {
             throw VariantQueryException.internalException(e);
         }
     }
 
+    protected String getMetricName(String metric) {
+        return "query." + getClass().getSimpleName() + "." + metric;
+    }
+
     public void setDefaultTimeout(QueryOptions options) {
         setDefaultTimeout(options, getOptions());
     }
@@ -71,6 +122,22 @@ public abstract class VariantQueryExecutor implements VariantIterable {
         queryOptions.put(QueryOptions.TIMEOUT, timeout);
     }
 
+    /**
+     * Add the configured number of batch queries to prefetch by the two-phase iterators, if not defined in the options.
+     *
+     * @param options Query options
+     * @return        Query options with the prefetch defined
+     */
+    protected QueryOptions addDefaultMultiIteratorPrefetch(QueryOptions options) {
+        if (options != null && options.containsKey(QUERY_MULTI_ITERATOR_PREFETCH.key())) {
+            return options;
+        }
+        QueryOptions newOptions = options == null ? new QueryOptions() : new QueryOptions(options);
+        newOptions.put(QUERY_MULTI_ITERATOR_PREFETCH.key(),
+                getOptions().getInt(QUERY_MULTI_ITERATOR_PREFETCH.key(), QUERY_MULTI_ITERATOR_PREFETCH.defaultValue()));
+        return newOptions;
+    }
+
     /**
      * Determine if this VariantQueryExecutor can run the given query.
      * @param query    Query to execute
@@ -80,6 +147,155 @@ public abstract class VariantQueryExecutor implements VariantIterable {
      */
     public abstract boolean canUseThisExecutor(Query query, QueryOptions options) throws StorageEngineException;
 
+    /**
+     * Estimate the cost of running the query with this executor. Only called if {@link #canUseThisExecutor} returned true.
+     *
+     * The cost is measured in variants read from a sequential scan of the variants storage. Reading from an index, or
+     * fetching variants by id, is weighted with {@link #INDEX_ROW_COST} and {@link #FETCH_ROW_COST}, so the estimations
+     * from different executors are comparable.
+     *
+     * This is called for every eligible executor on each query, so it must be cheap: use the metadata or cached values,
+     * instead of querying the storage.
+     *
+     * Executors that must be used whenever they can run the query, or that can not estimate the cost, return {@link #UNKNOWN_COST}.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         Estimated cost, or {@link #UNKNOWN_COST}
+     */
+    public double estimateCost(Query query, QueryOptions options) {
+        return UNKNOWN_COST;
+    }
+
+    /**
+     * Fraction of the genome covered by the {@link VariantQueryParam#REGION} and {@link VariantQueryParam#GENE} filters.
+     *
+     * Whole chromosomes are assumed to be as big as the chromosome 1. Genes not resolved into regions are assumed to be
+     * {@link #AVERAGE_GENE_LENGTH} long.
+     *
+     * @param query Query
+     * @return      Fraction of the genome, from 0 to 1. 1 if there is no region filter.
+     */
+    protected static double regionFraction(Query query) {
+        if (!isValidParam(query, REGION) && !isValidParam(query, GENE) && !isValidParam(query, ANNOT_GENE_REGIONS)) {
+            return 1;
+        }
+        double length = 0;
+        if (isValidParam(query, REGION)) {
+            length += regionsLength(query.getString(REGION.key()));
+        }
+        if (isValidParam(query, ANNOT_GENE_REGIONS)) {
+            length += regionsLength(query.getString(ANNOT_GENE_REGIONS.key()));
+        } else if (isValidParam(query, GENE)) {
+            length += ((double) AVERAGE_GENE_LENGTH) * query.getAsStringList(GENE.key()).size();
+        }
+        return Math.min(1, length / GENOME_LENGTH);
+    }
+
+    private static double regionsLength(String regions) {
+        double length = 0;
+        for (Region region : Region.parseRegions(regions)) {
+            if (region.getEnd() <= 0 || region.getEnd() == Integer.MAX_VALUE) {
+                length += AbstractTwoPhasedVariantQueryExecutor.CHR1_LENGTH;
+            } else {
+                length += Math.max(1, region.getEnd() - Math.max(1, region.getStart()) + 1);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Fraction of variants kept by the filters from the query that are not resolved by the given params.
+     * Each filter keeps {@link #DEFAULT_FILTER_SELECTIVITY} of the variants.
+     *
+     * @param query         Query
+     * @param resolved      Params already considered by the caller, e.g. regions or samples
+     * @return              Fraction of variants, from 0 to 1
+     */
+    protected static double filterSelectivity(Query query, VariantQueryParam... resolved) {
+        Set<VariantQueryParam> params = validParams(query, true);
+        params.remove(STUDY);
+        params.remove(REGION);
+        params.remove(GENE);
+        params.removeAll(Arrays.asList(resolved));
+        return Math.pow(DEFAULT_FILTER_SELECTIVITY, params.size());
+    }
+
+    /**
+     * Number of rows to be returned by the query, considering the limit and skip.
+     *
+     * @param numMatches    Number of variants matching the query
+     * @param options       Options for the query
+     * @return              Number of rows to return
+     */
+    protected static double returnedRows(double numMatches, QueryOptions options) {
+        int limit = options == null ? 0 : options.getInt(QueryOptions.LIMIT, 0);
+        if (limit > 0) {
+            return Math.min(numMatches, limit + Math.max(0, options.getInt(QueryOptions.SKIP, 0)));
+        } else {
+            return numMatches;
+        }
+    }
+
+    /**
+     * Estimate the number of variants of a study, from the sample variant stats stored in the metadata.
+     *
+     * This is an upper bound, the sum of the variants of each sample. Overestimating the size of a full scan favours the
+     * index based executors. The value is cached for some minutes.
+     *
+     * @param studyId   Study
+     * @return          Estimated number of variants, or -1 if any sample has no stats
+     */
+    protected long estimateStudyVariants(int studyId) {
+        long[] value = studyVariants.get(studyId);
+        if (value == null || System.currentTimeMillis() - value[1] > STUDY_VARIANTS_CACHE_TTL_MS) {
+            long numVariants = 0;
+            Iterator<SampleMetadata> iterator = getMetadataManager().sampleMetadataIterator(studyId);
+            while (iterator.hasNext()) {
+                SampleMetadata sampleMetadata = iterator.next();
+                if (!sampleMetadata.isIndexed()) {
+                    continue;
+                }
+                if (sampleMetadata.getStats() == null || sampleMetadata.getStats().getNumVariants() == null) {
+                    numVariants = -1;
+                    break;
+                }
+                numVariants += sampleMetadata.getStats().getNumVariants();
+            }
+            value = new long[]{numVariants, System.currentTimeMillis()};
+            studyVariants.put(studyId, value);
+        }
+        return value[0];
+    }
+
+    /**
+     * Estimate the number of variants scanned from the variants storage, as the variants of the queried studies
+     * within the query regions.
+     *
+     * @param query Query
+     * @return      Estimated number of variants, or -1 if unknown
+     */
+    protected double estimateScannedVariants(Query query) {
+        List<Integer> studyIds;
+        if (isValidParam(query, STUDY)) {
+            studyIds = getMetadataManager().getStudyIds(splitValue(query.getString(STUDY.key())).getValue());
+        } else {
+            studyIds = getMetadataManager().getStudyIds();
+        }
+        if (studyIds.isEmpty()) {
+            return -1;
+        }
+        double numVariants = 0;
+        for (Integer studyId : studyIds) {
+            long studyNumVariants = estimateStudyVariants(studyId);
+            if (studyNumVariants < 0) {
+                return -1;
+            }
+            numVariants += studyNumVariants;
+        }
+        return numVariants * regionFraction(query);
+    }
+
     public abstract DataResult<Long> count(Query query);
 
     public VariantQueryResult<Long> approximateCount(Query query, QueryOptions options) {
@@ -0,0 +1,143 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.results.VariantQueryResult;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selects the {@link VariantQueryExecutor} to run a query.
+ *
+ * By default, the first executor that can run the query is selected. If the cost based planner is enabled, the eligible
+ * executors are asked for an estimated cost (see {@link VariantQueryExecutor#estimateCost}), and the cheapest one is selected.
+ * Executors with an unknown cost are only selected by the preference order.
+ */
+public class VariantQueryPlanner {
+
+    private final List<VariantQueryExecutor> executors;
+    private final Logger logger = LoggerFactory.getLogger(VariantQueryPlanner.class);
+
+    public VariantQueryPlanner(List<VariantQueryExecutor> executors) {
+        this.executors = executors;
+    }
+
+    /**
+     * Build a plan for the given query.
+     *
+     * @param query     Query to execute
+     * @param options   Options for the query
+     * @param costBased Estimate the cost of all the eligible executors
+     * @return          VariantQueryPlan
+     * @throws StorageEngineException if there is an error
+     */
+    public VariantQueryPlan plan(Query query, QueryOptions options, boolean costBased) throws StorageEngineException {
+        List<VariantQueryPlan.Alternative> alternatives = new ArrayList<>(executors.size());
+        VariantQueryExecutor selected = null;
+        double selectedCost = VariantQueryExecutor.UNKNOWN_COST;
+        for (VariantQueryExecutor executor : executors) {
+            if (!executor.canUseThisExecutor(query, options)) {
+                alternatives.add(new VariantQueryPlan.Alternative(executor, false, VariantQueryExecutor.UNKNOWN_COST));
+                continue;
+            }
+            if (!costBased) {
+                alternatives.add(new VariantQueryPlan.Alternative(executor, true, VariantQueryExecutor.UNKNOWN_COST));
+                selected = executor;
+                break;
+            }
+            double cost = estimateCost(executor, query, options);
+            alternatives.add(new VariantQueryPlan.Alternative(executor, true, cost));
+            if (selected == null) {
+                selected = executor;
+                selectedCost = cost;
+                if (Double.isNaN(cost)) {
+                    // Unknown cost. Keep the preference order
+                    break;
+                }
+            } else if (!Double.isNaN(cost) && cost < selectedCost) {
+                selected = executor;
+                selectedCost = cost;
+            }
+        }
+        if (selected == null) {
+            // This should never happen, as the DBAdaptorVariantQueryExecutor can always run the query
+            throw new IllegalStateException("No VariantQueryExecutor found to run the query!");
+        }
+        return new VariantQueryPlan(selected, selectedCost, costBased, alternatives);
+    }
+
+    private double estimateCost(VariantQueryExecutor executor, Query query, QueryOptions options) {
+        try {
+            return executor.estimateCost(query, options);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to estimate cost for " + executor.getClass().getSimpleName(), e);
+            return VariantQueryExecutor.UNKNOWN_COST;
+        }
+    }
+
+    /**
+     * Selected executor for a query, with the evaluated alternatives.
+     */
+    public static class VariantQueryPlan {
+        private final VariantQueryExecutor executor;
+        private final double estimatedCost;
+        private final boolean costBased;
+        private final List<Alternative> alternatives;
+
+        VariantQueryPlan(VariantQueryExecutor executor, double estimatedCost, boolean costBased, List<Alternative> alternatives) {
+            this.executor = executor;
+            this.estimatedCost = estimatedCost;
+            this.costBased = costBased;
+            this.alternatives = alternatives;
+        }
+
+        public VariantQueryExecutor getExecutor() {
+            return executor;
+        }
+
+        public double getEstimatedCost() {
+            return estimatedCost;
+        }
+
+        public ObjectMap explain() {
+            List<ObjectMap> alternativesExplain = new ArrayList<>(alternatives.size());
+            for (Alternative alternative : alternatives) {
+                alternativesExplain.add(new ObjectMap("executor", alternative.executor.getClass().getSimpleName())
+                        .append("eligible", alternative.eligible)
+                        .append("estimatedCost", toCost(alternative.cost)));
+            }
+            return new ObjectMap("executor", executor.getClass().getSimpleName())
+                    .append("costBased", costBased)
+                    .append("estimatedCost", toCost(estimatedCost))
+                    .append("alternatives", alternativesExplain);
+        }
+
+        public ObjectMap explain(VariantQueryResult<?> result) {
+            return explain()
+                    .append("actualRows", result.getNumResults())
+                    .append("numMatches", result.getNumMatches())
+                    .append("time", result.getTime());
+        }
+
+        private static Double toCost(double cost) {
+            return Double.isNaN(cost) ? null : cost;
+        }
+
+        static class Alternative {
+            private final VariantQueryExecutor executor;
+            private final boolean eligible;
+            private final double cost;
+
+            Alternative(VariantQueryExecutor executor, boolean eligible, double cost) {
+                this.executor = executor;
+                this.eligible = eligible;
+                this.cost = cost;
+            }
+        }
+    }
+}
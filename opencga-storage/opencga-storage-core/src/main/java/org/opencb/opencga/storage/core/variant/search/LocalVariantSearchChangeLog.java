@@ -0,0 +1,143 @@
+package org.opencb.opencga.storage.core.variant.search;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * VariantSearchChangeLog stored in a local directory, with one file per study.
+ *
+ * Intended for tests and single node installations. Appending, freezing and committing take an exclusive lock on the directory,
+ * so a change is never appended to a file that is being frozen by another process.
+ */
+public class LocalVariantSearchChangeLog extends VariantSearchChangeLog {
+
+    private static final String PENDING_SUFFIX = ".changelog";
+    private static final String FROZEN_SUFFIX = ".frozen";
+    private static final String LOCK_FILE = ".lock";
+    // File locks are held by the whole JVM, and can not be taken twice
+    private static final Object JVM_LOCK = new Object();
+
+    private final Path directory;
+    private List<Path> frozenFiles = Collections.emptyList();
+
+    public LocalVariantSearchChangeLog(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public void append(int studyId, Collection<String> variants) throws IOException {
+        if (variants.isEmpty()) {
+            return;
+        }
+        synchronized (JVM_LOCK) {
+            try (FileChannel ignored = lock()) {
+                Files.write(directory.resolve(studyId + PENDING_SUFFIX), variants, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<String> freeze() throws IOException {
+        synchronized (JVM_LOCK) {
+            try (FileChannel ignored = lock()) {
+                long timestamp = System.currentTimeMillis();
+                for (Path pending : list(PENDING_SUFFIX)) {
+                    Files.move(pending, pending.resolveSibling(pending.getFileName() + "." + timestamp + FROZEN_SUFFIX),
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+                frozenFiles = list(FROZEN_SUFFIX);
+            }
+        }
+        return new LinesIterator(frozenFiles.iterator());
+    }
+
+    @Override
+    public void commit() throws IOException {
+        synchronized (JVM_LOCK) {
+            try (FileChannel ignored = lock()) {
+                // Only the files read by this instance. Other processes might have frozen new files since then
+                for (Path frozen : frozenFiles) {
+                    Files.deleteIfExists(frozen);
+                }
+                frozenFiles = Collections.emptyList();
+            }
+        }
+    }
+
+    /**
+     * Take an exclusive lock on the directory, released when the returned channel is closed.
+     *
+     * @return FileChannel holding the lock
+     * @throws IOException if there is any problem taking the lock
+     */
+    private FileChannel lock() throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            channel.lock();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)) {
+            stream.forEach(paths::add);
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    private static class LinesIterator implements Iterator<String> {
+        private final Iterator<Path> files;
+        private BufferedReader reader;
+        private String next;
+
+        LinesIterator(Iterator<Path> files) {
+            this.files = files;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    if (reader == null) {
+                        if (!files.hasNext()) {
+                            return false;
+                        }
+                        reader = Files.newBufferedReader(files.next(), StandardCharsets.UTF_8);
+                    }
+                    next = reader.readLine();
+                    if (next == null) {
+                        reader.close();
+                        reader = null;
+                    } else if (next.isEmpty()) {
+                        next = null;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String variant = next;
+            next = null;
+            return variant;
+        }
+    }
+}
@@ -19,10 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -42,6 +39,16 @@ import static org.opencb.opencga.storage.core.variant.search.solr.VariantSearchM
  */
 public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQueryExecutor {
 
+    private static final int CARDINALITY_CACHE_SIZE = 1000;
+    private static final long CARDINALITY_CACHE_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    // Number of variants matching recent search engine queries, with the time they were counted. Used to estimate the cost
+    private final Map<String, long[]> cardinalities = Collections.synchronizedMap(new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > CARDINALITY_CACHE_SIZE;
+        }
+    });
     private Logger logger = LoggerFactory.getLogger(SearchIndexVariantQueryExecutor.class);
 
     public SearchIndexVariantQueryExecutor(VariantDBAdaptor dbAdaptor, VariantSearchManager searchManager,
@@ -55,11 +62,49 @@ public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQ
         return doQuerySearchManager(query, options) || doIntersectWithSearch(query, options);
     }
 
+    @Override
+    public double estimateCost(Query query, QueryOptions options) {
+        if (VariantStorageEngine.UseSearchIndex.from(options).equals(VariantStorageEngine.UseSearchIndex.YES)
+                || VariantQueryUtils.isValidParam(query, VariantQueryParam.ANNOT_TRAIT)) {
+            // Search index explicitly requested, or required to resolve the query
+            return UNKNOWN_COST;
+        }
+        // Do not query the search engine to plan the query. Use the number of variants from previous executions, if any.
+        long[] cardinality = cardinalities.get(cardinalityKey(query));
+        if (cardinality == null || System.currentTimeMillis() - cardinality[1] > CARDINALITY_CACHE_TTL_MS) {
+            return UNKNOWN_COST;
+        }
+        long numFound = cardinality[0];
+        // Read all the matching entries from the search engine
+        double cost = numFound * INDEX_ROW_COST;
+        if (doQuerySearchManager(query, options)) {
+            // Return the variants from the search engine
+            cost += returnedRows(numFound, options) * SCAN_ROW_COST;
+        } else {
+            // Fetch the variants from the storage to complete the filter. Each fetched variant is kept with the
+            // selectivity of the filters not resolved by the search engine.
+            double selectivity = filterSelectivity(getEngineQuery(query, options, getMetadataManager()));
+            cost += Math.min(numFound, returnedRows(numFound * selectivity, options) / selectivity) * FETCH_ROW_COST;
+        }
+        return cost;
+    }
+
+    private static String cardinalityKey(Query query) {
+        return getSearchEngineQuery(query).toJson();
+    }
+
+    private void addCardinality(Query query, long count) {
+        if (count >= 0) {
+            cardinalities.put(cardinalityKey(query), new long[]{count, System.currentTimeMillis()});
+        }
+    }
+
     @Override
     public DataResult<Long> count(Query query) {
         try {
             StopWatch watch = StopWatch.createStarted();
             long count = searchManager.count(dbName, query);
+            addCardinality(query, count);
             int time = (int) watch.getTime(TimeUnit.MILLISECONDS);
             return new DataResult<>(time, Collections.emptyList(), 1, Collections.singletonList(count), 1);
         } catch (IOException | VariantSearchException e) {
@@ -76,9 +121,16 @@ public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQ
         if (doQuerySearchManager(query, options)) {
             try {
                 if (iterator) {
+                    if (!options.containsKey(SEARCH_ITERATOR_PREFETCH.key())) {
+                        options = new QueryOptions(options);
+                        options.put(SEARCH_ITERATOR_PREFETCH.key(),
+                                getOptions().getInt(SEARCH_ITERATOR_PREFETCH.key(), SEARCH_ITERATOR_PREFETCH.defaultValue()));
+                    }
                     return searchManager.iterator(dbName, query, options);
                 } else {
-                    return searchManager.query(dbName, query, options);
+                    VariantQueryResult<Variant> result = searchManager.query(dbName, query, options);
+                    addCardinality(query, result.getNumMatches());
+                    return result;
                 }
             } catch (IOException | VariantSearchException e) {
                 throw new VariantQueryException("Error querying Solr", e);
@@ -137,7 +189,7 @@ public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQ
 
             logger.debug("Intersect query " + engineQuery.toJson() + " options " + options.toJson());
             if (iterator) {
-                return dbAdaptor.iterator(variantsIterator, engineQuery, options);
+                return dbAdaptor.iterator(variantsIterator, engineQuery, addDefaultMultiIteratorPrefetch(options));
             } else {
                 setDefaultTimeout(options);
                 VariantQueryResult<Variant> queryResult = dbAdaptor.get(variantsIterator, engineQuery, options);
@@ -161,6 +213,7 @@ public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQ
             if (doQuerySearchManager(query, new QueryOptions(QueryOptions.COUNT, true))) {
                 approxCount = false;
                 count = searchManager.count(dbName, query);
+                addCardinality(query, count);
             } else {
                 sampling = options.getInt(APPROXIMATE_COUNT_SAMPLING_SIZE.key(),
                         getOptions().getInt(APPROXIMATE_COUNT_SAMPLING_SIZE.key(), APPROXIMATE_COUNT_SAMPLING_SIZE.defaultValue()));
@@ -179,6 +232,7 @@ public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQ
                     sampling = variantIds.size();
                 }
                 long numSearchResults = nativeResult.getNumTotalResults();
+                addCardinality(searchEngineQuery, numSearchResults);
 
                 long numResults;
                 if (variantIds.isEmpty()) {
@@ -279,6 +333,7 @@ public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQ
                 if (numTotalResults != null) {
                     numTotalResults.set(nativeResult.getNumMatches());
                 }
+                addCardinality(query, nativeResult.getNumMatches());
                 variantsIterator = nativeResult.getResults()
                         .stream()
                         .map(VariantSearchModel::getId)
@@ -288,6 +343,7 @@ public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQ
                 if (numTotalResults != null) {
                     numTotalResults.set(nativeIterator.getNumFound());
                 }
+                addCardinality(query, nativeIterator.getNumFound());
                 variantsIterator = Iterators.transform(nativeIterator, VariantSearchModel::getId);
             }
         } catch (VariantSearchException | IOException e) {
@@ -0,0 +1,85 @@
+package org.opencb.opencga.storage.core.variant.search;
+
+import org.opencb.biodata.models.variant.Variant;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Append-only log of the variants modified since the last synchronization with the VariantSearchEngine.
+ *
+ * Changes are recorded per study when loading files, annotations or statistics. File loads record the variants once
+ * each batch is written in the variants collection. The secondary index synchronization freezes the pending changes,
+ * re-indexes only those variants, and commits the log. Changes appended after freezing the log are kept for the next
+ * synchronization.
+ *
+ * Each storage engine stores the log in its own database. The local file implementation is the default, intended for tests.
+ * Variant scores are not recorded.
+ */
+public abstract class VariantSearchChangeLog implements AutoCloseable {
+
+    /**
+     * Partition for changes that affect all the studies, like the variant annotation.
+     */
+    public static final int ALL_STUDIES = 0;
+
+    public static final Comparator<Variant> VARIANT_COMPARATOR = Comparator.comparing(Variant::getChromosome)
+            .thenComparing(Variant::getStart)
+            .thenComparing(Variant::getEnd)
+            .thenComparing(Variant::getReference)
+            .thenComparing(Variant::getAlternate)
+            .thenComparing(Variant::toString);
+
+    /**
+     * Record a list of modified variants.
+     *
+     * @param studyId  Study of the modified variants, or {@link #ALL_STUDIES}
+     * @param variants Modified variants. See {@link Variant#toString()}
+     * @throws IOException if there is any problem writing the log
+     */
+    public abstract void append(int studyId, Collection<String> variants) throws IOException;
+
+    public void appendVariants(int studyId, Collection<Variant> variants) throws IOException {
+        List<String> ids = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            ids.add(variant.toString());
+        }
+        append(studyId, ids);
+    }
+
+    /**
+     * Freeze the pending changes of all the studies, including changes frozen by a previous synchronization that was not committed.
+     *
+     * @return Iterator over the frozen variants. Might contain duplicated values, and it is not sorted.
+     * @throws IOException if there is any problem reading the log
+     */
+    public abstract Iterator<String> freeze() throws IOException;
+
+    /**
+     * Discard the frozen changes, once they are synchronized.
+     *
+     * @throws IOException if there is any problem writing the log
+     */
+    public abstract void commit() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    public static VariantSearchChangeLog empty() {
+        return new VariantSearchChangeLog() {
+            @Override
+            public void append(int studyId, Collection<String> variants) {
+            }
+
+            @Override
+            public Iterator<String> freeze() {
+                return Collections.emptyIterator();
+            }
+
+            @Override
+            public void commit() {
+            }
+        };
+    }
+}
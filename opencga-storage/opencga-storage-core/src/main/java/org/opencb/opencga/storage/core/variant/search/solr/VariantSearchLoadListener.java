@@ -28,6 +28,12 @@ public abstract class VariantSearchLoadListener {
         this.studiesMap = studiesMap;
     }
 
+    /**
+     * Remove from the batch the variants already synchronized. Might be called concurrently from multiple tasks.
+     *
+     * @param variants Batch of variants to load. Modified in place.
+     * @throws IOException if there is an error processing the already synchronized variants
+     */
     public void preLoad(List<Variant> variants) throws IOException {
         List<Variant> alreadySynchronizedVariants = new ArrayList<>();
         Iterator<Variant> iterator = variants.iterator();
@@ -65,12 +71,21 @@ public abstract class VariantSearchLoadListener {
             }
         }
         if (!alreadySynchronizedVariants.isEmpty()) {
-            processAlreadySynchronizedVariants(alreadySynchronizedVariants);
+            // Implementations are not required to be thread safe
+            synchronized (this) {
+                processAlreadySynchronizedVariants(alreadySynchronizedVariants);
+            }
         }
     }
 
     protected abstract void processAlreadySynchronizedVariants(List<Variant> alreadySynchronizedVariants);
 
+    /**
+     * Mark the loaded variants as synchronized. Called from one thread at a time, once the variants are committed.
+     *
+     * @param variantList Loaded variants
+     * @throws IOException if there is an error marking the variants
+     */
     public abstract void postLoad(List<Variant> variantList) throws IOException;
 
     public static VariantSearchLoadListener empty() {
@@ -38,6 +38,7 @@ import org.opencb.commons.datastore.solr.FacetQueryParser;
 import org.opencb.commons.datastore.solr.SolrCollection;
 import org.opencb.commons.datastore.solr.SolrManager;
 import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
 import org.opencb.commons.utils.CollectionUtils;
 import org.opencb.commons.utils.ListUtils;
 import org.opencb.opencga.core.common.TimeUtils;
@@ -47,6 +48,7 @@ import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.exceptions.VariantSearchException;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metrics.StorageMetrics;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
@@ -63,6 +65,8 @@ import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.*;
+
 
 /**
  * Created by imedina on 09/11/16.
@@ -278,6 +282,111 @@ public class VariantSearchManager {
         return new VariantSearchLoadResult(count.get(), numLoadedVariants.get(), 0);
     }
 
+    /**
+     * Load a Solr core/collection from a variant DB iterator.
+     *
+     * If the option {@code search.load.bulk} is enabled, the variants are converted and sent to Solr from
+     * multiple concurrent tasks using commitWithin, instead of committing every batch. A single hard commit is executed
+     * at the end of the load, plus one every {@code search.load.commitInterval} milliseconds if configured.
+     * The load listener is notified of the loaded variants only after they are committed, so variants are never marked
+     * as synchronized before they are durable in Solr. Meanwhile, the uncommitted variants are spilled to a temporary file.
+     *
+     * @param collection        Collection name
+     * @param variantDBIterator Iterator to retrieve the variants to load
+     * @param progressLogger    Progress logger
+     * @param loadListener      Load listener
+     * @param options           Load options
+     * @return VariantSearchLoadResult
+     * @throws VariantSearchException VariantSearchException
+     */
+    public VariantSearchLoadResult load(String collection, VariantDBIterator variantDBIterator, ProgressLogger progressLogger,
+                                        VariantSearchLoadListener loadListener, ObjectMap options) throws VariantSearchException {
+        if (options == null || !options.getBoolean(SEARCH_LOAD_BULK.key(), SEARCH_LOAD_BULK.defaultValue())) {
+            return load(collection, variantDBIterator, progressLogger, loadListener);
+        }
+        if (variantDBIterator == null) {
+            throw new VariantSearchException("Missing variant DB iterator when loading Solr variant collection");
+        }
+
+        int numTasks = options.getInt(SEARCH_LOAD_THREADS.key(), SEARCH_LOAD_THREADS.defaultValue());
+        int commitWithin = options.getInt(SEARCH_LOAD_COMMIT_WITHIN.key(), SEARCH_LOAD_COMMIT_WITHIN.defaultValue());
+        long commitInterval = options.getLong(SEARCH_LOAD_COMMIT_INTERVAL.key(), SEARCH_LOAD_COMMIT_INTERVAL.defaultValue());
+
+        AtomicInteger count = new AtomicInteger();
+        AtomicInteger numLoadedVariants = new AtomicInteger();
+        SolrClient solrClient = solrManager.getSolrClient();
+        // Variants sent to Solr, not committed yet. Only used from the writer thread, and after the runner finishes
+        VariantSearchPendingCommit pendingCommit = new VariantSearchPendingCommit(insertBatchSize);
+        StopWatch commitStopWatch = StopWatch.createStarted();
+
+        ParallelTaskRunner<Variant, Variant> ptr = new ParallelTaskRunner<>((n) -> {
+            List<Variant> batch = new ArrayList<>(n);
+            while (batch.size() < n && variantDBIterator.hasNext()) {
+                batch.add(variantDBIterator.next());
+            }
+            count.addAndGet(batch.size());
+            return batch;
+        }, () -> {
+            // VariantSearchToVariantConverter is not thread safe. Use one converter per task.
+            VariantSearchToVariantConverter converter = new VariantSearchToVariantConverter();
+            Task<Variant, Variant> task = batch -> {
+                loadListener.preLoad(batch);
+                if (!batch.isEmpty()) {
+                    List<VariantSearchModel> variantSearchModels = converter.convertListToStorageType(batch);
+                    // SolrClient is thread safe. In SolrCloud mode, documents are routed to the leader of each shard.
+                    solrClient.addBeans(collection, variantSearchModels, commitWithin);
+                }
+                return batch;
+            };
+            return StorageMetrics.global().timed("search.load", task);
+        }, batch -> {
+            if (!batch.isEmpty()) {
+                progressLogger.increment(batch.size(), () -> "up to position " + batch.get(batch.size() - 1).toString());
+                numLoadedVariants.addAndGet(batch.size());
+                try {
+                    pendingCommit.add(batch);
+                    // Optional periodic hard commit. Disabled by default
+                    if (commitInterval > 0 && commitStopWatch.getTime() >= commitInterval) {
+                        commit(collection, pendingCommit, loadListener);
+                        commitStopWatch.reset();
+                        commitStopWatch.start();
+                    }
+                } catch (SolrServerException | IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return true;
+        }, ParallelTaskRunner.Config.builder()
+                .setBatchSize(insertBatchSize)
+                .setCapacity(numTasks * 2)
+                .setNumTasks(numTasks)
+                .build());
+
+        StopWatch stopWatch = StopWatch.createStarted();
+        try (VariantSearchPendingCommit pending = pendingCommit) {
+            ptr.run();
+            // Single hard commit at the end of the load
+            commit(collection, pending, loadListener);
+        } catch (ExecutionException | SolrServerException | IOException e) {
+            throw new VariantSearchException("Error loading secondary index", e);
+        }
+
+        loadListener.close();
+
+        logger.info("Variant Search bulk loading done. " + numLoadedVariants + " variants indexed in "
+                + TimeUtils.durationToString(stopWatch) + " using " + numTasks + " concurrent tasks");
+        return new VariantSearchLoadResult(count.get(), numLoadedVariants.get(), 0);
+    }
+
+    private void commit(String collection, VariantSearchPendingCommit pendingCommit, VariantSearchLoadListener loadListener)
+            throws SolrServerException, IOException {
+        StopWatch stopWatch = StopWatch.createStarted();
+        solrManager.getSolrClient().commit(collection);
+        logger.info("Hard commit of {} variants in {}", pendingCommit.size(), TimeUtils.durationToString(stopWatch));
+        // Mark the variants as synchronized only once they are committed
+        pendingCommit.flush(loadListener);
+    }
+
 
     /**
      * Delete variants a Solr core/collection from a variant DB iterator.
@@ -382,7 +491,8 @@ public class VariantSearchManager {
         try {
             SolrQuery solrQuery = solrQueryParser.parse(query, queryOptions);
             return new VariantSolrIterator(solrManager.getSolrClient(), collection, solrQuery,
-                    new VariantSearchToVariantConverter(VariantField.getIncludeFields(queryOptions)));
+                    new VariantSearchToVariantConverter(VariantField.getIncludeFields(queryOptions)),
+                    queryOptions.getInt(SEARCH_ITERATOR_PREFETCH.key(), SEARCH_ITERATOR_PREFETCH.defaultValue()));
         } catch (SolrServerException e) {
             throw new VariantSearchException("Error getting variant iterator", e);
         }
@@ -0,0 +1,152 @@
+package org.opencb.opencga.storage.core.variant.search.solr;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.AdditionalAttribute;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.AdditionalAttributes.GROUP_NAME;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.AdditionalAttributes.INDEX_STUDIES;
+
+/**
+ * Variants sent to Solr and not committed yet, waiting to be notified to the {@link VariantSearchLoadListener}.
+ *
+ * Only the fields required to mark the variants as synchronized are kept: the variant id, the studies, and the
+ * {@link org.opencb.opencga.storage.core.variant.adaptors.VariantField.AdditionalAttributes#INDEX_STUDIES} attribute.
+ * Up to one batch is kept in memory. Larger loads are spilled to a temporary file. Not thread safe.
+ */
+class VariantSearchPendingCommit implements Closeable {
+
+    private final int batchSize;
+    private final List<String> buffer;
+    private Path spillFile;
+    private Writer spillWriter;
+    private long size;
+
+    VariantSearchPendingCommit(int batchSize) {
+        this.batchSize = batchSize;
+        this.buffer = new ArrayList<>(batchSize);
+    }
+
+    public void add(List<Variant> variants) throws IOException {
+        for (Variant variant : variants) {
+            buffer.add(toLine(variant));
+        }
+        size += variants.size();
+        if (buffer.size() >= batchSize) {
+            spill();
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Notify all the pending variants to the load listener, in batches. Must be called only after a hard commit.
+     *
+     * @param loadListener Load listener
+     * @throws IOException if there is an error reading the spill file, or marking the variants
+     */
+    public void flush(VariantSearchLoadListener loadListener) throws IOException {
+        if (spillWriter != null) {
+            spill();
+            spillWriter.close();
+            spillWriter = null;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(spillFile)), StandardCharsets.UTF_8))) {
+                List<Variant> batch = new ArrayList<>(batchSize);
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    batch.add(fromLine(line));
+                    if (batch.size() == batchSize) {
+                        loadListener.postLoad(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    loadListener.postLoad(batch);
+                }
+            }
+            Files.delete(spillFile);
+            spillFile = null;
+        } else if (!buffer.isEmpty()) {
+            List<Variant> batch = new ArrayList<>(buffer.size());
+            for (String line : buffer) {
+                batch.add(fromLine(line));
+            }
+            buffer.clear();
+            loadListener.postLoad(batch);
+        }
+        size = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.clear();
+        if (spillWriter != null) {
+            spillWriter.close();
+            spillWriter = null;
+        }
+        if (spillFile != null) {
+            Files.deleteIfExists(spillFile);
+            spillFile = null;
+        }
+    }
+
+    private void spill() throws IOException {
+        if (spillWriter == null) {
+            spillFile = Files.createTempFile("search_load_pending_commit", ".tsv.gz");
+            spillWriter = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(spillFile)), StandardCharsets.UTF_8));
+        }
+        for (String line : buffer) {
+            spillWriter.write(line);
+            spillWriter.write('\n');
+        }
+        buffer.clear();
+    }
+
+    private static String toLine(Variant variant) {
+        String studies = variant.getStudies()
+                .stream()
+                .map(StudyEntry::getStudyId)
+                .collect(Collectors.joining(","));
+        String indexStudies = null;
+        if (variant.getAnnotation() != null
+                && variant.getAnnotation().getAdditionalAttributes() != null
+                && variant.getAnnotation().getAdditionalAttributes().get(GROUP_NAME.key()) != null) {
+            AdditionalAttribute additionalAttribute = variant.getAnnotation().getAdditionalAttributes().get(GROUP_NAME.key());
+            indexStudies = additionalAttribute.getAttribute().get(INDEX_STUDIES.key());
+        }
+        return variant.toString() + '\t' + studies + '\t' + StringUtils.defaultString(indexStudies);
+    }
+
+    private static Variant fromLine(String line) {
+        String[] fields = line.split("\t", -1);
+        Variant variant = new Variant(fields[0]);
+        List<StudyEntry> studies = new ArrayList<>();
+        for (String study : StringUtils.split(fields[1], ',')) {
+            studies.add(new StudyEntry(study));
+        }
+        variant.setStudies(studies);
+        if (!fields[2].isEmpty()) {
+            VariantAnnotation annotation = new VariantAnnotation();
+            annotation.setAdditionalAttributes(Collections.singletonMap(GROUP_NAME.key(),
+                    new AdditionalAttribute(Collections.singletonMap(INDEX_STUDIES.key(), fields[2]))));
+            variant.setAnnotation(annotation);
+        }
+        return variant;
+    }
+}
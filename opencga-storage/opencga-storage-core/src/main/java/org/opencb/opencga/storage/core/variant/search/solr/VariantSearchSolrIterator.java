@@ -43,7 +43,7 @@ public class VariantSearchSolrIterator implements Iterator<VariantSearchModel>,
 
     private int remaining;
 
-    private static final int BATCH_SIZE = 100;
+    static final int BATCH_SIZE = 100;
 
     @Deprecated
     public VariantSearchSolrIterator(Iterator<VariantSearchModel> solrIterator) {
@@ -20,10 +20,22 @@ import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchModel;
 import org.opencb.opencga.storage.core.variant.search.VariantSearchToVariantConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Created by jtarraga on 01/03/17.
@@ -34,26 +46,191 @@ public class VariantSolrIterator extends VariantDBIterator {
     private VariantSearchToVariantConverter variantSearchToVariantConverter;
     private int count = 0;
 
+    // Prefetch mode
+    private final int prefetchPages;
+    private ExecutorService threadPool;
+    private BlockingQueue<List<Variant>> convertedQueue;
+    private Iterator<Variant> batchIterator = Collections.emptyIterator();
+    private boolean finished = false;
+    private final AtomicReference<Throwable> exception = new AtomicReference<>();
+    private final AtomicLong backgroundTimeFetching = new AtomicLong();
+    private final AtomicLong backgroundTimeConverting = new AtomicLong();
+    private final Logger logger = LoggerFactory.getLogger(VariantSolrIterator.class);
+
     public VariantSolrIterator(SolrClient solrClient, String collection, SolrQuery solrQuery, VariantSearchToVariantConverter converter)
             throws IOException, SolrServerException {
+        this(solrClient, collection, solrQuery, converter, 0);
+    }
+
+    /**
+     * Create a Solr variant iterator.
+     *
+     * If prefetchPages is greater than 0, the next Solr pages are fetched and converted asynchronously while the current
+     * page is consumed. At most prefetchPages pages are buffered on each stage, so the memory is bounded. Variants are
+     * returned in the same order as without prefetch. Any error in the background threads is thrown to the consumer.
+     *
+     * @param solrClient    Solr client
+     * @param collection    Solr collection
+     * @param solrQuery     Solr query
+     * @param converter     Converter from VariantSearchModel to Variant
+     * @param prefetchPages Number of pages to prefetch in background. 0 to fetch pages on demand.
+     * @throws IOException          IOException
+     * @throws SolrServerException  SolrServerException
+     */
+    public VariantSolrIterator(SolrClient solrClient, String collection, SolrQuery solrQuery, VariantSearchToVariantConverter converter,
+                               int prefetchPages)
+            throws IOException, SolrServerException {
         variantSearchSolrIterator = new VariantSearchSolrIterator(solrClient, collection, solrQuery);
         this.variantSearchToVariantConverter = converter;
+        this.prefetchPages = prefetchPages;
+        if (prefetchPages > 0) {
+            startPrefetch();
+        }
+    }
+
+    private void startPrefetch() {
+        // Fetch the first page before starting the background threads, so getNumFound is available
+        fetch(variantSearchSolrIterator::getNumFound);
+
+        BlockingQueue<List<VariantSearchModel>> fetchedQueue = new ArrayBlockingQueue<>(prefetchPages);
+        convertedQueue = new ArrayBlockingQueue<>(prefetchPages);
+        threadPool = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "solr-iterator-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Empty lists are used to mark the end of the stream
+        threadPool.submit(() -> {
+            try {
+                while (true) {
+                    long start = System.nanoTime();
+                    List<VariantSearchModel> page = new ArrayList<>(VariantSearchSolrIterator.BATCH_SIZE);
+                    while (page.size() < VariantSearchSolrIterator.BATCH_SIZE && variantSearchSolrIterator.hasNext()) {
+                        page.add(variantSearchSolrIterator.next());
+                    }
+                    backgroundTimeFetching.addAndGet(System.nanoTime() - start);
+                    fetchedQueue.put(page);
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                onError(e, fetchedQueue);
+            }
+        });
+
+        threadPool.submit(() -> {
+            try {
+                while (true) {
+                    List<VariantSearchModel> page = fetchedQueue.take();
+                    long start = System.nanoTime();
+                    List<Variant> variants = new ArrayList<>(page.size());
+                    for (VariantSearchModel variantSearchModel : page) {
+                        variants.add(variantSearchToVariantConverter.convertToDataModelType(variantSearchModel));
+                    }
+                    backgroundTimeConverting.addAndGet(System.nanoTime() - start);
+                    convertedQueue.put(variants);
+                    if (variants.isEmpty()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                onError(e, convertedQueue);
+            }
+        });
+    }
+
+    private <T> void onError(Throwable e, BlockingQueue<List<T>> queue) {
+        logger.error("Error prefetching variants from Solr", e);
+        exception.compareAndSet(null, e);
+        // Unblock the consumer
+        if (!queue.offer(Collections.emptyList())) {
+            queue.clear();
+            queue.offer(Collections.emptyList());
+        }
     }
 
     @Override
     public boolean hasNext() {
-        return variantSearchSolrIterator.hasNext();
+        if (prefetchPages <= 0) {
+            return fetch(variantSearchSolrIterator::hasNext);
+        }
+        while (!batchIterator.hasNext()) {
+            if (finished) {
+                return false;
+            }
+            List<Variant> batch;
+            try {
+                batch = fetch(convertedQueue::take);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw VariantQueryException.internalException(e);
+            }
+            if (batch.isEmpty()) {
+                finished = true;
+                Throwable e = exception.get();
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                } else if (e instanceof Error) {
+                    throw (Error) e;
+                } else if (e != null) {
+                    throw new VariantQueryException("Error prefetching variants from Solr", e);
+                }
+                return false;
+            }
+            batchIterator = batch.iterator();
+        }
+        return true;
     }
 
     @Override
     public Variant next() {
+        if (prefetchPages <= 0) {
+            count++;
+            return convert(() -> variantSearchToVariantConverter.convertToDataModelType(variantSearchSolrIterator.next()));
+        }
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
         count++;
-        return variantSearchToVariantConverter.convertToDataModelType(variantSearchSolrIterator.next());
+        return batchIterator.next();
     }
 
     @Override
     public void close() throws Exception {
-        // nothing to do
+        super.close();
+        if (threadPool != null) {
+            logger.debug("Close Solr variant iterator. Fetch = {}ms, Convert = {}ms, Wait = {}ms",
+                    backgroundTimeFetching.get() / 1000000.0,
+                    backgroundTimeConverting.get() / 1000000.0,
+                    super.getTimeFetching() / 1000000.0);
+            threadPool.shutdownNow();
+        }
+    }
+
+    /**
+     * In prefetch mode, this includes the time spent by the background threads fetching from Solr.
+     *
+     * @return Time fetching in nanoseconds
+     */
+    @Override
+    public long getTimeFetching() {
+        return super.getTimeFetching() + backgroundTimeFetching.get();
+    }
+
+    /**
+     * In prefetch mode, this includes the time spent by the background threads converting the results.
+     *
+     * @return Time converting in nanoseconds
+     */
+    @Override
+    public long getTimeConverting() {
+        return super.getTimeConverting() + backgroundTimeConverting.get();
     }
 
     @Override
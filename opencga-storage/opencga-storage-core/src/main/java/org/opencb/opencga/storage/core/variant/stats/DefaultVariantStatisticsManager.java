@@ -30,6 +30,7 @@ import org.opencb.biodata.models.variant.stats.VariantSourceStats;
 import org.opencb.biodata.models.variant.stats.VariantStats;
 import org.opencb.biodata.tools.variant.stats.AggregationUtils;
 import org.opencb.biodata.tools.variant.stats.VariantAggregatedStatsCalculator;
+import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -199,25 +200,51 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         }
 
         VariantStorageMetadataManager metadataManager = dbAdaptor.getMetadataManager();
+        Map<String, List<Integer>> incrementalSamples = getIncrementalSamples(metadataManager, studyMetadata, cohorts, options);
         preCalculateStats(metadataManager, studyMetadata, cohorts, overwrite, updateStats, options);
-        overwrite = checkOverwrite(metadataManager, studyMetadata, cohorts, overwrite);
+        if (incrementalSamples == null) {
+            overwrite = checkOverwrite(metadataManager, studyMetadata, cohorts, overwrite);
+        }
 
         VariantSourceStats variantSourceStats = new VariantSourceStats(null/*FILE_ID*/, Integer.toString(studyMetadata.getId()));
 
 
         // reader, tasks and writer
-        Query readerQuery = VariantStatisticsManager.buildInputQuery(variantDBAdaptor.getMetadataManager(),
-                studyMetadata, cohorts.keySet(), overwrite, updateStats, options);
-        logger.info("ReaderQuery: " + readerQuery.toJson());
         QueryOptions readerOptions = new QueryOptions(QueryOptions.SORT, true)
                 .append(QueryOptions.EXCLUDE, VariantField.ANNOTATION);
         logger.info("ReaderQueryOptions: " + readerOptions.toJson());
-        VariantDBReader reader = new VariantDBReader(variantDBAdaptor, readerQuery, readerOptions);
+        Query readerQuery;
+        DataReader<Variant> reader;
+        Map<String, Set<String>> newSamples;
+        if (incrementalSamples == null) {
+            readerQuery = VariantStatisticsManager.buildInputQuery(variantDBAdaptor.getMetadataManager(),
+                    studyMetadata, cohorts.keySet(), overwrite, updateStats, options);
+            logger.info("ReaderQuery: " + readerQuery.toJson());
+            reader = new VariantDBReader(variantDBAdaptor, readerQuery, readerOptions);
+            newSamples = null;
+        } else {
+            // Variants with stats are read only with the new samples. Their stats are merged with the stored stats.
+            List<Query> queries = VariantStatisticsManager.buildIncrementalInputQueries(variantDBAdaptor.getMetadataManager(),
+                    studyMetadata, incrementalSamples, options);
+            readerQuery = VariantStatisticsManager.buildInputQuery(variantDBAdaptor.getMetadataManager(),
+                    studyMetadata, cohorts.keySet(), false, false, options);
+            reader = new MultiQueryVariantDBReader(variantDBAdaptor, queries, readerOptions);
+            newSamples = new HashMap<>(incrementalSamples.size());
+            for (Map.Entry<String, List<Integer>> entry : incrementalSamples.entrySet()) {
+                Set<String> sampleNames = new HashSet<>(entry.getValue().size());
+                for (Integer sample : entry.getValue()) {
+                    sampleNames.add(metadataManager.getSampleName(studyMetadata.getId(), sample));
+                }
+                newSamples.put(entry.getKey(), sampleNames);
+            }
+        }
+        boolean multiAllelic = options.getBoolean(VariantStorageOptions.STATS_MULTI_ALLELIC.key(),
+                VariantStorageOptions.STATS_MULTI_ALLELIC.defaultValue());
         List<Task<Variant, String>> tasks = new ArrayList<>(numTasks);
         ProgressLogger progressLogger = buildCreateStatsProgressLogger(dbAdaptor, readerQuery, readerOptions);
         for (int i = 0; i < numTasks; i++) {
             tasks.add(new VariantStatsWrapperTask(overwrite, cohorts, studyMetadata, variantSourceStats, tagmap, progressLogger,
-                    aggregation));
+                    aggregation, newSamples, multiAllelic));
         }
         StringDataWriter writer = buildVariantStatsStringDataWriter(output);
 
@@ -275,11 +302,17 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         private VariantSourceStats variantSourceStats;
         private Properties tagmap;
         private VariantStatisticsCalculator variantStatisticsCalculator;
+        // New samples of each cohort, if updating the stats incrementally
+        private final Map<String, Set<String>> newSamples;
+        private final boolean multiAllelic;
 
         VariantStatsWrapperTask(boolean overwrite, Map<String, Set<String>> cohorts,
                                 StudyMetadata studyMetadata, VariantSourceStats variantSourceStats, Properties tagmap,
-                                ProgressLogger progressLogger, Aggregation aggregation) {
+                                ProgressLogger progressLogger, Aggregation aggregation,
+                                Map<String, Set<String>> newSamples, boolean multiAllelic) {
             this.overwrite = overwrite;
+            this.newSamples = newSamples;
+            this.multiAllelic = multiAllelic;
             this.cohorts = cohorts;
             this.studyMetadata = studyMetadata;
             this.progressLogger = progressLogger;
@@ -299,8 +332,14 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
             List<String> strings = new ArrayList<>(variants.size());
             boolean defaultCohortAbsent = false;
 
-            List<VariantStatsWrapper> variantStatsWrappers = variantStatisticsCalculator.calculateBatch(variants,
-                    studyMetadata.getName(), cohorts);
+            List<VariantStatsWrapper> variantStatsWrappers;
+            if (newSamples == null) {
+                variantStatsWrappers = variantStatisticsCalculator.calculateBatch(variants, studyMetadata.getName(), cohorts);
+            } else {
+                variantStatsWrappers = calculateIncremental(variants);
+                // Source stats require all the samples
+                defaultCohortAbsent = true;
+            }
 
             long start = System.currentTimeMillis();
             for (VariantStatsWrapper variantStatsWrapper : variantStatsWrappers) {
@@ -336,6 +375,38 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
             return strings;
         }
 
+        /**
+         * Calculate the stats of the cohorts without stats, and merge the stats of the new samples with the stored stats.
+         *
+         * @param variants Variants, with the stored stats
+         * @return Stats of the cohorts that changed
+         */
+        private List<VariantStatsWrapper> calculateIncremental(List<Variant> variants) {
+            List<VariantStatsWrapper> variantStatsWrappers = new ArrayList<>(variants.size());
+            for (Variant variant : variants) {
+                StudyEntry study = variant.getStudy(studyMetadata.getName());
+                if (study == null) {
+                    variantStatisticsCalculator.setSkippedFiles(variantStatisticsCalculator.getSkippedFiles() + 1);
+                    continue;
+                }
+                Map<String, VariantStats> cohortStats = new HashMap<>(cohorts.size());
+                for (Map.Entry<String, Set<String>> cohort : cohorts.entrySet()) {
+                    VariantStats storedStats = study.getStats(cohort.getKey());
+                    Set<String> cohortNewSamples = newSamples.get(cohort.getKey());
+                    if (storedStats == null) {
+                        cohortStats.put(cohort.getKey(), VariantStatsCalculator.calculate(variant, study, cohort.getValue()));
+                    } else if (!cohortNewSamples.isEmpty()) {
+                        VariantStats stats = VariantStatsCalculator.calculate(variant, study, cohortNewSamples);
+                        cohortStats.put(cohort.getKey(), VariantStatisticsCalculator.merge(variant, storedStats, stats, multiAllelic));
+                    }
+                }
+                if (!cohortStats.isEmpty()) {
+                    variantStatsWrappers.add(new VariantStatsWrapper(variant, cohortStats));
+                }
+            }
+            return variantStatsWrappers;
+        }
+
         @Override
         public void post() {
             if (variantStatisticsCalculator.getSkippedFiles() > 0) {
@@ -344,6 +415,54 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         }
     }
 
+    /**
+     * Reads the variants returned by a list of queries, one query after the other.
+     */
+    private static final class MultiQueryVariantDBReader implements DataReader<Variant> {
+        private final VariantDBAdaptor dbAdaptor;
+        private final Iterator<Query> queries;
+        private final QueryOptions options;
+        private VariantDBReader reader;
+
+        private MultiQueryVariantDBReader(VariantDBAdaptor dbAdaptor, List<Query> queries, QueryOptions options) {
+            this.dbAdaptor = dbAdaptor;
+            this.queries = queries.iterator();
+            this.options = options;
+        }
+
+        @Override
+        public List<Variant> read(int batchSize) {
+            while (true) {
+                if (reader == null) {
+                    if (!queries.hasNext()) {
+                        return Collections.emptyList();
+                    }
+                    Query query = queries.next();
+                    logger.info("ReaderQuery: " + query.toJson());
+                    reader = new VariantDBReader(dbAdaptor, query, options);
+                    reader.open();
+                    reader.pre();
+                }
+                List<Variant> variants = reader.read(batchSize);
+                if (!variants.isEmpty()) {
+                    return variants;
+                }
+                reader.post();
+                reader.close();
+                reader = null;
+            }
+        }
+
+        @Override
+        public boolean close() {
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+            return true;
+        }
+    }
+
     public void loadStats(URI uri, String study, QueryOptions options) throws
             IOException, StorageEngineException {
         VariantStorageMetadataManager variantStorageMetadataManager = dbAdaptor.getMetadataManager();
@@ -401,6 +520,7 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
                     () -> {
                         VariantStatsDBWriter dbWriter = newVariantStatisticsDBWriter(dbAdaptor, studyMetadata, options);
                         dbWriter.setProgressLogger(progressLogger);
+                        dbWriter.setSearchChangeLog(searchChangeLog);
                         writers.add(dbWriter);
                         return dbWriter.asTask();
                     },
@@ -412,6 +532,7 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         } else {
             VariantStatsDBWriter dbWriter = newVariantStatisticsDBWriter(dbAdaptor, studyMetadata, options);
             dbWriter.setProgressLogger(progressLogger);
+            dbWriter.setSearchChangeLog(searchChangeLog);
             writers.add(dbWriter);
             ptr = new ParallelTaskRunner<>(
                     dataReader,
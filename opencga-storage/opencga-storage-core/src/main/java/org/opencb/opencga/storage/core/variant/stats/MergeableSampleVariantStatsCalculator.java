@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.opencb.biodata.models.clinical.pedigree.Pedigree;
+import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
+import org.opencb.biodata.tools.variant.stats.SampleVariantStatsCalculator;
+
+import java.util.List;
+
+/**
+ * SampleVariantStatsCalculator that can be merged with other calculators over the same samples.
+ *
+ * Each calculator accumulates the partial stats of a disjoint set of variants. Partial calculators are merged before
+ * calling {@link #post()}, which computes the final ratios from the merged counters. See {@link PartialCalculators}.
+ */
+public class MergeableSampleVariantStatsCalculator extends SampleVariantStatsCalculator {
+
+    public MergeableSampleVariantStatsCalculator(VariantStudyMetadata studyMetadata) {
+        super(studyMetadata);
+    }
+
+    public MergeableSampleVariantStatsCalculator(Pedigree pedigree, List<String> samples) {
+        super(pedigree, samples);
+    }
+
+    /**
+     * Add the partial stats from other calculator. Both calculators must be initialized and not finished.
+     *
+     * @param other Calculator over the same samples, that processed a different set of variants
+     * @return this
+     */
+    public MergeableSampleVariantStatsCalculator merge(MergeableSampleVariantStatsCalculator other) {
+        if (statsList.size() != other.statsList.size()) {
+            throw new IllegalArgumentException("Unable to merge stats from " + other.statsList.size() + " samples into "
+                    + statsList.size() + " samples");
+        }
+        for (int i = 0; i < statsList.size(); i++) {
+            SampleVariantStatsCalculator.merge(statsList.get(i), other.statsList.get(i));
+            ti[i] += other.ti[i];
+            tv[i] += other.tv[i];
+            qualCount[i] += other.qualCount[i];
+            qualSum[i] += other.qualSum[i];
+            qualSumSq[i] += other.qualSumSq[i];
+        }
+        return this;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import htsjdk.variant.vcf.VCFConstants;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantFileMetadata;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.models.variant.avro.VariantType;
+import org.opencb.biodata.tools.variant.stats.VariantSetStatsCalculator;
+
+import java.util.*;
+
+/**
+ * VariantSetStatsCalculator that can be merged with other calculators over the same file.
+ *
+ * Each calculator accumulates the partial stats of a disjoint set of variants. Partial calculators are merged before
+ * calling {@link #post()}, which computes the final ratios from the merged counters and sets the stats into the
+ * {@link VariantFileMetadata}. See {@link PartialCalculators}.
+ *
+ * Along with the file stats, builds the histograms of the non-reference allele frequency of the samples of the file,
+ * and the read depth of the variants. Reference blocks are not included in the histograms.
+ */
+public class MergeableVariantSetStatsCalculator extends VariantSetStatsCalculator {
+
+    private static final int ALLELE_FREQUENCY_BINS = 10;
+    private static final int[] DEPTH_BINS = {0, 10, 20, 30, 50, 100, 200, 500, 1000};
+
+    private final long[] alleleFrequencyHistogram = new long[ALLELE_FREQUENCY_BINS];
+    private final long[] depthHistogram = new long[DEPTH_BINS.length];
+
+    public MergeableVariantSetStatsCalculator(String studyId, VariantFileMetadata fileMetadata) {
+        super(studyId, fileMetadata);
+    }
+
+    @Override
+    public List<Variant> apply(List<Variant> variants) {
+        super.apply(variants);
+        for (Variant variant : variants) {
+            if (variant.getType() == VariantType.NO_VARIATION || variant.getStudies().isEmpty()) {
+                continue;
+            }
+            StudyEntry study = variant.getStudies().get(0);
+            addAlleleFrequency(study);
+            addDepth(study);
+        }
+        return variants;
+    }
+
+    /**
+     * Add the partial stats from other calculator. Both calculators must be initialized and not finished.
+     *
+     * @param other Calculator over the same file, that processed a different set of variants
+     * @return this
+     */
+    public MergeableVariantSetStatsCalculator merge(MergeableVariantSetStatsCalculator other) {
+        VariantSetStatsCalculator.merge(stats.getImpl(), other.stats.getImpl());
+        transitionsCount += other.transitionsCount;
+        transversionsCount += other.transversionsCount;
+        qualCount += other.qualCount;
+        qualSum += other.qualSum;
+        qualSumSq += other.qualSumSq;
+        for (int i = 0; i < alleleFrequencyHistogram.length; i++) {
+            alleleFrequencyHistogram[i] += other.alleleFrequencyHistogram[i];
+        }
+        for (int i = 0; i < depthHistogram.length; i++) {
+            depthHistogram[i] += other.depthHistogram[i];
+        }
+        return this;
+    }
+
+    /**
+     * Get the number of variants by non-reference allele frequency, in bins of 0.1.
+     *
+     * @return Histogram, sorted by bin
+     */
+    public Map<String, Long> getAlleleFrequencyHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < ALLELE_FREQUENCY_BINS; i++) {
+            String bin = String.format(Locale.ROOT, "[%.1f,%.1f%s", i / (double) ALLELE_FREQUENCY_BINS,
+                    (i + 1) / (double) ALLELE_FREQUENCY_BINS, i == ALLELE_FREQUENCY_BINS - 1 ? "]" : ")");
+            histogram.put(bin, alleleFrequencyHistogram[i]);
+        }
+        return histogram;
+    }
+
+    /**
+     * Get the number of variants by read depth. Variants without depth are not counted.
+     *
+     * @return Histogram, sorted by bin
+     */
+    public Map<String, Long> getDepthHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < DEPTH_BINS.length; i++) {
+            String bin = "[" + DEPTH_BINS[i] + "," + (i == DEPTH_BINS.length - 1 ? "inf" : DEPTH_BINS[i + 1]) + ")";
+            histogram.put(bin, depthHistogram[i]);
+        }
+        return histogram;
+    }
+
+    private void addAlleleFrequency(StudyEntry study) {
+        Integer gtPosition = study.getFormatPositions().get(VCFConstants.GENOTYPE_KEY);
+        if (gtPosition == null) {
+            return;
+        }
+        int numAlleles = 0;
+        int numNonRefAlleles = 0;
+        for (List<String> sampleData : study.getSamplesData()) {
+            String gt = sampleData.get(gtPosition);
+            int from = 0;
+            for (int i = 0; i <= gt.length(); i++) {
+                if (i == gt.length() || gt.charAt(i) == '/' || gt.charAt(i) == '|') {
+                    if (i - from == 1 && gt.charAt(from) == '0') {
+                        numAlleles++;
+                    } else if (i > from && !(i - from == 1 && gt.charAt(from) == '.')) {
+                        numAlleles++;
+                        numNonRefAlleles++;
+                    }
+                    from = i + 1;
+                }
+            }
+        }
+        if (numAlleles > 0) {
+            int bin = Math.min(numNonRefAlleles * ALLELE_FREQUENCY_BINS / numAlleles, ALLELE_FREQUENCY_BINS - 1);
+            alleleFrequencyHistogram[bin]++;
+        }
+    }
+
+    private void addDepth(StudyEntry study) {
+        int depth = -1;
+        if (!study.getFiles().isEmpty()) {
+            FileEntry file = study.getFiles().get(0);
+            depth = parseDepth(file.getAttributes().get(VCFConstants.DEPTH_KEY));
+        }
+        if (depth < 0) {
+            // No INFO depth. Add the depth of the samples
+            Integer dpPosition = study.getFormatPositions().get(VCFConstants.DEPTH_KEY);
+            if (dpPosition != null) {
+                for (List<String> sampleData : study.getSamplesData()) {
+                    int sampleDepth = parseDepth(sampleData.get(dpPosition));
+                    if (sampleDepth >= 0) {
+                        depth = Math.max(depth, 0) + sampleDepth;
+                    }
+                }
+            }
+        }
+        if (depth >= 0) {
+            int bin = Arrays.binarySearch(DEPTH_BINS, depth);
+            depthHistogram[bin >= 0 ? bin : -bin - 2]++;
+        }
+    }
+
+    private static int parseDepth(String value) {
+        if (value == null || value.isEmpty() || value.equals(VCFConstants.MISSING_VALUE_v4)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
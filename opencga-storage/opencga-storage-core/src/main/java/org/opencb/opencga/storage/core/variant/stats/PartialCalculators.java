@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.run.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Supplier of tasks for a {@link org.opencb.commons.run.ParallelTaskRunner}, creating one partial calculator per task.
+ * Partial calculators are merged with {@link #merge()} once the runner finishes.
+ *
+ * @param <C> Mergeable calculator
+ */
+public class PartialCalculators<C extends Task<Variant, Variant>> implements Supplier<Task<Variant, Variant>> {
+    private final Supplier<C> factory;
+    private final BinaryOperator<C> merger;
+    private final List<C> calculators = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Create a supplier of partial calculators.
+     *
+     * @param factory Creates a new calculator, not initialized
+     * @param merger  Adds the partial stats of the second calculator into the first one, and returns the first one
+     */
+    public PartialCalculators(Supplier<C> factory, BinaryOperator<C> merger) {
+        this.factory = factory;
+        this.merger = merger;
+    }
+
+    @Override
+    public Task<Variant, Variant> get() {
+        C calculator = newCalculator();
+        calculators.add(calculator);
+        // Do not propagate the post, as the partial results have to be merged first
+        return calculator::apply;
+    }
+
+    /**
+     * Merge all the partial calculators and compute the final stats.
+     *
+     * @return the merged calculator
+     */
+    public C merge() {
+        C merged;
+        synchronized (calculators) {
+            if (calculators.isEmpty()) {
+                merged = newCalculator();
+            } else {
+                merged = calculators.get(0);
+                for (int i = 1; i < calculators.size(); i++) {
+                    merged = merger.apply(merged, calculators.get(i));
+                }
+            }
+            calculators.clear();
+        }
+        try {
+            merged.post();
+        } catch (Exception e) {
+            throw new IllegalStateException("Error computing the merged stats", e);
+        }
+        return merged;
+    }
+
+    private C newCalculator() {
+        C calculator = factory.get();
+        try {
+            calculator.pre();
+        } catch (Exception e) {
+            throw new IllegalStateException("Error initializing the stats calculator", e);
+        }
+        return calculator;
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.opencb.opencga.storage.core.variant.stats;
 
+import org.opencb.biodata.models.feature.Genotype;
 import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.metadata.Aggregation;
@@ -153,6 +154,22 @@ public class VariantStatisticsCalculator {
         return variantStatsWrappers;
     }
 
+    /**
+     * Merges the stats of two disjoint sets of samples into the stats of the union of both sets.
+     * Genotype counts are added, and all the other values are calculated again from the merged genotype counts.
+     *
+     * @param variant       Variant of the stats
+     * @param stats         Stats of the first set of samples
+     * @param otherStats    Stats of the second set of samples
+     * @param multiAllelic  Include secondary alternates in the variant stats calculation
+     * @return merged stats
+     */
+    public static VariantStats merge(Variant variant, VariantStats stats, VariantStats otherStats, boolean multiAllelic) {
+        Map<Genotype, Integer> genotypeCount = new HashMap<>(stats.getGenotypeCount());
+        otherStats.getGenotypeCount().forEach((gt, count) -> genotypeCount.merge(gt, count, Integer::sum));
+        return VariantStatsCalculator.calculate(variant, genotypeCount, multiAllelic);
+    }
+
     @Deprecated
     public static Map<String, String> removeAttributePrefix(Map<String, String> attributes)
             throws IllegalArgumentException {
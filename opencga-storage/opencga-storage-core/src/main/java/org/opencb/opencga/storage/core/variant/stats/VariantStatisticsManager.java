@@ -30,6 +30,7 @@ import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +51,13 @@ public abstract class VariantStatisticsManager {
 
     private static Logger logger = LoggerFactory.getLogger(VariantStatisticsManager.class);
 
+    protected VariantSearchChangeLog searchChangeLog = VariantSearchChangeLog.empty();
+
+    public VariantStatisticsManager setSearchChangeLog(VariantSearchChangeLog searchChangeLog) {
+        this.searchChangeLog = searchChangeLog;
+        return this;
+    }
+
     /**
      *
      * @param study     Study
@@ -109,10 +117,67 @@ public abstract class VariantStatisticsManager {
         for (String cohortName : cohorts) {
             Integer cohortId = metadataManager.getCohortId(studyMetadata.getId(), cohortName);
             metadataManager.updateCohortMetadata(studyMetadata.getId(), cohortId,
-                    cohort -> cohort.setStatsStatus(status));
+                    cohort -> cohort.setStatsStatus(status)
+                            // Stats may have been partially updated. Do not allow incremental updates after an error.
+                            .setStatsSamples(error ? null : new ArrayList<>(cohort.getSamples())));
         }
     }
 
+    /**
+     * Get the samples added to each cohort since its stats were calculated, if the stats of all the cohorts can be
+     * updated incrementally. See {@link VariantStorageOptions#STATS_INCREMENTAL}.
+     * <p>
+     * Stats can be updated incrementally if the stored stats were successfully calculated for a subset of the samples
+     * of the cohort. The stored genotype counts are then merged with the genotype counts of the new samples.
+     * <p>
+     * Must be called before {@link #preCalculateStats}.
+     *
+     * @param metadataManager   Metadata manager
+     * @param studyMetadata     Study metadata
+     * @param cohorts           Cohorts to calculate. An empty set of samples means the samples already in the cohort.
+     * @param options           Options
+     * @return New samples of each cohort, or null if the stats have to be calculated from scratch.
+     */
+    public static Map<String, List<Integer>> getIncrementalSamples(
+            VariantStorageMetadataManager metadataManager, StudyMetadata studyMetadata,
+            Map<String, ? extends Collection<String>> cohorts, ObjectMap options) {
+        if (!options.getBoolean(VariantStorageOptions.STATS_INCREMENTAL.key(), VariantStorageOptions.STATS_INCREMENTAL.defaultValue())
+                || options.getBoolean(VariantStorageOptions.STATS_OVERWRITE.key(), false)
+                || options.containsKey(VariantQueryParam.REGION.key())
+                || isAggregated(studyMetadata, options)
+                || cohorts.isEmpty()) {
+            return null;
+        }
+        Map<String, List<Integer>> newSamples = new LinkedHashMap<>(cohorts.size());
+        for (Map.Entry<String, ? extends Collection<String>> entry : cohorts.entrySet()) {
+            CohortMetadata cohort = metadataManager.getCohortMetadata(studyMetadata.getId(), entry.getKey());
+            if (cohort == null || cohort.getStatsSamples() == null || !(cohort.isStatsReady() || cohort.isInvalid())) {
+                logger.info("Unable to update stats of cohort '{}' incrementally. Calculate from scratch", entry.getKey());
+                return null;
+            }
+            Set<Integer> samples = new HashSet<>(cohort.getSamples());
+            if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                Set<Integer> providedSamples = new HashSet<>(entry.getValue().size());
+                for (String sample : entry.getValue()) {
+                    providedSamples.add(metadataManager.getSampleId(studyMetadata.getId(), sample));
+                }
+                if (!providedSamples.equals(samples)) {
+                    logger.info("Samples of cohort '{}' modified. Calculate stats from scratch", entry.getKey());
+                    return null;
+                }
+            }
+            if (!samples.containsAll(cohort.getStatsSamples())) {
+                logger.info("Samples removed from cohort '{}'. Calculate stats from scratch", entry.getKey());
+                return null;
+            }
+            List<Integer> cohortNewSamples = new ArrayList<>(cohort.getSamples());
+            cohortNewSamples.removeAll(new HashSet<>(cohort.getStatsSamples()));
+            logger.info("Update stats of cohort '{}' incrementally with {} new samples", entry.getKey(), cohortNewSamples.size());
+            newSamples.put(cohort.getName(), cohortNewSamples);
+        }
+        return newSamples;
+    }
+
     public static void checkAndUpdateCalculatedCohorts(
             VariantStorageMetadataManager metadataManager, StudyMetadata studyMetadata, Collection<String> cohorts, boolean updateStats)
             throws StorageEngineException {
@@ -269,6 +334,48 @@ public abstract class VariantStatisticsManager {
         return readerQuery;
     }
 
+    /**
+     * Build the queries to update the stats of the cohorts incrementally. The queries return disjoint sets of variants.
+     * <p>
+     * The first query returns the variants with stats for all the cohorts, including only the new samples.
+     * Then, for each cohort, a query returns the variants without stats for that cohort that have stats for all the
+     * previous cohorts, including all the samples.
+     *
+     * @param metadataManager   Metadata manager
+     * @param study             Study metadata
+     * @param newSamples        New samples of each cohort. See {@link #getIncrementalSamples}
+     * @param options           Options
+     * @return List of queries
+     */
+    public static List<Query> buildIncrementalInputQueries(VariantStorageMetadataManager metadataManager, StudyMetadata study,
+                                                          Map<String, List<Integer>> newSamples, ObjectMap options) {
+        List<String> cohorts = new ArrayList<>(newSamples.keySet());
+        List<Query> queries = new ArrayList<>(cohorts.size() + 1);
+
+        Set<Integer> allNewSamples = new HashSet<>();
+        newSamples.values().forEach(allNewSamples::addAll);
+        if (!allNewSamples.isEmpty()) {
+            Query query = buildInputQuery(metadataManager, study, cohorts, false, false, options);
+            query.put(VariantQueryParam.COHORT.key(), cohorts.stream()
+                    .map(cohort -> study.getName() + ":" + cohort)
+                    .collect(Collectors.joining(AND)));
+            query.put(VariantQueryParam.INCLUDE_SAMPLE.key(), allNewSamples);
+            queries.add(query);
+        }
+
+        for (int i = 0; i < cohorts.size(); i++) {
+            List<String> cohortFilter = new ArrayList<>(i + 1);
+            for (String cohort : cohorts.subList(0, i)) {
+                cohortFilter.add(study.getName() + ":" + cohort);
+            }
+            cohortFilter.add(NOT + study.getName() + ":" + cohorts.get(i));
+            Query query = buildInputQuery(metadataManager, study, cohorts, false, false, options);
+            query.put(VariantQueryParam.COHORT.key(), String.join(AND, cohortFilter));
+            queries.add(query);
+        }
+        return queries;
+    }
+
     protected static String getUnknownGenotype(ObjectMap options) {
         return options.getString(STATS_DEFAULT_GENOTYPE.key(), STATS_DEFAULT_GENOTYPE.defaultValue());
     }
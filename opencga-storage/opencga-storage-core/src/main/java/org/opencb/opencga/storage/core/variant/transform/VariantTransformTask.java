@@ -35,7 +35,6 @@ import org.opencb.biodata.tools.variant.VariantNormalizer;
 import org.opencb.biodata.tools.variant.VariantReferenceBlockCreatorTask;
 import org.opencb.biodata.tools.variant.VariantSorterTask;
 import org.opencb.biodata.tools.variant.converters.avro.VariantContextToVariantConverter;
-import org.opencb.biodata.tools.variant.stats.VariantSetStatsCalculator;
 import org.opencb.commons.run.Task;
 import org.opencb.opencga.storage.core.variant.io.json.mixin.GenericRecordAvroJsonMixin;
 import org.slf4j.Logger;
@@ -62,22 +61,26 @@ public class VariantTransformTask implements Task<String, Variant> {
     protected final Logger logger = LoggerFactory.getLogger(VariantTransformTask.class);
     protected final VCFCodec vcfCodec;
     protected final VariantContextToVariantConverter converter;
+    protected VcfLineParser lineParser;
     protected final Task<Variant, Variant> normalizer;
-    protected final VariantSetStatsCalculator variantStatsTask;
+    // Stats of the transformed variants. Must not be shared between tasks, as it is not synchronized
+    protected final Task<Variant, Variant> variantStatsTask;
     protected final AtomicLong htsConvertTime = new AtomicLong(0);
     protected final AtomicLong biodataConvertTime = new AtomicLong(0);
     protected final AtomicLong normTime = new AtomicLong(0);
     protected final List<BiConsumer<String, RuntimeException>> errorHandlers = new ArrayList<>();
     protected boolean failOnError = false;
     private VariantStudyMetadata metadata;
+    private final String studyId;
 
     public VariantTransformTask(VariantFactory factory,
                                 String studyId, VariantFileMetadata fileMetadata,
-                                VariantSetStatsCalculator variantStatsTask,
+                                Task<Variant, Variant> variantStatsTask,
                                 boolean generateReferenceBlocks) {
         this.factory = factory;
         this.fileMetadata = fileMetadata;
         this.metadata = fileMetadata.toVariantStudyMetadata(studyId);
+        this.studyId = studyId;
         this.variantStatsTask = variantStatsTask;
 
         this.vcfCodec = null;
@@ -88,12 +91,13 @@ public class VariantTransformTask implements Task<String, Variant> {
 
     public VariantTransformTask(VCFHeader header, VCFHeaderVersion version,
                                 String studyId, VariantFileMetadata fileMetadata,
-                                VariantSetStatsCalculator variantStatsTask,
+                                Task<Variant, Variant> variantStatsTask,
                                 boolean generateReferenceBlocks) {
         this.variantStatsTask = variantStatsTask;
         this.factory = null;
         this.fileMetadata = fileMetadata;
         this.metadata = fileMetadata.toVariantStudyMetadata(studyId);
+        this.studyId = studyId;
 
         this.vcfCodec = new FullVcfCodec();
         this.vcfCodec.setVCFHeader(header, version);
@@ -119,9 +123,7 @@ public class VariantTransformTask implements Task<String, Variant> {
 
     @Override
     public void pre() {
-        synchronized (variantStatsTask) {
-            variantStatsTask.pre();
-        }
+        variantStatsTask.pre();
     }
 
     @Override
@@ -164,6 +166,31 @@ public class VariantTransformTask implements Task<String, Variant> {
                     onError(e, line);
                 }
             }
+        } else if (lineParser != null) {
+            List<Variant> variants = new ArrayList<>(batch.size());
+            curr = System.currentTimeMillis();
+            for (String line : batch) {
+                if (line.startsWith("#") || line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    Variant variant = lineParser.parse(line);
+                    if (variant == null) {
+                        // Not supported by the native parser. Use htsjdk
+                        variant = converter.convert(vcfCodec.decode(line));
+                    }
+                    variants.add(variant);
+                } catch (RuntimeException e) {
+                    onError(e, line);
+                }
+            }
+            this.biodataConvertTime.addAndGet(System.currentTimeMillis() - curr);
+
+            List<Variant> normalizedVariants = normalize(variants);
+
+            variantStatsTask.apply(normalizedVariants);
+
+            transformedVariants.addAll(normalizedVariants);
         } else {
             List<VariantContext> variantContexts = new ArrayList<>(batch.size());
             curr = System.currentTimeMillis();
@@ -232,9 +259,7 @@ public class VariantTransformTask implements Task<String, Variant> {
 
     @Override
     public void post() {
-        synchronized (variantStatsTask) {
-            variantStatsTask.post();
-        }
+        variantStatsTask.post();
         logger.debug("Time txt2hts: " + this.htsConvertTime.get());
         logger.debug("Time hts2biodata: " + this.biodataConvertTime.get());
         logger.debug("Time normalization: " + this.normTime.get());
@@ -265,6 +290,21 @@ public class VariantTransformTask implements Task<String, Variant> {
         return this;
     }
 
+    /**
+     * Parse the VCF lines with the {@link VcfLineParser}, instead of building htsjdk VariantContexts.
+     * Lines not supported by the native parser are still parsed with htsjdk.
+     *
+     * @param nativeParser Use the native parser
+     * @return this
+     */
+    public VariantTransformTask setNativeParser(boolean nativeParser) {
+        if (nativeParser && vcfCodec == null) {
+            throw new IllegalStateException("Native VCF parser requires the VCF header");
+        }
+        this.lineParser = nativeParser ? new VcfLineParser(studyId, fileMetadata.getId(), fileMetadata.getSampleIds()) : null;
+        return this;
+    }
+
     public VariantTransformTask setFailOnError(boolean failOnError) {
         this.failOnError = failOnError;
         return this;
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.transform;
+
+import htsjdk.variant.vcf.VCFConstants;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantBuilder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses VCF data lines straight into {@link Variant}s, without building an htsjdk VariantContext.
+ *
+ * The line is tokenized by offsets, so no intermediate arrays of strings are created. Sample columns are not split
+ * until their values are accessed. FORMAT keys and genotypes are interned, as they repeat in most of the lines.
+ *
+ * Reference and alternate alleles are converted to upper case, as htsjdk does.
+ *
+ * Lines with alleles not supported by this parser (symbolic alleles, breakends, overlapping deletions or missing
+ * alternates) are not parsed, returning null, so the caller can fall back to the htsjdk parser.
+ *
+ * Instances are not thread safe, but the returned variants can be used from any thread.
+ */
+public class VcfLineParser {
+
+    private static final int MAX_INTERNED_GENOTYPES = 10000;
+    private static final int NUM_FIXED_COLUMNS = 8;
+
+    private final String studyId;
+    private final String fileId;
+    private final LinkedHashMap<String, Integer> samplesPosition;
+    private final int numSamples;
+    private final Map<String, String> genotypes = new ConcurrentHashMap<>();
+
+    // Values from the previous line, reused if equal
+    private String chromosome = "";
+    private String format = "";
+    private String[] formatKeys = new String[0];
+    private int gtIndex = -1;
+
+    public VcfLineParser(String studyId, String fileId, List<String> samples) {
+        this.studyId = studyId;
+        this.fileId = fileId;
+        this.samplesPosition = new LinkedHashMap<>();
+        for (String sample : samples) {
+            samplesPosition.put(sample, samplesPosition.size());
+        }
+        this.numSamples = samplesPosition.size();
+    }
+
+    /**
+     * Parse a VCF data line.
+     *
+     * @param line VCF line. Must not be a header line
+     * @return the parsed variant, or null if the line contains alleles not supported by this parser
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public Variant parse(String line) {
+        int[] tabs = new int[NUM_FIXED_COLUMNS + 1];
+        int from = 0;
+        int numColumns = numSamples == 0 ? NUM_FIXED_COLUMNS : NUM_FIXED_COLUMNS + 1;
+        for (int i = 0; i < numColumns; i++) {
+            int tab = line.indexOf('\t', from);
+            if (tab < 0) {
+                if (i == NUM_FIXED_COLUMNS - 1 && numSamples == 0) {
+                    // INFO is the last column
+                    tab = line.length();
+                } else {
+                    throw new IllegalArgumentException("Expected at least " + (numColumns + numSamples) + " columns");
+                }
+            }
+            tabs[i] = tab;
+            from = tab + 1;
+        }
+
+        // Check the alleles before creating any object
+        int refStart = tabs[2] + 1;
+        int altStart = tabs[3] + 1;
+        int altEnd = tabs[4];
+        if (!isSupportedAlternate(line, altStart, altEnd)) {
+            return null;
+        }
+
+        String chromosome = line.substring(0, tabs[0]);
+        if (chromosome.equals(this.chromosome)) {
+            chromosome = this.chromosome;
+        } else {
+            this.chromosome = chromosome;
+        }
+        int start = parseInt(line, tabs[0] + 1, tabs[1]);
+        String reference = upperCaseAllele(line, refStart, tabs[3]);
+        int end = start + reference.length() - 1;
+
+        VariantBuilder builder = Variant.newBuilder()
+                .setChromosome(chromosome)
+                .setStart(start)
+                .setReference(reference)
+                .setStudyId(studyId)
+                .setFileId(fileId);
+
+        int altFrom = altStart;
+        while (altFrom <= altEnd) {
+            int comma = line.indexOf(',', altFrom);
+            if (comma < 0 || comma > altEnd) {
+                comma = altEnd;
+            }
+            builder.addAlternate(upperCaseAllele(line, altFrom, comma));
+            altFrom = comma + 1;
+        }
+
+        // QUAL
+        if (!isMissing(line, tabs[4] + 1, tabs[5])) {
+            builder.setQuality(Double.parseDouble(line.substring(tabs[4] + 1, tabs[5])));
+        }
+        // FILTER
+        builder.setFilter(line.substring(tabs[5] + 1, tabs[6]));
+        // INFO
+        int infoEnd = tabs[7];
+        if (!isMissing(line, tabs[6] + 1, infoEnd)) {
+            int infoFrom = tabs[6] + 1;
+            while (infoFrom < infoEnd) {
+                int semicolon = line.indexOf(';', infoFrom);
+                if (semicolon < 0 || semicolon > infoEnd) {
+                    semicolon = infoEnd;
+                }
+                int equals = line.indexOf('=', infoFrom);
+                if (equals < 0 || equals > semicolon) {
+                    // Flag
+                    builder.addAttribute(line.substring(infoFrom, semicolon), "true");
+                } else {
+                    String key = line.substring(infoFrom, equals);
+                    String value = line.substring(equals + 1, semicolon);
+                    if (key.equals(VCFConstants.END_KEY)) {
+                        end = parseInt(value, 0, value.length());
+                    }
+                    builder.addAttribute(key, value);
+                }
+                infoFrom = semicolon + 1;
+            }
+        }
+        builder.setEnd(end);
+
+        // FORMAT and samples
+        if (numSamples > 0) {
+            int formatStart = tabs[7] + 1;
+            int formatEnd = tabs[8];
+            if (formatEnd - formatStart != format.length() || !line.startsWith(format, formatStart)) {
+                format = line.substring(formatStart, formatEnd);
+                formatKeys = format.split(":");
+                gtIndex = Arrays.asList(formatKeys).indexOf(VCFConstants.GENOTYPE_KEY);
+            }
+            List<List<String>> samplesData = new ArrayList<>(numSamples);
+            int sampleFrom = formatEnd + 1;
+            for (int i = 0; i < numSamples; i++) {
+                int sampleEnd = line.indexOf('\t', sampleFrom);
+                if (sampleEnd < 0) {
+                    if (i != numSamples - 1) {
+                        throw new IllegalArgumentException("Expected " + numSamples + " samples, found " + (i + 1));
+                    }
+                    sampleEnd = line.length();
+                }
+                samplesData.add(new SampleData(line, sampleFrom, sampleEnd, formatKeys.length, gtIndex, genotypes));
+                sampleFrom = sampleEnd + 1;
+            }
+            if (sampleFrom < line.length()) {
+                throw new IllegalArgumentException("Expected " + numSamples + " samples, found more columns");
+            }
+            builder.setFormat(formatKeys.clone())
+                    .setSamplesPosition(samplesPosition)
+                    .setSamplesData(samplesData);
+        }
+
+        Variant variant = builder.build();
+        if (!isMissing(line, tabs[1] + 1, tabs[2])) {
+            variant.setIds(Arrays.asList(line.substring(tabs[1] + 1, tabs[2]).split(";")));
+        }
+        return variant;
+    }
+
+    private static boolean isSupportedAlternate(String line, int from, int to) {
+        if (isMissing(line, from, to)) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            switch (line.charAt(i)) {
+                case '<':
+                case '[':
+                case ']':
+                case '*':
+                case '.':
+                    return false;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private static String upperCaseAllele(String line, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                return line.substring(from, to).toUpperCase(Locale.ROOT);
+            }
+        }
+        return line.substring(from, to);
+    }
+
+    private static boolean isMissing(String line, int from, int to) {
+        return to - from == 1 && line.charAt(from) == '.';
+    }
+
+    private static int parseInt(String s, int from, int to) {
+        if (from >= to) {
+            throw new IllegalArgumentException("Expected a number, found an empty value");
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Expected a number, found '" + s.substring(from, to) + "'");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Values of one sample column. The column is only split when any of its values is accessed.
+     * Missing trailing values are filled with {@link VCFConstants#MISSING_VALUE_v4}.
+     */
+    private static final class SampleData extends AbstractList<String> implements RandomAccess {
+        private final String line;
+        private final int from;
+        private final int to;
+        private final int size;
+        private final int gtIndex;
+        private final Map<String, String> genotypes;
+        private String[] values;
+
+        private SampleData(String line, int from, int to, int size, int gtIndex, Map<String, String> genotypes) {
+            int numValues = 1;
+            for (int i = from; i < to; i++) {
+                if (line.charAt(i) == ':') {
+                    numValues++;
+                }
+            }
+            if (numValues > size) {
+                throw new IllegalArgumentException("Sample column '" + line.substring(from, to) + "' has more values than FORMAT");
+            }
+            this.line = line;
+            this.from = from;
+            this.to = to;
+            this.size = size;
+            this.gtIndex = gtIndex;
+            this.genotypes = genotypes;
+        }
+
+        @Override
+        public String get(int index) {
+            return values()[index];
+        }
+
+        @Override
+        public String set(int index, String element) {
+            String[] values = values();
+            String old = values[index];
+            values[index] = element;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private String[] values() {
+            if (values == null) {
+                String[] values = new String[size];
+                int valueFrom = from;
+                for (int i = 0; i < size; i++) {
+                    if (valueFrom > to) {
+                        values[i] = VCFConstants.MISSING_VALUE_v4;
+                        continue;
+                    }
+                    int valueTo = line.indexOf(':', valueFrom);
+                    if (valueTo < 0 || valueTo > to) {
+                        valueTo = to;
+                    }
+                    String value = line.substring(valueFrom, valueTo);
+                    if (i == gtIndex) {
+                        value = intern(value);
+                    }
+                    values[i] = value;
+                    valueFrom = valueTo + 1;
+                }
+                this.values = values;
+            }
+            return values;
+        }
+
+        private String intern(String genotype) {
+            String interned = genotypes.get(genotype);
+            if (interned == null) {
+                if (genotypes.size() >= MAX_INTERNED_GENOTYPES) {
+                    return genotype;
+                }
+                interned = genotypes.putIfAbsent(genotype, genotype);
+                if (interned == null) {
+                    interned = genotype;
+                }
+            }
+            return interned;
+        }
+    }
+}
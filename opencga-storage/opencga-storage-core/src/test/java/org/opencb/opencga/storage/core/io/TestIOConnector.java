@@ -30,6 +30,11 @@ public class TestIOConnector extends LocalIOConnector {
         return super.newInputStreamRaw(toLocalUri(uri));
     }
 
+    @Override
+    public InputStream newInputStreamRaw(URI uri, long offset, long length) throws IOException {
+        return super.newInputStreamRaw(toLocalUri(uri), offset, length);
+    }
+
     @Override
     public OutputStream newOutputStreamRaw(URI uri) throws IOException {
         return super.newOutputStreamRaw(toLocalUri(uri));
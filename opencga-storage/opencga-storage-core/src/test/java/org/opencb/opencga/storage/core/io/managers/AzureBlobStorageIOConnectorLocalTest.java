@@ -0,0 +1,362 @@
+package org.opencb.opencga.storage.core.io.managers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.commons.datastore.core.ObjectMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the AzureBlobStorageIOConnector against a local HTTP server implementing the subset of the Blob service REST API
+ * used by the connector.
+ */
+public class AzureBlobStorageIOConnectorLocalTest {
+
+    private static final String ACCOUNT = "devstoreaccount1";
+    private static final int CHUNK_SIZE = 100000;
+    private static final int BLOCK_SIZE = 10000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private BlobService blobService;
+    private String endpoint;
+    private URI uri;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        data = new byte[1000003];
+        new Random(1).nextBytes(data);
+        blobService = new BlobService();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", blobService::handle);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        endpoint = "http://localhost:" + server.getAddress().getPort() + "/" + ACCOUNT;
+        uri = URI.create(endpoint + "/container/file.bin");
+        blobService.putBlob(uri.getPath(), data);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    private AzureBlobStorageIOConnector newConnector(ObjectMap extraOptions) {
+        ObjectMap options = new ObjectMap()
+                .append("accountName", ACCOUNT)
+                .append("accountKey", Base64.getEncoder().encodeToString(new byte[64]))
+                .append(AzureBlobStorageIOConnector.ENDPOINT, endpoint)
+                .append(AzureBlobStorageIOConnector.READ_CHUNK_SIZE, CHUNK_SIZE)
+                .append(AzureBlobStorageIOConnector.READ_THREADS, 4)
+                .append(AzureBlobStorageIOConnector.UPLOAD_BLOCK_SIZE, BLOCK_SIZE)
+                .append(AzureBlobStorageIOConnector.UPLOAD_THREADS, 3);
+        options.putAll(extraOptions);
+        return new AzureBlobStorageIOConnector(options);
+    }
+
+    @Test
+    public void testIsValid() {
+        AzureBlobStorageIOConnector io = newConnector(new ObjectMap());
+        assertTrue(io.isValid(uri));
+        assertTrue(io.isValid(URI.create("https://" + ACCOUNT + ".blob.core.windows.net/container/file.bin")));
+        assertFalse(io.isValid(URI.create("http://localhost:1/" + ACCOUNT + "/container/file.bin")));
+        assertFalse(io.isValid(URI.create("file:///container/file.bin")));
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        AzureBlobStorageIOConnector io = newConnector(new ObjectMap());
+        try (InputStream is = io.newInputStreamRaw(uri)) {
+            assertArrayEquals(data, IOUtils.toByteArray(is));
+        }
+        // The size is taken from the first range, without requesting the blob properties
+        assertEquals(0, blobService.propertiesRequests.get());
+        assertEquals((data.length + CHUNK_SIZE - 1) / CHUNK_SIZE, blobService.downloadRequests.get());
+    }
+
+    @Test
+    public void testReadSmallBlob() throws Exception {
+        AzureBlobStorageIOConnector io = newConnector(new ObjectMap());
+        URI small = URI.create(endpoint + "/container/small.bin");
+        blobService.putBlob(small.getPath(), Arrays.copyOf(data, 1000));
+        try (InputStream is = io.newInputStreamRaw(small)) {
+            assertArrayEquals(Arrays.copyOf(data, 1000), IOUtils.toByteArray(is));
+        }
+        assertEquals(1, blobService.downloadRequests.get());
+
+        URI empty = URI.create(endpoint + "/container/empty.bin");
+        blobService.putBlob(empty.getPath(), new byte[0]);
+        try (InputStream is = io.newInputStreamRaw(empty)) {
+            assertEquals(0, IOUtils.toByteArray(is).length);
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testReadMissingBlob() throws Exception {
+        newConnector(new ObjectMap()).newInputStreamRaw(URI.create(endpoint + "/container/missing.bin"));
+    }
+
+    @Test
+    public void testRangedRead() throws Exception {
+        AzureBlobStorageIOConnector io = newConnector(new ObjectMap());
+        try (InputStream is = io.newInputStreamRaw(uri, 1000, 500)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 1000, 1500), IOUtils.toByteArray(is));
+        }
+        try (InputStream is = io.newInputStreamRaw(uri, data.length - 10, -1)) {
+            assertArrayEquals(Arrays.copyOfRange(data, data.length - 10, data.length), IOUtils.toByteArray(is));
+        }
+    }
+
+    @Test
+    public void testReadModifiedBlob() throws Exception {
+        AzureBlobStorageIOConnector io = newConnector(new ObjectMap());
+        try (InputStream is = io.newInputStreamRaw(uri)) {
+            assertEquals(data[0] & 0xFF, is.read());
+            // All the ranges must be read from the same version of the blob
+            blobService.putBlob(uri.getPath(), new byte[data.length]);
+            IOUtils.toByteArray(is);
+            fail("Expected read to fail");
+        } catch (IOException e) {
+            assertEquals(412, blobService.lastErrorStatus);
+        }
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        AzureBlobStorageIOConnector io = newConnector(new ObjectMap());
+        URI target = URI.create(endpoint + "/container/copy.bin");
+        try (OutputStream os = io.newOutputStreamRaw(target)) {
+            // Mix single byte and array writes
+            os.write(data[0]);
+            os.write(data, 1, 5000);
+            os.write(data, 5001, data.length - 5001);
+        }
+        assertArrayEquals(data, blobService.blobs.get(target.getPath()));
+
+        List<String> blockIds = blobService.committedBlockIds;
+        assertEquals((data.length + BLOCK_SIZE - 1) / BLOCK_SIZE, blockIds.size());
+        assertEquals(blockIds.size(), new HashSet<>(blockIds).size());
+        for (String blockId : blockIds) {
+            // All block ids of a blob must have the same length
+            assertEquals(blockIds.get(0).length(), blockId.length());
+        }
+        assertTrue(blobService.blocks.isEmpty());
+    }
+
+    @Test
+    public void testReadFromCache() throws Exception {
+        ObjectMap options = new ObjectMap(AzureBlobStorageIOConnector.CACHE_DIR, temporaryFolder.newFolder("cache").toString());
+        AzureBlobStorageIOConnector io = newConnector(options);
+        int numRanges = (data.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        for (int i = 0; i < 2; i++) {
+            try (InputStream is = io.newInputStreamRaw(uri)) {
+                assertArrayEquals(data, IOUtils.toByteArray(is));
+            }
+        }
+        assertEquals(2, blobService.propertiesRequests.get());
+        assertEquals(numRanges, blobService.downloadRequests.get());
+
+        // New version of the blob
+        byte[] newData = Arrays.copyOf(data, data.length);
+        newData[0]++;
+        blobService.putBlob(uri.getPath(), newData);
+        try (InputStream is = io.newInputStreamRaw(uri)) {
+            assertArrayEquals(newData, IOUtils.toByteArray(is));
+        }
+        assertEquals(numRanges * 2, blobService.downloadRequests.get());
+    }
+
+    @Test
+    public void testCacheMaxSize() throws Exception {
+        ObjectMap options = new ObjectMap(AzureBlobStorageIOConnector.CACHE_DIR, temporaryFolder.newFolder("cache").toString())
+                .append(AzureBlobStorageIOConnector.CACHE_MAX_SIZE, data.length + 1);
+        AzureBlobStorageIOConnector io = newConnector(options);
+        URI other = URI.create(endpoint + "/container/other.bin");
+        blobService.putBlob(other.getPath(), data);
+
+        for (URI blob : Arrays.asList(uri, other, uri)) {
+            try (InputStream is = io.newInputStreamRaw(blob)) {
+                assertArrayEquals(data, IOUtils.toByteArray(is));
+            }
+        }
+        // Only one file fits in the cache, so every read downloads the blob
+        assertEquals(3 * ((data.length + CHUNK_SIZE - 1) / CHUNK_SIZE), blobService.downloadRequests.get());
+        assertEquals(1, temporaryFolder.getRoot().toPath().resolve("cache").toFile().list().length);
+    }
+
+    /**
+     * Minimal Blob service. Supports Get Blob Properties, ranged Get Blob, Put Block and Put Block List.
+     */
+    private static class BlobService {
+        private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+        private static final Pattern BLOCK_ID = Pattern.compile("<(?:Latest|Uncommitted|Committed)>([^<]*)</");
+        private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+        private final Map<String, String> etags = new ConcurrentHashMap<>();
+        private final Map<String, byte[]> blocks = new ConcurrentHashMap<>();
+        private final AtomicInteger etagCount = new AtomicInteger();
+        private final AtomicInteger propertiesRequests = new AtomicInteger();
+        private final AtomicInteger downloadRequests = new AtomicInteger();
+        private volatile List<String> committedBlockIds = new CopyOnWriteArrayList<>();
+        private volatile int lastErrorStatus;
+
+        void putBlob(String path, byte[] blob) {
+            blobs.put(path, blob);
+            etags.put(path, "\"0x" + etagCount.incrementAndGet() + "\"");
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            exchange.getResponseHeaders().set("x-ms-request-id", UUID.randomUUID().toString());
+            exchange.getResponseHeaders().set("x-ms-version", "2018-11-09");
+            switch (exchange.getRequestMethod()) {
+                case "HEAD":
+                    propertiesRequests.incrementAndGet();
+                    if (blobs.containsKey(path)) {
+                        setBlobHeaders(exchange, path);
+                        exchange.getResponseHeaders().set("Content-Length", String.valueOf(blobs.get(path).length));
+                        exchange.sendResponseHeaders(200, -1);
+                    } else {
+                        sendError(exchange, 404, "BlobNotFound");
+                    }
+                    break;
+                case "GET":
+                    downloadRequests.incrementAndGet();
+                    download(exchange, path);
+                    break;
+                case "PUT":
+                    byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+                    if ("block".equals(query.get("comp"))) {
+                        blocks.put(path + "#" + query.get("blockid"), body);
+                    } else if ("blocklist".equals(query.get("comp"))) {
+                        List<String> blockIds = new ArrayList<>();
+                        Matcher matcher = BLOCK_ID.matcher(new String(body, StandardCharsets.UTF_8));
+                        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+                        while (matcher.find()) {
+                            blockIds.add(matcher.group(1));
+                            blob.write(blocks.remove(path + "#" + matcher.group(1)));
+                        }
+                        committedBlockIds = blockIds;
+                        putBlob(path, blob.toByteArray());
+                        setBlobHeaders(exchange, path);
+                    } else {
+                        sendError(exchange, 400, "UnsupportedQueryParameter");
+                        break;
+                    }
+                    exchange.sendResponseHeaders(201, -1);
+                    break;
+                default:
+                    sendError(exchange, 400, "UnsupportedHttpVerb");
+                    break;
+            }
+            exchange.close();
+        }
+
+        private void download(HttpExchange exchange, String path) throws IOException {
+            byte[] blob = blobs.get(path);
+            if (blob == null) {
+                sendError(exchange, 404, "BlobNotFound");
+                return;
+            }
+            String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+            if (ifMatch != null && !ifMatch.equals(etags.get(path))) {
+                sendError(exchange, 412, "ConditionNotMet");
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("x-ms-range");
+            if (range == null) {
+                range = exchange.getRequestHeaders().getFirst("Range");
+            }
+            int start = 0;
+            int end = blob.length;
+            int status = 200;
+            if (range != null) {
+                Matcher matcher = RANGE.matcher(range);
+                assertTrue(range, matcher.matches());
+                start = Integer.parseInt(matcher.group(1));
+                if (start >= blob.length) {
+                    exchange.getResponseHeaders().set("Content-Range", "bytes */" + blob.length);
+                    sendError(exchange, 416, "InvalidRange");
+                    return;
+                }
+                if (!matcher.group(2).isEmpty()) {
+                    end = Math.min(blob.length, Integer.parseInt(matcher.group(2)) + 1);
+                }
+                status = 206;
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + blob.length);
+            }
+            setBlobHeaders(exchange, path);
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            exchange.sendResponseHeaders(status, end - start);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(blob, start, end - start);
+            }
+        }
+
+        private void setBlobHeaders(HttpExchange exchange, String path) {
+            exchange.getResponseHeaders().set("ETag", etags.get(path));
+            exchange.getResponseHeaders().set("Last-Modified", DATE_FORMAT.format(ZonedDateTime.now(ZoneOffset.UTC)));
+            exchange.getResponseHeaders().set("x-ms-blob-type", "BlockBlob");
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        }
+
+        private void sendError(HttpExchange exchange, int status, String errorCode) throws IOException {
+            lastErrorStatus = status;
+            exchange.getResponseHeaders().set("x-ms-error-code", errorCode);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                byte[] body = ("<?xml version=\"1.0\" encoding=\"utf-8\"?><Error><Code>" + errorCode + "</Code><Message>"
+                        + errorCode + "</Message></Error>").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/xml");
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+        }
+
+        private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+            Map<String, String> query = new HashMap<>();
+            if (rawQuery != null) {
+                for (String param : rawQuery.split("&")) {
+                    int idx = param.indexOf('=');
+                    if (idx > 0) {
+                        query.put(param.substring(0, idx), URLDecoder.decode(param.substring(idx + 1), "UTF-8"));
+                    }
+                }
+            }
+            return query;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.opencb.opencga.storage.core.io.managers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the parallel transfers against a local HTTP server that stands in for the blob storage.
+ */
+public class ParallelTransferTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private HttpIOConnector io;
+    private URI uri;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        data = new byte[1000003];
+        new Random(1).nextBytes(data);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        io = new HttpIOConnector();
+        io.files.put("/container/file.bin", data);
+        server.createContext("/", io::handle);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/container/file.bin");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRangedRead() throws Exception {
+        try (InputStream is = io.newInputStreamRaw(uri, 1000, 500)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 1000, 1500), IOUtils.toByteArray(is));
+        }
+        try (InputStream is = io.newInputStreamRaw(uri, data.length - 10, -1)) {
+            assertArrayEquals(Arrays.copyOfRange(data, data.length - 10, data.length), IOUtils.toByteArray(is));
+        }
+    }
+
+    @Test
+    public void testLocalRangedRead() throws Exception {
+        Path file = temporaryFolder.newFile("file.bin").toPath();
+        Files.write(file, data);
+        try (InputStream is = new LocalIOConnector().newInputStreamRaw(file.toUri(), 12345, 1000)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 12345, 13345), IOUtils.toByteArray(is));
+        }
+        // Default implementation, skipping the first bytes
+        try (InputStream is = new ByteArrayInputStream(data)) {
+            LimitedInputStream.skipFully(is, 12345);
+            assertArrayEquals(Arrays.copyOfRange(data, 12345, 13345), IOUtils.toByteArray(new LimitedInputStream(is, 1000)));
+        }
+    }
+
+    @Test
+    public void testParallelRangeInputStream() throws Exception {
+        for (int threads = 1; threads <= 4; threads++) {
+            for (int chunkSize : new int[]{65536, 300000, 2000000}) {
+                io.requests.set(0);
+                try (InputStream is = new ParallelRangeInputStream(io, uri, data.length, chunkSize, threads)) {
+                    assertArrayEquals(data, IOUtils.toByteArray(is));
+                }
+                assertEquals((data.length + chunkSize - 1) / chunkSize, io.requests.get());
+            }
+        }
+    }
+
+    @Test
+    public void testParallelRangeInputStreamRetry() throws Exception {
+        io.failures.set(2);
+        try (InputStream is = new ParallelRangeInputStream(io, uri, data.length, 100000, 4)) {
+            assertArrayEquals(data, IOUtils.toByteArray(is));
+        }
+    }
+
+    @Test
+    public void testParallelBlockOutputStream() throws Exception {
+        URI target = uri.resolve("/container/copy.bin");
+        for (int threads = 1; threads <= 4; threads++) {
+            try (OutputStream os = io.newOutputStreamRaw(target, 10000, threads)) {
+                // Mix single byte and array writes
+                os.write(data[0]);
+                os.write(data, 1, 5000);
+                os.write(data, 5001, data.length - 5001);
+            }
+            assertArrayEquals(data, io.files.get(target.getPath()));
+            assertEquals((data.length + 9999) / 10000, io.numBlocks);
+        }
+
+        try (OutputStream os = io.newOutputStreamRaw(target, 10000, 2)) {
+            // Empty file
+            assertNotNull(os);
+        }
+        assertEquals(0, io.files.get(target.getPath()).length);
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelBlockOutputStreamBoundedBlocks() throws Exception {
+        int threads = 2;
+        CountDownLatch uploadsLatch = new CountDownLatch(1);
+        AtomicInteger uploadedBlocks = new AtomicInteger();
+        AtomicInteger writtenBlocks = new AtomicInteger();
+        OutputStream os = new ParallelBlockOutputStream(10, threads) {
+            @Override
+            protected void uploadBlock(int blockIndex, byte[] data, int length) throws IOException {
+                try {
+                    uploadsLatch.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                uploadedBlocks.incrementAndGet();
+            }
+
+            @Override
+            protected void commit(int numBlocks) {
+            }
+        };
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 10; i++) {
+                    os.write(data, i * 10, 10);
+                    writtenBlocks.incrementAndGet();
+                }
+                os.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.start();
+
+        // Wait until the writer is blocked waiting for a free block
+        while (writer.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        assertEquals(threads + 1, writtenBlocks.get());
+        assertEquals(0, uploadedBlocks.get());
+
+        uploadsLatch.countDown();
+        writer.join();
+        assertEquals(10, writtenBlocks.get());
+        assertEquals(10, uploadedBlocks.get());
+    }
+
+    @Test
+    public void testLocalFileCache() throws Exception {
+        LocalFileCache cache = new LocalFileCache(temporaryFolder.newFolder("cache").toPath());
+        AtomicInteger downloads = new AtomicInteger();
+        LocalFileCache.Downloader downloader = target -> {
+            downloads.incrementAndGet();
+            try (InputStream is = new ParallelRangeInputStream(io, uri, data.length, 100000, 4)) {
+                Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        };
+
+        Path file = cache.get(uri, "etag1", downloader);
+        assertArrayEquals(data, Files.readAllBytes(file));
+        assertEquals(file, cache.get(uri, "etag1", downloader));
+        assertEquals(1, downloads.get());
+
+        // New version of the file
+        Path newFile = cache.get(uri, "etag2", downloader);
+        assertEquals(2, downloads.get());
+        assertNotEquals(file, newFile);
+        assertFalse(Files.exists(file));
+        assertEquals(1, cache.getCacheDir().toFile().list().length);
+    }
+
+    /**
+     * Minimal blob storage over HTTP. Supports ranged GETs, and PUTs of blocks that are concatenated at commit.
+     */
+    private static class HttpIOConnector extends LocalIOConnector {
+        private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+        private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+        private final Map<String, byte[]> blocks = new ConcurrentHashMap<>();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile int numBlocks;
+
+        @Override
+        public boolean isValid(URI uri) {
+            return "http".equals(uri.getScheme());
+        }
+
+        @Override
+        public InputStream newInputStreamRaw(URI uri) throws IOException {
+            return newInputStreamRaw(uri, 0, -1);
+        }
+
+        @Override
+        public InputStream newInputStreamRaw(URI uri, long offset, long length) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+            String end = length < 0 ? "" : String.valueOf(offset + length - 1);
+            connection.setRequestProperty("Range", "bytes=" + offset + "-" + end);
+            if (connection.getResponseCode() != 206) {
+                connection.disconnect();
+                throw new IOException("Unexpected response " + connection.getResponseCode());
+            }
+            return connection.getInputStream();
+        }
+
+        OutputStream newOutputStreamRaw(URI uri, int blockSize, int threads) {
+            return new ParallelBlockOutputStream(blockSize, threads) {
+                @Override
+                protected void uploadBlock(int blockIndex, byte[] data, int length) throws IOException {
+                    put(uri.resolve(uri.getPath() + "?block=" + blockIndex), Arrays.copyOf(data, length));
+                }
+
+                @Override
+                protected void commit(int numBlocks) throws IOException {
+                    put(uri.resolve(uri.getPath() + "?commit=" + numBlocks), new byte[0]);
+                }
+            };
+        }
+
+        private void put(URI uri, byte[] body) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+            connection.setRequestMethod("PUT");
+            connection.setDoOutput(true);
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(body);
+            }
+            if (connection.getResponseCode() != 201) {
+                throw new IOException("Unexpected response " + connection.getResponseCode());
+            }
+            connection.disconnect();
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getQuery();
+            if (exchange.getRequestMethod().equals("PUT")) {
+                byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+                String[] param = query.split("=");
+                if (param[0].equals("block")) {
+                    blocks.put(path + "#" + param[1], body);
+                } else {
+                    numBlocks = Integer.parseInt(param[1]);
+                    ByteArrayOutputStream file = new ByteArrayOutputStream();
+                    for (int i = 0; i < numBlocks; i++) {
+                        file.write(blocks.remove(path + "#" + i));
+                    }
+                    files.put(path, file.toByteArray());
+                }
+                exchange.sendResponseHeaders(201, -1);
+            } else {
+                requests.incrementAndGet();
+                byte[] file = files.get(path);
+                Matcher matcher = RANGE.matcher(exchange.getRequestHeaders().getFirst("Range"));
+                if (file == null || !matcher.matches()) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else if (failures.getAndUpdate(i -> Math.max(0, i - 1)) > 0) {
+                    exchange.sendResponseHeaders(500, -1);
+                } else {
+                    int start = Integer.parseInt(matcher.group(1));
+                    int end = matcher.group(2).isEmpty() ? file.length : Integer.parseInt(matcher.group(2)) + 1;
+                    exchange.sendResponseHeaders(206, end - start);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(file, start, end - start);
+                    }
+                }
+            }
+            exchange.close();
+        }
+    }
+}
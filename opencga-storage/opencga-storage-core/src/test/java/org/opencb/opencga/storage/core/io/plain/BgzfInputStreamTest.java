@@ -0,0 +1,133 @@
+package org.opencb.opencga.storage.core.io.plain;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class BgzfInputStreamTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRead() throws Exception {
+        byte[] data = createData(100000).getBytes(StandardCharsets.UTF_8);
+        byte[] bgzf = bgzip(data);
+
+        assertTrue(BgzfInputStream.isBgzf(new BufferedInputStream(new ByteArrayInputStream(bgzf))));
+        for (int threads = 1; threads <= 4; threads++) {
+            try (BgzfInputStream is = new BgzfInputStream(new BufferedInputStream(new ByteArrayInputStream(bgzf)), threads)) {
+                assertArrayEquals(data, IOUtils.toByteArray(is));
+                assertEquals(bgzf.length, is.getCompressedOffset());
+            }
+        }
+    }
+
+    @Test
+    public void testReadSingleBytes() throws Exception {
+        // Real VCF file, with the EOF marker block at the end
+        byte[] data;
+        try (InputStream is = new GZIPInputStream(getClass().getResourceAsStream("/variant-test-file.vcf.gz"))) {
+            data = IOUtils.toByteArray(is);
+        }
+        Path bgzfFile = temporaryFolder.getRoot().toPath().resolve("variant-test-file.vcf.gz");
+        Files.write(bgzfFile, bgzip(data));
+
+        for (int threads = 1; threads <= 4; threads++) {
+            try (BgzfInputStream is = new BgzfInputStream(new BufferedInputStream(Files.newInputStream(bgzfFile)), threads)) {
+                ByteArrayOutputStream read = new ByteArrayOutputStream(data.length);
+                int b;
+                while ((b = is.read()) != -1) {
+                    read.write(b);
+                }
+                assertEquals(-1, is.read());
+                assertArrayEquals(data, read.toByteArray());
+                assertEquals(Files.size(bgzfFile), is.getCompressedOffset());
+            }
+        }
+    }
+
+    @Test
+    public void testIsBgzf() throws Exception {
+        byte[] data = createData(100).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream os = new GZIPOutputStream(gzip)) {
+            os.write(data);
+        }
+        assertFalse(BgzfInputStream.isBgzf(new BufferedInputStream(new ByteArrayInputStream(gzip.toByteArray()))));
+        assertFalse(BgzfInputStream.isBgzf(new BufferedInputStream(new ByteArrayInputStream(data))));
+        assertFalse(BgzfInputStream.isBgzf(new BufferedInputStream(new ByteArrayInputStream(new byte[0]))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedBlock() throws Exception {
+        byte[] bgzf = bgzip(createData(1000).getBytes(StandardCharsets.UTF_8));
+        // Modify the CRC of the first block
+        int blockSize = ((bgzf[16] & 0xFF) | ((bgzf[17] & 0xFF) << 8)) + 1;
+        bgzf[blockSize - 8]++;
+        try (BgzfInputStream is = new BgzfInputStream(new ByteArrayInputStream(bgzf), 2)) {
+            IOUtils.toByteArray(is);
+        }
+    }
+
+    @Test
+    public void testStringDataReader() throws Exception {
+        String data = createData(50000);
+        Path bgzfFile = temporaryFolder.getRoot().toPath().resolve("file.vcf.gz");
+        Files.write(bgzfFile, bgzip(data.getBytes(StandardCharsets.UTF_8)));
+        Path gzipFile = temporaryFolder.getRoot().toPath().resolve("file2.vcf.gz");
+        try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+            os.write(data.getBytes(StandardCharsets.UTF_8));
+        }
+
+        for (Path file : new Path[]{bgzfFile, gzipFile}) {
+            StringDataReader reader = new StringDataReader(file).setDecompressionThreads(4);
+            List<Long> readBytes = new ArrayList<>();
+            reader.setReadBytesListener((total, delta) -> readBytes.add(total));
+            reader.open();
+            reader.pre();
+            List<String> lines = new ArrayList<>();
+            List<String> batch;
+            while (!(batch = reader.read(1000)).isEmpty()) {
+                lines.addAll(batch);
+            }
+            reader.post();
+            reader.close();
+
+            assertEquals(data, String.join("\n", lines) + "\n");
+            if (file == bgzfFile) {
+                // Progress by compressed offset
+                assertEquals(Files.size(file), readBytes.get(readBytes.size() - 1).longValue());
+            }
+        }
+    }
+
+    private static String createData(int numLines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numLines; i++) {
+            sb.append("1\t").append(1000 + i).append("\t.\tA\tC\t.\tPASS\t.\tGT\t0/1\t").append(i % 7 == 0 ? "1/1" : "0/0").append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static byte[] bgzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bgzf = new ByteArrayOutputStream();
+        try (BlockCompressedOutputStream os = new BlockCompressedOutputStream(bgzf, (File) null)) {
+            os.write(data);
+        }
+        return bgzf.toByteArray();
+    }
+}
@@ -0,0 +1,51 @@
+package org.opencb.opencga.storage.core.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.run.Task;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StorageMetricsTest {
+
+    private StorageMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = new StorageMetrics();
+    }
+
+    @Test
+    public void testTimerPercentiles() {
+        Timer timer = metrics.timer("t");
+        for (int i = 0; i < 99; i++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        timer.record(TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(100, timer.getCount());
+        assertTrue(timer.getPercentile(0.5) >= 1);
+        assertTrue(timer.getPercentile(0.5) < 3);
+        assertEquals(10000, timer.getPercentile(1), 0.001);
+    }
+
+    @Test
+    public void testTimedTask() throws Exception {
+        Task<Integer, Integer> task = metrics.timed("task", batch -> batch.subList(0, 1));
+        task.apply(Arrays.asList(1, 2, 3));
+        task.apply(Arrays.asList(4, 5));
+
+        assertEquals(2, metrics.timer("task.batch").getCount());
+        assertEquals(5, metrics.getCounter("task.in"));
+        assertEquals(2, metrics.getCounter("task.out"));
+
+        Map<String, Object> snapshot = metrics.snapshot();
+        assertTrue(snapshot.containsKey("task.batch"));
+        assertEquals(5L, snapshot.get("task.in"));
+    }
+}
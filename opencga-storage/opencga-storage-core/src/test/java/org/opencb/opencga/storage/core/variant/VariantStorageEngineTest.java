@@ -561,6 +561,24 @@ public abstract class VariantStorageEngineTest extends VariantStorageBaseTest {
 
     }
 
+    @Test
+    public void transformStatsMultiThread() throws Exception {
+        // The partial stats of each transform task are merged, so the result must not depend on the number of threads
+        List<VariantFileMetadata> fileMetadatas = new ArrayList<>();
+        List<ObjectMap> transformStats = new ArrayList<>();
+        for (int numThreads : new int[]{1, 4}) {
+            ObjectMap params = new ObjectMap(VariantStorageOptions.TRANSFORM_THREADS.key(), numThreads)
+                    .append(VariantStorageOptions.TRANSFORM_BATCH_SIZE.key(), 50);
+            StoragePipelineResult etlResult = runDefaultETL(inputUri, variantStorageEngine, newStudyMetadata(), params, true, false);
+            fileMetadatas.add(variantStorageEngine.getVariantReaderUtils().readVariantFileMetadata(etlResult.getTransformResult()));
+            transformStats.add(etlResult.getTransformStats());
+        }
+
+        assertEquals(fileMetadatas.get(0).getStats().getImpl(), fileMetadatas.get(1).getStats().getImpl());
+        assertEquals(transformStats.get(0).get("alleleFrequencyHistogram"), transformStats.get(1).get("alleleFrequencyHistogram"));
+        assertEquals(transformStats.get(0).get("depthHistogram"), transformStats.get(1).get("depthHistogram"));
+    }
+
     @Test
     public void indexWithOtherFields() throws Exception {
         indexWithOtherFields("GL,DS");
@@ -0,0 +1,100 @@
+package org.opencb.opencga.storage.core.variant.adaptors.iterators;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiVariantDBIteratorTest {
+
+    private List<Variant> variants;
+    private List<Integer> batchSizes;
+
+    @Before
+    public void setUp() {
+        variants = new ArrayList<>();
+        for (int i = 1; i <= 20000; i++) {
+            variants.add(new Variant("1:" + i + ":A:C"));
+        }
+        batchSizes = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Test
+    public void testPrefetchOrder() throws Exception {
+        assertEquals(expected(0, Integer.MAX_VALUE), read(new QueryOptions(), 0));
+        assertEquals(expected(0, Integer.MAX_VALUE), read(new QueryOptions(), 3));
+    }
+
+    @Test
+    public void testPrefetchLimitSkip() throws Exception {
+        QueryOptions options = new QueryOptions(QueryOptions.LIMIT, 10).append(QueryOptions.SKIP, 5);
+        assertEquals(expected(5, 10), read(options, 0));
+        assertEquals(expected(5, 10), read(options, 3));
+
+        options = new QueryOptions(QueryOptions.SKIP, 6000);
+        assertEquals(expected(6000, Integer.MAX_VALUE), read(options, 3));
+    }
+
+    @Test
+    public void testPrefetchBatchSize() throws Exception {
+        QueryOptions options = new QueryOptions(QueryOptions.LIMIT, 1000);
+        assertEquals(expected(0, 1000), read(options, 3));
+
+        // Prefetched batches are sized with the match ratio of the first batch, instead of using the max batch size
+        assertTrue(batchSizes.size() > 1);
+        for (Integer batchSize : batchSizes) {
+            assertTrue(String.valueOf(batchSizes), batchSize < 5000);
+        }
+    }
+
+    @Test
+    public void testPrefetchStopsAtLimit() throws Exception {
+        QueryOptions options = new QueryOptions(QueryOptions.LIMIT, 10);
+        assertEquals(expected(0, 10), read(options, 3));
+
+        // The first batch already fetches all the rows
+        assertEquals(1, batchSizes.size());
+    }
+
+    private List<Variant> expected(int skip, int limit) {
+        return variants.stream().filter(this::matches).skip(skip).limit(limit).collect(Collectors.toList());
+    }
+
+    private List<Variant> read(QueryOptions options, int prefetch) throws Exception {
+        batchSizes.clear();
+        List<Variant> result = new ArrayList<>();
+        try (MultiVariantDBIterator iterator = new MultiVariantDBIterator(variants.iterator(), 100, new Query(), options,
+                this::query, prefetch)) {
+            iterator.forEachRemaining(result::add);
+        }
+        return result;
+    }
+
+    private VariantDBIterator query(Query query, QueryOptions options) {
+        List<?> ids = query.getAsList(VariantQueryParam.ID.key());
+        batchSizes.add(ids.size());
+        List<Variant> result = new ArrayList<>();
+        for (Object id : ids) {
+            Variant variant = (Variant) id;
+            if (matches(variant)) {
+                result.add(variant);
+            }
+        }
+        int limit = options.getInt(QueryOptions.LIMIT, Integer.MAX_VALUE);
+        return VariantDBIterator.wrapper(result.subList(0, Math.min(limit, result.size())).iterator());
+    }
+
+    private boolean matches(Variant variant) {
+        return variant.getStart() % 3 == 0;
+    }
+}
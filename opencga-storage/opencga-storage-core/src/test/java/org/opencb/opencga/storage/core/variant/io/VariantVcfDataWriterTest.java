@@ -20,9 +20,16 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.junit.Test;
 import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.models.variant.avro.AlternateCoordinate;
+import org.opencb.biodata.models.variant.avro.*;
+import org.opencb.biodata.models.variant.metadata.VariantFileHeader;
+import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.metadata.StudyConfiguration;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -87,4 +94,76 @@ public class VariantVcfDataWriterTest {
         assertEquals("Ref allele not correctly adjusted", "TT", alles.get(2));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void directEncoder() throws Exception {
+        StudyConfiguration sc = new StudyConfiguration(1, "1");
+        sc.getCohortIds().put(StudyEntry.DEFAULT_COHORT, 0);
+        sc.setVariantHeader(VariantFileHeader.newBuilder().setVersion("").setComplexLines(Arrays.asList(
+                new VariantFileHeaderComplexLine("FORMAT", "DP", "", "1", "Integer", Collections.emptyMap()),
+                new VariantFileHeaderComplexLine("FORMAT", "AD", "", "R", "Integer", Collections.emptyMap()),
+                new VariantFileHeaderComplexLine("FORMAT", "XX", "", "1", "String", Collections.emptyMap()))).build());
+
+        Variant variant1 = Variant.newBuilder("1:100:A:C").setStudyId("1").setFileId("5")
+                .setFormat("GT", "FT", "DP", "AD")
+                .addSample("S1", "0/1", "PASS", "10", "5,5")
+                .addSample("S2", "1/1", "LowQual", ".", ".")
+                .addSample("S3", "./.", ".", ".", ".")
+                .build();
+        variant1.setId("rs100");
+        VariantStats stats = new VariantStats();
+        stats.setRefAlleleCount(3);
+        stats.setAltAlleleCount(3);
+        stats.setAltAlleleFreq(0.5f);
+        variant1.getStudy("1").setStats(StudyEntry.DEFAULT_COHORT, stats);
+
+        Variant variant2 = Variant.newBuilder("1:200:AT:-").setStudyId("1").setFileId("5")
+                .setFormat("GT", "XX")
+                .addSample("S1", "0|1", "a")
+                .addSample("S2", "0/0", ".")
+                .addSample("S3", "1/1", "b\u00e9")
+                .build();
+        ConsequenceType consequenceType = new ConsequenceType();
+        consequenceType.setGeneName("GENE1");
+        consequenceType.setSequenceOntologyTerms(Collections.singletonList(new SequenceOntologyTerm("SO:0001583", "missense_variant")));
+        VariantAnnotation annotation = new VariantAnnotation();
+        annotation.setConsequenceTypes(Collections.singletonList(consequenceType));
+        variant2.setAnnotation(annotation);
+
+        // Cohort not defined in the header. Can not be written
+        Variant variant3 = Variant.newBuilder("1:300:G:T").setStudyId("1").setFileId("5")
+                .setFormat("GT")
+                .addSample("S1", "0/1")
+                .addSample("S2", "0/1")
+                .addSample("S3", "0/0")
+                .build();
+        variant3.getStudy("1").setStats("OTHER", stats);
+
+        List<Variant> variants = Arrays.asList(variant1, variant2, variant3);
+        for (boolean exportGenotype : new boolean[]{true, false}) {
+            String expected = writeVcf(sc, variants, exportGenotype, false);
+            String actual = writeVcf(sc, variants, exportGenotype, true);
+            assertEquals(expected, actual);
+            assertEquals(2, Arrays.stream(actual.split("\n")).filter(line -> !line.startsWith("#")).count());
+        }
+    }
+
+    private String writeVcf(StudyConfiguration sc, List<Variant> variants, boolean exportGenotype, boolean directEncoder) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        VariantVcfDataWriter writer = new VariantVcfDataWriter(sc, outputStream, null,
+                new QueryOptions("annotations", "gene,consequenceType")) {
+            @Override
+            protected List<String> getSamples() {
+                return exportGenotype ? Arrays.asList("S1", "S2", "S3") : Collections.emptyList();
+            }
+        };
+        writer.setSampleNameConverter(s -> "ID_" + s);
+        writer.setExportGenotype(exportGenotype);
+        writer.setDirectEncoder(directEncoder);
+        writer.open();
+        writer.pre();
+        writer.write(variants);
+        writer.post();
+        writer.close();
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
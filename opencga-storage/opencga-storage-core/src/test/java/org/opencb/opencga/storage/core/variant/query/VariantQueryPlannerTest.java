@@ -0,0 +1,81 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.junit.Test;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VariantQueryPlannerTest {
+
+    @Test
+    public void testPreferenceOrder() throws Exception {
+        StubExecutor first = new StubExecutor(true, 1000);
+        StubExecutor second = new StubExecutor(true, 10);
+        VariantQueryPlanner planner = new VariantQueryPlanner(Arrays.asList(first, second));
+
+        assertSame(first, planner.plan(new Query(), new QueryOptions(), false).getExecutor());
+    }
+
+    @Test
+    public void testCostBased() throws Exception {
+        StubExecutor notEligible = new StubExecutor(false, 1);
+        StubExecutor expensive = new StubExecutor(true, 1000);
+        StubExecutor cheap = new StubExecutor(true, 10);
+        StubExecutor unknown = new StubExecutor(true, VariantQueryExecutor.UNKNOWN_COST);
+        VariantQueryPlanner planner = new VariantQueryPlanner(Arrays.asList(notEligible, expensive, cheap, unknown));
+
+        VariantQueryPlanner.VariantQueryPlan plan = planner.plan(new Query(), new QueryOptions(), true);
+        assertSame(cheap, plan.getExecutor());
+        assertEquals(10, plan.getEstimatedCost(), 0);
+
+        ObjectMap explain = plan.explain();
+        assertEquals(10.0, explain.get("estimatedCost"));
+        assertEquals(4, ((List<?>) explain.get("alternatives")).size());
+    }
+
+    @Test
+    public void testUnknownCostKeepsPreferenceOrder() throws Exception {
+        StubExecutor mandatory = new StubExecutor(true, VariantQueryExecutor.UNKNOWN_COST);
+        StubExecutor cheap = new StubExecutor(true, 10);
+        VariantQueryPlanner planner = new VariantQueryPlanner(Arrays.asList(mandatory, cheap));
+
+        assertSame(mandatory, planner.plan(new Query(), new QueryOptions(), true).getExecutor());
+    }
+
+    private static class StubExecutor extends VariantQueryExecutor {
+        private final boolean eligible;
+        private final double cost;
+
+        StubExecutor(boolean eligible, double cost) {
+            super(null, "stub", new ObjectMap());
+            this.eligible = eligible;
+            this.cost = cost;
+        }
+
+        @Override
+        public boolean canUseThisExecutor(Query query, QueryOptions options) {
+            return eligible;
+        }
+
+        @Override
+        public double estimateCost(Query query, QueryOptions options) {
+            return cost;
+        }
+
+        @Override
+        public DataResult<Long> count(Query query) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected Object getOrIterator(Query query, QueryOptions options, boolean iterator) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.opencb.opencga.storage.core.variant.search;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class LocalVariantSearchChangeLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LocalVariantSearchChangeLog changeLog;
+
+    @Before
+    public void setUp() throws Exception {
+        changeLog = new LocalVariantSearchChangeLog(temporaryFolder.newFolder("changelog").toPath());
+    }
+
+    @Test
+    public void testFreezeAndCommit() throws Exception {
+        changeLog.append(1, Arrays.asList("1:100:A:T", "1:200:C:G"));
+        changeLog.append(VariantSearchChangeLog.ALL_STUDIES, Collections.singletonList("2:300:G:A"));
+
+        assertEquals(new HashSet<>(Arrays.asList("1:100:A:T", "1:200:C:G", "2:300:G:A")), toSet(changeLog.freeze()));
+
+        // Changes appended after freezing are kept for the next synchronization
+        changeLog.append(2, Collections.singletonList("3:400:T:C"));
+        changeLog.commit();
+
+        assertEquals(Collections.singleton("3:400:T:C"), toSet(changeLog.freeze()));
+        changeLog.commit();
+
+        assertFalse(changeLog.freeze().hasNext());
+    }
+
+    @Test
+    public void testFreezeWithoutCommit() throws Exception {
+        changeLog.append(1, Collections.singletonList("1:100:A:T"));
+        changeLog.freeze();
+        changeLog.append(1, Collections.singletonList("1:200:C:G"));
+
+        // Previously frozen changes are not lost if the synchronization failed
+        assertEquals(new HashSet<>(Arrays.asList("1:100:A:T", "1:200:C:G")), toSet(changeLog.freeze()));
+    }
+
+    @Test
+    public void testCommitOnlyReadChanges() throws Exception {
+        LocalVariantSearchChangeLog otherChangeLog =
+                new LocalVariantSearchChangeLog(temporaryFolder.getRoot().toPath().resolve("changelog"));
+        changeLog.append(1, Collections.singletonList("1:100:A:T"));
+        assertEquals(Collections.singleton("1:100:A:T"), toSet(changeLog.freeze()));
+
+        // Another process appends and freezes before the first synchronization commits
+        otherChangeLog.append(1, Collections.singletonList("1:200:C:G"));
+        assertEquals(new HashSet<>(Arrays.asList("1:100:A:T", "1:200:C:G")), toSet(otherChangeLog.freeze()));
+        changeLog.commit();
+
+        assertEquals(Collections.singleton("1:200:C:G"), toSet(changeLog.freeze()));
+    }
+
+    private static Set<String> toSet(Iterator<String> iterator) {
+        Set<String> set = new HashSet<>();
+        iterator.forEachRemaining(set::add);
+        return set;
+    }
+}
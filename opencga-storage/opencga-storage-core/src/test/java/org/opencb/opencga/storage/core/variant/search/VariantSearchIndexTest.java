@@ -6,6 +6,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.ProgressLogger;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
@@ -16,16 +18,21 @@ import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchLoadListener;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchLoadResult;
+import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchManager;
 import org.opencb.opencga.storage.core.variant.solr.VariantSolrExternalResource;
 import org.opencb.opencga.storage.core.variant.stats.DefaultVariantStatisticsManager;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created on 19/04/18.
@@ -138,6 +145,42 @@ public abstract class VariantSearchIndexTest extends VariantStorageBaseTest {
         checkVariantSearchIndex(dbAdaptor);
     }
 
+    @Test
+    public void testBulkLoadMarksVariantsAfterCommit() throws Exception {
+        VariantDBAdaptor dbAdaptor = variantStorageEngine.getDBAdaptor();
+        runDefaultETL(smallInputUri, variantStorageEngine, newStudyMetadata());
+        long expected = dbAdaptor.count(new Query()).first();
+
+        VariantSearchManager variantSearchManager = variantStorageEngine.getVariantSearchManager();
+        AtomicLong synchronizedVariants = new AtomicLong();
+        VariantSearchLoadListener listener = new VariantSearchLoadListener(Collections.emptyMap()) {
+            @Override
+            protected void processAlreadySynchronizedVariants(List<Variant> alreadySynchronizedVariants) {
+            }
+
+            @Override
+            public void postLoad(List<Variant> variantList) throws IOException {
+                // Variants are marked as synchronized only once they are visible in the search engine
+                try {
+                    long committed = variantSearchManager.count(DB_NAME, new Query());
+                    assertTrue(committed >= synchronizedVariants.addAndGet(variantList.size()));
+                } catch (VariantSearchException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+
+        ObjectMap options = new ObjectMap(VariantStorageOptions.SEARCH_LOAD_BULK.key(), true)
+                .append(VariantStorageOptions.SEARCH_LOAD_THREADS.key(), 2);
+        VariantSearchLoadResult loadResult;
+        try (VariantDBIterator iterator = dbAdaptor.iterator(new Query(), new QueryOptions())) {
+            loadResult = variantSearchManager.load(DB_NAME, iterator, new ProgressLogger("Variants loaded in Solr:"), listener, options);
+        }
+        checkLoadResult(expected, loadResult);
+        assertEquals(expected, synchronizedVariants.get());
+        checkVariantSearchIndex(dbAdaptor);
+    }
+
     public void checkLoadResult(long expected, VariantSearchLoadResult loadResult) {
         assertEquals(expected, loadResult.getNumLoadedVariants());
         if (expected != loadResult.getNumProcessedVariants()) {
@@ -0,0 +1,90 @@
+package org.opencb.opencga.storage.core.variant.search.solr;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.AdditionalAttribute;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.AdditionalAttributes.GROUP_NAME;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.AdditionalAttributes.INDEX_STUDIES;
+
+public class VariantSearchPendingCommitTest {
+
+    @Test
+    public void testFlush() throws Exception {
+        for (int numVariants : new int[]{0, 1, 3, 7}) {
+            List<List<Variant>> batches = new ArrayList<>();
+            try (VariantSearchPendingCommit pendingCommit = new VariantSearchPendingCommit(3)) {
+                List<Variant> variants = new ArrayList<>();
+                for (int i = 0; i < numVariants; i++) {
+                    variants.add(variant(i));
+                }
+                // Add in batches of 2, different from the spill batch size
+                for (int i = 0; i < numVariants; i += 2) {
+                    pendingCommit.add(variants.subList(i, Math.min(i + 2, numVariants)));
+                }
+                assertEquals(numVariants, pendingCommit.size());
+                assertEquals(0, batches.size());
+
+                pendingCommit.flush(listener(batches));
+                assertEquals(0, pendingCommit.size());
+
+                List<Variant> notified = new ArrayList<>();
+                for (List<Variant> batch : batches) {
+                    assertTrue(batch.size() <= 3);
+                    notified.addAll(batch);
+                }
+                assertEquals(numVariants, notified.size());
+                for (int i = 0; i < numVariants; i++) {
+                    Variant expected = variants.get(i);
+                    Variant actual = notified.get(i);
+                    assertEquals(expected.toString(), actual.toString());
+                    assertEquals(expected.getStudies().get(0).getStudyId(), actual.getStudies().get(0).getStudyId());
+                    assertEquals(indexStudies(expected), indexStudies(actual));
+                }
+
+                // Nothing pending after the flush
+                batches.clear();
+                pendingCommit.flush(listener(batches));
+                assertEquals(0, batches.size());
+            }
+        }
+    }
+
+    private static Variant variant(int i) {
+        Variant variant = new Variant("1:" + (1000 + i) + ":A:C");
+        variant.setStudies(Collections.singletonList(new StudyEntry("study" + (i % 2))));
+        if (i % 3 == 0) {
+            VariantAnnotation annotation = new VariantAnnotation();
+            Map<String, AdditionalAttribute> additionalAttributes = new HashMap<>();
+            additionalAttributes.put(GROUP_NAME.key(), new AdditionalAttribute(Collections.singletonMap(INDEX_STUDIES.key(), "1,2")));
+            annotation.setAdditionalAttributes(additionalAttributes);
+            variant.setAnnotation(annotation);
+        }
+        return variant;
+    }
+
+    private static String indexStudies(Variant variant) {
+        if (variant.getAnnotation() == null) {
+            return null;
+        }
+        return variant.getAnnotation().getAdditionalAttributes().get(GROUP_NAME.key()).getAttribute().get(INDEX_STUDIES.key());
+    }
+
+    private static VariantSearchLoadListener listener(List<List<Variant>> batches) {
+        return new VariantSearchLoadListener(Collections.emptyMap()) {
+            @Override
+            protected void processAlreadySynchronizedVariants(List<Variant> alreadySynchronizedVariants) {
+            }
+
+            @Override
+            public void postLoad(List<Variant> variantList) {
+                batches.add(new ArrayList<>(variantList));
+            }
+        };
+    }
+}
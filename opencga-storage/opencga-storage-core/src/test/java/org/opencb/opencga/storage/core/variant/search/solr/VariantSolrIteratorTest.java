@@ -0,0 +1,126 @@
+package org.opencb.opencga.storage.core.variant.search.solr;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.SolrParams;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchModel;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchToVariantConverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class VariantSolrIteratorTest {
+
+    private static final int NUM_VARIANTS = 1050;
+
+    @Test(timeout = 10000)
+    public void testPrefetchOrder() throws Exception {
+        for (int prefetchPages : new int[]{0, 1, 3}) {
+            List<String> ids = new ArrayList<>();
+            try (VariantSolrIterator iterator = new VariantSolrIterator(mockSolrClient(-1), "collection", new SolrQuery("*:*"),
+                    new TestConverter(null), prefetchPages)) {
+                assertEquals(NUM_VARIANTS, iterator.getNumFound());
+                iterator.forEachRemaining(variant -> ids.add(variant.toString()));
+                assertEquals(NUM_VARIANTS, iterator.getCount());
+            }
+            assertEquals(expectedIds(), ids);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testPrefetchFetchError() throws Exception {
+        List<String> ids = new ArrayList<>();
+        try (VariantSolrIterator iterator = new VariantSolrIterator(mockSolrClient(5), "collection", new SolrQuery("*:*"),
+                new TestConverter(null), 2)) {
+            iterator.forEachRemaining(variant -> ids.add(variant.toString()));
+            fail("Expected VariantQueryException");
+        } catch (VariantQueryException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        // Variants returned before the error are in order
+        assertEquals(expectedIds().subList(0, ids.size()), ids);
+    }
+
+    @Test(timeout = 10000)
+    public void testPrefetchConvertError() throws Exception {
+        // Errors, and not only runtime exceptions, are propagated to the consumer
+        String failingId = expectedIds().get(550);
+        try (VariantSolrIterator iterator = new VariantSolrIterator(mockSolrClient(-1), "collection", new SolrQuery("*:*"),
+                new TestConverter(failingId), 2)) {
+            iterator.forEachRemaining(variant -> assertNotEquals(failingId, variant.toString()));
+            fail("Expected OutOfMemoryError");
+        } catch (OutOfMemoryError e) {
+            assertEquals(failingId, e.getMessage());
+        }
+    }
+
+    private static List<String> expectedIds() {
+        List<String> ids = new ArrayList<>(NUM_VARIANTS);
+        for (int i = 0; i < NUM_VARIANTS; i++) {
+            ids.add("1:" + (1000 + i) + ":A:C");
+        }
+        return ids;
+    }
+
+    /**
+     * Mock a Solr client returning the variants in pages, using the page number as cursor mark.
+     *
+     * @param failingPage Page that fails with an IOException. -1 to never fail
+     * @return SolrClient
+     */
+    private static SolrClient mockSolrClient(int failingPage) throws Exception {
+        List<String> ids = expectedIds();
+        SolrClient solrClient = mock(SolrClient.class);
+        when(solrClient.query(anyString(), any(SolrParams.class))).thenAnswer(invocation -> {
+            SolrParams params = invocation.getArgument(1);
+            String cursorMark = params.get(CursorMarkParams.CURSOR_MARK_PARAM);
+            int page = cursorMark.equals(CursorMarkParams.CURSOR_MARK_START) ? 0 : Integer.parseInt(cursorMark);
+            if (page == failingPage) {
+                throw new IOException("Error reading page " + page);
+            }
+            int rows = params.getInt("rows");
+            int start = Math.min(page * VariantSearchSolrIterator.BATCH_SIZE, NUM_VARIANTS);
+            int end = Math.min(start + rows, NUM_VARIANTS);
+            SolrDocumentList documents = new SolrDocumentList();
+            documents.setNumFound(NUM_VARIANTS);
+            List<VariantSearchModel> models = new ArrayList<>();
+            for (String id : ids.subList(start, end)) {
+                documents.add(new SolrDocument());
+                models.add(new VariantSearchModel().setId(id));
+            }
+            QueryResponse response = mock(QueryResponse.class);
+            when(response.getResults()).thenReturn(documents);
+            when(response.getBeans(VariantSearchModel.class)).thenReturn(models);
+            when(response.getNextCursorMark()).thenReturn(end == NUM_VARIANTS ? cursorMark : String.valueOf(page + 1));
+            return response;
+        });
+        return solrClient;
+    }
+
+    private static class TestConverter extends VariantSearchToVariantConverter {
+        private final String failingId;
+
+        TestConverter(String failingId) {
+            this.failingId = failingId;
+        }
+
+        @Override
+        public Variant convertToDataModelType(VariantSearchModel variantSearchModel) {
+            if (variantSearchModel.getId().equals(failingId)) {
+                throw new OutOfMemoryError(failingId);
+            }
+            return new Variant(variantSearchModel.getId());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.junit.Test;
+import org.opencb.biodata.models.clinical.pedigree.Pedigree;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
+import org.opencb.commons.run.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MergeableSampleVariantStatsCalculatorTest {
+
+    private static final List<String> SAMPLES = Arrays.asList("S1", "S2", "S3");
+    private static final String[] GENOTYPES = {"0/0", "0/1", "1/1", "./.", "0|1"};
+    private static final String[] ALTERNATES = {"C", "G", "T"};
+
+    @Test
+    public void testMerge() throws Exception {
+        List<Variant> variants = createVariants(90);
+
+        MergeableSampleVariantStatsCalculator calculator = newCalculator();
+        calculator.pre();
+        calculator.apply(variants);
+        calculator.post();
+        List<SampleVariantStats> expected = calculator.getSampleVariantStats();
+
+        PartialCalculators<MergeableSampleVariantStatsCalculator> calculators = new PartialCalculators<>(
+                MergeableSampleVariantStatsCalculatorTest::newCalculator, MergeableSampleVariantStatsCalculator::merge);
+        List<Task<Variant, Variant>> tasks = Arrays.asList(calculators.get(), calculators.get(), calculators.get());
+        for (int i = 0; i < variants.size(); i += 10) {
+            // Distribute the batches between the tasks
+            tasks.get(i / 10 % tasks.size()).apply(variants.subList(i, i + 10));
+        }
+        List<SampleVariantStats> actual = calculators.merge().getSampleVariantStats();
+
+        assertEquals(expected, actual);
+    }
+
+    private static MergeableSampleVariantStatsCalculator newCalculator() {
+        return new MergeableSampleVariantStatsCalculator(new Pedigree("", new ArrayList<>(), null), SAMPLES);
+    }
+
+    private static List<Variant> createVariants(int numVariants) {
+        Random random = new Random(1);
+        List<Variant> variants = new ArrayList<>(numVariants);
+        for (int i = 0; i < numVariants; i++) {
+            Variant variant = Variant.newBuilder((i % 2 + 1) + ":" + (1000 + i) + ":A:" + ALTERNATES[i % ALTERNATES.length])
+                    .setStudyId("1")
+                    .setFileId("1")
+                    .setQuality(i % 3 == 0 ? 10.0 : 50.0)
+                    .setFilter(i % 4 == 0 ? "LowQual" : "PASS")
+                    .setFormat("GT")
+                    .addSample("S1", GENOTYPES[random.nextInt(GENOTYPES.length)])
+                    .addSample("S2", GENOTYPES[random.nextInt(GENOTYPES.length)])
+                    .addSample("S3", GENOTYPES[random.nextInt(GENOTYPES.length)])
+                    .build();
+            variants.add(variant);
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,82 @@
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantBuilder;
+import org.opencb.biodata.models.variant.VariantFileMetadata;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class MergeableVariantSetStatsCalculatorTest {
+
+    private static final List<String> SAMPLES = Arrays.asList("S1", "S2", "S3");
+
+    @Test
+    public void testMergeHistograms() throws Exception {
+        PartialCalculators<MergeableVariantSetStatsCalculator> calculators = new PartialCalculators<>(
+                () -> new MergeableVariantSetStatsCalculator("1", newFileMetadata()), MergeableVariantSetStatsCalculator::merge);
+        calculators.get().apply(Arrays.asList(
+                newVariant("1:1000:A:C", "15", "0/0", "0/1", "./."),
+                newVariant("1:1001:A:C", "1000", "1/1", "0|1", "1/1")));
+        calculators.get().apply(Collections.singletonList(
+                newVariant("1:1002:A:C", "12", "0/0", "0/1", "0/0")));
+        MergeableVariantSetStatsCalculator merged = calculators.merge();
+
+        Map<String, Long> alleleFrequency = merged.getAlleleFrequencyHistogram();
+        assertEquals(1L, alleleFrequency.get("[0.1,0.2)").longValue());
+        assertEquals(1L, alleleFrequency.get("[0.2,0.3)").longValue());
+        assertEquals(1L, alleleFrequency.get("[0.8,0.9)").longValue());
+        assertEquals(3L, alleleFrequency.values().stream().mapToLong(Long::longValue).sum());
+
+        Map<String, Long> depth = merged.getDepthHistogram();
+        assertEquals(2L, depth.get("[10,20)").longValue());
+        assertEquals(1L, depth.get("[1000,inf)").longValue());
+    }
+
+    @Test
+    public void testHistograms() throws Exception {
+        MergeableVariantSetStatsCalculator calculator = new MergeableVariantSetStatsCalculator("1", newFileMetadata());
+        calculator.pre();
+        calculator.apply(Arrays.asList(
+                newVariant("1:1000:A:C", "15", "0/0", "0/1", "./."),
+                newVariant("1:1001:A:C", "1000", "1/1", "0|1", "1/1"),
+                newVariant("1:1002:A:C", null, "0/0", "0/0", "0/0")));
+        calculator.post();
+
+        Map<String, Long> alleleFrequency = calculator.getAlleleFrequencyHistogram();
+        assertEquals(10, alleleFrequency.size());
+        assertEquals(1L, alleleFrequency.get("[0.0,0.1)").longValue());
+        assertEquals(1L, alleleFrequency.get("[0.2,0.3)").longValue());
+        assertEquals(1L, alleleFrequency.get("[0.8,0.9)").longValue());
+
+        Map<String, Long> depth = calculator.getDepthHistogram();
+        assertEquals(1L, depth.get("[10,20)").longValue());
+        assertEquals(1L, depth.get("[1000,inf)").longValue());
+        // Variants without depth are not counted
+        assertEquals(2L, depth.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    private static VariantFileMetadata newFileMetadata() {
+        VariantFileMetadata fileMetadata = new VariantFileMetadata("1", "file.vcf");
+        fileMetadata.setSampleIds(SAMPLES);
+        return fileMetadata;
+    }
+
+    private static Variant newVariant(String variant, String depth, String... genotypes) {
+        VariantBuilder builder = Variant.newBuilder(variant)
+                .setStudyId("1")
+                .setFileId("1")
+                .setQuality(variant.hashCode() % 3 == 0 ? 10.0 : 50.0)
+                .setFilter("PASS")
+                .setFormat("GT");
+        if (depth != null) {
+            builder.addAttribute("DP", depth);
+        }
+        for (int i = 0; i < SAMPLES.size(); i++) {
+            builder.addSample(SAMPLES.get(i), genotypes[i]);
+        }
+        return builder.build();
+    }
+}
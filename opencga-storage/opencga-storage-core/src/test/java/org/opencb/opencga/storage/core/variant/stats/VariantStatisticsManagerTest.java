@@ -46,6 +46,7 @@ import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -163,6 +164,42 @@ public abstract class VariantStatisticsManagerTest extends VariantStorageBaseTes
 
     }
 
+    @Test
+    public void calculateStatsIncrementalTest() throws Exception {
+        QueryOptions options = new QueryOptions(VariantStorageOptions.STATS_INCREMENTAL.key(), true);
+        Iterator<SampleMetadata> iterator = metadataManager.sampleMetadataIterator(studyMetadata.getId());
+
+        HashSet<String> cohort1 = new HashSet<>();
+        cohort1.add(iterator.next().getName());
+        cohort1.add(iterator.next().getName());
+        Map<String, Set<String>> cohorts = new HashMap<>();
+        cohorts.put("cohort1", cohort1);
+
+        // First calculation. Nothing to merge with
+        assertNull(VariantStatisticsManager.getIncrementalSamples(metadataManager, studyMetadata, cohorts, options));
+        studyMetadata = stats(options, studyMetadata, cohorts, outputUri.resolve("cohort1.stats"));
+        CohortMetadata cohortMetadata = metadataManager.getCohortMetadata(studyMetadata.getId(), "cohort1");
+        assertTrue(cohortMetadata.isStatsReady());
+        assertEquals(new HashSet<>(cohortMetadata.getSamples()), new HashSet<>(cohortMetadata.getStatsSamples()));
+
+        // Add samples to the cohort. Stats are invalidated, and updated with the new samples
+        List<Integer> newSamples = Arrays.asList(iterator.next().getId(), iterator.next().getId());
+        metadataManager.addSamplesToCohort(studyMetadata.getId(), "cohort1", newSamples);
+        assertTrue(metadataManager.getCohortMetadata(studyMetadata.getId(), "cohort1").isInvalid());
+        Map<String, List<Integer>> incrementalSamples = VariantStatisticsManager.getIncrementalSamples(metadataManager,
+                studyMetadata, Collections.singletonMap("cohort1", Collections.emptySet()), options);
+        assertEquals(Collections.singleton("cohort1"), incrementalSamples.keySet());
+        assertEquals(new HashSet<>(newSamples), new HashSet<>(incrementalSamples.get("cohort1")));
+
+        options.put(DefaultVariantStatisticsManager.OUTPUT, outputUri.resolve("cohort1.incremental.stats").toString());
+        variantStorageEngine.calculateStats(studyMetadata.getName(), Collections.singletonList("cohort1"), options);
+
+        cohortMetadata = metadataManager.getCohortMetadata(studyMetadata.getId(), "cohort1");
+        assertTrue(cohortMetadata.isStatsReady());
+        assertEquals(4, cohortMetadata.getStatsSamples().size());
+        checkCohorts(dbAdaptor, studyMetadata);
+    }
+
     public StudyMetadata stats(QueryOptions options, StudyMetadata studyMetadata, Map<String, Set<String>> cohorts,
                                     URI output) throws IOException, StorageEngineException {
         options.put(DefaultVariantStatisticsManager.OUTPUT, output.toString());
@@ -0,0 +1,164 @@
+package org.opencb.opencga.storage.core.variant.transform;
+
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.formats.variant.vcf4.FullVcfCodec;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantFileMetadata;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.tools.variant.converters.avro.VariantContextToVariantConverter;
+import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
+import org.opencb.opencga.storage.core.io.managers.LocalIOConnector;
+import org.opencb.opencga.storage.core.io.plain.StringDataReader;
+import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VcfLineParserTest {
+
+    private VcfLineParser parser;
+
+    @Before
+    public void setUp() throws Exception {
+        parser = new VcfLineParser("1", "5", Arrays.asList("S1", "S2", "S3"));
+    }
+
+    @Test
+    public void testParse() {
+        Variant variant = parser.parse("1\t1000\trs1;rs2\tA\tC,T\t50\tPASS\tAC=1,2;DB;AF=0.5\tGT:DP:AD\t0/1:10:5,5\t1/2:20\t./.:.:.");
+
+        assertEquals("1", variant.getChromosome());
+        assertEquals(1000, variant.getStart().intValue());
+        assertEquals(1000, variant.getEnd().intValue());
+        assertEquals("A", variant.getReference());
+        assertEquals("C", variant.getAlternate());
+        assertEquals(Arrays.asList("rs1", "rs2"), variant.getIds());
+
+        StudyEntry study = variant.getStudy("1");
+        assertEquals(1, study.getSecondaryAlternates().size());
+        assertEquals("T", study.getSecondaryAlternates().get(0).getAlternate());
+        assertEquals(Arrays.asList("GT", "DP", "AD"), study.getFormat());
+        assertEquals(Arrays.asList("0/1", "10", "5,5"), study.getSamplesData().get(0));
+        // Missing trailing values
+        assertEquals(Arrays.asList("1/2", "20", "."), study.getSamplesData().get(1));
+        assertEquals(Arrays.asList("./.", ".", "."), study.getSamplesData().get(2));
+        assertEquals("0/1", study.getSampleData("S1", "GT"));
+
+        FileEntry file = study.getFile("5");
+        assertEquals("PASS", file.getAttributes().get(StudyEntry.FILTER));
+        assertEquals("1,2", file.getAttributes().get("AC"));
+        assertEquals("true", file.getAttributes().get("DB"));
+        assertEquals("0.5", file.getAttributes().get("AF"));
+    }
+
+    @Test
+    public void testInternGenotypesAndFormat() {
+        Variant variant1 = parser.parse("1\t1000\t.\tA\tC\t.\tPASS\t.\tGT:DP\t0/1:10\t0/1:20\t0/0:30");
+        Variant variant2 = parser.parse("1\t1001\t.\tA\tC\t.\tPASS\t.\tGT:DP\t0/1:10\t0/0:20\t0/0:30");
+
+        StudyEntry study1 = variant1.getStudy("1");
+        StudyEntry study2 = variant2.getStudy("1");
+        assertSame(study1.getSamplesData().get(0).get(0), study1.getSamplesData().get(1).get(0));
+        assertSame(study1.getSamplesData().get(0).get(0), study2.getSamplesData().get(0).get(0));
+        assertSame(study1.getSamplesData().get(2).get(0), study2.getSamplesData().get(1).get(0));
+        assertSame(study1.getFormat().get(1), study2.getFormat().get(1));
+        assertSame(variant1.getChromosome(), variant2.getChromosome());
+
+        // Sample data can be modified
+        study1.getSamplesData().get(0).set(0, "1/1");
+        assertEquals("1/1", study1.getSampleData("S1", "GT"));
+        assertEquals("0/1", study2.getSampleData("S1", "GT"));
+    }
+
+    @Test
+    public void testEnd() {
+        Variant variant = parser.parse("1\t1000\t.\tACGT\tA\t.\tPASS\t.\tGT\t0/1\t0/1\t0/0");
+        assertEquals(1003, variant.getEnd().intValue());
+    }
+
+    @Test
+    public void testUpperCaseAlleles() {
+        Variant variant = parser.parse("1\t1000\t.\tac\tgT,c\t.\tPASS\t.\tGT\t0/1\t0/2\t0/0");
+        assertEquals("AC", variant.getReference());
+        assertEquals("GT", variant.getAlternate());
+        assertEquals("C", variant.getStudy("1").getSecondaryAlternates().get(0).getAlternate());
+    }
+
+    /**
+     * Every line supported by the native parser must produce the same variant as htsjdk and the VariantContextToVariantConverter.
+     */
+    @Test
+    public void testEquivalentToHtsjdk() throws Exception {
+        VariantReaderUtils variantReaderUtils = new VariantReaderUtils(new IOConnectorProvider(LocalIOConnector.class));
+        for (String fileName : Arrays.asList("variant-test-file.vcf.gz", "variant-test-phased.vcf", "variant-test-somatic.vcf",
+                "variant-test-sv.vcf", "platinum/1K.end.platinum-genomes-vcf-NA12877_S1.genome.vcf.gz")) {
+            Path input = Paths.get(getClass().getResource("/" + fileName).toURI());
+            VariantFileMetadata fileMetadata = variantReaderUtils.readVariantFileMetadata(input);
+            Pair<VCFHeader, VCFHeaderVersion> header = variantReaderUtils.readHtsHeader(input.toUri(), false);
+            FullVcfCodec codec = new FullVcfCodec();
+            codec.setVCFHeader(header.getKey(), header.getValue());
+            VariantContextToVariantConverter converter = new VariantContextToVariantConverter("1", fileMetadata.getId(),
+                    fileMetadata.getSampleIds());
+            VcfLineParser lineParser = new VcfLineParser("1", fileMetadata.getId(), fileMetadata.getSampleIds());
+
+            int numParsed = 0;
+            StringDataReader reader = new StringDataReader(input);
+            reader.open();
+            reader.pre();
+            List<String> batch;
+            while (!(batch = reader.read(1000)).isEmpty()) {
+                for (String line : batch) {
+                    if (line.startsWith("#") || line.trim().isEmpty()) {
+                        continue;
+                    }
+                    Variant actual = lineParser.parse(line);
+                    if (actual != null) {
+                        Variant expected = converter.convert(codec.decode(line));
+                        assertEquals(fileName + " : " + line, expected.toJson(), actual.toJson());
+                        numParsed++;
+                    }
+                }
+            }
+            reader.post();
+            reader.close();
+            assertNotEquals(fileName, 0, numParsed);
+        }
+    }
+
+    @Test
+    public void testUnsupportedAlleles() {
+        assertNull(parser.parse("1\t1000\t.\tA\t<DEL>\t.\tPASS\tEND=2000\tGT\t0/1\t0/1\t0/0"));
+        assertNull(parser.parse("1\t1000\t.\tA\tC,*\t.\tPASS\t.\tGT\t0/1\t0/1\t0/0"));
+        assertNull(parser.parse("1\t1000\t.\tA\tA]2:3000]\t.\tPASS\t.\tGT\t0/1\t0/1\t0/0"));
+        assertNull(parser.parse("1\t1000\t.\tA\t.\t.\tPASS\t.\tGT\t0/0\t0/0\t0/0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingSamples() {
+        parser.parse("1\t1000\t.\tA\tC\t.\tPASS\t.\tGT\t0/1\t0/1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExtraSamples() {
+        parser.parse("1\t1000\t.\tA\tC\t.\tPASS\t.\tGT\t0/1\t0/1\t0/1\t0/1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManySampleValues() {
+        parser.parse("1\t1000\t.\tA\tC\t.\tPASS\t.\tGT\t0/1:10\t0/1\t0/1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongPosition() {
+        parser.parse("1\t10a0\t.\tA\tC\t.\tPASS\t.\tGT\t0/1\t0/1\t0/1");
+    }
+}
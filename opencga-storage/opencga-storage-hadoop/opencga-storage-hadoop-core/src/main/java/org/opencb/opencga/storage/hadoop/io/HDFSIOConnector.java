@@ -3,9 +3,11 @@ package org.opencb.opencga.storage.hadoop.io;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.storage.core.io.managers.IOConnector;
+import org.opencb.opencga.storage.core.io.managers.LimitedInputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -57,6 +59,18 @@ public class HDFSIOConnector extends Configured implements IOConnector {
         return getFileSystem(uri).open(new org.apache.hadoop.fs.Path(uri));
     }
 
+    @Override
+    public InputStream newInputStreamRaw(URI uri, long offset, long length) throws IOException {
+        FSDataInputStream inputStream = getFileSystem(uri).open(new org.apache.hadoop.fs.Path(uri));
+        try {
+            inputStream.seek(offset);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+        return new LimitedInputStream(inputStream, length);
+    }
+
     @Override
     public OutputStream newOutputStreamRaw(URI uri) throws IOException {
         return getFileSystem(uri).create(new org.apache.hadoop.fs.Path(uri));
@@ -36,6 +36,7 @@ import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.opencb.opencga.storage.core.variant.transform.DiscardDuplicatedVariantsResolver;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
 import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveTableHelper;
@@ -49,6 +50,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
@@ -70,6 +72,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
     private static final String OPERATION_NAME = "Load";
     private int taskId;
     private HashSet<String> loadedGenotypes;
+    private VariantSearchChangeLog searchChangeLog = VariantSearchChangeLog.empty();
 
     public HadoopLocalLoadVariantStoragePipeline(StorageConfiguration configuration,
                                                  VariantHadoopDBAdaptor dbAdaptor, IOConnectorProvider ioConnectorProvider,
@@ -77,6 +80,11 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         super(configuration, dbAdaptor, options, null, conf, ioConnectorProvider);
     }
 
+    public HadoopLocalLoadVariantStoragePipeline setSearchChangeLog(VariantSearchChangeLog searchChangeLog) {
+        this.searchChangeLog = searchChangeLog;
+        return this;
+    }
+
     @Override
     protected void securePreLoad(StudyMetadata studyMetadata, VariantFileMetadata fileMetadata) throws StorageEngineException {
         super.securePreLoad(studyMetadata, fileMetadata);
@@ -204,6 +212,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
 
                 List<Variant> variants = converter.convert(slice);
                 variantsWriter.write(variants);
+                logChanges(searchChangeLog, getStudyId(), variants);
                 if (sampleIndexDBLoader != null) {
                     sampleIndexDBLoader.write(variants);
                 }
@@ -272,7 +281,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         String archiveFields = options.getString(ARCHIVE_FIELDS.key());
         String nonRefFilter = options.getString(ARCHIVE_NON_REF_FILTER.key());
         GroupedVariantsTask task = new GroupedVariantsTask(archiveWriter, hadoopDBWriter, sampleIndexDBLoader,
-                null, archiveFields, nonRefFilter);
+                null, archiveFields, nonRefFilter).setSearchChangeLog(studyId, searchChangeLog);
 
 
         ParallelTaskRunner<ImmutablePair<Long, List<Variant>>, VcfSlice> ptr =
@@ -357,11 +366,30 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
                 dbAdaptor.getHBaseManager(), includeReferenceVariantsData);
     }
 
+    /**
+     * Record the loaded variants for the secondary index synchronization. Reference blocks are not loaded in the variants table.
+     */
+    private static void logChanges(VariantSearchChangeLog searchChangeLog, int studyId, List<Variant> variants) {
+        List<Variant> loadedVariants = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            if (!variant.getType().equals(VariantType.NO_VARIATION)) {
+                loadedVariants.add(variant);
+            }
+        }
+        try {
+            searchChangeLog.appendVariants(studyId, loadedVariants);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     protected static class GroupedVariantsTask implements Task<ImmutablePair<Long, List<Variant>>, VcfSlice> {
         private final VariantToVcfSliceConverterTask converterTask;
         private final VariantHBaseArchiveDataWriter archiveWriter;
         private final VariantHadoopDBWriter hadoopDBWriter;
         private final SampleIndexDBLoader sampleIndexDBLoader;
+        private VariantSearchChangeLog searchChangeLog = VariantSearchChangeLog.empty();
+        private int studyId;
 
         GroupedVariantsTask(VariantHBaseArchiveDataWriter archiveWriter, VariantHadoopDBWriter hadoopDBWriter,
                             SampleIndexDBLoader sampleIndexDBLoader, ProgressLogger progressLogger) {
@@ -376,6 +404,12 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
             this.sampleIndexDBLoader = sampleIndexDBLoader;
         }
 
+        GroupedVariantsTask setSearchChangeLog(int studyId, VariantSearchChangeLog searchChangeLog) {
+            this.studyId = studyId;
+            this.searchChangeLog = searchChangeLog;
+            return this;
+        }
+
         @Override
         public void pre() throws Exception {
             archiveWriter.open();
@@ -397,6 +431,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
             for (ImmutablePair<Long, List<Variant>> pair : batch) {
                 List<Variant> variants = pair.getRight();
                 hadoopDBWriter.write(variants);
+                logChanges(searchChangeLog, studyId, variants);
 
                 if (sampleIndexDBLoader != null) {
                     sampleIndexDBLoader.write(variants);
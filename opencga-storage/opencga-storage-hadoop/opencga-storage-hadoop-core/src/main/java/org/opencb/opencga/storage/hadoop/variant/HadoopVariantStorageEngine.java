@@ -61,6 +61,7 @@ import org.opencb.opencga.storage.core.variant.query.VariantQueryExecutor;
 import org.opencb.opencga.storage.core.variant.score.VariantScoreFormatDescriptor;
 import org.opencb.opencga.storage.core.variant.search.SamplesSearchIndexVariantQueryExecutor;
 import org.opencb.opencga.storage.core.variant.search.SearchIndexVariantQueryExecutor;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchLoadListener;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchLoadResult;
 import org.opencb.opencga.storage.core.variant.stats.VariantStatisticsManager;
@@ -91,6 +92,7 @@ import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
 import org.opencb.opencga.storage.hadoop.variant.io.HadoopVariantExporter;
 import org.opencb.opencga.storage.hadoop.variant.score.HadoopVariantScoreLoader;
 import org.opencb.opencga.storage.hadoop.variant.score.HadoopVariantScoreRemover;
+import org.opencb.opencga.storage.hadoop.variant.search.HadoopVariantSearchChangeLog;
 import org.opencb.opencga.storage.hadoop.variant.search.HadoopVariantSearchLoadListener;
 import org.opencb.opencga.storage.hadoop.variant.stats.HadoopDefaultVariantStatisticsManager;
 import org.opencb.opencga.storage.hadoop.variant.stats.HadoopMRVariantStatisticsManager;
@@ -389,6 +391,10 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
         // By default, execute a MR to calculate statistics
         if (getOptions().getBoolean(STATS_LOCAL.key(), STATS_LOCAL.defaultValue())) {
             return new HadoopDefaultVariantStatisticsManager(getDBAdaptor(), ioConnectorProvider);
+        } else if (isSearchChangeLogActive()) {
+            // The MR does not know about the search change log. Calculate locally to record the modified variants
+            logger.info("Calculate statistics locally to record the modified variants in the search change log");
+            return new HadoopDefaultVariantStatisticsManager(getDBAdaptor(), ioConnectorProvider);
         } else {
             return new HadoopMRVariantStatisticsManager(getDBAdaptor(), getMRExecutor(), getOptions());
         }
@@ -433,6 +439,16 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
         return new HadoopVariantSearchLoadListener(getDBAdaptor());
     }
 
+    @Override
+    protected VariantSearchChangeLog newVariantSearchChangeLog() throws StorageEngineException {
+        try {
+            return new HadoopVariantSearchChangeLog(getDBAdaptor().getHBaseManager(),
+                    getDBAdaptor().getTableNameGenerator().getSearchChangeLogTableName());
+        } catch (IOException e) {
+            throw new StorageEngineException("Error creating search change log", e);
+        }
+    }
+
     @Override
     public void fillGaps(String study, List<String> samples, ObjectMap options) throws StorageEngineException {
         if (samples == null || samples.size() < 2) {
@@ -596,8 +612,11 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
             options.put(MERGE_MODE.key(), MergeMode.BASIC.name());
             mergeMode = MergeMode.BASIC;
         }
-        HadoopVariantStoragePipeline storageETL = new HadoopLocalLoadVariantStoragePipeline(configuration, dbAdaptor,
+        HadoopLocalLoadVariantStoragePipeline storageETL = new HadoopLocalLoadVariantStoragePipeline(configuration, dbAdaptor,
                 ioConnectorProvider, hadoopConfiguration, options);
+        if (connected) {
+            storageETL.setSearchChangeLog(getVariantSearchChangeLog());
+        }
 //        if (mergeMode.equals(MergeMode.BASIC)) {
 //            storageETL = new HadoopMergeBasicVariantStoragePipeline(configuration, dbAdaptor,
 //                    hadoopConfiguration, archiveCredentials, getVariantReaderUtils(hadoopConfiguration), options);
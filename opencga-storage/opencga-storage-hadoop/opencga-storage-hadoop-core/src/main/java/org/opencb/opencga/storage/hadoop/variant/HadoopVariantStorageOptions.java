@@ -11,6 +11,22 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     EXPECTED_FILES_NUMBER("expected_files_number", 5000),
     DBADAPTOR_PHOENIX_FETCH_SIZE("storage.hadoop.phoenix.fetchSize", -1),
 
+    /**
+     * Adapt the caching of the HBase native scans to the projected samples and to the observed row size and latency.
+     */
+    DBADAPTOR_SCAN_TUNING("storage.hadoop.dbadaptor.scan.tuning", true),
+    DBADAPTOR_SCAN_BATCH_BYTES("storage.hadoop.dbadaptor.scan.batchBytes", 2 * 1024 * 1024), // Expected bytes per RPC
+    DBADAPTOR_SCAN_SMALL_MAX_BYTES("storage.hadoop.dbadaptor.scan.small.maxBytes", 64 * 1024), // Max expected bytes for small scans
+    DBADAPTOR_SCAN_CACHING_MIN("storage.hadoop.dbadaptor.scan.caching.min", 10),
+    DBADAPTOR_SCAN_CACHING_MAX("storage.hadoop.dbadaptor.scan.caching.max", 2000),
+    DBADAPTOR_SCAN_TARGET_LATENCY("storage.hadoop.dbadaptor.scan.targetLatency", 2000), // Max expected time per RPC, in milliseconds
+
+    /**
+     * Encoding of the values written in the metadata table. Either "json" or "smile" (binary JSON).
+     * Values in both encodings can always be read.
+     */
+    METADATA_ENCODING("storage.hadoop.metadata.encoding", "json"),
+
     /////////////////////////
     // MapReduce configuration
     /////////////////////////
@@ -86,6 +102,11 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     ANNOTATION_INDEX_TABLE_COMPRESSION("storage.hadoop.annotationIndex.table.compression", Compression.Algorithm.SNAPPY.getName()),
     PENDING_ANNOTATION_TABLE_COMPRESSION("storage.hadoop.pendingAnnotation.table.compression", Compression.Algorithm.SNAPPY.getName()),
 
+    /////////////////////////
+    // Search change log table configuration
+    /////////////////////////
+    SEARCH_CHANGE_LOG_TABLE_COMPRESSION("storage.hadoop.searchChangeLog.table.compression", Compression.Algorithm.SNAPPY.getName()),
+
     /////////////////////////
     // Other
     /////////////////////////
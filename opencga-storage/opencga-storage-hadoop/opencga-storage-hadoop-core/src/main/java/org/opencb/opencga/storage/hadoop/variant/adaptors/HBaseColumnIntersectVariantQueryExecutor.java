@@ -75,6 +75,28 @@ public class HBaseColumnIntersectVariantQueryExecutor extends VariantQueryExecut
         return false;
     }
 
+    /**
+     * Estimate the cost of scanning one column of the variants table within the query regions, and fetching the
+     * variants found. Reading one column is as cheap as reading an index entry. The variants with the column are
+     * estimated with the default filter selectivity.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         Estimated cost, or {@link #UNKNOWN_COST}
+     */
+    @Override
+    public double estimateCost(Query query, QueryOptions options) {
+        double scannedVariants = estimateScannedVariants(query);
+        if (scannedVariants < 0) {
+            return UNKNOWN_COST;
+        }
+        double columnVariants = scannedVariants * DEFAULT_FILTER_SELECTIVITY;
+        // Fraction of the fetched variants matching all the filters
+        double selectivity = Math.min(1, filterSelectivity(query) / DEFAULT_FILTER_SELECTIVITY);
+        double fetchedVariants = Math.min(columnVariants, returnedRows(columnVariants * selectivity, options) / selectivity);
+        return scannedVariants * INDEX_ROW_COST + fetchedVariants * FETCH_ROW_COST;
+    }
+
     @Override
     public DataResult<Long> count(Query query) {
         throw new UnsupportedOperationException("Count not implemented in " + getClass());
@@ -148,7 +170,7 @@ public class HBaseColumnIntersectVariantQueryExecutor extends VariantQueryExecut
 
         int batchSize = options.getInt("multiIteratorBatchSize", 100);
         if (iterator) {
-            return dbAdaptor.iterator(variants, query, options, batchSize);
+            return dbAdaptor.iterator(variants, query, addDefaultMultiIteratorPrefetch(options), batchSize);
         } else {
             VariantQueryResult<Variant> result = dbAdaptor.get(variants, query, options);
             result.setSource(getStorageEngineId() + " + " + getStorageEngineId());
@@ -0,0 +1,186 @@
+package org.opencb.opencga.storage.hadoop.variant.adaptors;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.metrics.StorageMetrics;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryFields;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.*;
+
+/**
+ * Configures the caching and max result size of the interactive scans over the variants table.
+ *
+ * The expected row size is estimated from the number of projected samples, and corrected with the
+ * row size and fetch latency observed from previous scans, so the same configuration works for studies
+ * with a few samples and for studies with thousands of samples.
+ *
+ * Scans returning only a few rows are executed as small scans (single RPC), while long scans are
+ * streamed without polluting the block cache. The scans of MapReduce jobs are sized the same way.
+ */
+public class HBaseScanTuner {
+
+    private static final double EMA_WEIGHT = 0.3;
+    private static final double DEFAULT_BYTES_PER_SAMPLE = 512;
+    private static final double DEFAULT_BYTES_PER_ROW = 2048;
+
+    private final Logger logger = LoggerFactory.getLogger(HBaseScanTuner.class);
+    private final boolean active;
+    private final long targetBatchBytes;
+    private final long smallScanMaxBytes;
+    private final int minCaching;
+    private final int maxCaching;
+    private final long targetLatencyNanos;
+
+    // Learnt from previous scans
+    private double bytesPerRow = DEFAULT_BYTES_PER_ROW;
+    private double bytesPerSample = DEFAULT_BYTES_PER_SAMPLE;
+    private double nanosPerRow = 0;
+
+    public HBaseScanTuner(ObjectMap options) {
+        active = options.getBoolean(DBADAPTOR_SCAN_TUNING.key(), DBADAPTOR_SCAN_TUNING.defaultValue());
+        targetBatchBytes = options.getLong(DBADAPTOR_SCAN_BATCH_BYTES.key(), DBADAPTOR_SCAN_BATCH_BYTES.<Integer>defaultValue());
+        smallScanMaxBytes = options.getLong(DBADAPTOR_SCAN_SMALL_MAX_BYTES.key(),
+                DBADAPTOR_SCAN_SMALL_MAX_BYTES.<Integer>defaultValue());
+        minCaching = options.getInt(DBADAPTOR_SCAN_CACHING_MIN.key(), DBADAPTOR_SCAN_CACHING_MIN.defaultValue());
+        maxCaching = options.getInt(DBADAPTOR_SCAN_CACHING_MAX.key(), DBADAPTOR_SCAN_CACHING_MAX.defaultValue());
+        targetLatencyNanos = options.getLong(DBADAPTOR_SCAN_TARGET_LATENCY.key(), DBADAPTOR_SCAN_TARGET_LATENCY.<Integer>defaultValue())
+                * 1000000L;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Configure the given scans, which should belong to the same query.
+     *
+     * @param scans         Scans to configure
+     * @param selectElements Projected elements
+     * @param options       Query options. Used to read the limit and skip
+     * @return Feedback to be filled with the scanned rows, or null if the tuner is not active
+     */
+    public ScanFeedback tune(List<Scan> scans, VariantQueryFields selectElements, QueryOptions options) {
+        if (!active) {
+            return null;
+        }
+        int numSamples = selectElements.getNumSamples();
+        double expectedRowBytes = estimateRowBytes(numSamples);
+        int caching = getCaching(expectedRowBytes);
+
+        int limit = options.getInt(QueryOptions.LIMIT, -1);
+        if (limit > 0) {
+            limit += Math.max(0, options.getInt(QueryOptions.SKIP, 0));
+            caching = Math.min(caching, limit);
+        }
+
+        for (Scan scan : scans) {
+            boolean pointLookup = scan.isGetScan();
+            boolean small = pointLookup || limit > 0 && limit * expectedRowBytes <= smallScanMaxBytes;
+            scan.setCaching(caching);
+            scan.setMaxResultSize(getMaxResultSize(expectedRowBytes));
+            if (small) {
+                // Open, fetch and close the scanner in one RPC
+                scan.setSmall(true);
+            } else if (scan.getStartRow().length == 0 && scan.getStopRow().length == 0) {
+                // Full table scan. Do not evict hot regions from the block cache
+                scan.setCacheBlocks(false);
+            }
+        }
+        logger.debug("Scan tuning: samples = {}, expected row size = {}B, caching = {}, small = {}",
+                numSamples, (long) expectedRowBytes, caching, scans.size() == 1 && scans.get(0).isSmall());
+        return new ScanFeedback(numSamples);
+    }
+
+    /**
+     * Configure the scans of a MapReduce job. These scans read whole regions with no limit, so they are never small scans, and
+     * always skip the block cache.
+     *
+     * @param scans      Scans to configure
+     * @param numSamples Number of samples read by the scans
+     * @return Caching set to the scans
+     */
+    public int tuneMapReduce(List<Scan> scans, int numSamples) {
+        double expectedRowBytes = estimateRowBytes(numSamples);
+        int caching = getCaching(expectedRowBytes);
+        for (Scan scan : scans) {
+            scan.setCaching(caching);
+            scan.setMaxResultSize(getMaxResultSize(expectedRowBytes));
+            scan.setCacheBlocks(false);
+        }
+        return caching;
+    }
+
+    private int getCaching(double expectedRowBytes) {
+        int caching = (int) Math.min(Integer.MAX_VALUE, (long) (targetBatchBytes / expectedRowBytes));
+        synchronized (this) {
+            if (nanosPerRow > 0) {
+                caching = (int) Math.min(caching, targetLatencyNanos / nanosPerRow);
+            }
+        }
+        return Math.max(minCaching, Math.min(maxCaching, caching));
+    }
+
+    private long getMaxResultSize(double expectedRowBytes) {
+        return Math.max(targetBatchBytes, (long) (expectedRowBytes * 2));
+    }
+
+    synchronized double estimateRowBytes(int numSamples) {
+        return Math.max(1, bytesPerRow + bytesPerSample * numSamples);
+    }
+
+    synchronized void observe(int numSamples, long rows, long bytes, long fetchNanos) {
+        if (rows <= 0) {
+            return;
+        }
+        double observedRowBytes = ((double) bytes) / rows;
+        if (numSamples > 0) {
+            // Both sizes contribute to the observed size. Scale them by the same ratio, so the estimate for this number of samples
+            // moves towards the observed size, and the next scans with a different number of samples also learn from it
+            double ratio = observedRowBytes / estimateRowBytes(numSamples);
+            bytesPerRow = ema(bytesPerRow, bytesPerRow * ratio);
+            bytesPerSample = ema(bytesPerSample, bytesPerSample * ratio);
+        } else {
+            bytesPerRow = ema(bytesPerRow, observedRowBytes);
+        }
+        double observedNanosPerRow = ((double) fetchNanos) / rows;
+        nanosPerRow = nanosPerRow <= 0 ? observedNanosPerRow : ema(nanosPerRow, observedNanosPerRow);
+    }
+
+    private static double ema(double current, double observed) {
+        return current * (1 - EMA_WEIGHT) + observed * EMA_WEIGHT;
+    }
+
+    /**
+     * Collects the size of the rows read by a set of tuned scans.
+     */
+    public final class ScanFeedback {
+        private final int numSamples;
+        private long rows;
+        private long bytes;
+
+        private ScanFeedback(int numSamples) {
+            this.numSamples = numSamples;
+        }
+
+        public void addResult(Result result) {
+            rows++;
+            for (Cell cell : result.rawCells()) {
+                bytes += CellUtil.estimatedSerializedSizeOf(cell);
+            }
+        }
+
+        public void done(long fetchNanos) {
+            observe(numSamples, rows, bytes, fetchNanos);
+            StorageMetrics.global().increment("hbase.scan.rows", rows);
+            StorageMetrics.global().increment("hbase.scan.bytes", bytes);
+        }
+    }
+}
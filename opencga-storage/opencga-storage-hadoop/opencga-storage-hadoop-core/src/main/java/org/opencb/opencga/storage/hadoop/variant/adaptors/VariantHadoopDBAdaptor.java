@@ -100,6 +100,7 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
     private final VariantHBaseQueryParser hbaseQueryParser;
     private final HBaseFileMetadataDBAdaptor variantFileMetadataDBAdaptor;
     private final int phoenixFetchSize;
+    private final HBaseScanTuner scanTuner;
     private boolean clientSideSkip;
     private HBaseManager hBaseManager;
 
@@ -131,6 +132,8 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
                 HadoopVariantStorageOptions.DBADAPTOR_PHOENIX_FETCH_SIZE.key(),
                 HadoopVariantStorageOptions.DBADAPTOR_PHOENIX_FETCH_SIZE.defaultValue());
 
+        scanTuner = new HBaseScanTuner(options);
+
         phoenixHelper = new VariantPhoenixHelper(genomeHelper);
 
         hbaseQueryParser = new VariantHBaseQueryParser(genomeHelper, studyConfigurationManager.get());
@@ -431,6 +434,7 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
             logger.debug("Creating " + VariantHBaseScanIterator.class.getSimpleName() + " iterator");
             VariantQueryFields selectElements = VariantQueryUtils.parseVariantQueryFields(query, options, studyConfigurationManager.get());
             List<Scan> scans = hbaseQueryParser.parseQueryMultiRegion(selectElements, query, options);
+            HBaseScanTuner.ScanFeedback scanFeedback = scanTuner.tune(scans, selectElements, options);
             try {
                 String unknownGenotype = null;
                 if (isValidParam(query, UNKNOWN_GENOTYPE)) {
@@ -446,7 +450,8 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
                 }).iterator();
 
                 VariantHBaseScanIterator iterator = new VariantHBaseScanIterator(
-                        resScans, genomeHelper, studyConfigurationManager.get(), query, options, unknownGenotype, formats, selectElements);
+                        resScans, genomeHelper, studyConfigurationManager.get(), query, options, unknownGenotype, formats, selectElements)
+                        .setScanFeedback(scanFeedback);
 
                 // Client side skip!
                 int skip = options.getInt(QueryOptions.SKIP, -1);
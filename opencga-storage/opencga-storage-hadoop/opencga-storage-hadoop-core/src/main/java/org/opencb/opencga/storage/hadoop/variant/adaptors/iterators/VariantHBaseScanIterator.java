@@ -26,6 +26,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryFields;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.HBaseScanTuner;
 import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +57,7 @@ public class VariantHBaseScanIterator extends VariantDBIterator {
     private int count = 0;
     private ExecutorService threadPool;
     private AtomicLong timeConverting = new AtomicLong();
+    private HBaseScanTuner.ScanFeedback scanFeedback;
 
     public VariantHBaseScanIterator(Iterator<ResultScanner> resultScanners, GenomeHelper genomeHelper, VariantStorageMetadataManager scm,
                                     Query query, QueryOptions options, String unknownGenotype, List<String> formats,
@@ -113,6 +115,9 @@ public class VariantHBaseScanIterator extends VariantDBIterator {
             while (hasNext() && i > 0) {
                 i--;
                 Result result = fetch(resultIterator::next);
+                if (scanFeedback != null) {
+                    scanFeedback.addResult(result);
+                }
                 variants.add(threadPool.submit(() -> {
                     long start = System.nanoTime();
                     Variant v = converter.convert(result);
@@ -131,9 +136,17 @@ public class VariantHBaseScanIterator extends VariantDBIterator {
         }
     }
 
+    public VariantHBaseScanIterator setScanFeedback(HBaseScanTuner.ScanFeedback scanFeedback) {
+        this.scanFeedback = scanFeedback;
+        return this;
+    }
+
     @Override
     public void close() throws Exception {
         super.close();
+        if (scanFeedback != null) {
+            scanFeedback.done(getTimeFetching());
+        }
         double timeConverting = getTimeConverting() / 1000000.0;
         logger.debug("Close variant iterator. Fetch = {}ms, Convert = {}ms (total)   ~{}ms/thread",
                 getTimeFetching() / 1000000.0,
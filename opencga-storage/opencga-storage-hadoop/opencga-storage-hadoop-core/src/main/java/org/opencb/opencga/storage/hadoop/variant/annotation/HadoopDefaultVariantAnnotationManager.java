@@ -187,12 +187,14 @@ public class HadoopDefaultVariantAnnotationManager extends DefaultVariantAnnotat
             VariantAnnotationHadoopDBWriter writer = new VariantAnnotationHadoopDBWriter(
                     dbAdaptor.getHBaseManager(),
                     dbAdaptor.getTableNameGenerator(),
-                    GenomeHelper.COLUMN_FAMILY_BYTES);
+                    GenomeHelper.COLUMN_FAMILY_BYTES)
+                    .setSearchChangeLog(searchChangeLog);
             return new ParallelTaskRunner<>(reader, task, writer, config);
         } else {
             return new ParallelTaskRunner<>(reader,
                     () -> dbAdaptor.newAnnotationLoader(new QueryOptions(params))
-                            .setProgressLogger(progressLogger), null, config);
+                            .setProgressLogger(progressLogger)
+                            .setSearchChangeLog(searchChangeLog), null, config);
         }
     }
 
@@ -2,13 +2,17 @@ package org.opencb.opencga.storage.hadoop.variant.annotation;
 
 import com.google.common.base.Throwables;
 import org.apache.hadoop.hbase.client.Put;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.opencb.opencga.storage.hadoop.utils.HBaseDataWriter;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
 import org.opencb.opencga.storage.hadoop.variant.annotation.pending.PendingVariantsToAnnotateDBCleaner;
 import org.opencb.opencga.storage.hadoop.variant.search.HadoopVariantSearchIndexUtils;
 import org.opencb.opencga.storage.hadoop.variant.utils.HBaseVariantTableNameGenerator;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -26,6 +30,7 @@ public class VariantAnnotationHadoopDBWriter extends HBaseDataWriter<Put> {
     private byte[] columnFamily;
     private List<byte[]> loadedVariants = new ArrayList<>(PENDING_VARIANTS_BUFFER_SIZE);
     private final PendingVariantsToAnnotateDBCleaner pendingVariantsCleaner;
+    private VariantSearchChangeLog searchChangeLog = VariantSearchChangeLog.empty();
 
     public VariantAnnotationHadoopDBWriter(HBaseManager hBaseManager, HBaseVariantTableNameGenerator nameGenerator, byte[] columnFamily) {
         super(hBaseManager, nameGenerator.getVariantTableName());
@@ -34,6 +39,11 @@ public class VariantAnnotationHadoopDBWriter extends HBaseDataWriter<Put> {
         pendingVariantsCleaner = new PendingVariantsToAnnotateDBCleaner(hBaseManager, nameGenerator.getPendingAnnotationTableName());
     }
 
+    public VariantAnnotationHadoopDBWriter setSearchChangeLog(VariantSearchChangeLog searchChangeLog) {
+        this.searchChangeLog = searchChangeLog;
+        return this;
+    }
+
     @Override
     public boolean open() {
         super.open();
@@ -89,6 +99,15 @@ public class VariantAnnotationHadoopDBWriter extends HBaseDataWriter<Put> {
     private void cleanPendingVariants() {
         flush(); // Ensure own BufferedMutator is flushed
         pendingVariantsCleaner.write(loadedVariants);
+        List<String> variants = new ArrayList<>(loadedVariants.size());
+        for (byte[] row : loadedVariants) {
+            variants.add(VariantPhoenixKeyFactory.extractVariantFromVariantRowKey(row).toString());
+        }
+        try {
+            searchChangeLog.append(VariantSearchChangeLog.ALL_STUDIES, variants);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         loadedVariants.clear();
     }
 }
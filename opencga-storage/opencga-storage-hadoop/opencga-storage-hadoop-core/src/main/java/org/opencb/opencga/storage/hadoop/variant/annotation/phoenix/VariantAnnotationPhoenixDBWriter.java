@@ -100,6 +100,7 @@ public class VariantAnnotationPhoenixDBWriter extends VariantAnnotationDBWriter
 //        });
 
         logUpdate(variantAnnotationList);
+        logChanges(variantAnnotationList);
 
         return Collections.emptyList();
     }
@@ -16,14 +16,15 @@
 
 package org.opencb.opencga.storage.hadoop.variant.converters.annotation;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.introspect.Annotated;
-import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.apache.avro.Schema;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.hbase.Cell;
-import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.schema.types.PInteger;
@@ -33,7 +34,6 @@ import org.opencb.biodata.models.variant.avro.EthnicCategory;
 import org.opencb.biodata.models.variant.avro.EvidenceEntry;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
 import org.opencb.biodata.tools.Converter;
-import org.opencb.commons.utils.CompressionUtils;
 import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
@@ -47,6 +47,7 @@ import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenix
 import org.opencb.opencga.storage.hadoop.variant.converters.AbstractPhoenixConverter;
 import org.opencb.opencga.storage.hadoop.variant.search.HadoopVariantSearchIndexUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.sql.Array;
@@ -55,7 +56,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.zip.DataFormatException;
+import java.util.zip.InflaterInputStream;
 
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.AdditionalAttributes.GROUP_NAME;
 
@@ -75,6 +76,8 @@ public class HBaseToVariantAnnotationConverter extends AbstractPhoenixConverter
     private String defaultAnnotationId = null;
     private Map<Integer, String> annotationIds;
     private boolean includeIndexStatus;
+    // Top level properties of the annotation to read. Null for all
+    private Set<String> includeProperties;
 
     public HBaseToVariantAnnotationConverter(GenomeHelper genomeHelper, long ts) {
         this(GenomeHelper.COLUMN_FAMILY_BYTES, ts);
@@ -115,34 +118,24 @@ public class HBaseToVariantAnnotationConverter extends AbstractPhoenixConverter
     }
 
     public HBaseToVariantAnnotationConverter setIncludeFields(Set<VariantField> allIncludeFields) {
-        List<String> list = new ArrayList<>();
+        Set<String> excludedAnnotationFields = new HashSet<>();
         if (allIncludeFields != null) {
             for (VariantField annotationField : VariantField.values()) {
                 if (annotationField.getParent() == VariantField.ANNOTATION && !allIncludeFields.contains(annotationField)) {
-                    list.add(annotationField.fieldName().replace(VariantField.ANNOTATION.fieldName() + '.', ""));
+                    excludedAnnotationFields.add(annotationField.fieldName().replace(VariantField.ANNOTATION.fieldName() + '.', ""));
+                }
+            }
+        }
+        if (excludedAnnotationFields.isEmpty()) {
+            includeProperties = null;
+        } else {
+            includeProperties = new HashSet<>();
+            for (Schema.Field field : VariantAnnotation.getClassSchema().getFields()) {
+                if (!excludedAnnotationFields.contains(field.name())) {
+                    includeProperties.add(field.name());
                 }
             }
         }
-        String[] excludedAnnotationFields = list.toArray(new String[list.size()]);
-        objectMapper.setAnnotationIntrospector(
-                new JacksonAnnotationIntrospector() {
-                    @Override
-                    public String[] findPropertiesToIgnore(Annotated ac, boolean forSerialization) {
-                        String[] propertiesToIgnore = super.findPropertiesToIgnore(ac, forSerialization);
-                        if (!ac.getRawType().equals(VariantAnnotation.class)) {
-                            // Not a VariantAnnotation class. Return propertiesToIgnore as is.
-                            return propertiesToIgnore;
-                        } else if (ArrayUtils.isNotEmpty(propertiesToIgnore)) {
-                            // If there is any property to ignore, merge them
-                            List<String> list = new ArrayList<>();
-                            Collections.addAll(list, excludedAnnotationFields);
-                            Collections.addAll(list, propertiesToIgnore);
-                            return list.toArray(new String[list.size()]);
-                        } else {
-                            return excludedAnnotationFields;
-                        }
-                    }
-                });
         return this;
     }
 
@@ -157,24 +150,9 @@ public class HBaseToVariantAnnotationConverter extends AbstractPhoenixConverter
         Cell cell = result.getColumnLatestCell(columnFamily, annotationColumn);
         if (cell != null && cell.getValueLength() > 0) {
             try {
-                if (cell.getValueArray()[cell.getValueOffset()] == '{') {
-                    // Value looks to be uncompressed. Try to parse. If fails, try to decompress and parse.
-                    try {
-                        variantAnnotation = objectMapper.readValue(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(),
-                                VariantAnnotation.class);
-                    } catch (IOException e) {
-                        byte[] value = CompressionUtils.decompress(CellUtil.cloneValue(cell));
-                        variantAnnotation = objectMapper.readValue(value, VariantAnnotation.class);
-                    }
-                } else {
-                    // Value is compressed. Decompress and parse
-                    byte[] value = CompressionUtils.decompress(CellUtil.cloneValue(cell));
-                    variantAnnotation = objectMapper.readValue(value, VariantAnnotation.class);
-                }
+                variantAnnotation = readAnnotation(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
-            } catch (DataFormatException e) {
-                throw new IllegalStateException(e);
             }
         }
         List<Integer> releases = new ArrayList<>();
@@ -227,21 +205,9 @@ public class HBaseToVariantAnnotationConverter extends AbstractPhoenixConverter
             try {
                 byte[] value = resultSet.getBytes(column);
                 if (value != null && value.length > 0) {
-                    if (value[0] == '{') {
-                        // Value looks to be uncompressed. Try to parse. If fails, try to decompress and parse.
-                        try {
-                            variantAnnotation = objectMapper.readValue(value, VariantAnnotation.class);
-                        } catch (IOException e) {
-                            value = CompressionUtils.decompress(value);
-                            variantAnnotation = objectMapper.readValue(value, VariantAnnotation.class);
-                        }
-                    } else {
-                        // Value is compressed. Decompress and parse
-                        value = CompressionUtils.decompress(value);
-                        variantAnnotation = objectMapper.readValue(value, VariantAnnotation.class);
-                    }
+                    variantAnnotation = readAnnotation(value, 0, value.length);
                 }
-            } catch (IOException | DataFormatException | SQLException e) {
+            } catch (IOException | SQLException e) {
                 // This should never happen!
                 throw new IllegalStateException(e);
             }
@@ -303,6 +269,57 @@ public class HBaseToVariantAnnotationConverter extends AbstractPhoenixConverter
         return post(variantAnnotation, releases, syncStatus, studies, annotationId);
     }
 
+    private VariantAnnotation readAnnotation(byte[] value, int offset, int length) throws IOException {
+        if (value[offset] == '{') {
+            // Value looks to be uncompressed. Try to parse. If fails, try to decompress and parse.
+            try {
+                return readAnnotation(objectMapper.getFactory().createParser(value, offset, length));
+            } catch (IOException e) {
+                return readAnnotation(objectMapper.getFactory().createParser(
+                        new InflaterInputStream(new ByteArrayInputStream(value, offset, length))));
+            }
+        } else {
+            // Value is compressed. Decompress while parsing
+            return readAnnotation(objectMapper.getFactory().createParser(
+                    new InflaterInputStream(new ByteArrayInputStream(value, offset, length))));
+        }
+    }
+
+    /**
+     * Read the annotation, skipping the subtrees of the properties not included.
+     * Stops reading (and decompressing) as soon as all the included properties are found.
+     *
+     * @param parser Parser
+     * @return       VariantAnnotation
+     * @throws IOException on parsing errors
+     */
+    private VariantAnnotation readAnnotation(JsonParser parser) throws IOException {
+        try (JsonParser p = parser) {
+            if (includeProperties == null) {
+                return objectMapper.readValue(p, VariantAnnotation.class);
+            }
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(p, "Expected start of VariantAnnotation object");
+            }
+            TokenBuffer buffer = new TokenBuffer(p);
+            buffer.writeStartObject();
+            int pending = includeProperties.size();
+            while (pending > 0 && p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+                if (includeProperties.contains(name)) {
+                    buffer.writeFieldName(name);
+                    buffer.copyCurrentStructure(p);
+                    pending--;
+                } else {
+                    p.skipChildren();
+                }
+            }
+            buffer.writeEndObject();
+            return objectMapper.readValue(buffer.asParser(), VariantAnnotation.class);
+        }
+    }
+
     public Integer findColumn(ResultSet resultSet, String column) {
         try {
             return resultSet.findColumn(column);
@@ -70,8 +70,8 @@ public class SampleIndexCompoundHeterozygousQueryExecutor extends CompoundHetero
 
         ExposedMultiVariantDBIterator(
                 VariantDBIterator variantsIterator, int batchSize, Query query, QueryOptions options,
-                BiFunction<Query, QueryOptions, VariantDBIterator> iteratorFactory) {
-            super(variantsIterator, batchSize, query, options, iteratorFactory);
+                BiFunction<Query, QueryOptions, VariantDBIterator> iteratorFactory, int prefetch) {
+            super(variantsIterator, batchSize, query, options, iteratorFactory, prefetch);
         }
 
         public VariantDBIterator getIterator() {
@@ -129,10 +129,11 @@ public class SampleIndexCompoundHeterozygousQueryExecutor extends CompoundHetero
 
     private ExposedMultiVariantDBIterator exposedMultiVariantIterator(Query query, QueryOptions options, VariantDBIterator iterator) {
         int samplingSize = options.getInt(VariantStorageOptions.APPROXIMATE_COUNT_SAMPLING_SIZE.key(), DEFAULT_SAMPLING_SIZE);
+        int prefetch = addDefaultMultiIteratorPrefetch(options).getInt(VariantStorageOptions.QUERY_MULTI_ITERATOR_PREFETCH.key());
         return new ExposedMultiVariantDBIterator(
                 new VariantDBIteratorWithCounts(iterator),
                 ((int) (samplingSize * 1.4)),
-                query, new QueryOptions(options).append(QueryOptions.SORT, true), dbAdaptor::iterator
+                query, new QueryOptions(options).append(QueryOptions.SORT, true), dbAdaptor::iterator, prefetch
         );
     }
 }
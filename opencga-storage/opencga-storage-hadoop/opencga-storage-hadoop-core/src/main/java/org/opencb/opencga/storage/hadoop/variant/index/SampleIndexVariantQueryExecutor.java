@@ -1,11 +1,14 @@
 package org.opencb.opencga.storage.hadoop.variant.index;
 
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.core.results.VariantQueryResult;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
@@ -21,6 +24,8 @@ import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexQueryPa
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.REGION;
@@ -60,6 +65,69 @@ public class SampleIndexVariantQueryExecutor extends AbstractTwoPhasedVariantQue
         return false;
     }
 
+    /**
+     * Estimate the cost of the query from the sample variant stats stored in the metadata.
+     *
+     * The entries read from the sample index are the variants of the sample with the queried genotypes, within the query
+     * regions. Each entry requires a get from the variants table, unless the query is fully covered by the sample index.
+     * Returns {@link #UNKNOWN_COST} if any of the samples has no stats.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         Estimated cost, or {@link #UNKNOWN_COST}
+     */
+    @Override
+    public double estimateCost(Query query, QueryOptions options) {
+        VariantStorageMetadataManager metadataManager = getMetadataManager();
+        // The parser modifies the query. Use a copy
+        SampleIndexQuery sampleIndexQuery = SampleIndexQueryParser.parseSampleIndexQuery(new Query(query), metadataManager);
+        int studyId = metadataManager.getStudyId(sampleIndexQuery.getStudy());
+        boolean or = VariantQueryUtils.QueryOperation.OR.equals(sampleIndexQuery.getQueryOperation());
+        double sampleVariants = UNKNOWN_COST;
+        for (Map.Entry<String, List<String>> entry : sampleIndexQuery.getSamplesMap().entrySet()) {
+            Integer sampleId = metadataManager.getSampleId(studyId, entry.getKey());
+            SampleMetadata sampleMetadata = sampleId == null ? null : metadataManager.getSampleMetadata(studyId, sampleId);
+            if (sampleMetadata == null || sampleMetadata.getStats() == null) {
+                return UNKNOWN_COST;
+            }
+            long count = countVariants(sampleMetadata.getStats(), entry.getValue());
+            if (Double.isNaN(sampleVariants)) {
+                sampleVariants = count;
+            } else if (or) {
+                sampleVariants += count;
+            } else {
+                sampleVariants = Math.min(sampleVariants, count);
+            }
+        }
+        if (Double.isNaN(sampleVariants)) {
+            return UNKNOWN_COST;
+        }
+        // Entries from the sample index within the query regions
+        double entries = sampleVariants * regionFraction(query);
+        if (isFullyCoveredQuery(query, options)) {
+            return returnedRows(entries, options) * INDEX_ROW_COST;
+        }
+        // Each entry is fetched from the variants table, and kept with the selectivity of the rest of the filters.
+        // Stop reading once the limit is reached.
+        double selectivity = filterSelectivity(query, VariantQueryParam.SAMPLE, VariantQueryParam.GENOTYPE);
+        double entriesRead = Math.min(entries, returnedRows(entries * selectivity, options) / selectivity);
+        return entriesRead * (INDEX_ROW_COST + FETCH_ROW_COST);
+    }
+
+    private static long countVariants(SampleVariantStats stats, List<String> genotypes) {
+        if (genotypes == null || genotypes.isEmpty() || stats.getGenotypeCount() == null || stats.getGenotypeCount().isEmpty()) {
+            return stats.getNumVariants() == null ? 0 : stats.getNumVariants();
+        }
+        long count = 0;
+        for (String genotype : genotypes) {
+            Integer genotypeCount = stats.getGenotypeCount().get(genotype);
+            if (genotypeCount != null) {
+                count += genotypeCount;
+            }
+        }
+        return count;
+    }
+
     @Override
     public DataResult<Long> count(Query query) {
         throw new UnsupportedOperationException("Count not implemented in " + getClass());
@@ -120,7 +188,7 @@ public class SampleIndexVariantQueryExecutor extends AbstractTwoPhasedVariantQue
         int batchSize = inputOptions.getInt("multiIteratorBatchSize", 200);
         if (iterator) {
             // SampleIndex iterator will be closed when closing the variants iterator
-            return dbAdaptor.iterator(variants, query, inputOptions, batchSize);
+            return dbAdaptor.iterator(variants, query, addDefaultMultiIteratorPrefetch(inputOptions), batchSize);
         } else {
             // Ensure results are sorted
             QueryOptions options = new QueryOptions(inputOptions);
@@ -55,16 +55,15 @@ public class SampleIndexAnnotationLoader {
     }
 
     public void updateSampleAnnotation(int studyId, List<Integer> samples, ObjectMap options) throws IOException, StorageEngineException {
-        samples = new ArrayList<>(samples);
-        samples.removeIf(sampleId -> {
-            SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sampleId);
-            if (!sampleMetadata.isAnnotated()) {
-                logger.info("Unable to update sample index from sample '" + sampleMetadata.getName() + "'");
-                return true;
+        List<Integer> annotatedSamples = new ArrayList<>(samples.size());
+        for (SampleMetadata sampleMetadata : metadataManager.getSampleMetadatas(studyId, samples)) {
+            if (sampleMetadata.isAnnotated()) {
+                annotatedSamples.add(sampleMetadata.getId());
             } else {
-                return false;
+                logger.info("Unable to update sample index from sample '" + sampleMetadata.getName() + "'");
             }
-        });
+        }
+        samples = annotatedSamples;
 
 //        updateSampleAnnotationBatchMultiThread(studyId, samples);
         updateSampleAnnotationBatchMapreduce(studyId, samples, options);
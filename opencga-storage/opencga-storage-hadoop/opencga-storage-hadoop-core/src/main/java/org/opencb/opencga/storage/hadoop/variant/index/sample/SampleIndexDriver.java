@@ -172,8 +172,7 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
         }
 
         sampleIdToFileIdMap = new HashMap<>();
-        for (Integer sampleId : sampleIds) {
-            SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(study, sampleId);
+        for (SampleMetadata sampleMetadata : metadataManager.getSampleMetadatas(study, sampleIds)) {
             sampleIdToFileIdMap.put(sampleMetadata.getId(), sampleMetadata.getFiles());
         }
 
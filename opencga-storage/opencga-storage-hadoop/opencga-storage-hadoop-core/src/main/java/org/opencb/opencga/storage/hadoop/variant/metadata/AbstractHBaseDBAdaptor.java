@@ -1,9 +1,12 @@
 package org.opencb.opencga.storage.hadoop.variant.metadata;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
@@ -16,6 +19,7 @@ import org.opencb.opencga.storage.core.variant.io.json.mixin.GenericRecordAvroJs
 import org.opencb.opencga.storage.hadoop.utils.HBaseLock;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantTableHelper;
 import org.opencb.opencga.storage.hadoop.variant.utils.HBaseVariantTableNameGenerator;
 import org.slf4j.Logger;
@@ -23,9 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.Objects;
+import java.util.*;
 import java.util.concurrent.TimeoutException;
 
 import static org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantMetadataUtils.*;
@@ -39,8 +41,18 @@ public abstract class AbstractHBaseDBAdaptor {
 
     protected static Logger logger = LoggerFactory.getLogger(AbstractHBaseDBAdaptor.class);
 
+    // Max number of rows per multi-get request
+    private static final int MULTI_GET_BATCH_SIZE = 500;
+    // Min number of rows to read with a range scan instead of multi-get requests
+    private static final int BULK_SCAN_MIN_ROWS = 2000;
+    private static final int BULK_SCAN_CACHING = 1000;
+    // Header of the values encoded with smile. Can not be confused with JSON, which never starts with ':'
+    private static final byte[] SMILE_HEADER = new byte[]{':', ')', '\n'};
+
     protected final HBaseManager hBaseManager;
     protected final ObjectMapper objectMapper;
+    private final ObjectMapper smileObjectMapper;
+    private final boolean smileEncoding;
     private final HBaseLock lock;
     protected final String tableName;
     private Boolean tableExists = null; // unknown
@@ -56,9 +68,20 @@ public abstract class AbstractHBaseDBAdaptor {
         HBaseVariantTableNameGenerator.checkValidMetaTableName(metaTableName);
         new GenomeHelper(configuration);
         family = GenomeHelper.COLUMN_FAMILY_BYTES;
-        this.objectMapper = new ObjectMapper().addMixIn(GenericRecord.class, GenericRecordAvroJsonMixin.class);
-        objectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.objectMapper = configureObjectMapper(new ObjectMapper());
+        this.smileObjectMapper = configureObjectMapper(new ObjectMapper(new SmileFactory()));
+        String encoding = configuration.get(HadoopVariantStorageOptions.METADATA_ENCODING.key(),
+                HadoopVariantStorageOptions.METADATA_ENCODING.defaultValue());
+        switch (encoding.toLowerCase()) {
+            case "json":
+                smileEncoding = false;
+                break;
+            case "smile":
+                smileEncoding = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown metadata encoding '" + encoding + "'. Expected one of [json, smile]");
+        }
         if (hBaseManager == null) {
             this.hBaseManager = new HBaseManager(configuration);
         } else {
@@ -68,6 +91,13 @@ public abstract class AbstractHBaseDBAdaptor {
         lock = new HBaseLock(this.hBaseManager, this.tableName, family, null);
     }
 
+    private static ObjectMapper configureObjectMapper(ObjectMapper objectMapper) {
+        objectMapper.addMixIn(GenericRecord.class, GenericRecordAvroJsonMixin.class);
+        objectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return objectMapper;
+    }
+
     protected void ensureTableExists() {
         if (tableExists == null || !tableExists) {
             try {
@@ -151,6 +181,86 @@ public abstract class AbstractHBaseDBAdaptor {
         }
 
 //        logger.debug("Get {} {} from DB {}", clazz.getSimpleName(), Bytes.toString(rowKey), tableName);
+        Get get = buildGet(rowKey, timeStamp, valueColumn);
+
+        try {
+            return hBaseManager.act(tableName, table -> {
+                return convertResult(table.get(get), clazz);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read multiple values in bulk.
+     * Large sets of rows are read with a scan between the first and the last row key. Otherwise, with batched multi-get requests.
+     *
+     * @param rowKeys   Row keys to read
+     * @param clazz     Class of the values
+     * @param timeStamp Optional timestamp
+     * @param <T>       Value type
+     * @return the values in the same order as the row keys. Null for missing rows
+     */
+    protected <T> List<T> readValues(List<byte[]> rowKeys, Class<T> clazz, Long timeStamp) {
+        if (!tableExists() || rowKeys.isEmpty()) {
+            return new ArrayList<>(Collections.nCopies(rowKeys.size(), null));
+        }
+        try {
+            if (rowKeys.size() >= BULK_SCAN_MIN_ROWS) {
+                return scanValues(rowKeys, clazz, timeStamp);
+            } else {
+                List<T> values = new ArrayList<>(rowKeys.size());
+                for (List<byte[]> batch : Lists.partition(rowKeys, MULTI_GET_BATCH_SIZE)) {
+                    List<Get> gets = new ArrayList<>(batch.size());
+                    for (byte[] rowKey : batch) {
+                        gets.add(buildGet(rowKey, timeStamp, getValueColumn()));
+                    }
+                    Result[] results = hBaseManager.act(tableName, table -> {
+                        return table.get(gets);
+                    });
+                    for (Result result : results) {
+                        values.add(convertResult(result, clazz));
+                    }
+                }
+                return values;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> List<T> scanValues(List<byte[]> rowKeys, Class<T> clazz, Long timeStamp) throws IOException {
+        TreeMap<byte[], T> valuesMap = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        for (byte[] rowKey : rowKeys) {
+            valuesMap.put(rowKey, null);
+        }
+        Scan scan = new Scan();
+        scan.setStartRow(valuesMap.firstKey());
+        // Stop row is exclusive
+        scan.setStopRow(Bytes.add(valuesMap.lastKey(), new byte[]{0}));
+        scan.addColumn(family, getValueColumn());
+        scan.setCaching(BULK_SCAN_CACHING);
+        if (timeStamp != null) {
+            scan.setTimeRange(timeStamp + 1, Long.MAX_VALUE);
+        }
+        hBaseManager.act(tableName, table -> {
+            try (ResultScanner scanner = table.getScanner(scan)) {
+                for (Result result : scanner) {
+                    if (valuesMap.containsKey(result.getRow())) {
+                        valuesMap.put(result.getRow(), convertResult(result, clazz));
+                    }
+                }
+            }
+        });
+        List<T> values = new ArrayList<>(rowKeys.size());
+        for (byte[] rowKey : rowKeys) {
+            values.add(valuesMap.get(rowKey));
+        }
+        return values;
+    }
+
+    private Get buildGet(byte[] rowKey, Long timeStamp, byte[] valueColumn) {
         Get get = new Get(rowKey);
         get.addColumn(family, valueColumn);
 
@@ -162,14 +272,7 @@ public abstract class AbstractHBaseDBAdaptor {
                 throw new UncheckedIOException(e);
             }
         }
-
-        try {
-            return hBaseManager.act(tableName, table -> {
-                return convertResult(table.get(get), clazz);
-            });
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        return get;
     }
 
     private <T> T convertResult(Result result, Class<T> clazz) throws IOException {
@@ -177,7 +280,46 @@ public abstract class AbstractHBaseDBAdaptor {
             return null;
         } else {
             Cell cell = result.rawCells()[0];
-            return objectMapper.readValue(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(), clazz);
+            return decodeValue(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(), clazz);
+        }
+    }
+
+    /**
+     * Decode a value written by {@link #putValue}, either as JSON or smile.
+     *
+     * @param bytes  Array with the value
+     * @param offset Value offset
+     * @param length Value length
+     * @param clazz  Class of the value
+     * @param <T>    Value type
+     * @return the decoded value
+     * @throws IOException if the value can not be decoded
+     */
+    protected <T> T decodeValue(byte[] bytes, int offset, int length, Class<T> clazz) throws IOException {
+        if (isSmile(bytes, offset, length)) {
+            return smileObjectMapper.readValue(bytes, offset, length, clazz);
+        } else {
+            return objectMapper.readValue(bytes, offset, length, clazz);
+        }
+    }
+
+    private static boolean isSmile(byte[] bytes, int offset, int length) {
+        if (length < SMILE_HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < SMILE_HEADER.length; i++) {
+            if (bytes[offset + i] != SMILE_HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected byte[] encodeValue(Object value) throws JsonProcessingException {
+        if (smileEncoding) {
+            return smileObjectMapper.writeValueAsBytes(value);
+        } else {
+            return objectMapper.writeValueAsBytes(value);
         }
     }
 
@@ -195,7 +337,7 @@ public abstract class AbstractHBaseDBAdaptor {
         try {
             Put put = new Put(rowKey);
             put.addColumn(family, getTypeColumn(), timeStamp, type.bytes());
-            put.addColumn(family, getValueColumn(), timeStamp, objectMapper.writeValueAsBytes(value));
+            put.addColumn(family, getValueColumn(), timeStamp, encodeValue(value));
 
             hBaseManager.act(tableName, table -> {
                 table.put(put);
@@ -7,7 +7,11 @@ import org.opencb.opencga.storage.core.metadata.models.Locked;
 import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantMetadataUtils.*;
 
@@ -25,6 +29,14 @@ public class HBaseCohortMetadataDBAdaptor extends AbstractHBaseDBAdaptor impleme
         return readValue(getCohortMetadataRowKey(studyId, cohortId), CohortMetadata.class, timeStamp);
     }
 
+    @Override
+    public List<CohortMetadata> getCohortMetadatas(int studyId, Collection<Integer> cohortIds, Long timeStamp) {
+        List<byte[]> rowKeys = cohortIds.stream().map(id -> getCohortMetadataRowKey(studyId, id)).collect(Collectors.toList());
+        List<CohortMetadata> cohorts = readValues(rowKeys, CohortMetadata.class, timeStamp);
+        cohorts.removeIf(Objects::isNull);
+        return cohorts;
+    }
+
     @Override
     public void updateCohortMetadata(int studyId, CohortMetadata cohort, Long timeStamp) {
         putValue(getCohortNameIndexRowKey(studyId, cohort.getName()), HBaseVariantMetadataUtils.Type.INDEX, cohort.getId(), timeStamp);
@@ -43,6 +43,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantMetadataUtils.*;
 
@@ -94,6 +95,14 @@ public class HBaseFileMetadataDBAdaptor extends AbstractHBaseDBAdaptor implement
         return readValue(getFileMetadataRowKey(studyId, fileId), FileMetadata.class, timeStamp);
     }
 
+    @Override
+    public List<FileMetadata> getFileMetadatas(int studyId, Collection<Integer> fileIds, Long timeStamp) {
+        List<byte[]> rowKeys = fileIds.stream().map(id -> getFileMetadataRowKey(studyId, id)).collect(Collectors.toList());
+        List<FileMetadata> files = readValues(rowKeys, FileMetadata.class, timeStamp);
+        files.removeIf(Objects::isNull);
+        return files;
+    }
+
     @Override
     public void updateFileMetadata(int studyId, FileMetadata file, Long timeStamp) {
         putValue(getFileNameIndexRowKey(studyId, file.getName()), Type.INDEX, file.getId(), timeStamp);
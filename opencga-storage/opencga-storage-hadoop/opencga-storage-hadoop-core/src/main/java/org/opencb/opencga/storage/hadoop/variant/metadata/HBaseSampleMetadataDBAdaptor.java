@@ -7,7 +7,11 @@ import org.opencb.opencga.storage.core.metadata.adaptors.SampleMetadataDBAdaptor
 import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantMetadataUtils.*;
 
@@ -25,6 +29,14 @@ public class HBaseSampleMetadataDBAdaptor extends AbstractHBaseDBAdaptor impleme
         return readValue(getSampleMetadataRowKey(studyId, sampleId), SampleMetadata.class, timeStamp);
     }
 
+    @Override
+    public List<SampleMetadata> getSampleMetadatas(int studyId, Collection<Integer> sampleIds, Long timeStamp) {
+        List<byte[]> rowKeys = sampleIds.stream().map(id -> getSampleMetadataRowKey(studyId, id)).collect(Collectors.toList());
+        List<SampleMetadata> samples = readValues(rowKeys, SampleMetadata.class, timeStamp);
+        samples.removeIf(Objects::isNull);
+        return samples;
+    }
+
     @Override
     public void updateSampleMetadata(int studyId, SampleMetadata sample, Long timeStamp) {
         putValue(getSampleNameIndexRowKey(studyId, sample.getName()), HBaseVariantMetadataUtils.Type.INDEX, sample.getId(), timeStamp);
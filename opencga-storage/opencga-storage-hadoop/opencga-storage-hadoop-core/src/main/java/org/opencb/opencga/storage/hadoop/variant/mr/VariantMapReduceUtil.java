@@ -24,9 +24,12 @@ import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.HBaseScanTuner;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantSqlQueryParser;
+import org.opencb.opencga.storage.hadoop.variant.converters.AbstractPhoenixConverter;
 import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
 import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexQueryParser;
 import org.slf4j.Logger;
@@ -36,6 +39,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.NavigableSet;
 
 /**
  * Created on 27/10/17.
@@ -471,16 +475,60 @@ public class VariantMapReduceUtil {
         return configureMapReduceScans(scans, conf, HadoopVariantStorageOptions.MR_HBASE_SCAN_CACHING.defaultValue());
     }
 
+    /**
+     * Configure the caching of the scans of a MapReduce job. If not explicitly configured, the caching is sized with the
+     * {@link HBaseScanTuner} from the number of samples read by each scan. Scans reading whole column families, with unknown row size,
+     * use the default caching.
+     *
+     * @param scans            Scans to configure
+     * @param conf             Job configuration
+     * @param defaultCacheSize Caching to use if not configured and not tuned
+     * @return the same scans
+     */
     public static List<Scan> configureMapReduceScans(List<Scan> scans, Configuration conf, int defaultCacheSize) {
         int caching = conf.getInt(HadoopVariantStorageOptions.MR_HBASE_SCAN_CACHING.key(), defaultCacheSize);
+        boolean cachingConfigured = conf.get(HadoopVariantStorageOptions.MR_HBASE_SCAN_CACHING.key()) != null;
+        ObjectMap tunerOptions = new ObjectMap();
+        tunerOptions.putAll(conf.getValByRegex("^storage\\.hadoop\\.dbadaptor\\.scan\\."));
+        HBaseScanTuner tuner = new HBaseScanTuner(tunerOptions);
 
-        LOGGER.info("Scan set Caching to " + caching);
         for (Scan scan : scans) {
-            scan.setCaching(caching);        // 1 is the default in Scan
-            scan.setCacheBlocks(false);  // don't set to true for MR jobs
+            int numSamples = countSampleColumns(scan);
+            if (!cachingConfigured && tuner.isActive() && numSamples >= 0) {
+                int tunedCaching = tuner.tuneMapReduce(Collections.singletonList(scan), numSamples);
+                LOGGER.info("Scan set Caching to " + tunedCaching + " for " + numSamples + " samples");
+            } else {
+                LOGGER.info("Scan set Caching to " + caching);
+                scan.setCaching(caching);        // 1 is the default in Scan
+                scan.setCacheBlocks(false);  // don't set to true for MR jobs
+            }
         }
 
         return scans;
     }
 
+    /**
+     * Count the sample columns read by a scan.
+     *
+     * @param scan Scan
+     * @return Number of sample columns, or -1 if the scan reads whole column families
+     */
+    private static int countSampleColumns(Scan scan) {
+        if (!scan.hasFamilies()) {
+            return -1;
+        }
+        int numSamples = 0;
+        for (NavigableSet<byte[]> columns : scan.getFamilyMap().values()) {
+            if (columns == null || columns.isEmpty()) {
+                return -1;
+            }
+            for (byte[] column : columns) {
+                if (AbstractPhoenixConverter.endsWith(column, VariantPhoenixHelper.SAMPLE_DATA_SUFIX_BYTES)) {
+                    numSamples++;
+                }
+            }
+        }
+        return numSamples;
+    }
+
 }
@@ -0,0 +1,137 @@
+package org.opencb.opencga.storage.hadoop.variant.search;
+
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
+import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
+import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.utils.HBaseVariantTableNameGenerator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * VariantSearchChangeLog stored in an HBase table.
+ *
+ * Each append writes a new row per variant, with the rowkey {@code studyId + variant + appendId}. As the appendId is unique,
+ * rows are never modified by concurrent appends. Freezing moves the value of each row from the pending column to the
+ * frozen column, so changes appended after the freeze remain pending. Committing deletes the frozen rows.
+ */
+public class HadoopVariantSearchChangeLog extends VariantSearchChangeLog {
+
+    public static final byte[] FAMILY = GenomeHelper.COLUMN_FAMILY_BYTES;
+    public static final byte[] PENDING_COLUMN = Bytes.toBytes("p");
+    public static final byte[] FROZEN_COLUMN = Bytes.toBytes("f");
+    private static final int BATCH_SIZE = 1000;
+
+    private final HBaseManager hBaseManager;
+    private final String tableName;
+    private final List<ResultScanner> scanners = new ArrayList<>();
+
+    public HadoopVariantSearchChangeLog(HBaseManager hBaseManager, String tableName) throws IOException {
+        HBaseVariantTableNameGenerator.checkValidSearchChangeLogTableName(tableName);
+        this.hBaseManager = hBaseManager;
+        this.tableName = tableName;
+        hBaseManager.createTableIfNeeded(tableName, FAMILY, Compression.getCompressionAlgorithmByName(
+                hBaseManager.getConf().get(
+                        HadoopVariantStorageOptions.SEARCH_CHANGE_LOG_TABLE_COMPRESSION.key(),
+                        HadoopVariantStorageOptions.SEARCH_CHANGE_LOG_TABLE_COMPRESSION.defaultValue())));
+    }
+
+    @Override
+    public void append(int studyId, Collection<String> variants) throws IOException {
+        if (variants.isEmpty()) {
+            return;
+        }
+        UUID uuid = UUID.randomUUID();
+        byte[] appendId = Bytes.add(Bytes.toBytes(uuid.getMostSignificantBits()), Bytes.toBytes(uuid.getLeastSignificantBits()));
+        List<Put> puts = new ArrayList<>(variants.size());
+        for (String variant : variants) {
+            byte[] value = Bytes.toBytes(variant);
+            puts.add(new Put(Bytes.add(Bytes.toBytes(studyId), value, appendId)).addColumn(FAMILY, PENDING_COLUMN, value));
+        }
+        hBaseManager.act(tableName, (Table table) -> {
+            table.put(puts);
+        });
+    }
+
+    @Override
+    public synchronized Iterator<String> freeze() throws IOException {
+        Scan scan = new Scan().addColumn(FAMILY, PENDING_COLUMN);
+        scan.setCaching(BATCH_SIZE);
+        hBaseManager.act(tableName, (Table table) -> {
+            List<Put> puts = new ArrayList<>(BATCH_SIZE);
+            List<Delete> deletes = new ArrayList<>(BATCH_SIZE);
+            try (ResultScanner scanner = table.getScanner(scan)) {
+                for (Result result : scanner) {
+                    puts.add(new Put(result.getRow()).addColumn(FAMILY, FROZEN_COLUMN, result.getValue(FAMILY, PENDING_COLUMN)));
+                    deletes.add(new Delete(result.getRow()).addColumns(FAMILY, PENDING_COLUMN));
+                    if (puts.size() == BATCH_SIZE) {
+                        moveToFrozen(table, puts, deletes);
+                    }
+                }
+            }
+            moveToFrozen(table, puts, deletes);
+        });
+
+        Scan frozenScan = new Scan().addColumn(FAMILY, FROZEN_COLUMN);
+        frozenScan.setCaching(BATCH_SIZE);
+        ResultScanner scanner = hBaseManager.getScanner(tableName, frozenScan);
+        scanners.add(scanner);
+        Iterator<Result> iterator = scanner.iterator();
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return Bytes.toString(iterator.next().getValue(FAMILY, FROZEN_COLUMN));
+            }
+        };
+    }
+
+    @Override
+    public synchronized void commit() throws IOException {
+        Scan scan = new Scan().addColumn(FAMILY, FROZEN_COLUMN).setFilter(new KeyOnlyFilter());
+        scan.setCaching(BATCH_SIZE);
+        hBaseManager.act(tableName, (Table table) -> {
+            List<Delete> deletes = new ArrayList<>(BATCH_SIZE);
+            try (ResultScanner scanner = table.getScanner(scan)) {
+                for (Result result : scanner) {
+                    // Pending values are never written to an existing row, so the whole row can be deleted
+                    deletes.add(new Delete(result.getRow()));
+                    if (deletes.size() == BATCH_SIZE) {
+                        table.delete(deletes);
+                        deletes.clear();
+                    }
+                }
+            }
+            if (!deletes.isEmpty()) {
+                table.delete(deletes);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (ResultScanner scanner : scanners) {
+            scanner.close();
+        }
+        scanners.clear();
+    }
+
+    private static void moveToFrozen(Table table, List<Put> puts, List<Delete> deletes) throws IOException {
+        if (!puts.isEmpty()) {
+            // Write the frozen value before removing the pending one, so the change is never lost
+            table.put(puts);
+            table.delete(deletes);
+            puts.clear();
+            deletes.clear();
+        }
+    }
+}
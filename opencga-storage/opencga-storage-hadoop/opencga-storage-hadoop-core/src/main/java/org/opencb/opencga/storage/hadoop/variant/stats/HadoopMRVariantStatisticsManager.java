@@ -16,7 +16,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created on 14/11/17.
@@ -60,6 +62,11 @@ public class HadoopMRVariantStatisticsManager extends VariantStatisticsManager {
 //                    .collect(Collectors.toMap(c -> c, c -> Collections.emptySet())), null, updateStats, overwriteStats);
 //        dbAdaptor.getStudyConfigurationManager().updateStudyConfiguration(sc, options);
 
+        Map<String, List<String>> cohortsMap = new LinkedHashMap<>(cohorts.size());
+        cohorts.forEach(cohort -> cohortsMap.put(cohort, Collections.emptyList()));
+        boolean incremental = getIncrementalSamples(metadataManager, sm, cohortsMap, options) != null;
+        options.put(VariantStorageOptions.STATS_INCREMENTAL.key(), incremental);
+
         preCalculateStats(metadataManager, sm, cohorts, overwriteStats, updateStats, options);
 
         options.put(VariantStatsDriver.COHORTS, cohorts);
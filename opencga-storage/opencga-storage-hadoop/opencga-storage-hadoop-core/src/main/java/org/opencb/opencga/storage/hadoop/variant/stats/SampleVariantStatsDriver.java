@@ -25,6 +25,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.stats.MergeableSampleVariantStatsCalculator;
 import org.opencb.opencga.storage.hadoop.utils.AvroWritable;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.VariantTableAggregationDriver;
@@ -291,7 +292,7 @@ public class SampleVariantStatsDriver extends VariantTableAggregationDriver {
 
     }
 
-    public static class DistributedSampleVariantStatsCalculator extends SampleVariantStatsCalculator {
+    public static class DistributedSampleVariantStatsCalculator extends MergeableSampleVariantStatsCalculator {
 
         private int[] sampleIds;
 
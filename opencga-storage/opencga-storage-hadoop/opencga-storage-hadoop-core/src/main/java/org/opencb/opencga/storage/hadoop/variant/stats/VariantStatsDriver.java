@@ -58,6 +58,7 @@ public class VariantStatsDriver extends AbstractVariantsTableDriver {
     private Aggregation aggregation;
     private boolean updateStats;
     private boolean overwrite;
+    private boolean incremental;
     private boolean statsMultiAllelic;
     private String statsDefaultGenotype;
     private boolean excludeFiles;
@@ -95,6 +96,8 @@ public class VariantStatsDriver extends AbstractVariantsTableDriver {
                 VariantStorageOptions.STATS_UPDATE.defaultValue());
         overwrite = getConf().getBoolean(VariantStorageOptions.STATS_OVERWRITE.key(),
                 VariantStorageOptions.STATS_OVERWRITE.defaultValue());
+        incremental = getConf().getBoolean(VariantStorageOptions.STATS_INCREMENTAL.key(),
+                VariantStorageOptions.STATS_INCREMENTAL.defaultValue());
         statsMultiAllelic = getConf().getBoolean(VariantStorageOptions.STATS_MULTI_ALLELIC.key(),
                 VariantStorageOptions.STATS_MULTI_ALLELIC.defaultValue());
         statsDefaultGenotype = getConf().get(VariantStorageOptions.STATS_DEFAULT_GENOTYPE.key(),
@@ -102,6 +105,7 @@ public class VariantStatsDriver extends AbstractVariantsTableDriver {
         excludeFiles = excludeFiles(statsMultiAllelic, statsDefaultGenotype, aggregation);
 
         logger.info(" * Aggregation: " + aggregation);
+        logger.info(" * " + VariantStorageOptions.STATS_INCREMENTAL.key() + ": " + incremental);
         logger.info(" * " + VariantStorageOptions.STATS_MULTI_ALLELIC.key() + ": " + statsMultiAllelic);
         logger.info(" * " + VariantStorageOptions.STATS_DEFAULT_GENOTYPE.key() + ": " + statsDefaultGenotype);
 
@@ -195,11 +199,22 @@ public class VariantStatsDriver extends AbstractVariantsTableDriver {
                 NavigableSet<byte[]> columns = scan.getFamilyMap().get(GenomeHelper.COLUMN_FAMILY_BYTES);
                 columns.removeIf(column -> endsWith(column, VariantPhoenixHelper.FILE_SUFIX_BYTES));
             }
+            if (incremental) {
+                // Read the stored stats, to be merged with the stats of the new samples
+                NavigableSet<byte[]> columns = scan.getFamilyMap().get(GenomeHelper.COLUMN_FAMILY_BYTES);
+                if (columns != null && !columns.isEmpty()) {
+                    for (Integer cohort : cohorts) {
+                        columns.add(VariantPhoenixHelper.getStatsColumn(getStudyId(), cohort).bytes());
+                    }
+                }
+            }
             VariantMapReduceUtil.configureMapReduceScan(scan, getConf());
             logger.info(scan.toString());
 
             // Allow partial results if files are not required
-            boolean allowPartialResults = excludeFiles && getConf().getBoolean(STATS_PARTIAL_RESULTS, STATS_PARTIAL_RESULTS_DEFAULT);
+            // Incremental stats require the stored stats and the genotypes in the same result
+            boolean allowPartialResults = excludeFiles && !incremental
+                    && getConf().getBoolean(STATS_PARTIAL_RESULTS, STATS_PARTIAL_RESULTS_DEFAULT);
             logger.info(" * Allow partial results : " + allowPartialResults);
 
             // input + output
@@ -15,6 +15,7 @@ import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
+import org.opencb.opencga.storage.hadoop.variant.converters.stats.HBaseToVariantStatsConverter;
 import org.opencb.opencga.storage.hadoop.variant.converters.stats.VariantStatsToHBaseConverter;
 import org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantStorageMetadataDBAdaptorFactory;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantTableHelper;
@@ -39,8 +40,12 @@ public class VariantStatsFromResultMapper extends TableMapper<ImmutableBytesWrit
     private StudyMetadata studyMetadata;
     private VariantStatsToHBaseConverter converter;
     private Map<String, HBaseVariantStatsCalculator> calculators;
+    // Calculators of the samples added to each cohort since the last stats calculation, if incremental
+    private Map<String, HBaseVariantStatsCalculator> newSamplesCalculators;
+    private HBaseToVariantStatsConverter statsConverter;
     private final Logger logger = LoggerFactory.getLogger(VariantStatsFromResultMapper.class);
     private Map<String, Integer> cohortIds;
+    private Map<String, List<Integer>> newSamples;
 
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
@@ -59,11 +64,19 @@ public class VariantStatsFromResultMapper extends TableMapper<ImmutableBytesWrit
             cohorts = VariantStatsMapper.getCohorts(context.getConfiguration());
             cohortIds = new HashMap<>(cohorts.size());
             samples = new HashMap<>(cohorts.size());
+            boolean incremental = context.getConfiguration().getBoolean(VariantStorageOptions.STATS_INCREMENTAL.key(),
+                    VariantStorageOptions.STATS_INCREMENTAL.defaultValue());
+            newSamples = incremental ? new HashMap<>(cohorts.size()) : null;
             cohorts.forEach(cohortId -> {
                 CohortMetadata cohort = metadataManager.getCohortMetadata(studyMetadata.getId(), cohortId);
                 cohortIds.put(cohort.getName(), cohortId);
                 List<Integer> samplesInCohort = cohort.getSamples();
                 samples.put(cohort.getName(), samplesInCohort);
+                if (newSamples != null && cohort.getStatsSamples() != null) {
+                    List<Integer> newSamplesInCohort = new ArrayList<>(samplesInCohort);
+                    newSamplesInCohort.removeAll(new HashSet<>(cohort.getStatsSamples()));
+                    newSamples.put(cohort.getName(), newSamplesInCohort);
+                }
             });
             converter = new VariantStatsToHBaseConverter(helper, studyMetadata, cohortIds);
 
@@ -80,6 +93,16 @@ public class VariantStatsFromResultMapper extends TableMapper<ImmutableBytesWrit
                 new HBaseVariantStorageMetadataDBAdaptorFactory(helper))) {
             samples.forEach((cohort, samples) -> calculators.put(cohort, new HBaseVariantStatsCalculator(
                     GenomeHelper.COLUMN_FAMILY_BYTES, metadataManager, studyMetadata, samples, statsMultiAllelic, unknownGenotype)));
+            if (newSamples != null) {
+                newSamplesCalculators = new HashMap<>(newSamples.size());
+                newSamples.forEach((cohort, samples) -> {
+                    if (!samples.isEmpty()) {
+                        newSamplesCalculators.put(cohort, new HBaseVariantStatsCalculator(GenomeHelper.COLUMN_FAMILY_BYTES,
+                                metadataManager, studyMetadata, samples, statsMultiAllelic, unknownGenotype));
+                    }
+                });
+                statsConverter = new HBaseToVariantStatsConverter(helper);
+            }
         }
     }
 
@@ -146,9 +169,23 @@ public class VariantStatsFromResultMapper extends TableMapper<ImmutableBytesWrit
         Variant variant = VariantPhoenixKeyFactory.extractVariantFromVariantRowKey(value.getRow());
         VariantStatsWrapper wrapper = new VariantStatsWrapper(variant, new HashMap<>(calculators.size()));
 
+        Map<Integer, VariantStats> storedStats = newSamples == null
+                ? Collections.emptyMap()
+                : statsConverter.convert(value).getOrDefault(studyMetadata.getId(), Collections.emptyMap());
+
         calculators.forEach((cohort, calculator) -> {
-            VariantStats stats = calculator.apply(value);
-            wrapper.getCohortStats().put(cohort, stats);
+            VariantStats stored = storedStats.get(cohortIds.get(cohort));
+            if (stored == null || !newSamples.containsKey(cohort)) {
+                VariantStats stats = calculator.apply(value);
+                wrapper.getCohortStats().put(cohort, stats);
+            } else {
+                // Merge the genotype counts of the new samples with the stored genotype counts
+                HBaseVariantStatsCalculator newSamplesCalculator = newSamplesCalculators.get(cohort);
+                if (newSamplesCalculator != null) {
+                    Map<Genotype, Integer> gtCount = newSamplesCalculator.convert(value, variant, new HashMap<>(stored.getGenotypeCount()));
+                    wrapper.getCohortStats().put(cohort, newSamplesCalculator.calculate(variant, gtCount));
+                }
+            }
         });
 
         write(context, wrapper);
@@ -19,6 +19,7 @@ public class HBaseVariantTableNameGenerator {
     private static final String SAMPLE_SUFIX = "_variant_sample_index_";
     private static final String ANNOTATION_SUFIX = "_annotation";
     private static final String PENDING_ANNOTATION_SUFIX = "_pending_annotation";
+    private static final String SEARCH_CHANGE_LOG_SUFIX = "_search_changelog";
     private static final int MINIMUM_DB_NAME_SIZE = 1;
 
     private final String namespace;
@@ -27,6 +28,7 @@ public class HBaseVariantTableNameGenerator {
     private final String metaTableName;
     private final String annotationIndexTableName;
     private final String pendingAnnotationTableName;
+    private final String searchChangeLogTableName;
 
 
     public HBaseVariantTableNameGenerator(String dbName, ObjectMap options) {
@@ -47,6 +49,7 @@ public class HBaseVariantTableNameGenerator {
         metaTableName = getMetaTableName(namespace, this.dbName);
         annotationIndexTableName = getAnnotationIndexTableName(namespace, this.dbName);
         pendingAnnotationTableName = getPendingAnnotationTableName(namespace, this.dbName);
+        searchChangeLogTableName = getSearchChangeLogTableName(namespace, this.dbName);
     }
 
     public String getVariantTableName() {
@@ -69,6 +72,10 @@ public class HBaseVariantTableNameGenerator {
         return pendingAnnotationTableName;
     }
 
+    public String getSearchChangeLogTableName() {
+        return searchChangeLogTableName;
+    }
+
     public String getMetaTableName() {
         return metaTableName;
     }
@@ -107,6 +114,12 @@ public class HBaseVariantTableNameGenerator {
         }
     }
 
+    public static void checkValidSearchChangeLogTableName(String searchChangeLogTableName) {
+        if (!validSuffix(searchChangeLogTableName, SEARCH_CHANGE_LOG_SUFIX)) {
+            throw new IllegalArgumentException("Invalid search change log table name : " + searchChangeLogTableName);
+        }
+    }
+
     public static String getDBNameFromMetaTableName(String metaTableName) {
         checkValidMetaTableName(metaTableName);
         return metaTableName.substring(0, metaTableName.length() - META_SUFIX.length());
@@ -203,6 +216,10 @@ public class HBaseVariantTableNameGenerator {
         return buildTableName(namespace, dbName, PENDING_ANNOTATION_SUFIX);
     }
 
+    public static String getSearchChangeLogTableName(String namespace, String dbName) {
+        return buildTableName(namespace, dbName, SEARCH_CHANGE_LOG_SUFIX);
+    }
+
     public static String getMetaTableName(String namespace, String dbName) {
         return buildTableName(namespace, dbName, META_SUFIX);
     }
@@ -0,0 +1,105 @@
+package org.opencb.opencga.storage.hadoop.variant.adaptors;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryFields;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.*;
+
+public class HBaseScanTunerTest {
+
+    private HBaseScanTuner tuner;
+
+    @Before
+    public void setUp() throws Exception {
+        tuner = new HBaseScanTuner(new ObjectMap());
+    }
+
+    @Test
+    public void testCachingDependsOnNumSamples() {
+        int smallStudyCaching = tune(new Scan(), 10, new QueryOptions()).getCaching();
+        int largeStudyCaching = tune(new Scan(), 20000, new QueryOptions()).getCaching();
+
+        assertTrue(smallStudyCaching > largeStudyCaching);
+        assertEquals(DBADAPTOR_SCAN_CACHING_MIN.<Integer>defaultValue().intValue(), largeStudyCaching);
+    }
+
+    @Test
+    public void testAdaptToObservedRowSize() {
+        int caching = tune(new Scan(), 10, new QueryOptions()).getCaching();
+        for (int i = 0; i < 10; i++) {
+            // Rows 10 times bigger than expected
+            tuner.observe(10, 100, (long) (100 * tuner.estimateRowBytes(10) * 10), 0);
+        }
+        assertTrue(tune(new Scan(), 10, new QueryOptions()).getCaching() < caching);
+    }
+
+    @Test
+    public void testAdaptRowSizeFromScansWithSamples() {
+        double rowBytes = tuner.estimateRowBytes(0);
+        for (int i = 0; i < 10; i++) {
+            tuner.observe(10, 100, (long) (100 * tuner.estimateRowBytes(10) * 10), 0);
+        }
+        // Scans projecting samples also update the size of the rest of the row
+        assertTrue(tuner.estimateRowBytes(0) > rowBytes);
+    }
+
+    @Test
+    public void testTuneMapReduce() {
+        Scan scan = new Scan();
+        int caching = tuner.tuneMapReduce(Collections.singletonList(scan), 10);
+        assertEquals(caching, scan.getCaching());
+        assertFalse(scan.isSmall());
+        assertFalse(scan.getCacheBlocks());
+        assertTrue(caching > tuner.tuneMapReduce(Collections.singletonList(new Scan()), 20000));
+    }
+
+    @Test
+    public void testAdaptToObservedLatency() {
+        // 1s per row
+        tuner.observe(10, 100, (long) (100 * tuner.estimateRowBytes(10)), 100L * 1000000000L);
+        assertEquals(DBADAPTOR_SCAN_CACHING_MIN.<Integer>defaultValue().intValue(), tune(new Scan(), 10, new QueryOptions()).getCaching());
+    }
+
+    @Test
+    public void testSmallScan() {
+        Scan scan = tune(new Scan(), 10, new QueryOptions(QueryOptions.LIMIT, 5));
+        assertTrue(scan.isSmall());
+        assertEquals(5, scan.getCaching());
+
+        scan = tune(new Scan(), 10, new QueryOptions());
+        assertFalse(scan.isSmall());
+        assertFalse(scan.getCacheBlocks());
+    }
+
+    @Test
+    public void testInactive() {
+        tuner = new HBaseScanTuner(new ObjectMap(DBADAPTOR_SCAN_TUNING.key(), false));
+        Scan scan = new Scan();
+        int caching = scan.getCaching();
+        assertNull(tuner.tune(Collections.singletonList(scan), fields(10), new QueryOptions()));
+        assertEquals(caching, scan.getCaching());
+    }
+
+    private Scan tune(Scan scan, int numSamples, QueryOptions options) {
+        assertNotNull(tuner.tune(Collections.singletonList(scan), fields(numSamples), options));
+        return scan;
+    }
+
+    private VariantQueryFields fields(int numSamples) {
+        List<Integer> samples = new ArrayList<>(numSamples);
+        for (int i = 0; i < numSamples; i++) {
+            samples.add(i);
+        }
+        return new VariantQueryFields(new StudyMetadata(1, "s1"), samples, Collections.emptyList());
+    }
+}
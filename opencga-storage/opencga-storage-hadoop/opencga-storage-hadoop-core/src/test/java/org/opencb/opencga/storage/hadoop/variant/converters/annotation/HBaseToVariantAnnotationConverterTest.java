@@ -0,0 +1,86 @@
+package org.opencb.opencga.storage.hadoop.variant.converters.annotation;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.PopulationFrequency;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.utils.CompressionUtils;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
+import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixHelper;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HBaseToVariantAnnotationConverterTest {
+
+    @Test
+    public void testIncludeFields() throws Exception {
+        VariantAnnotation annotation = createAnnotation();
+        for (byte[] value : Arrays.asList(Bytes.toBytes(annotation.toString()),
+                CompressionUtils.compress(Bytes.toBytes(annotation.toString())))) {
+            HBaseToVariantAnnotationConverter converter = new HBaseToVariantAnnotationConverter(GenomeHelper.COLUMN_FAMILY_BYTES, 0);
+
+            VariantAnnotation all = converter.convert(createResult(value));
+            assertEquals("rs1", all.getId());
+            assertEquals(annotation.getConsequenceTypes(), all.getConsequenceTypes());
+            assertEquals(annotation.getPopulationFrequencies(), all.getPopulationFrequencies());
+
+            converter.setIncludeFields(new HashSet<>(Arrays.asList(VariantField.ANNOTATION,
+                    VariantField.ANNOTATION_CONSEQUENCE_TYPES, VariantField.ANNOTATION_POPULATION_FREQUENCIES)));
+            VariantAnnotation partial = converter.convert(createResult(value));
+            assertNull(partial.getId());
+            assertNull(partial.getHgvs());
+            assertEquals(annotation.getConsequenceTypes(), partial.getConsequenceTypes());
+            assertEquals(annotation.getPopulationFrequencies(), partial.getPopulationFrequencies());
+
+            converter.setIncludeFields(new HashSet<>(Arrays.asList(VariantField.ANNOTATION, VariantField.ANNOTATION_ID)));
+            partial = converter.convert(createResult(value));
+            assertEquals("rs1", partial.getId());
+            assertEquals(Collections.emptyList(), partial.getConsequenceTypes());
+            assertNull(partial.getPopulationFrequencies());
+        }
+    }
+
+    private static VariantAnnotation createAnnotation() {
+        VariantAnnotation annotation = new VariantAnnotation();
+        annotation.setChromosome("1");
+        annotation.setStart(1000);
+        annotation.setEnd(1000);
+        annotation.setReference("A");
+        annotation.setAlternate("C");
+        annotation.setId("rs1");
+        annotation.setHgvs(Collections.singletonList("1:g.1000A>C"));
+        List<ConsequenceType> consequenceTypes = new ArrayList<>();
+        List<PopulationFrequency> populationFrequencies = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ConsequenceType consequenceType = new ConsequenceType();
+            consequenceType.setGeneName("GENE" + i);
+            consequenceType.setEnsemblTranscriptId("ENST" + i);
+            consequenceType.setSequenceOntologyTerms(Collections.emptyList());
+            consequenceTypes.add(consequenceType);
+
+            PopulationFrequency populationFrequency = new PopulationFrequency();
+            populationFrequency.setStudy("STUDY");
+            populationFrequency.setPopulation("POP" + i);
+            populationFrequency.setRefAllele("A");
+            populationFrequency.setAltAllele("C");
+            populationFrequency.setAltAlleleFreq(i / 100f);
+            populationFrequency.setRefAlleleFreq(1 - i / 100f);
+            populationFrequencies.add(populationFrequency);
+        }
+        annotation.setConsequenceTypes(consequenceTypes);
+        annotation.setPopulationFrequencies(populationFrequencies);
+        return annotation;
+    }
+
+    private static Result createResult(byte[] value) {
+        return Result.create(new Cell[]{new KeyValue(Bytes.toBytes("row"), GenomeHelper.COLUMN_FAMILY_BYTES,
+                VariantPhoenixHelper.VariantColumn.FULL_ANNOTATION.bytes(), value)});
+    }
+}
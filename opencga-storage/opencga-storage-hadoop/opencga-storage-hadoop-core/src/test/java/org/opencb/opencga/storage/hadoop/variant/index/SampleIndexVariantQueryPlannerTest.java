@@ -0,0 +1,134 @@
+package org.opencb.opencga.storage.hadoop.variant.index;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.config.StorageConfiguration;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.core.variant.query.DBAdaptorVariantQueryExecutor;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryExecutor;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryPlanner;
+import org.opencb.opencga.storage.core.variant.search.SearchIndexVariantQueryExecutor;
+import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchManager;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexDBAdaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
+
+/**
+ * Compare the estimated costs of the sample index, the search engine and a full scan, with realistic numbers.
+ */
+public class SampleIndexVariantQueryPlannerTest {
+
+    private static final int NUM_SAMPLES = 100;
+    private static final int SAMPLE_VARIANTS = 5000000;
+    private static final int SAMPLE_HOM_ALT = 2000000;
+
+    private VariantSearchManager searchManager;
+    private SampleIndexVariantQueryExecutor sampleIndexExecutor;
+    private SearchIndexVariantQueryExecutor searchIndexExecutor;
+    private DBAdaptorVariantQueryExecutor dbAdaptorExecutor;
+    private VariantQueryPlanner planner;
+
+    @Before
+    public void setUp() throws Exception {
+        VariantStorageMetadataManager metadataManager =
+                new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory(true));
+        int studyId = metadataManager.createStudy("study").getId();
+        List<String> samples = new ArrayList<>(NUM_SAMPLES);
+        for (int i = 1; i <= NUM_SAMPLES; i++) {
+            samples.add("S" + i);
+        }
+        for (Integer sampleId : metadataManager.registerSamples(studyId, samples)) {
+            Map<String, Integer> genotypeCount = new HashMap<>();
+            genotypeCount.put("0/1", SAMPLE_VARIANTS - SAMPLE_HOM_ALT);
+            genotypeCount.put("1/1", SAMPLE_HOM_ALT);
+            SampleVariantStats stats = new SampleVariantStats();
+            stats.setNumVariants(SAMPLE_VARIANTS);
+            stats.setGenotypeCount(genotypeCount);
+            metadataManager.updateSampleMetadata(studyId, sampleId, sampleMetadata -> sampleMetadata
+                    .setIndexStatus(TaskMetadata.Status.READY)
+                    .setStats(stats));
+        }
+
+        VariantHadoopDBAdaptor dbAdaptor = mock(VariantHadoopDBAdaptor.class);
+        when(dbAdaptor.getMetadataManager()).thenReturn(metadataManager);
+        searchManager = mock(VariantSearchManager.class);
+
+        sampleIndexExecutor = new SampleIndexVariantQueryExecutor(dbAdaptor, mock(SampleIndexDBAdaptor.class), "hadoop", new ObjectMap());
+        searchIndexExecutor = new SearchIndexVariantQueryExecutor(dbAdaptor, searchManager, "hadoop", "db",
+                new StorageConfiguration(), new ObjectMap()) {
+            @Override
+            public boolean canUseThisExecutor(Query query, QueryOptions options) {
+                // Search engine active and alive
+                return true;
+            }
+        };
+        dbAdaptorExecutor = new DBAdaptorVariantQueryExecutor(dbAdaptor, "hadoop", new ObjectMap());
+        planner = new VariantQueryPlanner(Arrays.asList(sampleIndexExecutor, searchIndexExecutor, dbAdaptorExecutor));
+    }
+
+    @Test
+    public void testSmallRegion() throws Exception {
+        // A small region. Few entries from the sample index, while the search engine returns the variants of all samples
+        Query query = new Query(STUDY.key(), "study")
+                .append(GENOTYPE.key(), "S1:1/1")
+                .append(REGION.key(), "1:1-1000000")
+                .append(ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant");
+        cacheSearchCount(query, 2000);
+
+        VariantQueryPlanner.VariantQueryPlan plan = planner.plan(query, new QueryOptions(), true);
+        assertSame(sampleIndexExecutor, plan.getExecutor());
+        assertTrue(dbAdaptorExecutor.estimateCost(query, new QueryOptions()) > plan.getEstimatedCost());
+    }
+
+    @Test
+    public void testSelectiveSearch() throws Exception {
+        // Whole genome, with annotation filters resolved by the search engine
+        Query query = new Query(STUDY.key(), "study")
+                .append(GENOTYPE.key(), "S1:1/1")
+                .append(ANNOT_CONSEQUENCE_TYPE.key(), "stop_gained")
+                .append(ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "1kG_phase3:ALL<0.001");
+        cacheSearchCount(query, 300000);
+
+        assertSame(searchIndexExecutor, planner.plan(query, new QueryOptions(), true).getExecutor());
+
+        // With a small limit, few entries are read from the sample index
+        assertSame(sampleIndexExecutor, planner.plan(query, new QueryOptions(QueryOptions.LIMIT, 10), true).getExecutor());
+    }
+
+    @Test
+    public void testUnknownSearchCount() throws Exception {
+        Query query = new Query(STUDY.key(), "study")
+                .append(GENOTYPE.key(), "S1:1/1")
+                .append(ANNOT_CONSEQUENCE_TYPE.key(), "stop_gained");
+
+        VariantQueryPlanner.VariantQueryPlan plan = planner.plan(query, new QueryOptions(), true);
+        assertSame(sampleIndexExecutor, plan.getExecutor());
+        assertTrue(Double.isNaN(searchIndexExecutor.estimateCost(query, new QueryOptions())));
+        // Full scan of all the variants, bounded by the sum of the variants of each sample
+        assertEquals(((double) NUM_SAMPLES) * SAMPLE_VARIANTS * VariantQueryExecutor.SCAN_ROW_COST,
+                dbAdaptorExecutor.estimateCost(query, new QueryOptions()), 1);
+    }
+
+    private void cacheSearchCount(Query query, long numFound) throws Exception {
+        when(searchManager.count(eq("db"), any(Query.class))).thenReturn(numFound);
+        assertEquals(numFound, searchIndexExecutor.count(query).first().longValue());
+    }
+}
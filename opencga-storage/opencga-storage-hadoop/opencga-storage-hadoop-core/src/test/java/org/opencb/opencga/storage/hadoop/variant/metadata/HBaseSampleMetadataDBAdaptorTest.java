@@ -0,0 +1,69 @@
+package org.opencb.opencga.storage.hadoop.variant.metadata;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.ExternalResource;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class HBaseSampleMetadataDBAdaptorTest extends VariantStorageBaseTest implements HadoopVariantStorageTest {
+
+    @ClassRule
+    public static ExternalResource externalResource = new HadoopExternalResource();
+
+    @Test
+    public void testGetSampleMetadatas() throws Exception {
+        HadoopVariantStorageEngine engine = getVariantStorageEngine();
+        VariantHadoopDBAdaptor dbAdaptor = engine.getDBAdaptor();
+        String metaTableName = dbAdaptor.getTableNameGenerator().getMetaTableName();
+        HBaseSampleMetadataDBAdaptor jsonAdaptor = new HBaseSampleMetadataDBAdaptor(dbAdaptor.getHBaseManager(), metaTableName,
+                getConf(engine, "json"));
+        HBaseSampleMetadataDBAdaptor smileAdaptor = new HBaseSampleMetadataDBAdaptor(dbAdaptor.getHBaseManager(), metaTableName,
+                getConf(engine, "smile"));
+
+        int studyId = 1;
+        List<Integer> sampleIds = new ArrayList<>();
+        for (int sampleId = 1; sampleId <= 2500; sampleId++) {
+            // Mix both encodings
+            HBaseSampleMetadataDBAdaptor adaptor = sampleId % 2 == 0 ? jsonAdaptor : smileAdaptor;
+            adaptor.updateSampleMetadata(studyId, new SampleMetadata(studyId, sampleId, "s" + sampleId), null);
+            sampleIds.add(sampleId);
+        }
+
+        // Multi get. Missing samples are skipped
+        List<SampleMetadata> samples = jsonAdaptor.getSampleMetadatas(studyId, Arrays.asList(5, 2, 100000, 3), null);
+        assertEquals(Arrays.asList(5, 2, 3), samples.stream().map(SampleMetadata::getId).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("s5", "s2", "s3"), samples.stream().map(SampleMetadata::getName).collect(Collectors.toList()));
+
+        // Large reads use a scan
+        Collections.reverse(sampleIds);
+        samples = smileAdaptor.getSampleMetadatas(studyId, sampleIds, null);
+        assertEquals(sampleIds, samples.stream().map(SampleMetadata::getId).collect(Collectors.toList()));
+        for (SampleMetadata sample : samples) {
+            assertEquals("s" + sample.getId(), sample.getName());
+        }
+
+        assertEquals(Integer.valueOf(7), jsonAdaptor.getSampleId(studyId, "s7"));
+        assertEquals(Integer.valueOf(8), smileAdaptor.getSampleId(studyId, "s8"));
+        assertEquals("s7", jsonAdaptor.getSampleMetadata(studyId, 7, null).getName());
+    }
+
+    private static Configuration getConf(HadoopVariantStorageEngine engine, String encoding) {
+        Configuration conf = new Configuration(engine.getConf());
+        conf.set(HadoopVariantStorageOptions.METADATA_ENCODING.key(), encoding);
+        return conf;
+    }
+}
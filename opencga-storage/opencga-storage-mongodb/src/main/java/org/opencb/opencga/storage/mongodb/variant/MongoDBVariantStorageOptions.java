@@ -1,5 +1,7 @@
 package org.opencb.opencga.storage.mongodb.variant;
 
+import com.mongodb.WriteConcern;
+import org.apache.commons.lang3.StringUtils;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.storage.core.config.ConfigurationOption;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
@@ -17,6 +19,7 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
     COLLECTION_STAGE("storage.mongodb.collection.stage", "stage"),
     COLLECTION_ANNOTATION("storage.mongodb.collection.annotation", "annot"),
     COLLECTION_TRASH("storage.mongodb.collection.trash", "trash"),
+    COLLECTION_SEARCH_CHANGE_LOG("storage.mongodb.collection.searchChangeLog", "search_changelog"),
 
     ALREADY_LOADED_VARIANTS("storage.mongodb.alreadyLoadedVariants", 0),
 
@@ -26,6 +29,8 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
     STAGE_RESUME("storage.mongodb.stage.resume", false),
     STAGE_PARALLEL_WRITE("storage.mongodb.stage.parallelWrite", false),
     STAGE_CLEAN_WHILE_LOAD("storage.mongodb.stage.clean.while.load", true),
+    STAGE_CODEC("storage.mongodb.stage.codec", "DEFLATE_FAST"),     // Compression of the stage documents: NONE, DEFLATE_FAST, DEFLATE
+    STAGE_WRITE_CONCERN("storage.mongodb.stage.writeConcern", ""),  // Write concern of the stage collection. Empty for default
 
     DIRECT_LOAD("storage.mongodb.directLoad", false),
     DIRECT_LOAD_PARALLEL_WRITE("storage.mongodb.directLoad.parallelWrite", false),
@@ -36,6 +41,11 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
     MERGE_IGNORE_OVERLAPPING_VARIANTS("storage.mongodb.merge.ignoreOverlappingVariants", false),   //Do not look for overlapping variants
     MERGE_PARALLEL_WRITE("storage.mongodb.merge.parallelWrite", false),
     MERGE_BATCH_SIZE("storage.mongodb.merge.batchSize", 10),          //Number of files to merge directly from first to second collection
+    MERGE_SHARDS("storage.mongodb.merge.shards", 1),                  //Number of chromosome shards merged concurrently
+    MERGE_SHARD_SIZE("storage.mongodb.merge.shardSize", 0),           //Split chromosomes in position ranges, if overlaps are ignored
+    MERGE_WRITE_CONCERN("storage.mongodb.merge.writeConcern", ""),   //Write concern of the variants collection. Empty for default
+    MERGE_RETRY_MAX("storage.mongodb.merge.retry.max", 5),            //Max retries of operations failed with transient errors
+    MERGE_RETRY_BACKOFF("storage.mongodb.merge.retry.backoff", 1000), //Initial backoff between retries, in milliseconds
 
 
     EXTRA_GENOTYPE_FIELDS_COMPRESS("extra-fields.compress", true),    //Compress with gzip other sample information
@@ -49,6 +59,25 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
         this.value = value;
     }
 
+    /**
+     * Get the write concern to use for a collection.
+     *
+     * @param options   Options
+     * @param option    Write concern option
+     * @return          Write concern, or null to use the default one
+     */
+    public static WriteConcern getWriteConcern(ObjectMap options, MongoDBVariantStorageOptions option) {
+        String value = options.getString(option.key(), option.defaultValue());
+        if (StringUtils.isEmpty(value)) {
+            return null;
+        }
+        WriteConcern writeConcern = WriteConcern.valueOf(value.toUpperCase());
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown write concern '" + value + "' for " + option.key());
+        }
+        return writeConcern;
+    }
+
     public static boolean isResume(ObjectMap options) {
         return options.getBoolean(VariantStorageOptions.RESUME.key(), VariantStorageOptions.RESUME.defaultValue());
     }
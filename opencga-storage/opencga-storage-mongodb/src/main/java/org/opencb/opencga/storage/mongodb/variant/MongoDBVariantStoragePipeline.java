@@ -18,9 +18,14 @@ package org.opencb.opencga.storage.mongodb.variant;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.BiMap;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
 import org.apache.commons.lang3.time.StopWatch;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.opencb.biodata.formats.variant.io.VariantReader;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.VariantType;
@@ -29,6 +34,7 @@ import org.opencb.biodata.tools.variant.VariantDeduplicationTask;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.io.DataReader;
 import org.opencb.commons.run.ParallelTaskRunner;
@@ -43,10 +49,15 @@ import org.opencb.opencga.storage.core.variant.VariantStorageEngine.MergeMode;
 import org.opencb.opencga.storage.core.variant.VariantStoragePipeline;
 import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.opencb.opencga.storage.core.variant.transform.DiscardDuplicatedVariantsResolver;
 import org.opencb.opencga.storage.core.variant.transform.RemapVariantIdsTask;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantStringIdConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.stage.VariantToAvroBinaryConverter;
 import org.opencb.opencga.storage.mongodb.variant.exceptions.MongoVariantStorageEngineException;
+import org.opencb.opencga.storage.mongodb.variant.load.MongoDBBulkWriteRetry;
 import org.opencb.opencga.storage.mongodb.variant.load.MongoDBVariantWriteResult;
 import org.opencb.opencga.storage.mongodb.variant.load.direct.MongoDBVariantDirectLoader;
 import org.opencb.opencga.storage.mongodb.variant.load.direct.MongoDBVariantStageAndFileReader;
@@ -63,6 +74,9 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -97,6 +111,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
     private List<Integer> fileIds;
     // current running task
     private TaskMetadata currentTask;
+    private VariantSearchChangeLog searchChangeLog = VariantSearchChangeLog.empty();
 
     public MongoDBVariantStoragePipeline(StorageConfiguration configuration, String storageEngineId,
                                          VariantMongoDBAdaptor dbAdaptor, IOConnectorProvider ioConnectorProvider, ObjectMap options) {
@@ -104,6 +119,11 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         this.dbAdaptor = dbAdaptor;
     }
 
+    public MongoDBVariantStoragePipeline setSearchChangeLog(VariantSearchChangeLog searchChangeLog) {
+        this.searchChangeLog = searchChangeLog;
+        return this;
+    }
+
     public URI preLoad(URI input, URI output) throws StorageEngineException {
         URI uri = super.preLoad(input, output);
         if (isResumeStage(options)) {
@@ -322,7 +342,8 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
 
             // Writer -- MongoDBVariantDirectLoader
             MongoDBVariantDirectLoader loader = new MongoDBVariantDirectLoader(dbAdaptor, studyMetadata, fileId, resume,
-                    progressLogger);
+                    progressLogger)
+                    .setSearchChangeLog(searchChangeLog);
 
             // Runner
             ParallelTaskRunner<Document, ?> ptr;
@@ -392,6 +413,10 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         try {
             StudyMetadata studyMetadata = getStudyMetadata();
             MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
+            WriteConcern stageWriteConcern = getWriteConcern(options, STAGE_WRITE_CONCERN);
+            if (stageWriteConcern != null) {
+                stageCollection = stageCollection.withWriteConcern(stageWriteConcern);
+            }
 
             //Reader
             VariantReader variantReader = variantReaderUtils.getVariantReader(input, metadata, stdin);
@@ -401,7 +426,9 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
 
             //Runner
             ProgressLogger progressLogger = new ProgressLogger("Write variants in STAGE collection:", numRecords, 200);
-            MongoDBVariantStageConverterTask converterTask = new MongoDBVariantStageConverterTask(progressLogger);
+            VariantToAvroBinaryConverter variantConverter =
+                    new VariantToAvroBinaryConverter(options.getString(STAGE_CODEC.key(), STAGE_CODEC.defaultValue()));
+            MongoDBVariantStageConverterTask converterTask = new MongoDBVariantStageConverterTask(progressLogger, variantConverter);
             MongoDBVariantStageLoader stageLoader =
                     new MongoDBVariantStageLoader(stageCollection, studyMetadata.getId(), fileId,
                             isResumeStage(options));
@@ -435,6 +462,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
                 stageSuccess(fileMetadata);
             } finally {
                 Runtime.getRuntime().removeShutdownHook(hook);
+                variantConverter.close();
             }
 
             long skippedVariants = converterTask.getSkippedVariants();
@@ -639,16 +667,131 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
                                                         StudyMetadata studyMetadata)
             throws StorageEngineException {
         MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
+        MongoDBVariantStageReader reader = newMergeStageReader(stageCollection, fileIds, studyMetadata, null);
+        ProgressLogger progressLogger = new ProgressLogger("Write variants in VARIANTS collection:", reader::countNumVariants, 200);
+        progressLogger.setApproximateTotalCount(reader.countAproxNumVariants());
+
+        int numShards = options.getInt(MERGE_SHARDS.key(), MERGE_SHARDS.defaultValue());
+        if (numShards <= 1) {
+            logger.info("Merging files " + fileIds);
+            return mergeShard(reader, fileIds, batchSize, loadThreads, studyMetadata, progressLogger);
+        }
+
+        List<Region> shards = getMergeShards(stageCollection, studyMetadata);
+        if (shards.size() <= 1) {
+            logger.info("Merging files " + fileIds);
+            return mergeShard(reader, fileIds, batchSize, loadThreads, studyMetadata, progressLogger);
+        }
+        numShards = Math.min(numShards, shards.size());
+        int tasksPerShard = Math.max(1, loadThreads / numShards);
+        logger.info("Merging files {} in {} shards. Running {} shards concurrently with {} tasks each",
+                fileIds, shards.size(), numShards, tasksPerShard);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numShards);
+        MongoDBVariantWriteResult result = new MongoDBVariantWriteResult();
+        try {
+            List<Future<MongoDBVariantWriteResult>> futures = new ArrayList<>(shards.size());
+            for (Region shard : shards) {
+                futures.add(executor.submit(() -> {
+                    logger.info("Merging files {} in region {}", fileIds, shard);
+                    MongoDBVariantStageReader shardReader = newMergeStageReader(stageCollection, fileIds, studyMetadata, shard);
+                    return mergeShard(shardReader, fileIds, batchSize, tasksPerShard, studyMetadata, progressLogger);
+                }));
+            }
+            for (Future<MongoDBVariantWriteResult> future : futures) {
+                result.merge(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageEngineException("Interrupted while merging files " + fileIds, e);
+        } catch (ExecutionException e) {
+            logger.info("Write result: {}", result);
+            if (e.getCause() instanceof StorageEngineException) {
+                throw (StorageEngineException) e.getCause();
+            }
+            throw new StorageEngineException("Error while merging files " + fileIds, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private MongoDBVariantStageReader newMergeStageReader(MongoDBCollection stageCollection, List<Integer> fileIds,
+                                                          StudyMetadata studyMetadata, Region region) {
         MongoDBVariantStageReader reader = new MongoDBVariantStageReader(stageCollection, studyMetadata.getId());
         MergeMode mergeMode = MergeMode.from(studyMetadata.getAttributes());
         if (mergeMode.equals(MergeMode.BASIC)) {
             // Read only files to load when MergeMode is BASIC
             reader.setFileIds(fileIds);
         }
+        reader.setRegion(region);
+        return reader;
+    }
+
+    /**
+     * Split the stage collection in regions to be merged independently.
+     *
+     * Each chromosome is a shard. Chromosomes are only split in position ranges if the overlapping variants are not merged,
+     * as the stage reader must return overlapping variants within the same batch.
+     *
+     * @param stageCollection   Stage collection
+     * @param studyMetadata     Study metadata
+     * @return                  List of regions
+     */
+    private List<Region> getMergeShards(MongoDBCollection stageCollection, StudyMetadata studyMetadata) {
+        boolean ignoreOverlapping = studyMetadata.getAttributes().getBoolean(MERGE_IGNORE_OVERLAPPING_VARIANTS.key(),
+                MERGE_IGNORE_OVERLAPPING_VARIANTS.defaultValue())
+                || MergeMode.from(studyMetadata.getAttributes()).equals(MergeMode.BASIC);
+        int shardSize = options.getInt(MERGE_SHARD_SIZE.key(), MERGE_SHARD_SIZE.defaultValue());
+        if (shardSize > 0 && !ignoreOverlapping) {
+            logger.info("Ignore {}={}. Overlapping variants are merged, so chromosomes can not be split",
+                    MERGE_SHARD_SIZE.key(), shardSize);
+            shardSize = 0;
+        }
+
+        List<Region> shards = new ArrayList<>();
+        Bson studyFilter = Filters.eq(StageDocumentToVariantConverter.STUDY_FILE_FIELD, String.valueOf(studyMetadata.getId()));
+        QueryOptions firstId = new QueryOptions(QueryOptions.SORT, Sorts.ascending("_id"))
+                .append(QueryOptions.LIMIT, 1)
+                .append(QueryOptions.INCLUDE, "_id");
+        QueryOptions lastId = new QueryOptions(QueryOptions.SORT, Sorts.descending("_id"))
+                .append(QueryOptions.LIMIT, 1)
+                .append(QueryOptions.INCLUDE, "_id");
+        Bson filter = studyFilter;
+        // Skip from one chromosome to the next one using the _id index
+        Document document;
+        while ((document = stageCollection.find(filter, firstId).first()) != null) {
+            String id = document.getString("_id");
+            String chromosome = id.substring(0, id.indexOf(VariantStringIdConverter.SEPARATOR_CHAR)).trim();
+            String chromosomeId = VariantStringIdConverter.convertChromosome(chromosome);
+            if (shardSize > 0) {
+                Bson chromosomeFilter = Filters.and(studyFilter, MongoDBVariantStageReader.getRegionFilter(new Region(chromosome)));
+                String last = stageCollection.find(chromosomeFilter, lastId).first().getString("_id");
+                int end = Integer.parseInt(last.split(VariantStringIdConverter.SEPARATOR, -1)[1].trim());
+                for (int start = 1; start <= end; start += shardSize) {
+                    shards.add(new Region(chromosome, start, start + shardSize - 1 >= end ? Integer.MAX_VALUE : start + shardSize - 1));
+                }
+            } else {
+                shards.add(new Region(chromosome));
+            }
+            filter = Filters.and(studyFilter,
+                    Filters.gte("_id", chromosomeId + (char) (VariantStringIdConverter.SEPARATOR_CHAR + 1)));
+        }
+        return shards;
+    }
+
+    private MongoDBVariantWriteResult mergeShard(MongoDBVariantStageReader reader, List<Integer> fileIds, int batchSize,
+                                                 int numTasks, StudyMetadata studyMetadata, ProgressLogger progressLogger)
+            throws StorageEngineException {
+        MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
+        MongoDBCollection variantsCollection = dbAdaptor.getVariantsCollection();
+        WriteConcern mergeWriteConcern = getWriteConcern(options, MERGE_WRITE_CONCERN);
+        if (mergeWriteConcern != null) {
+            stageCollection = stageCollection.withWriteConcern(mergeWriteConcern);
+            variantsCollection = variantsCollection.withWriteConcern(mergeWriteConcern);
+        }
         boolean resume = isResumeMerge(options);
         boolean cleanWhileLoading = options.getBoolean(STAGE_CLEAN_WHILE_LOAD.key(), STAGE_CLEAN_WHILE_LOAD.defaultValue());
-        ProgressLogger progressLogger = new ProgressLogger("Write variants in VARIANTS collection:", reader::countNumVariants, 200);
-        progressLogger.setApproximateTotalCount(reader.countAproxNumVariants());
 
         boolean ignoreOverlapping = studyMetadata.getAttributes().getBoolean(MERGE_IGNORE_OVERLAPPING_VARIANTS.key(),
                 MERGE_IGNORE_OVERLAPPING_VARIANTS.defaultValue());
@@ -656,13 +799,14 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         MongoDBVariantMerger variantMerger = new MongoDBVariantMerger(dbAdaptor, studyMetadata, fileIds, resume,
                 ignoreOverlapping, release);
         MongoDBVariantMergeLoader variantLoader = new MongoDBVariantMergeLoader(
-                dbAdaptor.getVariantsCollection(), stageCollection, dbAdaptor.getStudiesCollection(),
-                studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger);
+                variantsCollection, stageCollection, dbAdaptor.getStudiesCollection(),
+                studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger, MongoDBBulkWriteRetry.fromOptions(options))
+                .setSearchChangeLog(searchChangeLog);
 
         ParallelTaskRunner<Document, MongoDBOperations> ptrMerge;
         ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
                 .setReadQueuePutTimeout(20 * 60)
-                .setNumTasks(loadThreads)
+                .setNumTasks(numTasks)
                 .setBatchSize(batchSize)
                 .setAbortOnFail(true).build();
         try {
@@ -676,7 +820,6 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         }
 
         try {
-            logger.info("Merging files " + fileIds);
             ptrMerge.run();
         } catch (ExecutionException e) {
             logger.info("Write result: {}", variantLoader.getResult());
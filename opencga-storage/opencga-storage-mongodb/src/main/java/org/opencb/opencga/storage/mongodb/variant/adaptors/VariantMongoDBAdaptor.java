@@ -173,6 +173,10 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         return db.getCollection(configuration.getString(COLLECTION_TRASH.key(), COLLECTION_TRASH.defaultValue()));
     }
 
+    public MongoDBCollection getSearchChangeLogCollection() {
+        return db.getCollection(configuration.getString(COLLECTION_SEARCH_CHANGE_LOG.key(), COLLECTION_SEARCH_CHANGE_LOG.defaultValue()));
+    }
+
     protected MongoDataStore getDB() {
         return db;
     }
@@ -59,6 +59,8 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
     private final Map<Integer, String> __sampleNames;
     private final Map<String, Integer> __sampleIds;
     private final Map<Integer, List<Integer>> __samplesInFile;
+    private final Map<Integer, StudySamples> __studySamples;
+    private final Map<String, String> __genotypes;
     private final Map<Integer, Set<String>> studyDefaultGenotypeSet;
     private Map<Integer, LinkedHashSet<Integer>> includeSamples;
     private Map<Integer, List<Integer>> includeFiles;
@@ -120,6 +122,8 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
         __sampleNames = new ConcurrentHashMap<>();
         __sampleIds = new ConcurrentHashMap<>();
         __samplesInFile = new ConcurrentHashMap<>();
+        __studySamples = new ConcurrentHashMap<>();
+        __genotypes = new ConcurrentHashMap<>();
         studyDefaultGenotypeSet = new ConcurrentHashMap<>();
         includeSamples = Collections.emptyMap();
         metadataManager = null;
@@ -182,10 +186,12 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
             fillStudyEntryFields(study, samplesPositionToReturn, Collections.emptyList(), Collections.emptyList(), excludeGenotypes);
             return Collections.emptyList();
         }
+        final StudySamples studySamples = getStudySamples(studyMetadata);
+        final int numSamples = samplesPositionToReturn.size();
 
         final Set<Integer> filesWithSamplesData;
         final Map<Integer, Document> files;
-        final Set<Integer> loadedSamples;
+        final boolean[] loadedSamples;
         final List<String> extraFields;
         if (object.containsKey(DocumentToStudyVariantEntryConverter.FILES_FIELD)) {
             List<Document> fileObjects = getList(object, DocumentToStudyVariantEntryConverter.FILES_FIELD);
@@ -194,16 +200,20 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
                             f -> f.get(DocumentToStudyVariantEntryConverter.FILEID_FIELD, Number.class).intValue(),
                             f -> f));
 
-            loadedSamples = new HashSet<>();
+            loadedSamples = new boolean[numSamples];
             filesWithSamplesData = new HashSet<>();
             for (Integer fileId : includeFiles.get(studyId)) {
-                List<Integer> samplesInFile = getSamplesInFile(studyId, fileId);
-                // File indexed and contains any sample (not disjoint)
-                if (!Collections.disjoint(samplesInFile, sampleIds.values())) {
+                FileSamples fileSamples = studySamples.getFileSamples(fileId);
+                if (fileSamples.includesSamples) {
                     filesWithSamplesData.add(fileId);
                 }
                 if (files.containsKey(fileId) || files.containsKey(-fileId)) {
-                    loadedSamples.addAll(samplesInFile);
+                    for (int sampleId : fileSamples.sampleIds) {
+                        int position = studySamples.getPosition(sampleId);
+                        if (position >= 0) {
+                            loadedSamples[position] = true;
+                        }
+                    }
                 }
             }
 
@@ -212,10 +222,10 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
             files = Collections.emptyMap();
             extraFields = Collections.emptyList();
             filesWithSamplesData = Collections.emptySet();
-            loadedSamples = Collections.emptySet();
+            loadedSamples = null;
         }
 
-        List<List<String>> samplesData = new ArrayList<>(sampleIds.size());
+        List<List<String>> samplesData = new ArrayList<>(numSamples);
 
 
         // An array of genotypes is initialized with the most common one
@@ -229,22 +239,22 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
             defaultGenotype = UNKNOWN_GENOTYPE;
         }
 
-        // Add the samples to the file
-        for (String sampleName : samplesPositionToReturn.keySet()) {
-            Integer sampleId = sampleIds.get(sampleName);
-
-            String[] values;
+        // Add the samples to the file. Only the returned samples are created
+        String[][] values = new String[numSamples][];
+        for (int position = 0; position < numSamples; position++) {
+            String[] sampleValues;
             if (excludeGenotypes) {
-                values = new String[extraFields.size()];
+                sampleValues = new String[extraFields.size()];
             } else {
-                values = new String[1 + extraFields.size()];
-                if (loadedSamples.contains(sampleId)) {
-                    values[0] = defaultGenotype;
+                sampleValues = new String[1 + extraFields.size()];
+                if (loadedSamples != null && loadedSamples[position]) {
+                    sampleValues[0] = defaultGenotype;
                 } else {
-                    values[0] = unknownGenotype;
+                    sampleValues[0] = unknownGenotype;
                 }
             }
-            samplesData.add(Arrays.asList(values));
+            values[position] = sampleValues;
+            samplesData.add(Arrays.asList(sampleValues));
         }
 
 
@@ -252,20 +262,18 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
         // in the position specified in the array, such as:
         // "0|1" : [ 41, 311, 342, 358, 881, 898, 903 ]
         // genotypes[41], genotypes[311], etc, will be set to "0|1"
-        Map<Integer, String> idSamples = getIndexedSamplesIdMap(studyId).inverse();
         if (!excludeGenotypes) {
             Document mongoGenotypes = (Document) object.get(DocumentToStudyVariantEntryConverter.GENOTYPES_FIELD);
             for (Map.Entry<String, Object> dbo : mongoGenotypes.entrySet()) {
-                final String genotype;
                 if (dbo.getKey().equals(UNKNOWN_GENOTYPE)) {
                     // Skip this legacy genotype!
                     continue;
-                } else {
-                    genotype = genotypeToDataModelType(dbo.getKey());
                 }
-                for (Integer sampleId : (List<Integer>) dbo.getValue()) {
-                    if (idSamples.containsKey(sampleId)) {
-                        samplesData.get(samplesPositionToReturn.get(idSamples.get(sampleId))).set(0, genotype);
+                final String genotype = __genotypes.computeIfAbsent(dbo.getKey(), DocumentToSamplesConverter::genotypeToDataModelType);
+                for (Number sampleId : (List<Number>) dbo.getValue()) {
+                    int position = studySamples.getPosition(sampleId.intValue());
+                    if (position >= 0) {
+                        values[position][0] = genotype;
                     }
                 }
             }
@@ -326,14 +334,12 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
                             final Iterator<String> iterator = otherFields.getStringValuesList().iterator();
                             supplier = () -> iterator.hasNext() ? iterator.next() : UNKNOWN_FIELD;
                         }
-                        for (Integer sampleId : getSamplesInFile(studyId, fid)) {
-                            String sampleName = getSampleName(studyId, sampleId);
-                            Integer samplePosition = samplesPositionToReturn.get(sampleName);
-                            if (samplePosition == null) {
+                        for (int samplePosition : studySamples.getFileSamples(fid).positions) {
+                            if (samplePosition < 0) {
                                 // The sample on this position is not returned. Skip this value.
                                 supplier.get();
                             } else {
-                                samplesData.get(samplePosition).set(extraFieldPosition, supplier.get());
+                                values[samplePosition][extraFieldPosition] = supplier.get();
                             }
                         }
 
@@ -347,13 +353,9 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
                         extraFieldPosition = 1; //Skip GT
                     }
                     for (int i = 0; i < extraFields.size(); i++) {
-                        for (Integer sampleId : getSamplesInFile(studyId, fid)) {
-                            String sampleName = getSampleName(studyId, sampleId);
-                            Integer samplePosition = samplesPositionToReturn.get(sampleName);
-                            if (samplePosition != null) {
-                                if (samplesData.get(samplePosition).get(extraFieldPosition) == null) {
-                                    samplesData.get(samplePosition).set(extraFieldPosition, UNKNOWN_FIELD);
-                                }
+                        for (int samplePosition : studySamples.getFileSamples(fid).positions) {
+                            if (samplePosition >= 0 && values[samplePosition][extraFieldPosition] == null) {
+                                values[samplePosition][extraFieldPosition] = UNKNOWN_FIELD;
                             }
                         }
                         extraFieldPosition++;
@@ -586,11 +588,13 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
         }
         __studySamplesId.clear();
         __samplesPosition.clear();
+        __studySamples.clear();
     }
 
     public void addStudyMetadata(StudyMetadata studyMetadata) {
         this.studyMetadatas.put(studyMetadata.getId(), studyMetadata);
         this.__studySamplesId.remove(studyMetadata.getId());
+        this.__studySamples.remove(studyMetadata.getId());
 
         Set defGenotypeSet = studyMetadata.getAttributes().get(DEFAULT_GENOTYPE.key(), Set.class);
         if (defGenotypeSet == null) {
@@ -664,6 +668,12 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
                 s -> metadataManager.getSamplesPosition(studyMetadata, this.includeSamples.get(studyId)));
     }
 
+    private StudySamples getStudySamples(StudyMetadata studyMetadata) {
+        int studyId = studyMetadata.getId();
+        return __studySamples.computeIfAbsent(studyId,
+                s -> new StudySamples(studyId, getIndexedSamplesIdMap(studyId), getSamplesPosition(studyMetadata)));
+    }
+
     private String getSampleName(int studyId, int sampleId) {
         return __sampleNames.computeIfAbsent(sampleId, s -> metadataManager.getSampleName(studyId, sampleId));
     }
@@ -676,6 +686,78 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
         return __samplesInFile.computeIfAbsent(fid, s -> new ArrayList<>(metadataManager.getFileMetadata(studyId, fid).getSamples()));
     }
 
+    /**
+     * Position of the returned samples of a study, indexed by sample id.
+     * Replaces the sampleId to sampleName to position lookups while converting each variant.
+     */
+    private final class StudySamples {
+        private final int studyId;
+        private final int[] positions;
+        private final LinkedHashMap<String, Integer> samplesPosition;
+        private final Set<Integer> indexedSampleIds;
+        private final Map<Integer, FileSamples> files = new ConcurrentHashMap<>();
+
+        private StudySamples(int studyId, BiMap<String, Integer> sampleIds, LinkedHashMap<String, Integer> samplesPosition) {
+            this.studyId = studyId;
+            this.samplesPosition = samplesPosition;
+            this.indexedSampleIds = sampleIds.values();
+            int maxSampleId = -1;
+            for (Integer sampleId : sampleIds.values()) {
+                maxSampleId = Math.max(maxSampleId, sampleId);
+            }
+            positions = new int[maxSampleId + 1];
+            Arrays.fill(positions, -1);
+            for (Map.Entry<String, Integer> entry : samplesPosition.entrySet()) {
+                Integer sampleId = sampleIds.get(entry.getKey());
+                if (sampleId != null) {
+                    positions[sampleId] = entry.getValue();
+                }
+            }
+        }
+
+        /**
+         * @param sampleId Sample id
+         * @return Position of the sample in the StudyEntry, or -1 if the sample is not returned
+         */
+        private int getPosition(int sampleId) {
+            return sampleId >= 0 && sampleId < positions.length ? positions[sampleId] : -1;
+        }
+
+        private FileSamples getFileSamples(int fileId) {
+            return files.computeIfAbsent(fileId, fid -> {
+                List<Integer> samplesInFile = getSamplesInFile(studyId, fid);
+                int[] sampleIds = new int[samplesInFile.size()];
+                int[] filePositions = new int[samplesInFile.size()];
+                for (int i = 0; i < sampleIds.length; i++) {
+                    int sampleId = samplesInFile.get(i);
+                    sampleIds[i] = sampleId;
+                    Integer position = samplesPosition.get(getSampleName(studyId, sampleId));
+                    filePositions[i] = position == null ? -1 : position;
+                }
+                // File indexed and contains any sample (not disjoint)
+                boolean includesSamples = !Collections.disjoint(samplesInFile, indexedSampleIds);
+                return new FileSamples(sampleIds, filePositions, includesSamples);
+            });
+        }
+    }
+
+    /**
+     * Samples of a file, in the same order as the sample data stored in the file.
+     */
+    private static final class FileSamples {
+        private final int[] sampleIds;
+        /** Position of each sample in the StudyEntry, or -1 if not returned. */
+        private final int[] positions;
+        /** If the file contains any of the indexed samples of the study, filtered by the included samples. */
+        private final boolean includesSamples;
+
+        private FileSamples(int[] sampleIds, int[] positions, boolean includesSamples) {
+            this.sampleIds = sampleIds;
+            this.positions = positions;
+            this.includesSamples = includesSamples;
+        }
+    }
+
     public static String genotypeToDataModelType(String genotype) {
         return StringUtils.replace(genotype, "-1", ".");
     }
@@ -29,56 +29,247 @@ import org.opencb.biodata.models.variant.avro.VariantAvro;
 import org.opencb.commons.datastore.core.ComplexTypeConverter;
 import org.opencb.commons.utils.CompressionUtils;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
+ * Converts variants into the binary format stored in the stage collection.
+ *
+ * Data is stored with a versioned header, followed by the Avro serialization of the variant, compressed with the selected
+ * {@link Codec}:
+ * <pre>
+ *   [0x00][version][codec][uncompressed length (4 bytes)][data]
+ * </pre>
+ * Documents written before the header was introduced (plain zlib compressed Avro) are still readable.
+ *
+ * Encoders, buffers, deflaters and inflaters are pooled, so this converter can be shared between threads. The native
+ * memory of the pooled deflaters and inflaters is released on {@link #close()}.
+ *
  * Created on 27/06/16.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
  */
-public class VariantToAvroBinaryConverter implements ComplexTypeConverter<Variant, Binary> {
+public class VariantToAvroBinaryConverter implements ComplexTypeConverter<Variant, Binary>, AutoCloseable {
+
+    public static final byte VERSION = 1;
+    // A zlib stream never starts with 0x00, as the low nibble of the first byte is always 8 (deflate)
+    private static final byte MAGIC = 0x00;
+    private static final int HEADER_SIZE = 7;
+
+    public enum Codec {
+        /** No compression. Fastest, but larger documents. */
+        NONE(0, Deflater.NO_COMPRESSION),
+        /** Deflate with the fastest compression level. */
+        DEFLATE_FAST(1, Deflater.BEST_SPEED),
+        /** Deflate with the default compression level. */
+        DEFLATE(2, Deflater.DEFAULT_COMPRESSION);
+
+        private final byte id;
+        private final int level;
+
+        Codec(int id, int level) {
+            this.id = (byte) id;
+            this.level = level;
+        }
+
+        static Codec fromId(byte id) {
+            for (Codec codec : values()) {
+                if (codec.id == id) {
+                    return codec;
+                }
+            }
+            throw new IllegalArgumentException("Unknown stage codec " + id);
+        }
+    }
+
+    private final Codec codec;
+    private final SpecificDatumWriter<VariantAvro> writer = new SpecificDatumWriter<>(VariantAvro.getClassSchema());
+    private final SpecificDatumReader<VariantAvro> reader = new SpecificDatumReader<>(VariantAvro.getClassSchema());
+    // Idle contexts. One context is used at a time by each converting thread
+    private final Queue<Context> contexts = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    private final class Context {
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(4096);
+        private Deflater deflater;
+        private Inflater inflater;
+        private BinaryEncoder encoder;
+        private BinaryDecoder decoder;
+        private byte[] buffer = new byte[4096];
+
+        private byte[] buffer(int size) {
+            if (buffer.length < size) {
+                buffer = new byte[Math.max(size, buffer.length * 2)];
+            }
+            return buffer;
+        }
+
+        private Deflater deflater() {
+            if (deflater == null) {
+                deflater = new Deflater(codec.level);
+            }
+            return deflater;
+        }
+
+        private Inflater inflater() {
+            if (inflater == null) {
+                inflater = new Inflater();
+            }
+            return inflater;
+        }
+
+        private void end() {
+            if (deflater != null) {
+                deflater.end();
+            }
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    public VariantToAvroBinaryConverter() {
+        this(Codec.DEFLATE_FAST);
+    }
+
+    public VariantToAvroBinaryConverter(Codec codec) {
+        this.codec = codec;
+    }
 
-    private SpecificDatumWriter<VariantAvro> writer = new SpecificDatumWriter<>(VariantAvro.getClassSchema());
-    private SpecificDatumReader<VariantAvro> reader = new SpecificDatumReader<>(VariantAvro.getClassSchema());
+    public VariantToAvroBinaryConverter(String codec) {
+        this(Codec.valueOf(codec.toUpperCase()));
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Release the deflaters and inflaters of the idle contexts. Contexts in use are released once the conversion finishes.
+     * The converter can still be used after closing it, without reusing the contexts.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Context context = contexts.poll(); context != null; context = contexts.poll()) {
+            context.end();
+        }
+    }
+
+    private Context acquireContext() {
+        Context context = contexts.poll();
+        return context == null ? new Context() : context;
+    }
+
+    private void releaseContext(Context context) {
+        contexts.add(context);
+        // Closed concurrently. Release now, unless already released by close
+        if (closed && contexts.remove(context)) {
+            context.end();
+        }
+    }
 
     @Override
     public Variant convertToDataModelType(Binary object) {
-        BinaryDecoder decoder = null;
+        byte[] data = object.getData();
+        Context context = acquireContext();
         try {
-            byte[] data = object.getData();
-            data = CompressionUtils.decompress(data);
-            InputStream is = new ByteArrayInputStream(data);
-//                is = new GZIPInputStream(is);
-            decoder = DecoderFactory.get().directBinaryDecoder(is, decoder);
-
-            return new Variant(reader.read(null, decoder));
+            if (data.length == 0 || data[0] != MAGIC) {
+                // Legacy format
+                data = CompressionUtils.decompress(data);
+                context.decoder = DecoderFactory.get().binaryDecoder(data, context.decoder);
+            } else {
+                if (data.length < HEADER_SIZE || data[1] > VERSION) {
+                    throw new IllegalArgumentException("Unsupported stage format version " + (data.length > 1 ? data[1] : -1));
+                }
+                Codec codec = Codec.fromId(data[2]);
+                int length = ((data[3] & 0xFF) << 24) | ((data[4] & 0xFF) << 16) | ((data[5] & 0xFF) << 8) | (data[6] & 0xFF);
+                if (codec == Codec.NONE) {
+                    context.decoder = DecoderFactory.get().binaryDecoder(data, HEADER_SIZE, length, context.decoder);
+                } else {
+                    byte[] buffer = context.buffer(length);
+                    Inflater inflater = context.inflater();
+                    inflater.reset();
+                    inflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+                    int read = 0;
+                    while (read < length && !inflater.finished()) {
+                        int n = inflater.inflate(buffer, read, length - read);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        read += n;
+                    }
+                    if (read != length) {
+                        throw new DataFormatException("Expected " + length + " bytes, got " + read);
+                    }
+                    context.decoder = DecoderFactory.get().binaryDecoder(buffer, 0, length, context.decoder);
+                }
+            }
+            return new Variant(reader.read(null, context.decoder));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } catch (DataFormatException e) {
             throw new RuntimeException(e);
+        } finally {
+            releaseContext(context);
         }
     }
 
-
     @Override
     public Binary convertToStorageType(Variant variant) {
-        BinaryEncoder encoder = null;
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-//            byteArrayOutputStream.reset();
-        OutputStream outputStream = byteArrayOutputStream;
+        Context context = acquireContext();
         try {
-//                outputStream = new GZIPOutputStream(outputStream);
-            encoder = EncoderFactory.get().directBinaryEncoder(outputStream, encoder);
-            writer.write(variant.getImpl(), encoder);
-            encoder.flush();
-            outputStream.flush();
-            outputStream.close();
-            byte[] data = byteArrayOutputStream.toByteArray();
-            data = CompressionUtils.compress(data);
-            return new Binary(data);
+            return convertToStorageType(variant, context);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    private Binary convertToStorageType(Variant variant, Context context) {
+        ByteArrayOutputStream outputStream = context.outputStream;
+        outputStream.reset();
+        try {
+            context.encoder = EncoderFactory.get().binaryEncoder(outputStream, context.encoder);
+            writer.write(variant.getImpl(), context.encoder);
+            context.encoder.flush();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
+        int length = outputStream.size();
+        byte[] avro = outputStream.toByteArray();
+
+        byte[] data;
+        if (codec == Codec.NONE) {
+            data = new byte[HEADER_SIZE + length];
+            System.arraycopy(avro, 0, data, HEADER_SIZE, length);
+        } else {
+            Deflater deflater = context.deflater();
+            deflater.reset();
+            deflater.setInput(avro, 0, length);
+            deflater.finish();
+            byte[] buffer = context.buffer(HEADER_SIZE + length + length / 100 + 64);
+            int size = HEADER_SIZE;
+            while (!deflater.finished()) {
+                if (size == buffer.length) {
+                    buffer = context.buffer(buffer.length * 2);
+                }
+                size += deflater.deflate(buffer, size, buffer.length - size);
+            }
+            data = Arrays.copyOf(buffer, size);
+        }
+        data[0] = MAGIC;
+        data[1] = VERSION;
+        data[2] = codec.id;
+        data[3] = (byte) (length >>> 24);
+        data[4] = (byte) (length >>> 16);
+        data[5] = (byte) (length >>> 8);
+        data[6] = (byte) length;
+        return new Binary(data);
     }
 }
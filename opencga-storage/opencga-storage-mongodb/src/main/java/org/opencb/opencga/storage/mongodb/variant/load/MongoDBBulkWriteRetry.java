@@ -0,0 +1,227 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.mongodb.variant.load;
+
+import com.mongodb.*;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonNull;
+import org.bson.conversions.Bson;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.MERGE_RETRY_BACKOFF;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.MERGE_RETRY_MAX;
+
+/**
+ * Executes bulk updates retrying the operations that failed with transient errors, like a primary election.
+ *
+ * The bulk operations are executed unordered, so the failure of one operation does not prevent the rest from being applied.
+ * Operations rejected with a transient error were not applied, so only those are submitted again, with an exponential backoff.
+ * Any other error is reported to the caller with a {@link MongoBulkWriteException}, where the indexes of the errors refer to
+ * the original list of operations.
+ *
+ * If the whole command fails, it is only retried if the server did not apply it, or if the updates are idempotent.
+ */
+public class MongoDBBulkWriteRetry {
+
+    // See https://github.com/mongodb/mongo/blob/master/src/mongo/base/error_codes.yml
+    private static final Set<Integer> TRANSIENT_ERROR_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            6,      // HostUnreachable
+            7,      // HostNotFound
+            89,     // NetworkTimeout
+            91,     // ShutdownInProgress
+            112,    // WriteConflict
+            189,    // PrimarySteppedDown
+            262,    // ExceededTimeLimit
+            9001,   // SocketException
+            10107,  // NotMaster
+            11600,  // InterruptedAtShutdown
+            11602,  // InterruptedDueToReplStateChange
+            13435,  // NotMasterNoSlaveOk
+            13436   // NotMasterOrSecondary
+    )));
+    private static final long MAX_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private final int maxRetries;
+    private final long backoffMs;
+    private final AtomicLong numRetries = new AtomicLong();
+    private final AtomicLong numRetriedOperations = new AtomicLong();
+    private final Logger logger = LoggerFactory.getLogger(MongoDBBulkWriteRetry.class);
+
+    public MongoDBBulkWriteRetry(int maxRetries, long backoffMs) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoffMs = Math.max(0, backoffMs);
+    }
+
+    public static MongoDBBulkWriteRetry fromOptions(ObjectMap options) {
+        return new MongoDBBulkWriteRetry(
+                options.getInt(MERGE_RETRY_MAX.key(), MERGE_RETRY_MAX.defaultValue()),
+                options.getLong(MERGE_RETRY_BACKOFF.key(), ((Number) MERGE_RETRY_BACKOFF.defaultValue()).longValue()));
+    }
+
+    public static boolean isTransient(int errorCode) {
+        return TRANSIENT_ERROR_CODES.contains(errorCode);
+    }
+
+    public DataResult update(MongoDBCollection collection, Bson query, Bson update, QueryOptions options, boolean idempotent) {
+        return update(collection, Collections.singletonList(query), Collections.singletonList(update), options, idempotent);
+    }
+
+    /**
+     * Execute a list of updates.
+     *
+     * @param collection    Collection to update
+     * @param queries       Queries
+     * @param updates       Updates, one per query
+     * @param options       Update options
+     * @param idempotent    If the updates can be applied twice without side effects
+     * @return              Combined result of all the attempts
+     * @throws MongoBulkWriteException with the operations that could not be applied
+     */
+    public DataResult update(MongoDBCollection collection, List<Bson> queries, List<Bson> updates, QueryOptions options,
+                             boolean idempotent) {
+        List<Bson> currentQueries = queries;
+        List<Bson> currentUpdates = updates;
+        // Index in the original list of each operation in the current attempt. Null for the first attempt.
+        List<Integer> indexes = null;
+
+        long matched = 0;
+        long modified = 0;
+        List<BulkWriteUpsert> upserts = new ArrayList<>();
+        List<BulkWriteError> errors = new ArrayList<>();
+        ServerAddress serverAddress = null;
+        int attempt = 0;
+        while (true) {
+            try {
+                DataResult result = collection.update(currentQueries, currentUpdates, options);
+                if (attempt == 0) {
+                    return result;
+                }
+                matched += result.getNumMatches();
+                modified += result.getNumUpdated();
+                for (int i = 0; i < result.getNumInserted(); i++) {
+                    // Ids not available
+                    upserts.add(new BulkWriteUpsert(-1, BsonNull.VALUE));
+                }
+                break;
+            } catch (MongoBulkWriteException e) {
+                serverAddress = e.getServerAddress();
+                BulkWriteResult writeResult = e.getWriteResult();
+                matched += writeResult.getMatchedCount();
+                modified += writeResult.isModifiedCountAvailable() ? writeResult.getModifiedCount() : 0;
+                for (BulkWriteUpsert upsert : writeResult.getUpserts()) {
+                    upserts.add(new BulkWriteUpsert(getIndex(indexes, upsert.getIndex()), upsert.getId()));
+                }
+                List<Integer> retry = new ArrayList<>();
+                List<BulkWriteError> retryErrors = new ArrayList<>();
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    BulkWriteError remapped = new BulkWriteError(error.getCode(), error.getMessage(), error.getDetails(),
+                            getIndex(indexes, error.getIndex()));
+                    if (isTransient(error.getCode())) {
+                        retry.add(remapped.getIndex());
+                        retryErrors.add(remapped);
+                    } else {
+                        errors.add(remapped);
+                    }
+                }
+                if (retry.isEmpty()) {
+                    break;
+                }
+                if (attempt >= maxRetries) {
+                    errors.addAll(retryErrors);
+                    break;
+                }
+                attempt++;
+                currentQueries = new ArrayList<>(retry.size());
+                currentUpdates = new ArrayList<>(retry.size());
+                for (Integer index : retry) {
+                    currentQueries.add(queries.get(index));
+                    currentUpdates.add(updates.get(index));
+                }
+                indexes = retry;
+                logger.warn("Retry {} of {} failed operations in collection '{}' after transient error: {}", attempt, retry.size(),
+                        collection, retryErrors.get(0).getMessage());
+                numRetriedOperations.addAndGet(retry.size());
+                backoff(attempt);
+            } catch (MongoException e) {
+                if (attempt >= maxRetries || !isRetryable(e, idempotent)) {
+                    throw e;
+                }
+                attempt++;
+                logger.warn("Retry {} of {} operations in collection '{}' after error: {}", attempt, currentQueries.size(),
+                        collection, e.getMessage());
+                numRetriedOperations.addAndGet(currentQueries.size());
+                backoff(attempt);
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            errors.sort(Comparator.comparingInt(BulkWriteError::getIndex));
+            throw new MongoBulkWriteException(BulkWriteResult.acknowledged(0, (int) matched, 0, (int) modified, upserts),
+                    errors, null, serverAddress);
+        }
+        DataResult result = new DataResult();
+        result.setNumMatches(matched);
+        result.setNumUpdated(modified);
+        result.setNumInserted(upserts.size());
+        return result;
+    }
+
+    private boolean isRetryable(MongoException e, boolean idempotent) {
+        if (e instanceof MongoTimeoutException          // No server selected. Nothing was sent
+                || e instanceof MongoSocketOpenException
+                || e instanceof MongoNotPrimaryException    // Rejected by the server
+                || e instanceof MongoNodeIsRecoveringException) {
+            return true;
+        }
+        // Unknown if the operations were applied
+        return idempotent && (e instanceof MongoSocketException || isTransient(e.getCode()));
+    }
+
+    private void backoff(int attempt) {
+        numRetries.incrementAndGet();
+        long sleep = Math.min(MAX_BACKOFF_MS, backoffMs << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoInterruptedException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private static int getIndex(List<Integer> indexes, int index) {
+        return indexes == null ? index : indexes.get(index);
+    }
+
+    public long getNumRetries() {
+        return numRetries.get();
+    }
+
+    public long getNumRetriedOperations() {
+        return numRetriedOperations.get();
+    }
+}
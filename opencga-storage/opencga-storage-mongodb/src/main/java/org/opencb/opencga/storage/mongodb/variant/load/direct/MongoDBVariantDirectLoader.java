@@ -8,6 +8,7 @@ import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.io.DataWriter;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter;
@@ -41,6 +42,11 @@ public class MongoDBVariantDirectLoader implements DataWriter<MongoDBOperations>
                 studyMetadata, Collections.singletonList(fileId), resume, false, progressLogger);
     }
 
+    public MongoDBVariantDirectLoader setSearchChangeLog(VariantSearchChangeLog searchChangeLog) {
+        variantsLoader.setSearchChangeLog(searchChangeLog);
+        return this;
+    }
+
     @Override
     public boolean open() {
         stageLoader.open();
@@ -19,6 +19,7 @@ package org.opencb.opencga.storage.mongodb.variant.load.stage;
 import com.mongodb.client.model.Sorts;
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
@@ -51,6 +52,7 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
     private final int studyId;
     private Collection<Integer> fileIds;
     private final Collection<String> chromosomes;
+    private Region region;
     private MongoPersistentCursor iterator;
     private Document next = null;   // Pending variant
 
@@ -73,6 +75,17 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
         return this;
     }
 
+    /**
+     * Read only the variants starting in the given region.
+     *
+     * @param region Region to read. If null, read all the selected chromosomes.
+     * @return this
+     */
+    public MongoDBVariantStageReader setRegion(Region region) {
+        this.region = region;
+        return this;
+    }
+
     public long countNumVariants() {
         return stageCollection.nativeQuery().count(getQuery());
     }
@@ -120,6 +133,9 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
         } else {
             studyFilter = eq(STUDY_FILE_FIELD, String.valueOf(studyId));
         }
+        if (region != null) {
+            studyFilter = and(studyFilter, getRegionFilter(region));
+        }
         Bson bson;
         if (chrFilters.isEmpty()) {
             bson = studyFilter;
@@ -140,6 +156,17 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
                 lt("_id", chromosome + (char) (VariantStringIdConverter.SEPARATOR_CHAR + 1))));
     }
 
+    public static Bson getRegionFilter(Region region) {
+        String chromosome = VariantStringIdConverter.convertChromosome(region.getChromosome());
+        Bson lowerBound = region.getStart() <= 1
+                ? gte("_id", chromosome + VariantStringIdConverter.SEPARATOR_CHAR)
+                : gte("_id", VariantStringIdConverter.buildId(region.getChromosome(), region.getStart()));
+        Bson upperBound = region.getEnd() == Integer.MAX_VALUE
+                ? lt("_id", chromosome + (char) (VariantStringIdConverter.SEPARATOR_CHAR + 1))
+                : lt("_id", VariantStringIdConverter.buildId(region.getChromosome(), region.getEnd() + 1));
+        return and(lowerBound, upperBound);
+    }
+
     @Override
     public List<Document> read(int b) {
         List<Document> list = new ArrayList<>(b);
@@ -18,6 +18,7 @@ package org.opencb.opencga.storage.mongodb.variant.load.variants;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.opencb.biodata.models.variant.Variant;
 
 import java.util.*;
 
@@ -42,6 +43,8 @@ public class MongoDBOperations {
     private final List<String> documentsToCleanStudies = new ArrayList<>();
     private final List<String> documentsToCleanFiles = new ArrayList<>();
     private final StageSecondaryAlternates secondaryAlternates = new StageSecondaryAlternates();
+    // Variants modified in the VARIANTS collection, to record in the search change log
+    private final List<Variant> modifiedVariants = new ArrayList<>();
 
     private int skipped = 0;
     private int nonInserted = 0;
@@ -125,6 +128,10 @@ public class MongoDBOperations {
         return secondaryAlternates;
     }
 
+    public List<Variant> getModifiedVariants() {
+        return modifiedVariants;
+    }
+
     // Document may exist, study does not exist
     public class NewStudy {
         private final List<String> ids = new LinkedList<>();
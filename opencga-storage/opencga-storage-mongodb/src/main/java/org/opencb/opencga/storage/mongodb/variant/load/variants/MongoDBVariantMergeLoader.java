@@ -28,17 +28,24 @@ import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.io.DataWriter;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
 import org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.load.MongoDBBulkWriteRetry;
 import org.opencb.opencga.storage.mongodb.variant.load.MongoDBVariantWriteResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.mongodb.client.model.Filters.*;
 import static com.mongodb.client.model.Updates.*;
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.LOADED_GENOTYPES;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.MERGE_RETRY_BACKOFF;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.MERGE_RETRY_MAX;
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter.FILEID_FIELD;
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter.FILES_FIELD;
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter.STUDIES_FIELD;
@@ -80,15 +87,31 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
     /** Files to be loaded. */
     private final List<Integer> fileIds;
 
+    private final MongoDBBulkWriteRetry bulkWriteRetry;
+    private VariantSearchChangeLog searchChangeLog = VariantSearchChangeLog.empty();
+
     // Variables that must be aware of concurrent modification
     private final MongoDBVariantWriteResult result;
+    private final AtomicLong numBatches = new AtomicLong();
+    private final AtomicLong numOperations = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
     private final Bson cleanStageDuplicated;
     private final Bson cleanStage;
 
     public MongoDBVariantMergeLoader(MongoDBCollection variantsCollection, MongoDBCollection stageCollection,
                                      MongoDBCollection studiesCollection, StudyMetadata studyMetadata, List<Integer> fileIds,
                                      boolean resume, boolean cleanWhileLoading, ProgressLogger progressLogger) {
+        this(variantsCollection, stageCollection, studiesCollection, studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger,
+                new MongoDBBulkWriteRetry(MERGE_RETRY_MAX.defaultValue(), MERGE_RETRY_BACKOFF.<Integer>defaultValue()));
+    }
+
+    public MongoDBVariantMergeLoader(MongoDBCollection variantsCollection, MongoDBCollection stageCollection,
+                                     MongoDBCollection studiesCollection, StudyMetadata studyMetadata, List<Integer> fileIds,
+                                     boolean resume, boolean cleanWhileLoading, ProgressLogger progressLogger,
+                                     MongoDBBulkWriteRetry bulkWriteRetry) {
         this.progressLogger = progressLogger;
+        this.bulkWriteRetry = bulkWriteRetry;
         this.variantsCollection = variantsCollection;
         this.stageCollection = stageCollection;
         this.studiesCollection = studiesCollection;
@@ -122,7 +145,26 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
     @Override
     public boolean write(List<MongoDBOperations> batch) {
         for (MongoDBOperations mongoDBOperations : batch) {
+            long start = System.nanoTime();
             executeMongoDBOperations(mongoDBOperations);
+            long latency = System.nanoTime() - start;
+            // Record the variants only once they are written
+            try {
+                searchChangeLog.appendVariants(studyId, mongoDBOperations.getModifiedVariants());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int operations = mongoDBOperations.getNewStudy().getQueries().size()
+                    + mongoDBOperations.getExistingStudy().getQueries().size();
+            numBatches.incrementAndGet();
+            numOperations.addAndGet(operations);
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            if (logger.isDebugEnabled()) {
+                double seconds = latency / 1e9;
+                logger.debug("Batch of {} operations written in {}s ({} ops/s)", operations, String.format("%.3f", seconds),
+                        seconds > 0 ? String.format("%.1f", operations / seconds) : "-");
+            }
         }
         return true;
     }
@@ -131,6 +173,11 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         return result;
     }
 
+    public MongoDBVariantMergeLoader setSearchChangeLog(VariantSearchChangeLog searchChangeLog) {
+        this.searchChangeLog = searchChangeLog;
+        return this;
+    }
+
     /**
      * Execute the set of mongoDB operations.
      *
@@ -147,8 +194,8 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         existingVariants.stop();
         StopWatch fillGapsVariants = StopWatch.createStarted();
         if (!mongoDBOps.getExistingStudy().getQueries().isEmpty()) {
-            DataResult update = variantsCollection.update(mongoDBOps.getExistingStudy().getQueries(),
-                    mongoDBOps.getExistingStudy().getUpdates(), QUERY_OPTIONS);
+            DataResult update = bulkWriteRetry.update(variantsCollection, mongoDBOps.getExistingStudy().getQueries(),
+                    mongoDBOps.getExistingStudy().getUpdates(), QUERY_OPTIONS, resume);
             if (update.getNumMatches() != mongoDBOps.getExistingStudy().getQueries().size()) {
                 onUpdateError("fill gaps", update, mongoDBOps.getExistingStudy().getQueries(), mongoDBOps.getExistingStudy().getIds());
             }
@@ -173,10 +220,10 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
             // Update the genotypes as soon as there is a new one detected.
             // Avoid losing values in case of failure.
             logger.debug("Update list of loaded genotypes");
-            studiesCollection.update(
+            bulkWriteRetry.update(studiesCollection,
                     eq("_id", studyId),
                     addEachToSet("attributes." + LOADED_GENOTYPES.key(), new ArrayList<>(result.getGenotypes())),
-                    null);
+                    null, true);
         }
 
         // Modifying the stage collection MUST be the latest operation.
@@ -197,7 +244,7 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
 
         MongoDBOperations.StageSecondaryAlternates alternates = mongoDBOps.getSecondaryAlternates();
         if (!alternates.getQueries().isEmpty()) {
-            DataResult update = stageCollection.update(alternates.getQueries(), alternates.getUpdates(), null);
+            DataResult update = bulkWriteRetry.update(stageCollection, alternates.getQueries(), alternates.getUpdates(), null, true);
             if (update.getNumMatches() != alternates.getQueries().size()) {
                 onUpdateError("populate secondary alternates", update, alternates.getQueries(), alternates.getIds(), stageCollection);
             }
@@ -215,13 +262,13 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         if (!mongoDBOps.getDocumentsToCleanStudies().isEmpty()) {
             logger.debug("Clean study {} from stage where all the files {} where duplicated : {}", studyId, fileIds,
                     mongoDBOps.getDocumentsToCleanStudies());
-            modifiedCount += stageCollection.update(
-                    in(ID_FIELD, mongoDBOps.getDocumentsToCleanStudies()), cleanStageDuplicated, MULTI).getNumUpdated();
+            modifiedCount += bulkWriteRetry.update(stageCollection,
+                    in(ID_FIELD, mongoDBOps.getDocumentsToCleanStudies()), cleanStageDuplicated, MULTI, true).getNumUpdated();
         }
         if (!mongoDBOps.getDocumentsToCleanFiles().isEmpty()) {
             logger.debug("Cleaning files {} from stage collection", fileIds);
-            modifiedCount += stageCollection.update(
-                    in(ID_FIELD, mongoDBOps.getDocumentsToCleanFiles()), cleanStage, MULTI).getNumUpdated();
+            modifiedCount += bulkWriteRetry.update(stageCollection,
+                    in(ID_FIELD, mongoDBOps.getDocumentsToCleanFiles()), cleanStage, MULTI, true).getNumUpdated();
         }
 
         return modifiedCount;
@@ -255,13 +302,13 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
                     queriesExisting.add(and(bson, nin(STUDIES_FIELD + "." + FILES_FIELD + "." + FILEID_FIELD, fileIds)));
                 }
                 // Update those existing variants
-                DataResult update = variantsCollection.update(queriesExisting, newStudy.getUpdates(), QUERY_OPTIONS);
+                DataResult update = bulkWriteRetry.update(variantsCollection, queriesExisting, newStudy.getUpdates(), QUERY_OPTIONS, true);
                 //                if (update.first().getModifiedCount() != mongoDBOps.queriesExisting.size()) {
                 //                    // FIXME: Don't know if there is some error inserting. Query already existing?
                 //                    onUpdateError("existing variants", update, mongoDBOps.queriesExisting, mongoDBOps.queriesExistingId);
                 //                }
             } else {
-                DataResult update = variantsCollection.update(newStudy.getQueries(), newStudy.getUpdates(), UPSERT);
+                DataResult update = bulkWriteRetry.update(variantsCollection, newStudy.getQueries(), newStudy.getUpdates(), UPSERT, false);
 //                if (update.getNumUpdated() + update.first().getUpserts().size() != newStudy.getQueries().size()) {
                 if (update.getNumUpdated() + update.getNumInserted() != newStudy.getQueries().size()) {
                     onUpdateError("existing variants", update, newStudy.getQueries(), newStudy.getIds());
@@ -349,6 +396,17 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
 
     @Override
     public boolean post() {
+        long batches = numBatches.get();
+        if (batches > 0) {
+            double totalSeconds = totalLatencyNanos.get() / 1e9;
+            logger.info("Written {} operations in {} batches. Avg latency: {}s, max latency: {}s, throughput: {} ops/s. "
+                            + "Retries: {} ({} operations)",
+                    numOperations.get(), batches,
+                    String.format("%.3f", totalSeconds / batches),
+                    String.format("%.3f", maxLatencyNanos.get() / 1e9),
+                    totalSeconds > 0 ? String.format("%.1f", numOperations.get() / totalSeconds) : "-",
+                    bulkWriteRetry.getNumRetries(), bulkWriteRetry.getNumRetriedOperations());
+        }
         VariantMongoDBAdaptor.createIndexes(new QueryOptions(), variantsCollection);
         return true;
     }
@@ -1110,6 +1110,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
                     id = variantConverter.buildStorageId(emptyVar);
                 }
                 mongoDBOps.getNewStudy().getIds().add(id);
+                mongoDBOps.getModifiedVariants().add(emptyVar);
                 mongoDBOps.getNewStudy().getQueries().add(eq("_id", id));
                 mongoDBOps.getNewStudy().getUpdates().add(combine(updates));
             } else {
@@ -1138,6 +1139,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
 
             if (!fileDocuments.isEmpty()) {
                 mongoDBOps.getExistingStudy().getIds().add(id);
+                mongoDBOps.getModifiedVariants().add(emptyVar);
                 mongoDBOps.getExistingStudy().getQueries().add(and(eq("_id", id),
                         eq(STUDIES_FIELD + '.' + STUDYID_FIELD, studyId)));
 
@@ -1154,6 +1156,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
                 // These files are not present in this variant. Increase the number of missing variants.
                 mongoDBOps.setMissingVariants(mongoDBOps.getMissingVariants() + 1);
                 mongoDBOps.getExistingStudy().getIds().add(id);
+                mongoDBOps.getModifiedVariants().add(emptyVar);
                 mongoDBOps.getExistingStudy().getQueries().add(and(eq("_id", id),
                         eq(STUDIES_FIELD + '.' + STUDYID_FIELD, studyId)));
                 mongoDBOps.getExistingStudy().getUpdates().add(combine(mergeUpdates));
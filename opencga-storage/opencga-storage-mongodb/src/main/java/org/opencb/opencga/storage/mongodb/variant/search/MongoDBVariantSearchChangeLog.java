@@ -0,0 +1,72 @@
+package org.opencb.opencga.storage.mongodb.variant.search;
+
+import org.bson.Document;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
+import org.opencb.commons.datastore.mongodb.MongoPersistentCursor;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
+
+import java.util.*;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.set;
+import static org.opencb.commons.datastore.mongodb.MongoDBCollection.MULTI;
+
+/**
+ * VariantSearchChangeLog stored in a MongoDB collection, with one document per change.
+ *
+ * Freezing flags the pending documents. Each document is flagged atomically, so the changes appended while freezing are
+ * either frozen and returned, or kept pending for the next synchronization. Committing removes the flagged documents.
+ */
+public class MongoDBVariantSearchChangeLog extends VariantSearchChangeLog {
+
+    public static final String STUDY_FIELD = "study";
+    public static final String VARIANT_FIELD = "variant";
+    public static final String FROZEN_FIELD = "frozen";
+
+    private final MongoDBCollection collection;
+
+    public MongoDBVariantSearchChangeLog(MongoDBCollection collection) {
+        this.collection = collection;
+        collection.createIndex(new Document(FROZEN_FIELD, 1), new ObjectMap());
+    }
+
+    @Override
+    public void append(int studyId, Collection<String> variants) {
+        if (variants.isEmpty()) {
+            return;
+        }
+        List<Document> documents = new ArrayList<>(variants.size());
+        for (String variant : variants) {
+            documents.add(new Document(STUDY_FIELD, studyId)
+                    .append(VARIANT_FIELD, variant)
+                    .append(FROZEN_FIELD, false));
+        }
+        collection.insert(documents, QueryOptions.empty());
+    }
+
+    @Override
+    public Iterator<String> freeze() {
+        collection.update(eq(FROZEN_FIELD, false), set(FROZEN_FIELD, true), new QueryOptions(MULTI, true));
+
+        MongoPersistentCursor cursor = new MongoPersistentCursor(collection, eq(FROZEN_FIELD, true),
+                new Document(VARIANT_FIELD, 1), new QueryOptions());
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return cursor.next().getString(VARIANT_FIELD);
+            }
+        };
+    }
+
+    @Override
+    public void commit() {
+        collection.remove(eq(FROZEN_FIELD, true), new QueryOptions(MULTI, true));
+    }
+}
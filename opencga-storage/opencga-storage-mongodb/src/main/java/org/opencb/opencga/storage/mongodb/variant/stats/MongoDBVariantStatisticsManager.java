@@ -56,6 +56,11 @@ public class MongoDBVariantStatisticsManager extends DefaultVariantStatisticsMan
         if (AggregationUtils.isAggregated(aggregation)) {
             return super.createStats(variantDBAdaptor, output, cohorts, cohortIdsMap, studyMetadata, options);
         }
+        // Incremental stats need the stored stats, which are not read by the direct stats calculator.
+        if (cohorts != null
+                && getIncrementalSamples(variantDBAdaptor.getMetadataManager(), studyMetadata, cohorts, options) != null) {
+            return super.createStats(variantDBAdaptor, output, cohorts, cohortIdsMap, studyMetadata, options);
+        }
 
         //Parse query options
         int batchSize = options.getInt(
@@ -240,6 +240,21 @@ public class MongoVariantStorageEngineTest extends VariantStorageEngineTest impl
         assertTrue(count > 0);
     }
 
+    @Test
+    public void mergeShardedTest() throws Exception {
+        runDefaultETL(smallInputUri, getVariantStorageEngine(), new StudyMetadata(1, "s1"), new ObjectMap()
+                .append(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false));
+
+        runDefaultETL(smallInputUri, getVariantStorageEngine("2"), new StudyMetadata(1, "s1"), new ObjectMap()
+                .append(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false)
+                .append(MongoDBVariantStorageOptions.MERGE_SHARDS.key(), 4));
+
+        assertTrue(compareCollections(getVariantStorageEngine().getDBAdaptor().getVariantsCollection(),
+                getVariantStorageEngine("2").getDBAdaptor().getVariantsCollection()) > 0);
+    }
+
     @Test
     public void loadStageConcurrent() throws Exception {
         StudyMetadata studyMetadata = createStudyMetadata();
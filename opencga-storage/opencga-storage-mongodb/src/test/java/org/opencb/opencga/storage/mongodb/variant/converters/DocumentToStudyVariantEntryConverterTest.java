@@ -254,4 +254,20 @@ public class DocumentToStudyVariantEntryConverterTest {
 
     }
 
+    @Test
+    public void testConvertToDataModelTypeIncludeSamples() {
+        StudyMetadata studyMetadata = metadataManager.getStudyMetadata(studyId);
+        VariantQueryFields variantQueryFields = new VariantQueryFields(studyMetadata, Arrays.asList(2, 3), Arrays.asList(fileId));
+        DocumentToStudyVariantEntryConverter converter = new DocumentToStudyVariantEntryConverter(true, studyId, fileId,
+                new DocumentToSamplesConverter(metadataManager, variantQueryFields));
+
+        // Convert twice to reuse the cached sample positions
+        for (int i = 0; i < 2; i++) {
+            StudyEntry converted = converter.convertToDataModelType(mongoStudy);
+            assertEquals(Arrays.asList("NA002", "NA003"), converted.getOrderedSamplesName());
+            assertEquals(Arrays.asList(Collections.singletonList("0/1"), Collections.singletonList("1/1")),
+                    converted.getSamplesData());
+        }
+    }
+
 }
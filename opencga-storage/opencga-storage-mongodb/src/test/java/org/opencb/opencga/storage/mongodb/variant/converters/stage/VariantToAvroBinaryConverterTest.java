@@ -0,0 +1,104 @@
+package org.opencb.opencga.storage.mongodb.variant.converters.stage;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.bson.types.Binary;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+import org.opencb.commons.utils.CompressionUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class VariantToAvroBinaryConverterTest {
+
+    @Test
+    public void testCodecs() {
+        Variant variant = createVariant(1000);
+        for (VariantToAvroBinaryConverter.Codec codec : VariantToAvroBinaryConverter.Codec.values()) {
+            VariantToAvroBinaryConverter converter = new VariantToAvroBinaryConverter(codec);
+            Binary binary = converter.convertToStorageType(variant);
+            assertEquals(VariantToAvroBinaryConverter.VERSION, binary.getData()[1]);
+            assertEquals(variant.toJson(), converter.convertToDataModelType(binary).toJson());
+
+            // Any converter can read any codec
+            assertEquals(variant.toJson(), new VariantToAvroBinaryConverter().convertToDataModelType(binary).toJson());
+        }
+    }
+
+    @Test
+    public void testReadLegacy() throws Exception {
+        Variant variant = createVariant(1000);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(outputStream, null);
+        new SpecificDatumWriter<>(VariantAvro.getClassSchema()).write(variant.getImpl(), encoder);
+        encoder.flush();
+        Binary legacy = new Binary(CompressionUtils.compress(outputStream.toByteArray()));
+
+        assertEquals(variant.toJson(), new VariantToAvroBinaryConverter().convertToDataModelType(legacy).toJson());
+    }
+
+    @Test
+    public void testMultiThread() throws Exception {
+        VariantToAvroBinaryConverter converter = new VariantToAvroBinaryConverter();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                int start = 1000 + i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        Variant variant = createVariant(start + j * 1000);
+                        if (!variant.toJson().equals(converter.convertToDataModelType(converter.convertToStorageType(variant)).toJson())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertEquals(true, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testClose() {
+        Variant variant = createVariant(1000);
+        VariantToAvroBinaryConverter converter = new VariantToAvroBinaryConverter();
+        Binary binary = converter.convertToStorageType(variant);
+        converter.close();
+
+        // Still usable after closing, without reusing the released deflaters and inflaters
+        assertEquals(variant.toJson(), converter.convertToDataModelType(binary).toJson());
+        assertEquals(variant.toJson(), converter.convertToDataModelType(converter.convertToStorageType(variant)).toJson());
+        converter.close();
+    }
+
+    private static Variant createVariant(int start) {
+        Variant variant = new Variant("1", start, "A", "C");
+        StudyEntry studyEntry = new StudyEntry("1", "s1");
+        studyEntry.setFormatAsString("GT:DP");
+        for (int i = 0; i < 50; i++) {
+            Map<String, String> sampleData = new HashMap<>();
+            sampleData.put("GT", i % 3 == 0 ? "0/1" : "0/0");
+            sampleData.put("DP", String.valueOf(i + start % 17));
+            studyEntry.addSampleData("S" + i, sampleData);
+        }
+        variant.addStudyEntry(studyEntry);
+        return variant;
+    }
+}
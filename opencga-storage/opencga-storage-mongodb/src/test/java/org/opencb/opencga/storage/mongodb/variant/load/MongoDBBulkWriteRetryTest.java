@@ -0,0 +1,120 @@
+package org.opencb.opencga.storage.mongodb.variant.load;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.set;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MongoDBBulkWriteRetryTest {
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int NOT_MASTER = 10107;
+
+    @Test
+    public void testRetryOnlyTransientErrors() {
+        List<Bson> queries = Arrays.asList(eq("_id", 0), eq("_id", 1), eq("_id", 2), eq("_id", 3));
+        List<Bson> updates = Arrays.asList(set("a", 0), set("a", 1), set("a", 2), set("a", 3));
+        List<List<Bson>> calls = new ArrayList<>();
+
+        MongoDBCollection collection = mock(MongoDBCollection.class);
+        when(collection.update(anyList(), anyList(), any())).then(invocation -> {
+            List<Bson> q = new ArrayList<>(invocation.getArgument(0));
+            calls.add(q);
+            if (calls.size() == 1) {
+                // Operation 1 failed with a transient error, operation 2 is a duplicated key, operation 3 was upserted
+                throw new MongoBulkWriteException(BulkWriteResult.acknowledged(0, 1, 0, 1,
+                        Collections.singletonList(new BulkWriteUpsert(3, new BsonDocument()))),
+                        Arrays.asList(error(NOT_MASTER, 1), error(DUPLICATE_KEY, 2)), null, new ServerAddress());
+            } else if (calls.size() == 2) {
+                // Operation 1 fails again
+                throw new MongoBulkWriteException(BulkWriteResult.acknowledged(0, 0, 0, 0, Collections.emptyList()),
+                        Collections.singletonList(error(NOT_MASTER, 0)), null, new ServerAddress());
+            } else {
+                DataResult result = new DataResult();
+                result.setNumMatches(q.size());
+                result.setNumUpdated(q.size());
+                return result;
+            }
+        });
+
+        MongoDBBulkWriteRetry retry = new MongoDBBulkWriteRetry(5, 0);
+        try {
+            retry.update(collection, queries, updates, null, false);
+            fail("Expected MongoBulkWriteException");
+        } catch (MongoBulkWriteException e) {
+            assertEquals(1, e.getWriteErrors().size());
+            assertEquals(2, e.getWriteErrors().get(0).getIndex());
+            assertEquals(DUPLICATE_KEY, e.getWriteErrors().get(0).getCode());
+            assertEquals(2, e.getWriteResult().getMatchedCount());
+            assertEquals(1, e.getWriteResult().getUpserts().size());
+            assertEquals(3, e.getWriteResult().getUpserts().get(0).getIndex());
+        }
+
+        assertEquals(3, calls.size());
+        assertEquals(Collections.singletonList(queries.get(1)), calls.get(1));
+        assertEquals(Collections.singletonList(queries.get(1)), calls.get(2));
+        assertEquals(2, retry.getNumRetries());
+        assertEquals(2, retry.getNumRetriedOperations());
+    }
+
+    @Test
+    public void testMaxRetries() {
+        MongoDBCollection collection = mock(MongoDBCollection.class);
+        when(collection.update(anyList(), anyList(), any())).thenThrow(
+                new MongoBulkWriteException(BulkWriteResult.acknowledged(0, 0, 0, 0, Collections.emptyList()),
+                        Collections.singletonList(error(NOT_MASTER, 0)), null, new ServerAddress()));
+
+        MongoDBBulkWriteRetry retry = new MongoDBBulkWriteRetry(2, 0);
+        try {
+            retry.update(collection, eq("_id", 0), set("a", 0), null, true);
+            fail("Expected MongoBulkWriteException");
+        } catch (MongoBulkWriteException e) {
+            assertEquals(NOT_MASTER, e.getWriteErrors().get(0).getCode());
+        }
+        verify(collection, times(3)).update(anyList(), anyList(), any());
+    }
+
+    @Test
+    public void testRetryNetworkErrorOnlyIfIdempotent() {
+        MongoDBCollection collection = mock(MongoDBCollection.class);
+        when(collection.update(anyList(), anyList(), any()))
+                .thenThrow(new MongoSocketReadException("Broken pipe", new ServerAddress()))
+                .thenReturn(new DataResult());
+
+        MongoDBBulkWriteRetry retry = new MongoDBBulkWriteRetry(2, 0);
+        try {
+            retry.update(collection, eq("_id", 0), set("a", 0), null, false);
+            fail("Expected MongoSocketReadException");
+        } catch (MongoSocketReadException ignore) {
+            // Not idempotent. Can not be retried
+        }
+
+        when(collection.update(anyList(), anyList(), any()))
+                .thenThrow(new MongoSocketReadException("Broken pipe", new ServerAddress()))
+                .thenReturn(new DataResult());
+        retry.update(collection, eq("_id", 0), set("a", 0), null, true);
+        assertEquals(1, retry.getNumRetries());
+    }
+
+    private static BulkWriteError error(int code, int index) {
+        return new BulkWriteError(code, "error " + code, new BsonDocument(), index);
+    }
+}
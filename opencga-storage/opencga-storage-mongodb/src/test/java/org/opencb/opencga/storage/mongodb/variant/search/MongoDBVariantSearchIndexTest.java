@@ -1,12 +1,45 @@
 package org.opencb.opencga.storage.mongodb.variant.search;
 
+import org.junit.Test;
+import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchChangeLog;
 import org.opencb.opencga.storage.core.variant.search.VariantSearchIndexTest;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageTest;
 
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.SEARCH_CHANGE_LOG;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.SEARCH_CHANGE_LOG_DIR;
+
 /**
  * Created on 19/04/18.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
  */
 public class MongoDBVariantSearchIndexTest extends VariantSearchIndexTest implements MongoDBVariantStorageTest {
+
+    @Test
+    public void testChangeLogRecordsLoadedVariants() throws Exception {
+        VariantStorageEngine engine = variantStorageEngine;
+        engine.getOptions().put(SEARCH_CHANGE_LOG.key(), true);
+        engine.getOptions().put(SEARCH_CHANGE_LOG_DIR.key(), Paths.get(outputUri).resolve("changelog").toString());
+
+        runDefaultETL(smallInputUri, engine, newStudyMetadata());
+        long numVariants = engine.getDBAdaptor().count(null).first();
+
+        // Every merged variant is recorded once the batch is written
+        Set<String> changes = new HashSet<>();
+        try (VariantSearchChangeLog changeLog = engine.getVariantSearchChangeLog()) {
+            changeLog.freeze().forEachRemaining(changes::add);
+        }
+        assertEquals(numVariants, changes.size());
+
+        // Frozen changes not committed are synchronized by the next search index
+        checkLoadResult(numVariants, searchIndex());
+        checkVariantSearchIndex(engine.getDBAdaptor());
+        checkLoadResult(0, searchIndex());
+    }
 }